@@ -1,44 +1,92 @@
 package com.easysql.engine;
 
 import com.easysql.engine.builder.SQLBuilder;
+import com.easysql.engine.datasource.DataSourceRouter;
+import com.easysql.engine.dialect.H2Dialect;
 import com.easysql.engine.dialect.MySQLDialect;
 import com.easysql.engine.dialect.SQLDialect;
 import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.ExplainRegistry;
 import com.easysql.engine.monitor.MetricsCollector;
 import com.easysql.engine.monitor.QueryMetrics;
 import com.easysql.engine.optimizer.BasicOptimizer;
+import com.easysql.engine.optimizer.ColumnPruner;
+import com.easysql.engine.optimizer.ConstantFolder;
+import com.easysql.engine.optimizer.JoinReorderer;
+import com.easysql.engine.optimizer.Rule;
+import com.easysql.engine.optimizer.RuleEngine;
+import com.easysql.engine.optimizer.SargableRewriter;
+import com.easysql.engine.plan.LogicalPlan;
+import com.easysql.engine.plan.PlanNode;
 import com.easysql.engine.dsl.Query;
+import com.easysql.engine.metadata.ConcurrentLoadingCache;
 import com.easysql.engine.metadata.MetadataCache;
+import com.easysql.engine.metadata.TableMetadata;
+import com.easysql.engine.executor.AdmissionController;
+import com.easysql.engine.executor.ExplainSampler;
+import com.easysql.engine.executor.HintTuner;
+import com.easysql.engine.executor.InParameters;
 import com.easysql.engine.executor.JDBCSQLExecutor;
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.shard.ShardedDataSource;
+import com.easysql.engine.shard.ShardedExecutor;
 
+import javax.sql.DataSource;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EasySQLEngine {
 
-    private final Map<String, SQLDialect> dialects = new HashMap<>();
+    public static final String COUNTER_PLAN_CACHE_HIT = "optimizer.plan_cache_hit";
+    public static final String COUNTER_PARALLEL_UNION = "union.parallel";
+    public static final String RULE_SARGABLE = "sargable";
+    public static final String RULE_COLUMN_PRUNE = "column_prune";
+    public static final String RULE_JOIN_REORDER = "join_reorder";
+    // 副本健康/延迟检查周期
+    private static final long REPLICA_HEALTH_CHECK_MS = 5000;
+
+    private final Map<String, SQLDialect> dialects = new ConcurrentHashMap<>();
     private final MetricsCollector metrics = new MetricsCollector();
-    private final MetadataCache metadataCache = new MetadataCache(1000, 300000); // 1000条，5分钟TTL
+    private final MetadataCache metadataCache = new MetadataCache(1000, 300000, 1800000); // 1000条，5分钟后台刷新，30分钟硬过期
+    private final DataSourceRouter router = new DataSourceRouter();
+    private final JDBCSQLExecutor executor = new JDBCSQLExecutor(metrics);
+    private final Map<String, ShardedDataSource> shardedSources = new ConcurrentHashMap<>();
+    // 基础优化结果按计划结构缓存：键与值均为驻留的不可变计划；读路径无锁，同一计划并发未命中时只优化一次
+    private final BasicOptimizer optimizer = new BasicOptimizer(metrics);
+    private final ConcurrentLoadingCache<PlanNode, PlanNode> optimizedPlans = new ConcurrentLoadingCache<>(1000);
+    private final ShardedExecutor shardedExecutor = new ShardedExecutor(executor, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    private final ExplainSampler explainSampler = new ExplainSampler(new ExplainRegistry(1000), metrics, 1000);
+    private final AdmissionController admission = new AdmissionController(metrics);
+    private final HintTuner hintTuner = new HintTuner(metrics, 1000);
 
     public EasySQLEngine() {
         dialects.put("mysql", new MySQLDialect());
+        dialects.put("h2", new H2Dialect());
         // 其他方言可在M2添加
+        executor.setDialectResolver(this::dialectOf);
+        metadataCache.setMetrics(metrics);
+    }
+
+    /**
+     * 注册或替换方言，模板按 dialect 名称（小写）选用；如目标库为 MySQL 8.0.19+ 时注册 new MySQLDialect(true) 以启用 VALUES 改写
+     */
+    public void registerDialect(String name, SQLDialect dialect) {
+        dialects.put(name.toLowerCase(), dialect);
     }
 
     /**
-     * 从JSON构建SQL
+     * 从JSON构建SQL，与Template重载经过相同的优化
      */
     public String buildSQL(String json) throws IOException {
-        Template t = TemplateMapper.fromJson(json);
-        Validator.validateBasic(t);
-        String dialectName = t.dialect == null || t.dialect.isEmpty() ? "mysql" : t.dialect.toLowerCase();
-        SQLDialect dialect = dialects.get(dialectName);
-        if (dialect == null) {
-            throw new IllegalArgumentException("unsupported dialect: " + dialectName);
-        }
-        SQLBuilder builder = new SQLBuilder(dialect);
-        return builder.buildSelect(t);
+        return buildSQL(TemplateMapper.fromJson(json));
     }
 
     /**
@@ -47,13 +95,9 @@ public class EasySQLEngine {
     public String buildSQL(Template t) {
         Validator.validateBasic(t);
         // M2：调用简单优化器
-        BasicOptimizer optimizer = new BasicOptimizer();
-        t = optimizer.optimize(t);
-        String dialectName = t.dialect == null || t.dialect.isEmpty() ? "mysql" : t.dialect.toLowerCase();
-        SQLDialect dialect = dialects.get(dialectName);
-        if (dialect == null) {
-            throw new IllegalArgumentException("unsupported dialect: " + dialectName);
-        }
+        t = optimize(t);
+        SQLDialect dialect = dialectOf(t);
+        t = optimizeWithMetadata(t, dialect);
         SQLBuilder builder = new SQLBuilder(dialect);
         return builder.buildSelect(t);
     }
@@ -74,32 +118,10 @@ public class EasySQLEngine {
     }
 
     /**
-     * 完整解析与构建（包含性能指标）
+     * 完整解析与构建（包含性能指标），与Template重载经过相同的优化
      */
     public QueryResult parseAndBuild(String json) throws IOException {
-        long start = System.currentTimeMillis();
-        try {
-            Template t = TemplateMapper.fromJson(json);
-            Validator.validateBasic(t);
-            // M2：优化
-            BasicOptimizer optimizer = new BasicOptimizer();
-            t = optimizer.optimize(t);
-            String dialectName = t.dialect == null || t.dialect.isEmpty() ? "mysql" : t.dialect.toLowerCase();
-            SQLDialect dialect = dialects.get(dialectName);
-            if (dialect == null) {
-                throw new IllegalArgumentException("unsupported dialect: " + dialectName);
-            }
-            SQLBuilder builder = new SQLBuilder(dialect);
-            String sql = builder.buildSelect(t);
-            long end = System.currentTimeMillis();
-            long buildTime = end - start;
-            metrics.record(QueryMetrics.success(t.id, t.datasource, buildTime, 0, 0));
-            return new QueryResult(sql, t, buildTime);
-        } catch (RuntimeException e) {
-            long end = System.currentTimeMillis();
-            metrics.record(QueryMetrics.failure("unknown", "unknown", end - start, "BUILD_ERROR", e.getMessage()));
-            throw e;
-        }
+        return parseAndBuild(TemplateMapper.fromJson(json));
     }
 
     /**
@@ -110,13 +132,9 @@ public class EasySQLEngine {
         try {
             Validator.validateBasic(t);
             // M2：优化
-            BasicOptimizer optimizer = new BasicOptimizer();
-            t = optimizer.optimize(t);
-            String dialectName = t.dialect == null || t.dialect.isEmpty() ? "mysql" : t.dialect.toLowerCase();
-            SQLDialect dialect = dialects.get(dialectName);
-            if (dialect == null) {
-                throw new IllegalArgumentException("unsupported dialect: " + dialectName);
-            }
+            t = optimize(t);
+            SQLDialect dialect = dialectOf(t);
+            t = optimizeWithMetadata(t, dialect);
             SQLBuilder builder = new SQLBuilder(dialect);
             String sql = builder.buildSelect(t);
             long end = System.currentTimeMillis();
@@ -137,6 +155,66 @@ public class EasySQLEngine {
         return parseAndBuild(query.build());
     }
 
+    private SQLDialect dialectOf(Template t) {
+        String dialectName = t.dialect == null || t.dialect.isEmpty() ? "mysql" : t.dialect.toLowerCase();
+        SQLDialect dialect = dialects.get(dialectName);
+        if (dialect == null) {
+            throw new IllegalArgumentException("unsupported dialect: " + dialectName);
+        }
+        return dialect;
+    }
+
+    /**
+     * 基础优化：模板转换为驻留的不可变计划，优化结果按计划缓存，结构相同的模板只优化一次；
+     * 返回由计划生成的新模板，后续改写不会修改调用方模板或缓存中的计划。
+     * 模板禁用了部分规则时结果与缓存不一致，直接优化不入缓存
+     */
+    private Template optimize(Template t) {
+        PlanNode plan = LogicalPlan.of(t);
+        if (t.options != null && t.options.disabledRules != null && !t.options.disabledRules.isEmpty()) {
+            return optimizer.optimize(LogicalPlan.toTemplate(plan, t));
+        }
+        boolean[] computed = new boolean[1];
+        PlanNode optimized;
+        try {
+            optimized = optimizedPlans.get(plan, cached -> true, () -> {
+                computed[0] = true;
+                return LogicalPlan.of(optimizer.optimize(LogicalPlan.toTemplate(plan, t)));
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            throw new IllegalStateException("Plan optimization interrupted: " + e.getMessage(), e);
+        }
+        if (!computed[0]) metrics.increment(COUNTER_PLAN_CACHE_HIT);
+        return LogicalPlan.toTemplate(optimized, t);
+    }
+
+    /**
+     * 模板数据源已注册元数据时：索引列上的条件改写为可走索引的形式，展开通配符、按需裁剪select项并消除多余的 LEFT JOIN，
+     * 再按统计信息重排 INNER JOIN 链；每次查询都会执行，规则按优先级单轮执行而不经驻留表检测改动
+     */
+    private Template optimizeWithMetadata(Template t, SQLDialect dialect) {
+        if (t.datasource == null || !metadataCache.hasDatasource(t.datasource)) return t;
+        SargableRewriter sargable = new SargableRewriter(metadataCache, dialect, metrics);
+        ColumnPruner pruner = new ColumnPruner(metadataCache, dialect);
+        JoinReorderer reorderer = new JoinReorderer(metadataCache, metrics);
+        return RuleEngine.singlePass(metrics)
+                .register(Rule.of(RULE_SARGABLE, 100, sargable::optimize))
+                .register(Rule.of(RULE_COLUMN_PRUNE, 110, pruner::optimize))
+                .register(Rule.of(RULE_JOIN_REORDER, 120, reorderer::optimize))
+                .optimize(t);
+    }
+
+    /**
+     * 注册自定义基础优化规则：规则只能依赖模板结构（结果按计划缓存），注册后清空已缓存的优化结果
+     */
+    public void registerRule(Rule rule) {
+        optimizer.getRules().register(rule);
+        optimizedPlans.invalidateAll();
+    }
+
     /**
      * 获取指标收集器（便于外部监控集成）
      */
@@ -152,9 +230,296 @@ public class EasySQLEngine {
     }
 
     /**
-     * 创建绑定了引擎MetricsCollector的JDBC执行器
+     * 获取执行计划采样器（采样间隔、大表阈值、开关配置），采集结果见 {@link ExplainSampler#getRegistry()}
+     */
+    public ExplainSampler getExplainSampler() {
+        return explainSampler;
+    }
+
+    /**
+     * 获取准入控制（按数据源设置并发代价预算）
+     */
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    /**
+     * 获取分片执行器（合并排序时的字符串排序规则配置）
+     */
+    public ShardedExecutor getShardedExecutor() {
+        return shardedExecutor;
+    }
+
+    /**
+     * 获取自适应提示选择器（探索概率、样本数、回退阈值配置）
+     */
+    public HintTuner getHintTuner() {
+        return hintTuner;
+    }
+
+    /**
+     * 在全部已注册数据源上并发预加载表结构（启动预热），返回各数据源的表数、列数与耗时
+     */
+    public List<MetadataCache.PreloadResult> preloadMetadata(String catalog, String schema) {
+        return metadataCache.preloadAll(catalog, schema, null);
+    }
+
+    /**
+     * 保存元数据快照（如停机前），下次启动可用 {@link #loadMetadataSnapshot} 快速预热
+     */
+    public int saveMetadataSnapshot(Path file) throws IOException {
+        return metadataCache.saveSnapshot(file);
+    }
+
+    /**
+     * 从快照预热元数据，条目在后台重新校验；应在注册数据源之后调用
+     */
+    public int loadMetadataSnapshot(Path file) {
+        return metadataCache.loadSnapshot(file);
+    }
+
+    /**
+     * 获取数据源路由（主库/副本、摘除策略配置）
+     */
+    public DataSourceRouter getDataSourceRouter() {
+        return router;
+    }
+
+    /**
+     * 注册逻辑数据源：主库 + 只读副本；元数据从主库加载。
+     * 有副本时启动后台副本检查（守护线程，每5秒一次），延迟探针经 {@link #getDataSourceRouter} 配置
+     */
+    public void registerDataSource(String name, DataSource primary, DataSource... replicas) {
+        router.register(name, primary, replicas);
+        if (replicas.length > 0) router.startHealthCheck(REPLICA_HEALTH_CHECK_MS);
+        metadataCache.registerDatasource(name, () -> {
+            try {
+                return primary.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to connect datasource " + name + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 注册分片数据源：模板datasource与其名称相同时扇出到各分片执行；元数据从首个分片加载
+     */
+    public void registerShardedDataSource(ShardedDataSource sharded) {
+        shardedSources.put(sharded.getName(), sharded);
+        DataSource first = sharded.getShard(0);
+        metadataCache.registerDatasource(sharded.getName(), () -> {
+            try {
+                return first.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to connect datasource " + sharded.getName() + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 构建并在模板指定的数据源上执行查询；options.readOnly=true 时路由到副本，分片数据源则并发扇出；
+     * options.parallelUnion=true 的 UNION ALL 各分支在各自连接上并发执行；条件恒假（含绑定为空集合的 IN 参数）时不访问数据库。
+     * 单语句查询受数据源代价预算约束，超出预算或排队超时抛出 IllegalStateException；
+     * 声明了 options.hintCandidates 的模板按观测延迟在候选提示间自适应选择
+     */
+    public SQLExecutor.QueryResult executeQuery(Template t, Map<String, Object> params) {
+        QueryResult built = parseAndBuild(t);
+        if (ConstantFolder.neverMatches(built.template, params)) {
+            // 条件恒假：列名已知时直接返回空结果，不访问数据库
+            List<String> columns = ConstantFolder.outputColumns(built.template);
+            if (columns != null) {
+                metrics.increment("optimizer.short_circuit");
+                return new SQLExecutor.QueryResult(new ArrayList<>(), columns, 0);
+            }
+        }
+        if (isParallelUnion(built.template)) {
+            SQLExecutor.QueryResult merged = executeUnionBranches(built.template, params);
+            if (merged != null) return merged;
+        }
+        ShardedDataSource sharded = built.template.datasource == null ? null : shardedSources.get(built.template.datasource);
+        if (sharded != null) {
+            return shardedExecutor.executeQuery(sharded, built.template, params,
+                    tpl -> new SQLBuilder(dialectOf(tpl)).buildSelect(tpl));
+        }
+        boolean readOnly = built.template.options != null && Boolean.TRUE.equals(built.template.options.readOnly);
+        Template exec = built.template;
+        String sql = built.sql;
+        // 自适应提示：按基础SQL的指纹选择一组候选提示追加后重新渲染
+        String tuned = null;
+        int arm = -1;
+        List<List<String>> candidates = exec.options == null ? null : exec.options.hintCandidates;
+        if (candidates != null && !candidates.isEmpty()) {
+            tuned = ExplainSampler.fingerprint(exec.datasource, sql);
+            arm = hintTuner.choose(tuned, candidates.size());
+            exec = withHints(exec, candidates.get(arm));
+            sql = new SQLBuilder(dialectOf(exec)).buildSelect(exec);
+        }
+        Template target = exec;
+        String targetSql = sql;
+        SQLExecutor.QueryResult result;
+        AdmissionController.Permit permit = admission.admit(target.datasource, estimatedCost(target.datasource, targetSql));
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            result = router.execute(target.datasource, readOnly,
+                    conn -> executor.executeQuery(conn, targetSql, target, params));
+            succeeded = true;
+        } finally {
+            permit.close();
+            // 失败的候选按罚时计入，否则它永远凑不够样本而被反复探索
+            if (tuned != null) {
+                long elapsed = System.nanoTime() - start;
+                if (succeeded) {
+                    hintTuner.record(tuned, arm, elapsed);
+                } else {
+                    hintTuner.recordFailure(tuned, arm, elapsed);
+                }
+            }
+        }
+        sampleExplain(target, targetSql, params, readOnly);
+        return result;
+    }
+
+    /**
+     * 代价取自该指纹最近一次 EXPLAIN 采集，首次执行时未知（-1）直接放行
+     */
+    private long estimatedCost(String datasource, String sql) {
+        return AdmissionController.estimateCost(explainSampler.getRegistry().get(ExplainSampler.fingerprint(datasource, sql)));
+    }
+
+    private static Template withHints(Template t, List<String> extra) {
+        if (extra == null || extra.isEmpty()) return t;
+        Template c = t.shallowCopy();
+        c.options = t.options.copy();
+        if (c.options.hints == null) c.options.hints = new ArrayList<>();
+        for (String h : extra) {
+            if (!c.options.hints.contains(h)) c.options.hints.add(h);
+        }
+        return c;
+    }
+
+    /**
+     * 按计划指纹提交异步 EXPLAIN；EXPLAIN 走与查询相同的路由，大表判断所需行数取自元数据缓存。
+     * 集合参数超过 maxInArity 时不采样：执行期的SQL已被改写，按原样展开的语句可能超出占位符上限
+     */
+    private void sampleExplain(Template t, String sql, Map<String, Object> params, boolean readOnly) {
+        if (InParameters.exceeds(params, executor.getMaxInArity())) return;
+        String datasource = t.datasource;
+        explainSampler.maybeCapture(t, sql, params, dialectOf(t),
+                (explainSql, bound) -> router.execute(datasource, readOnly, conn -> {
+                    try {
+                        return executor.explain(conn, explainSql, t, bound);
+                    } catch (SQLException e) {
+                        throw new RuntimeException("EXPLAIN failed: " + e.getMessage(), e);
+                    }
+                }),
+                table -> {
+                    if (datasource == null || !metadataCache.hasDatasource(datasource)) return -1;
+                    try {
+                        TableMetadata tm = metadataCache.getTable(datasource, null, null, table);
+                        return tm == null ? -1 : tm.getRowCount();
+                    } catch (SQLException | RuntimeException e) {
+                        return -1;
+                    }
+                });
+    }
+
+    private static boolean isParallelUnion(Template t) {
+        if (t.options == null || !Boolean.TRUE.equals(t.options.parallelUnion) || t.unions == null || t.unions.isEmpty()) {
+            return false;
+        }
+        for (Template.UnionItem u : t.unions) {
+            if (!u.unionAll) return false;
+        }
+        return true;
+    }
+
+    /**
+     * UNION ALL 分支各自渲染（分支未指定数据源/方言时沿用主查询），在分支数据源的独立连接上并发执行后合并；
+     * 排序键无法对应到各分支或分支落在分片数据源上时返回 null，按普通查询执行
+     */
+    private SQLExecutor.QueryResult executeUnionBranches(Template t, Map<String, Object> params) {
+        List<Template> branches = SQLBuilder.unionBranches(t, true);
+        if (branches == null) return null;
+        boolean readOnly = Boolean.TRUE.equals(t.options.readOnly);
+        // 分支 LIMIT 已下推为 limit+offset，maxRows 只在合并后全局生效，否则分支被提前截断
+        Template.Options branchOptions = t.options.copy();
+        branchOptions.maxRows = null;
+        List<String> labels = new ArrayList<>();
+        List<Callable<SQLExecutor.QueryResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            Template b = branches.get(i);
+            String datasource = b.datasource != null ? b.datasource : t.datasource;
+            if (datasource == null || shardedSources.containsKey(datasource)) return null;
+            String sql = new SQLBuilder(dialectOf(b.dialect != null ? b : t)).buildSelect(b);
+            // 执行属性（参数声明、超时、fetchSize）取自主查询；方言与数据源补全后供执行器与 EXPLAIN 使用
+            Template exec = b.shallowCopy();
+            if (exec.id == null) exec.id = t.id;
+            if (exec.dialect == null) exec.dialect = t.dialect;
+            exec.datasource = datasource;
+            exec.params = t.params;
+            exec.options = branchOptions;
+            labels.add(datasource + "#" + i);
+            // 各分支分别准入并采集执行计划，与单语句查询共用数据源预算
+            tasks.add(() -> {
+                SQLExecutor.QueryResult r;
+                AdmissionController.Permit permit = admission.admit(datasource, estimatedCost(datasource, sql));
+                try {
+                    r = router.execute(datasource, readOnly, conn -> executor.executeQuery(conn, sql, exec, params));
+                } finally {
+                    permit.close();
+                }
+                sampleExplain(exec, sql, params, readOnly);
+                return r;
+            });
+        }
+        metrics.increment(COUNTER_PARALLEL_UNION);
+        return shardedExecutor.executeBranches(t, labels, tasks);
+    }
+
+    /**
+     * 在模板数据源的主库上执行多行INSERT/UPSERT：行数据流式消费，按方言包大小切分为多条语句；
+     * UPSERT 未声明冲突键时取元数据缓存中的主键
+     */
+    public int executeInsert(Template t, Iterator<Map<String, Object>> rows) {
+        Validator.validateInsert(t);
+        Template resolved = Boolean.TRUE.equals(t.insert.upsert) ? withUpsertKeys(t) : t;
+        Iterator<SQLBuilder.InsertStatement> statements = new SQLBuilder(dialectOf(resolved)).buildInsert(resolved, rows);
+        return router.execute(resolved.datasource, false, conn -> executor.executeInsert(conn, resolved, statements));
+    }
+
+    private Template withUpsertKeys(Template t) {
+        if (t.insert.keys != null && !t.insert.keys.isEmpty()) return t;
+        TableMetadata table;
+        try {
+            table = metadataCache.getTable(t.datasource, t.from.catalog, t.from.schema, t.from.table);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load key columns of " + t.from.table + ": " + e.getMessage(), e);
+        }
+        if (table == null || table.getPrimaryKeys() == null || table.getPrimaryKeys().isEmpty()) {
+            throw new IllegalArgumentException("upsert target has no primary key, declare insert.keys: " + t.from.table);
+        }
+        Template.Insert insert = new Template.Insert();
+        insert.columns = t.insert.columns;
+        insert.upsert = true;
+        insert.updateColumns = t.insert.updateColumns;
+        // 键列沿用模板中的写法，保证与写入列、行数据的键一致
+        insert.keys = new ArrayList<>();
+        for (String pk : table.getPrimaryKeys()) {
+            String column = t.insert.columns.stream().filter(pk::equalsIgnoreCase).findFirst().orElse(pk);
+            insert.keys.add(column);
+        }
+        Template copy = t.shallowCopy();
+        copy.insert = insert;
+        return copy;
+    }
+
+    /**
+     * 创建绑定了引擎MetricsCollector的JDBC执行器：按模板的 dialect 选择方言，未指定时为MySQL
      */
     public JDBCSQLExecutor createExecutor() {
-        return new JDBCSQLExecutor(this.metrics);
+        JDBCSQLExecutor created = new JDBCSQLExecutor(this.metrics, dialects.get("mysql"));
+        created.setDialectResolver(this::dialectOf);
+        return created;
     }
 }
\ No newline at end of file
@@ -7,9 +7,12 @@ public class Validator {
     public static void validateBasic(Template t) {
         if (t == null) throw new IllegalArgumentException("template is null");
         if (isBlank(t.id)) throw new IllegalArgumentException("template.id is required");
-        if (t.from == null || isBlank(t.from.table)) {
+        if (t.from == null || (isBlank(t.from.table) && t.from.subquery == null)) {
             throw new IllegalArgumentException("template.from.table is required");
         }
+        if (t.from.subquery != null && isBlank(t.from.alias)) {
+            throw new IllegalArgumentException("derived table requires template.from.alias");
+        }
         if (t.select == null || t.select.isEmpty()) {
             throw new IllegalArgumentException("template.select must have at least one item");
         }
@@ -27,6 +30,17 @@ public class Validator {
         }
     }
 
+    public static void validateInsert(Template t) {
+        if (t == null) throw new IllegalArgumentException("template is null");
+        if (isBlank(t.id)) throw new IllegalArgumentException("template.id is required");
+        if (t.from == null || isBlank(t.from.table)) {
+            throw new IllegalArgumentException("template.from.table is required");
+        }
+        if (t.insert == null || t.insert.columns == null || t.insert.columns.isEmpty()) {
+            throw new IllegalArgumentException("template.insert.columns must have at least one column");
+        }
+    }
+
     private static boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
@@ -3,12 +3,25 @@ package com.easysql.engine.builder;
 import com.easysql.engine.dialect.SQLDialect;
 import com.easysql.engine.model.Template;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class SQLBuilder {
 
+    private static final Pattern BETWEEN_BOUNDS =
+            Pattern.compile("^\\s*('(?:[^']|'')*'|\\S+)\\s+(?i:AND)\\s+('(?:[^']|'')*'|\\S+)\\s*$");
+
+    private static final Pattern INLINE_ALIAS = Pattern.compile("(?i)^(.+?)\\s+AS\\s+[`\"]?([\\w$]+)[`\"]?$");
+
     private final SQLDialect dialect;
 
     public SQLBuilder(SQLDialect dialect) {
@@ -16,6 +29,20 @@ public class SQLBuilder {
     }
 
     public String buildSelect(Template t) {
+        if (t.unions != null && !t.unions.isEmpty()) {
+            return buildUnion(t);
+        }
+        StringBuilder sql = queryBlock(t);
+        appendOrderBy(sql, t.orderBy);
+        // LIMIT/OFFSET
+        String base = sql.toString().trim();
+        return dialect.limitSQL(base, t.limit, t.offset);
+    }
+
+    /**
+     * SELECT ... HAVING 部分（不含 ORDER BY / LIMIT）
+     */
+    private StringBuilder queryBlock(Template t) {
         StringBuilder sql = new StringBuilder();
         // SELECT
         sql.append("SELECT ");
@@ -23,6 +50,9 @@ public class SQLBuilder {
         if (t.options != null && t.options.hints != null && !t.options.hints.isEmpty()) {
             sql.append("/*+ ").append(String.join(" ", t.options.hints)).append(" */ ");
         }
+        if (t.options != null && Boolean.TRUE.equals(t.options.straightJoin) && dialect.straightJoinModifier() != null) {
+            sql.append(dialect.straightJoinModifier()).append(" ");
+        }
         String selectPart = t.select.stream()
                 .map(it -> it.alias != null && !it.alias.isEmpty()
                         ? it.expr + " AS " + dialect.escapeIdentifier(it.alias)
@@ -41,7 +71,7 @@ public class SQLBuilder {
                     sql.append("ON ");
                     List<String> onParts = new ArrayList<>();
                     for (Template.On on : j.on) {
-                        onParts.add(on.left + " " + dialect.mapOperator(on.operator) + " " + renderRight(on.right));
+                        onParts.add(renderLeaf(on));
                     }
                     sql.append(String.join(" AND ", onParts)).append(" ");
                 }
@@ -65,19 +95,278 @@ public class SQLBuilder {
                 sql.append("HAVING ").append(having).append(" ");
             }
         }
-        // ORDER BY
-        if (t.orderBy != null && !t.orderBy.isEmpty()) {
-            String order = t.orderBy.stream()
+        return sql;
+    }
+
+    private static void appendOrderBy(StringBuilder sql, List<Template.OrderBy> orderBy) {
+        if (orderBy != null && !orderBy.isEmpty()) {
+            String order = orderBy.stream()
                     .map(o -> o.expr + (o.direction != null ? (" " + o.direction) : ""))
                     .collect(Collectors.joining(", "));
             sql.append("ORDER BY ").append(order).append(" ");
         }
-        // LIMIT/OFFSET
-        String base = sql.toString().trim();
-        return dialect.limitSQL(base, t.limit, t.offset);
+    }
+
+    /**
+     * UNION / UNION ALL：主查询与各分支为并列的查询块，主查询的 ORDER BY / LIMIT / OFFSET 作用于合并结果。
+     * 全部为 UNION ALL 且外层有 ORDER BY + LIMIT 时，未自带排序/分页的分支附加 ORDER BY ... LIMIT limit+offset
+     * （排序键按位置对应到分支的 select 项），各分支可走索引并提前结束，合并结果不变。
+     * UNION 去重时分支内重复行会占用名额，不下推。
+     */
+    private String buildUnion(Template t) {
+        List<Template> branches = unionBranches(t, false);
+        boolean wrap = branches.stream().anyMatch(SQLBuilder::ordersOrLimits);
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < branches.size(); i++) {
+            if (i > 0) sql.append(t.unions.get(i - 1).unionAll ? " UNION ALL " : " UNION ");
+            String part = buildSelect(branches.get(i));
+            sql.append(wrap ? "(" + part + ")" : part);
+        }
+        sql.append(" ");
+        appendOrderBy(sql, t.orderBy);
+        return dialect.limitSQL(sql.toString().trim(), t.limit, t.offset);
+    }
+
+    /**
+     * UNION 模板拆分为各分支查询：首个为去掉 UNION 与外层排序分页的主查询，其余为 unions 中的分支，
+     * 满足下推条件时附加排序与 LIMIT limit+offset。
+     *
+     * @param sorted 为 true 时（客户端按外层排序键归并）即使没有 LIMIT 也为每个分支附加排序；
+     *               外层有 ORDER BY 而排序键无法对应到全部分支时返回 null
+     */
+    public static List<Template> unionBranches(Template t, boolean sorted) {
+        Template head = t.shallowCopy();
+        head.unions = null;
+        head.orderBy = null;
+        head.limit = null;
+        head.offset = null;
+        List<Template> branches = new ArrayList<>();
+        branches.add(head);
+        for (Template.UnionItem u : t.unions) branches.add(u.query);
+
+        boolean ordered = t.orderBy != null && !t.orderBy.isEmpty();
+        List<Integer> positions = sorted || t.limit != null ? topNPositions(t, branches) : null;
+        if (sorted && ordered && (positions == null || branches.stream().anyMatch(SQLBuilder::ordersOrLimits))) return null;
+        if (positions == null) return branches;
+        Integer fetch = t.limit == null ? null : (int) Math.min(Integer.MAX_VALUE, (long) t.limit + (t.offset == null ? 0 : t.offset));
+        for (int i = 0; i < branches.size(); i++) {
+            Template b = branches.get(i);
+            if (!ordersOrLimits(b)) branches.set(i, topN(b, t.orderBy, positions, fetch));
+        }
+        return branches;
+    }
+
+    private static boolean ordersOrLimits(Template b) {
+        return (b.orderBy != null && !b.orderBy.isEmpty()) || b.limit != null || b.offset != null
+                || (b.unions != null && !b.unions.isEmpty());
+    }
+
+    /**
+     * 外层排序键在主查询 select 中的位置；不满足下推条件时返回 null
+     */
+    private static List<Integer> topNPositions(Template t, List<Template> branches) {
+        if (t.orderBy == null || t.orderBy.isEmpty()) return null;
+        for (Template.UnionItem u : t.unions) {
+            if (!u.unionAll) return null;
+        }
+        int width = t.select.size();
+        for (Template b : branches) {
+            if (b.select == null || b.select.size() != width) return null;
+            for (Template.SelectItem it : b.select) {
+                if (it.expr == null || it.expr.contains("*")) return null;
+            }
+        }
+        List<Integer> positions = new ArrayList<>();
+        for (Template.OrderBy o : t.orderBy) {
+            int pos = position(t.select, o.expr);
+            if (pos < 0) return null;
+            positions.add(pos);
+        }
+        return positions;
+    }
+
+    private static int position(List<Template.SelectItem> select, String expr) {
+        if (expr == null) return -1;
+        String e = expr.trim();
+        if (e.matches("\\d+")) {
+            int n = Integer.parseInt(e);
+            return n >= 1 && n <= select.size() ? n - 1 : -1;
+        }
+        for (int i = 0; i < select.size(); i++) {
+            String[] item = splitAlias(select.get(i));
+            if (e.equalsIgnoreCase(item[0]) || e.equalsIgnoreCase(item[1])) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * select 项的表达式与输出列名；兼容写在 expr 中的 "x AS y"
+     */
+    private static String[] splitAlias(Template.SelectItem it) {
+        String expr = it.expr.trim();
+        String label = it.alias;
+        Matcher m = INLINE_ALIAS.matcher(expr);
+        if (m.matches()) {
+            expr = m.group(1).trim();
+            if (label == null || label.isEmpty()) label = m.group(2);
+        }
+        if (label == null || label.isEmpty()) {
+            String bare = expr.replace("`", "").replace("\"", "");
+            label = bare.substring(bare.lastIndexOf('.') + 1);
+        }
+        return new String[]{expr, label};
+    }
+
+    private static Template topN(Template b, List<Template.OrderBy> keys, List<Integer> positions, Integer fetch) {
+        Template c = b.shallowCopy();
+        c.orderBy = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Template.OrderBy o = new Template.OrderBy();
+            o.expr = splitAlias(b.select.get(positions.get(i)))[0];
+            o.direction = keys.get(i).direction;
+            o.nulls = keys.get(i).nulls;
+            c.orderBy.add(o);
+        }
+        c.limit = fetch;
+        c.offset = null;
+        return c;
+    }
+
+    /**
+     * 多行INSERT语句：values 按行展开，顺序与 columns 一致
+     */
+    public static class InsertStatement {
+        public final String sql;
+        public final List<String> columns;
+        public final List<Object> values;
+        public final int rowCount;
+
+        public InsertStatement(String sql, List<String> columns, List<Object> values, int rowCount) {
+            this.sql = sql;
+            this.columns = columns;
+            this.values = values;
+            this.rowCount = rowCount;
+        }
+    }
+
+    /**
+     * 构建多行INSERT（insert.upsert=true 时为方言UPSERT）：按方言包大小切分，返回惰性迭代器，每次只持有一个批次的行
+     */
+    public Iterator<InsertStatement> buildInsert(Template t, Iterator<Map<String, Object>> rows) {
+        return buildInsert(t, rows, dialect.maxPacketBytes());
+    }
+
+    /**
+     * @param maxBytes 单条语句的字节预算（SQL文本 + 估算的参数值大小）
+     */
+    public Iterator<InsertStatement> buildInsert(Template t, Iterator<Map<String, Object>> rows, int maxBytes) {
+        List<String> columns = t.insert.columns;
+        Function<String, String> statement = insertStatement(t);
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) row.append(", ");
+            row.append('?');
+        }
+        String rowMarks = row.append(')').toString();
+        int maxRows = Math.max(1, dialect.maxBindParameters() / columns.size());
+        // 语句除行构造之外的固定开销（含UPSERT的更新子句）
+        int prefixBytes = statement.apply("").length();
+
+        return new Iterator<InsertStatement>() {
+            private Map<String, Object> pending;
+            private long pendingBytes;
+            private long rowIndex;
+
+            private boolean fill() {
+                if (pending != null) return true;
+                if (!rows.hasNext()) return false;
+                pending = rows.next();
+                // 占位符文本 + 分隔符 + 客户端预处理时内联的取值大小
+                pendingBytes = rowMarks.length() + 2;
+                for (String c : columns) pendingBytes += estimateBytes(pending.get(c));
+                rowIndex++;
+                if (prefixBytes + pendingBytes > maxBytes) {
+                    throw new IllegalArgumentException("row " + rowIndex + " (~" + pendingBytes
+                            + " bytes) exceeds the statement budget of " + maxBytes + " bytes");
+                }
+                return true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return fill();
+            }
+
+            @Override
+            public InsertStatement next() {
+                if (!fill()) throw new NoSuchElementException();
+                StringBuilder sql = new StringBuilder();
+                List<Object> values = new ArrayList<>();
+                long bytes = prefixBytes;
+                int count = 0;
+                while (fill() && count < maxRows && bytes + pendingBytes <= maxBytes) {
+                    if (count > 0) sql.append(", ");
+                    sql.append(rowMarks);
+                    for (String c : columns) values.add(pending.get(c));
+                    bytes += pendingBytes;
+                    count++;
+                    pending = null;
+                }
+                return new InsertStatement(statement.apply(sql.toString()), columns, values, count);
+            }
+        };
+    }
+
+    private Function<String, String> insertStatement(Template t) {
+        String table = qualifyTable(t.from);
+        List<String> columns = t.insert.columns;
+        if (!Boolean.TRUE.equals(t.insert.upsert)) {
+            String prefix = "INSERT INTO " + table + " ("
+                    + columns.stream().map(dialect::escapeIdentifier).collect(Collectors.joining(", ")) + ") VALUES ";
+            return rows -> prefix + rows;
+        }
+        List<String> keys = t.insert.keys;
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException("upsert requires key columns (insert.keys or table primary key)");
+        }
+        for (String k : keys) {
+            if (columns.stream().noneMatch(k::equalsIgnoreCase)) {
+                throw new IllegalArgumentException("upsert key column must be written: " + k);
+            }
+        }
+        List<String> updates = t.insert.updateColumns;
+        if (updates == null || updates.isEmpty()) {
+            updates = columns.stream().filter(c -> keys.stream().noneMatch(c::equalsIgnoreCase)).collect(Collectors.toList());
+        }
+        List<String> updateColumns = updates;
+        return rows -> dialect.upsertSQL(table, columns, keys, updateColumns, rows);
+    }
+
+    /**
+     * 估算参数值内联到语句后的字节数（字符串按UTF-8计并预留转义）
+     */
+    private static long estimateBytes(Object v) {
+        if (v == null) return 4;
+        if (v instanceof String) {
+            String s = (String) v;
+            return s.getBytes(StandardCharsets.UTF_8).length + 2 + (s.indexOf('\'') >= 0 || s.indexOf('\\') >= 0 ? s.length() : 0);
+        }
+        if (v instanceof byte[]) return ((byte[]) v).length * 2L + 3;
+        if (v instanceof BigDecimal) return ((BigDecimal) v).toPlainString().length();
+        if (v instanceof Number || v instanceof Boolean) return v.toString().length();
+        // 日期时间等按字符串形式加引号
+        return v.toString().length() + 2;
     }
 
     private String qualify(Template.From f) {
+        String q = f.subquery != null ? "(" + buildSelect(f.subquery) + ")" : qualifyTable(f);
+        if (f.alias != null && !f.alias.isEmpty()) {
+            q += " " + dialect.escapeIdentifier(f.alias);
+        }
+        return q;
+    }
+
+    private String qualifyTable(Template.From f) {
         StringBuilder q = new StringBuilder();
         if (f.catalog != null && !f.catalog.isEmpty()) {
             q.append(dialect.escapeIdentifier(f.catalog)).append(".");
@@ -86,12 +375,34 @@ public class SQLBuilder {
             q.append(dialect.escapeIdentifier(f.schema)).append(".");
         }
         q.append(dialect.escapeIdentifier(f.table));
-        if (f.alias != null && !f.alias.isEmpty()) {
-            q.append(" ").append(dialect.escapeIdentifier(f.alias));
-        }
         return q.toString();
     }
 
+    private String renderLeaf(Template.On on) {
+        String op = dialect.mapOperator(on.operator);
+        // IN 参数加括号，执行期按集合大小展开为 (?, ?, ...)
+        if (on.right != null && on.right.param != null && op != null
+                && ("IN".equals(op.trim()) || "NOT IN".equals(op.trim()))) {
+            return on.left + " " + op + " (" + renderRight(on.right) + ")";
+        }
+        // BETWEEN 常量写作 "lo AND hi"，上下界分别渲染
+        if (on.right != null && on.right.param == null && on.right.value != null && op != null
+                && op.trim().toUpperCase().endsWith("BETWEEN")) {
+            Matcher m = BETWEEN_BOUNDS.matcher(on.right.value);
+            if (m.matches()) {
+                return on.left + " " + op + " " + renderBound(m.group(1)) + " AND " + renderBound(m.group(2));
+            }
+        }
+        return on.left + " " + op + " " + renderRight(on.right);
+    }
+
+    private String renderBound(String bound) {
+        if (bound.startsWith("'") || bound.startsWith(":")) return bound;
+        Template.RightValue rv = new Template.RightValue();
+        rv.value = bound;
+        return renderRight(rv);
+    }
+
     private String renderRight(Template.RightValue rv) {
         if (rv == null) return "NULL";
         if (rv.param != null) {
@@ -117,7 +428,7 @@ public class SQLBuilder {
 
     private String renderCondition(Template.Condition c) {
         if (c.leaf != null) {
-            return c.leaf.left + " " + dialect.mapOperator(c.leaf.operator) + " " + renderRight(c.leaf.right);
+            return renderLeaf(c.leaf);
         }
         if (c.conditions == null || c.conditions.isEmpty()) return null;
         String op = c.op == null ? "AND" : c.op.toUpperCase();
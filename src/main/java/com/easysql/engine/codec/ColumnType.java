@@ -0,0 +1,62 @@
+package com.easysql.engine.codec;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * 列式编码支持的列类型，id写入二进制头部，不可随意调整
+ */
+public enum ColumnType {
+    INT((byte) 1),
+    LONG((byte) 2),
+    DOUBLE((byte) 3),
+    BOOLEAN((byte) 4),
+    STRING((byte) 5),   // 字典编码
+    DECIMAL((byte) 6),  // 以字符串形式字典编码，解码为BigDecimal
+    DATE((byte) 7),     // epoch毫秒
+    TIMESTAMP((byte) 8); // epoch毫秒 + 纳秒
+
+    final byte id;
+
+    ColumnType(byte id) {
+        this.id = id;
+    }
+
+    static ColumnType fromId(byte id) {
+        for (ColumnType t : values()) {
+            if (t.id == id) return t;
+        }
+        throw new IllegalArgumentException("unknown column type id: " + id);
+    }
+
+    /**
+     * 根据Java值推断列类型；无法识别的类型按STRING（toString）处理
+     */
+    static ColumnType infer(Object v) {
+        if (v instanceof Integer || v instanceof Short || v instanceof Byte) return INT;
+        if (v instanceof Long) return LONG;
+        if (v instanceof Double || v instanceof Float) return DOUBLE;
+        if (v instanceof Boolean) return BOOLEAN;
+        if (v instanceof BigDecimal) return DECIMAL;
+        if (v instanceof Timestamp) return TIMESTAMP;
+        if (v instanceof Date) return DATE;
+        return STRING;
+    }
+
+    /**
+     * 判断值能否无损写入该类型的向量
+     */
+    boolean accepts(Object v) {
+        switch (this) {
+            case INT: return v instanceof Integer || v instanceof Short || v instanceof Byte;
+            case LONG: return v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte;
+            case DOUBLE: return v instanceof Double || v instanceof Float;
+            case BOOLEAN: return v instanceof Boolean;
+            case DECIMAL: return v instanceof BigDecimal;
+            case TIMESTAMP: return v instanceof Timestamp;
+            case DATE: return v instanceof Date;
+            default: return true;
+        }
+    }
+}
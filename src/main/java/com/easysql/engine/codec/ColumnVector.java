@@ -0,0 +1,192 @@
+package com.easysql.engine.codec;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 类型化列向量：定长类型使用原生数组存储，字符串类使用字典 + 编码下标，空值由位图标记
+ */
+public class ColumnVector {
+
+    final String name;
+    final ColumnType type;
+    final int size;
+
+    // 空值位图：第i位为1表示第i行为NULL；无空值时为null
+    byte[] nulls;
+
+    int[] ints;        // INT 值；TIMESTAMP 的纳秒部分
+    long[] longs;      // LONG/DATE/TIMESTAMP 值
+    double[] doubles;  // DOUBLE 值
+    byte[] bits;       // BOOLEAN 位图
+    String[] dictionary; // STRING/DECIMAL 字典
+    int[] codes;       // STRING/DECIMAL 字典下标
+
+    ColumnVector(String name, ColumnType type, int size) {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+    }
+
+    /**
+     * 从行式结果中抽取一列
+     */
+    static ColumnVector fromRows(String name, List<Map<String, Object>> rows) {
+        int n = rows.size();
+        ColumnType type = null;
+        for (int i = 0; i < n; i++) {
+            Object v = rows.get(i).get(name);
+            if (v == null) continue;
+            if (type == null) {
+                type = ColumnType.infer(v);
+            } else if (!type.accepts(v)) {
+                // INT 遇到 Long 放宽为 LONG，其余混合类型统一退化为 STRING
+                type = type == ColumnType.INT && ColumnType.LONG.accepts(v) ? ColumnType.LONG : ColumnType.STRING;
+            }
+        }
+        if (type == null) type = ColumnType.STRING;
+
+        ColumnVector vec = new ColumnVector(name, type, n);
+        vec.allocate();
+        Map<String, Integer> dict = type == ColumnType.STRING || type == ColumnType.DECIMAL ? new HashMap<>() : null;
+        for (int i = 0; i < n; i++) {
+            Object v = rows.get(i).get(name);
+            if (v == null) {
+                vec.setNull(i);
+                continue;
+            }
+            switch (type) {
+                case INT:
+                    vec.ints[i] = ((Number) v).intValue();
+                    break;
+                case LONG:
+                    vec.longs[i] = ((Number) v).longValue();
+                    break;
+                case DOUBLE:
+                    vec.doubles[i] = ((Number) v).doubleValue();
+                    break;
+                case BOOLEAN:
+                    if ((Boolean) v) vec.bits[i >>> 3] |= (byte) (1 << (i & 7));
+                    break;
+                case DATE:
+                    vec.longs[i] = ((Date) v).getTime();
+                    break;
+                case TIMESTAMP:
+                    vec.longs[i] = ((Timestamp) v).getTime();
+                    vec.ints[i] = ((Timestamp) v).getNanos();
+                    break;
+                default:
+                    String s = type == ColumnType.DECIMAL ? ((BigDecimal) v).toPlainString() : v.toString();
+                    Integer code = dict.get(s);
+                    if (code == null) {
+                        code = dict.size();
+                        dict.put(s, code);
+                    }
+                    vec.codes[i] = code;
+            }
+        }
+        if (dict != null) {
+            vec.dictionary = new String[dict.size()];
+            for (Map.Entry<String, Integer> e : dict.entrySet()) {
+                vec.dictionary[e.getValue()] = e.getKey();
+            }
+        }
+        return vec;
+    }
+
+    void allocate() {
+        switch (type) {
+            case INT:
+                ints = new int[size];
+                break;
+            case LONG:
+            case DATE:
+                longs = new long[size];
+                break;
+            case TIMESTAMP:
+                longs = new long[size];
+                ints = new int[size];
+                break;
+            case DOUBLE:
+                doubles = new double[size];
+                break;
+            case BOOLEAN:
+                bits = new byte[bitmapBytes(size)];
+                break;
+            default:
+                codes = new int[size];
+        }
+    }
+
+    static int bitmapBytes(int n) {
+        return (n + 7) >>> 3;
+    }
+
+    private void setNull(int row) {
+        if (nulls == null) nulls = new byte[bitmapBytes(size)];
+        nulls[row >>> 3] |= (byte) (1 << (row & 7));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return nulls != null && (nulls[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    public int getInt(int row) {
+        return ints[row];
+    }
+
+    public long getLong(int row) {
+        return type == ColumnType.INT ? ints[row] : longs[row];
+    }
+
+    public double getDouble(int row) {
+        return doubles[row];
+    }
+
+    public boolean getBoolean(int row) {
+        return (bits[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    /**
+     * 字典编码列返回共享的字典实例，不产生新字符串
+     */
+    public String getString(int row) {
+        return isNull(row) ? null : dictionary[codes[row]];
+    }
+
+    /**
+     * 按列类型装箱取值（行式物化时使用）
+     */
+    public Object getObject(int row) {
+        if (isNull(row)) return null;
+        switch (type) {
+            case INT: return ints[row];
+            case LONG: return longs[row];
+            case DOUBLE: return doubles[row];
+            case BOOLEAN: return getBoolean(row);
+            case DATE: return new Date(longs[row]);
+            case TIMESTAMP:
+                Timestamp ts = new Timestamp(longs[row]);
+                ts.setNanos(ints[row]);
+                return ts;
+            case DECIMAL: return new BigDecimal(dictionary[codes[row]]);
+            default: return dictionary[codes[row]];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.easysql.engine.codec;
+
+import com.easysql.engine.executor.SQLExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式结果批：QueryResult 的列式表示，可直接按列、按行读取原生值
+ */
+public class ColumnarBatch {
+
+    private final int rowCount;
+    private final ColumnVector[] vectors;
+    private final long executionTimeMs;
+
+    ColumnarBatch(int rowCount, ColumnVector[] vectors, long executionTimeMs) {
+        this.rowCount = rowCount;
+        this.vectors = vectors;
+        this.executionTimeMs = executionTimeMs;
+    }
+
+    /**
+     * 将行式查询结果转换为列式批
+     */
+    public static ColumnarBatch fromResult(SQLExecutor.QueryResult result) {
+        List<String> cols = result.getColumnNames() == null ? Collections.emptyList() : result.getColumnNames();
+        List<Map<String, Object>> rows = result.getRows() == null ? Collections.emptyList() : result.getRows();
+        ColumnVector[] vectors = new ColumnVector[cols.size()];
+        for (int c = 0; c < vectors.length; c++) {
+            vectors[c] = ColumnVector.fromRows(cols.get(c), rows);
+        }
+        return new ColumnarBatch(rows.size(), vectors, result.getExecutionTimeMs());
+    }
+
+    /**
+     * 物化为行式查询结果（会对每个值装箱）
+     */
+    public SQLExecutor.QueryResult toQueryResult() {
+        List<String> cols = new ArrayList<>(vectors.length);
+        for (ColumnVector v : vectors) {
+            cols.add(v.name);
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (ColumnVector v : vectors) {
+                row.put(v.name, v.getObject(r));
+            }
+            rows.add(row);
+        }
+        return new SQLExecutor.QueryResult(rows, cols, executionTimeMs);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return vectors.length;
+    }
+
+    public ColumnVector getColumn(int index) {
+        return vectors[index];
+    }
+
+    public ColumnVector getColumn(String name) {
+        for (ColumnVector v : vectors) {
+            if (v.name.equals(name)) return v;
+        }
+        return null;
+    }
+
+    public long getExecutionTimeMs() {
+        return executionTimeMs;
+    }
+}
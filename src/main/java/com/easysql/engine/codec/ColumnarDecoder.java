@@ -0,0 +1,142 @@
+package com.easysql.engine.codec;
+
+import com.easysql.engine.executor.SQLExecutor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 列式二进制解码器，格式见 {@link ColumnarEncoder}。
+ * <p>
+ * 定长列按块直接拷贝进原生数组，字符串只为字典条目创建一次。实例持有可复用的读缓冲区，非线程安全。
+ */
+public class ColumnarDecoder {
+
+    private ByteBuffer channelBuffer;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * 解码为行式查询结果
+     */
+    public SQLExecutor.QueryResult decodeResult(ByteBuffer buf) {
+        return decode(buf).toQueryResult();
+    }
+
+    /**
+     * 从当前position解码一个列式批，结束时position位于帧尾
+     */
+    public ColumnarBatch decode(ByteBuffer buf) {
+        if (buf.getInt() != ColumnarEncoder.MAGIC) {
+            throw new IllegalArgumentException("not a columnar frame: bad magic");
+        }
+        byte version = buf.get();
+        if (version != ColumnarEncoder.VERSION) {
+            throw new IllegalArgumentException("unsupported columnar frame version: " + version);
+        }
+        int rows = buf.getInt();
+        long executionTimeMs = buf.getLong();
+        int colCount = buf.getInt();
+        ColumnVector[] vectors = new ColumnVector[colCount];
+        for (int c = 0; c < colCount; c++) {
+            String name = getUtf8(buf);
+            ColumnVector v = new ColumnVector(name, ColumnType.fromId(buf.get()), rows);
+            if (buf.get() == 1) {
+                v.nulls = new byte[ColumnVector.bitmapBytes(rows)];
+                buf.get(v.nulls);
+            }
+            v.allocate();
+            switch (v.type) {
+                case INT:
+                    buf.asIntBuffer().get(v.ints, 0, rows);
+                    ColumnarEncoder.advance(buf, 4 * rows);
+                    break;
+                case LONG:
+                case DATE:
+                    buf.asLongBuffer().get(v.longs, 0, rows);
+                    ColumnarEncoder.advance(buf, 8 * rows);
+                    break;
+                case TIMESTAMP:
+                    buf.asLongBuffer().get(v.longs, 0, rows);
+                    ColumnarEncoder.advance(buf, 8 * rows);
+                    buf.asIntBuffer().get(v.ints, 0, rows);
+                    ColumnarEncoder.advance(buf, 4 * rows);
+                    break;
+                case DOUBLE:
+                    buf.asDoubleBuffer().get(v.doubles, 0, rows);
+                    ColumnarEncoder.advance(buf, 8 * rows);
+                    break;
+                case BOOLEAN:
+                    buf.get(v.bits);
+                    break;
+                default:
+                    int dictSize = buf.getInt();
+                    v.dictionary = new String[dictSize];
+                    for (int i = 0; i < dictSize; i++) {
+                        v.dictionary[i] = getUtf8(buf);
+                    }
+                    getCodes(buf, v.codes, rows, ColumnarEncoder.codeWidth(dictSize));
+            }
+            vectors[c] = v;
+        }
+        return new ColumnarBatch(rows, vectors, executionTimeMs);
+    }
+
+    /**
+     * 从NIO通道读取一个长度前缀帧并解码
+     */
+    public ColumnarBatch read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ensureCapacity(4);
+        readFully(channel, header, 4);
+        int size = header.getInt();
+        ByteBuffer body = ensureCapacity(size);
+        readFully(channel, body, size);
+        return decode(body);
+    }
+
+    private ByteBuffer ensureCapacity(int size) {
+        if (channelBuffer == null || channelBuffer.capacity() < size) {
+            channelBuffer = ByteBuffer.allocateDirect(Math.max(size, 8192));
+        }
+        return channelBuffer;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buf, int size) throws IOException {
+        ((Buffer) buf).clear();
+        ((Buffer) buf).limit(size);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new EOFException("channel closed before columnar frame was complete");
+            }
+        }
+        ((Buffer) buf).flip();
+    }
+
+    private static void getCodes(ByteBuffer buf, int[] codes, int rows, int width) {
+        if (width == 4) {
+            buf.asIntBuffer().get(codes, 0, rows);
+            ColumnarEncoder.advance(buf, 4 * rows);
+        } else if (width == 2) {
+            for (int i = 0; i < rows; i++) codes[i] = buf.getShort() & 0xFFFF;
+        } else {
+            for (int i = 0; i < rows; i++) codes[i] = buf.get() & 0xFF;
+        }
+    }
+
+    private String getUtf8(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (buf.hasArray()) {
+            String s = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+            ColumnarEncoder.advance(buf, len);
+            return s;
+        }
+        if (scratch.length < len) {
+            scratch = new byte[Math.max(len, scratch.length * 2)];
+        }
+        buf.get(scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,227 @@
+package com.easysql.engine.codec;
+
+import com.easysql.engine.executor.SQLExecutor;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 列式二进制编码器（思路参考Arrow IPC，无本地依赖）。
+ * <p>
+ * 帧格式（大端）：
+ * <pre>
+ * int   magic 'ESQC'
+ * byte  version
+ * int   rowCount
+ * long  executionTimeMs
+ * int   columnCount
+ * 每列：
+ *   utf8  name（int长度 + 字节）
+ *   byte  type
+ *   byte  hasNulls，为1时紧跟空值位图 (rowCount+7)/8 字节
+ *   payload：定长类型为连续原生值；BOOLEAN为位图；
+ *            STRING/DECIMAL为 int字典大小 + 字典utf8 + 按字典大小选择1/2/4字节宽度的下标
+ * </pre>
+ * 字符串直接按字符写入UTF-8，不产生中间byte[]。实例持有可复用的通道缓冲区，非线程安全。
+ */
+public class ColumnarEncoder {
+
+    static final int MAGIC = 0x45535143; // "ESQC"
+    static final byte VERSION = 1;
+
+    private ByteBuffer channelBuffer;
+
+    /**
+     * 计算编码后的字节数
+     */
+    public int encodedSize(ColumnarBatch batch) {
+        int rows = batch.getRowCount();
+        long size = 4 + 1 + 4 + 8 + 4;
+        for (int c = 0; c < batch.getColumnCount(); c++) {
+            ColumnVector v = batch.getColumn(c);
+            size += 4 + utf8Length(v.name) + 1 + 1;
+            if (v.nulls != null) size += ColumnVector.bitmapBytes(rows);
+            switch (v.type) {
+                case INT:
+                    size += 4L * rows;
+                    break;
+                case LONG:
+                case DATE:
+                    size += 8L * rows;
+                    break;
+                case TIMESTAMP:
+                    size += 12L * rows;
+                    break;
+                case DOUBLE:
+                    size += 8L * rows;
+                    break;
+                case BOOLEAN:
+                    size += ColumnVector.bitmapBytes(rows);
+                    break;
+                default:
+                    size += 4;
+                    for (String s : v.dictionary) {
+                        size += 4 + utf8Length(s);
+                    }
+                    size += (long) codeWidth(v.dictionary.length) * rows;
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("result too large for a single frame: " + size + " bytes");
+        }
+        return (int) size;
+    }
+
+    /**
+     * 编码到新分配的堆缓冲区（已flip，可直接读取）
+     */
+    public ByteBuffer encode(SQLExecutor.QueryResult result) {
+        ColumnarBatch batch = ColumnarBatch.fromResult(result);
+        ByteBuffer buf = ByteBuffer.allocate(encodedSize(batch));
+        encode(batch, buf);
+        ((Buffer) buf).flip();
+        return buf;
+    }
+
+    /**
+     * 编码到调用方提供的缓冲区，从当前position开始写入；空间不足时抛出BufferOverflowException
+     */
+    public void encode(ColumnarBatch batch, ByteBuffer buf) {
+        int rows = batch.getRowCount();
+        buf.putInt(MAGIC);
+        buf.put(VERSION);
+        buf.putInt(rows);
+        buf.putLong(batch.getExecutionTimeMs());
+        buf.putInt(batch.getColumnCount());
+        for (int c = 0; c < batch.getColumnCount(); c++) {
+            ColumnVector v = batch.getColumn(c);
+            putUtf8(buf, v.name);
+            buf.put(v.type.id);
+            if (v.nulls != null) {
+                buf.put((byte) 1);
+                buf.put(v.nulls, 0, ColumnVector.bitmapBytes(rows));
+            } else {
+                buf.put((byte) 0);
+            }
+            switch (v.type) {
+                case INT:
+                    buf.asIntBuffer().put(v.ints, 0, rows);
+                    advance(buf, 4 * rows);
+                    break;
+                case LONG:
+                case DATE:
+                    buf.asLongBuffer().put(v.longs, 0, rows);
+                    advance(buf, 8 * rows);
+                    break;
+                case TIMESTAMP:
+                    buf.asLongBuffer().put(v.longs, 0, rows);
+                    advance(buf, 8 * rows);
+                    buf.asIntBuffer().put(v.ints, 0, rows);
+                    advance(buf, 4 * rows);
+                    break;
+                case DOUBLE:
+                    buf.asDoubleBuffer().put(v.doubles, 0, rows);
+                    advance(buf, 8 * rows);
+                    break;
+                case BOOLEAN:
+                    buf.put(v.bits, 0, ColumnVector.bitmapBytes(rows));
+                    break;
+                default:
+                    buf.putInt(v.dictionary.length);
+                    for (String s : v.dictionary) {
+                        putUtf8(buf, s);
+                    }
+                    putCodes(buf, v.codes, rows, codeWidth(v.dictionary.length));
+            }
+        }
+    }
+
+    /**
+     * 以长度前缀帧写入NIO通道
+     */
+    public void write(SQLExecutor.QueryResult result, WritableByteChannel channel) throws IOException {
+        write(ColumnarBatch.fromResult(result), channel);
+    }
+
+    public void write(ColumnarBatch batch, WritableByteChannel channel) throws IOException {
+        int size = encodedSize(batch);
+        if (channelBuffer == null || channelBuffer.capacity() < size + 4) {
+            channelBuffer = ByteBuffer.allocateDirect(Math.max(size + 4, 8192));
+        }
+        ByteBuffer buf = channelBuffer;
+        ((Buffer) buf).clear();
+        buf.putInt(size);
+        encode(batch, buf);
+        ((Buffer) buf).flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * 批量写入视图缓冲区后推进position；经Buffer调用以兼容JDK8运行时
+     */
+    static void advance(ByteBuffer buf, int bytes) {
+        ((Buffer) buf).position(buf.position() + bytes);
+    }
+
+    static int codeWidth(int dictSize) {
+        if (dictSize <= 0x100) return 1;
+        if (dictSize <= 0x10000) return 2;
+        return 4;
+    }
+
+    private static void putCodes(ByteBuffer buf, int[] codes, int rows, int width) {
+        if (width == 4) {
+            buf.asIntBuffer().put(codes, 0, rows);
+            advance(buf, 4 * rows);
+        } else if (width == 2) {
+            for (int i = 0; i < rows; i++) buf.putShort((short) codes[i]);
+        } else {
+            for (int i = 0; i < rows; i++) buf.put((byte) codes[i]);
+        }
+    }
+
+    static int utf8Length(String s) {
+        int len = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                len += 1;
+            } else if (ch < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+
+    private static void putUtf8(ByteBuffer buf, String s) {
+        buf.putInt(utf8Length(s));
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                buf.put((byte) ch);
+            } else if (ch < 0x800) {
+                buf.put((byte) (0xC0 | (ch >> 6)));
+                buf.put((byte) (0x80 | (ch & 0x3F)));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                buf.put((byte) (0xF0 | (cp >> 18)));
+                buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buf.put((byte) (0xE0 | (ch >> 12)));
+                buf.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.easysql.engine.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 数据源路由：每个逻辑数据源名对应一个主库 + N个只读副本。
+ * <p>
+ * 只读请求按最少在途请求数（least-outstanding-requests）选择副本；连接失败或延迟超限的副本会被临时摘除，
+ * 摘除时长随连续失败次数指数退避；无可用副本时回退到主库。
+ * 延迟检查需由 {@link #startHealthCheck} 启动，EasySQLEngine 在注册带副本的数据源时启动。
+ */
+public class DataSourceRouter {
+    private static final Logger log = LoggerFactory.getLogger(DataSourceRouter.class);
+
+    private final Map<String, ReplicaGroup> groups = new ConcurrentHashMap<>();
+
+    private volatile long ejectBaseMs = 5000;
+    private volatile long ejectMaxMs = 60000;
+    private volatile long maxLagMs = 10000;
+    private volatile ReplicaLagProbe lagProbe;
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * 注册逻辑数据源（主库 + 副本）
+     */
+    public void register(String name, DataSource primary, DataSource... replicas) {
+        if (name == null || primary == null) {
+            throw new IllegalArgumentException("datasource name and primary are required");
+        }
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < replicas.length; i++) {
+            nodes.add(new Node(name + "#replica" + i, replicas[i], true));
+        }
+        groups.put(name, new ReplicaGroup(new Node(name + "#primary", primary, false), nodes));
+    }
+
+    public void unregister(String name) {
+        groups.remove(name);
+    }
+
+    public boolean contains(String name) {
+        return groups.containsKey(name);
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(groups.keySet());
+    }
+
+    /**
+     * 主库数据源（用于元数据加载、写操作）
+     */
+    public DataSource primary(String name) {
+        return group(name).primary.dataSource;
+    }
+
+    public void setEjectBackoff(long baseMs, long maxMs) {
+        this.ejectBaseMs = baseMs;
+        this.ejectMaxMs = maxMs;
+    }
+
+    public void setLagProbe(ReplicaLagProbe lagProbe, long maxLagMs) {
+        this.lagProbe = lagProbe;
+        this.maxLagMs = maxLagMs;
+    }
+
+    /**
+     * 获取连接租约：readOnly 时路由到副本，否则路由到主库。调用方须关闭租约。
+     */
+    public Lease acquire(String name, boolean readOnly) throws SQLException {
+        ReplicaGroup g = group(name);
+        if (readOnly) {
+            // 逐个尝试可用副本，获取连接失败即摘除
+            for (int attempt = 0; attempt < g.replicas.size(); attempt++) {
+                Node node = g.pick();
+                if (node == null) break;
+                Connection c = null;
+                try {
+                    c = node.dataSource.getConnection();
+                    c.setReadOnly(true);
+                    return new Lease(node, c);
+                } catch (SQLException e) {
+                    // 已取得的连接须归还，否则连接池泄漏
+                    if (c != null) closeQuietly(node, c);
+                    node.outstanding.decrementAndGet();
+                    eject(node, e.getMessage());
+                }
+            }
+        }
+        g.primary.outstanding.incrementAndGet();
+        try {
+            return new Lease(g.primary, g.primary.dataSource.getConnection());
+        } catch (SQLException e) {
+            g.primary.outstanding.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * 在路由后的连接上执行操作；副本在执行中出现连接类错误（SQLState 08xxx）时摘除并回退到主库重试一次
+     */
+    public <R> R execute(String name, boolean readOnly, Function<Connection, R> action) {
+        Lease lease;
+        try {
+            lease = acquire(name, readOnly);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to acquire connection for datasource " + name + ": " + e.getMessage(), e);
+        }
+        try {
+            return action.apply(lease.getConnection());
+        } catch (RuntimeException e) {
+            if (!lease.isReplica() || !isConnectionFailure(e)) throw e;
+            lease.markFailed(e.getMessage());
+        } finally {
+            lease.close();
+        }
+        try (Lease retry = acquire(name, false)) {
+            return action.apply(retry.getConnection());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to acquire connection for datasource " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 对所有副本执行一次健康/延迟检查：不可连接或延迟超过阈值的副本被摘除
+     */
+    public void checkReplicas() {
+        for (ReplicaGroup g : groups.values()) {
+            for (Node node : g.replicas) {
+                try (Connection c = node.dataSource.getConnection()) {
+                    ReplicaLagProbe probe = lagProbe;
+                    long lag = probe == null ? 0 : probe.lagMillis(c);
+                    node.lastLagMs = lag;
+                    if (lag > maxLagMs) {
+                        eject(node, "replication lag " + lag + "ms exceeds " + maxLagMs + "ms");
+                    } else if (node.ejectedUntil != 0) {
+                        node.restore();
+                    }
+                } catch (SQLException e) {
+                    eject(node, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 启动后台周期性副本检查（守护线程）
+     */
+    public synchronized void startHealthCheck(long periodMs) {
+        if (healthChecker != null) return;
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "easysql-replica-health");
+            t.setDaemon(true);
+            return t;
+        });
+        healthChecker.scheduleWithFixedDelay(() -> {
+            try {
+                checkReplicas();
+            } catch (RuntimeException e) {
+                log.warn("[router] replica health check failed: {}", e.getMessage());
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized boolean isHealthCheckRunning() {
+        return healthChecker != null;
+    }
+
+    public synchronized void stopHealthCheck() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+    }
+
+    /**
+     * 副本状态快照（便于监控）
+     */
+    public List<ReplicaStatus> replicaStatus(String name) {
+        List<ReplicaStatus> out = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Node n : group(name).replicas) {
+            out.add(new ReplicaStatus(n.id, n.outstanding.get(), n.ejectedUntil > now, n.lastLagMs));
+        }
+        return out;
+    }
+
+    private ReplicaGroup group(String name) {
+        ReplicaGroup g = name == null ? null : groups.get(name);
+        if (g == null) {
+            throw new IllegalStateException("No datasource registered: " + name);
+        }
+        return g;
+    }
+
+    private void eject(Node node, String reason) {
+        int failures = node.consecutiveFailures.incrementAndGet();
+        long backoff = Math.min(ejectMaxMs, ejectBaseMs << Math.min(failures - 1, 16));
+        node.ejectedUntil = System.currentTimeMillis() + backoff;
+        log.warn("[router] replica {} ejected for {}ms: {}", node.id, backoff, reason);
+    }
+
+    private static void closeQuietly(Node node, Connection c) {
+        try {
+            c.close();
+        } catch (SQLException e) {
+            log.warn("[router] failed to close connection of {}: {}", node.id, e.getMessage());
+        }
+    }
+
+    static boolean isConnectionFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class ReplicaGroup {
+        final Node primary;
+        final List<Node> replicas;
+        final AtomicInteger cursor = new AtomicInteger();
+
+        ReplicaGroup(Node primary, List<Node> replicas) {
+            this.primary = primary;
+            this.replicas = replicas;
+        }
+
+        /**
+         * 选择在途请求最少的可用副本并占用一个名额；从轮转起点开始扫描以打散并列情况
+         */
+        Node pick() {
+            int n = replicas.size();
+            if (n == 0) return null;
+            long now = System.currentTimeMillis();
+            int start = Math.floorMod(cursor.getAndIncrement(), n);
+            Node best = null;
+            int bestLoad = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                Node node = replicas.get((start + i) % n);
+                if (node.ejectedUntil > now) continue;
+                int load = node.outstanding.get();
+                if (load < bestLoad) {
+                    best = node;
+                    bestLoad = load;
+                }
+            }
+            if (best != null) best.outstanding.incrementAndGet();
+            return best;
+        }
+    }
+
+    private static final class Node {
+        final String id;
+        final DataSource dataSource;
+        final boolean replica;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        volatile long ejectedUntil;
+        volatile long lastLagMs;
+
+        Node(String id, DataSource dataSource, boolean replica) {
+            this.id = id;
+            this.dataSource = dataSource;
+            this.replica = replica;
+        }
+
+        void restore() {
+            consecutiveFailures.set(0);
+            ejectedUntil = 0;
+        }
+    }
+
+    /**
+     * 连接租约：关闭时归还连接并释放在途名额
+     */
+    public final class Lease implements AutoCloseable {
+        private final Node node;
+        private final Connection connection;
+        private boolean closed;
+        private boolean failed;
+
+        private Lease(Node node, Connection connection) {
+            this.node = node;
+            this.connection = connection;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public String getNodeId() {
+            return node.id;
+        }
+
+        public boolean isReplica() {
+            return node.replica;
+        }
+
+        /**
+         * 标记本次使用的副本失败并摘除
+         */
+        public void markFailed(String reason) {
+            failed = true;
+            if (node.replica) eject(node, reason);
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            node.outstanding.decrementAndGet();
+            if (!failed && node.replica && node.consecutiveFailures.get() > 0) {
+                // 摘除到期后的首次成功使用即视为恢复
+                node.consecutiveFailures.set(0);
+            }
+            closeQuietly(node, connection);
+        }
+    }
+
+    /**
+     * 副本状态
+     */
+    public static class ReplicaStatus {
+        public final String id;
+        public final int outstanding;
+        public final boolean ejected;
+        public final long lastLagMs;
+
+        ReplicaStatus(String id, int outstanding, boolean ejected, long lastLagMs) {
+            this.id = id;
+            this.outstanding = outstanding;
+            this.ejected = ejected;
+            this.lastLagMs = lastLagMs;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.easysql.engine.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 副本延迟探测：返回副本落后主库的毫秒数，未知时返回 -1
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+
+    long lagMillis(Connection connection) throws SQLException;
+
+    /**
+     * MySQL：读取 SHOW REPLICA STATUS 的 Seconds_Behind_Source（兼容旧版 Seconds_Behind_Master）
+     */
+    static ReplicaLagProbe mysql() {
+        return conn -> {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SHOW REPLICA STATUS")) {
+                if (!rs.next()) return -1;
+                long seconds;
+                try {
+                    seconds = rs.getLong("Seconds_Behind_Source");
+                } catch (SQLException e) {
+                    seconds = rs.getLong("Seconds_Behind_Master");
+                }
+                // NULL 表示复制线程未运行，视为无限延迟
+                return rs.wasNull() ? Long.MAX_VALUE : seconds * 1000;
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package com.easysql.engine.dialect;
+
+import com.easysql.engine.monitor.ExplainPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * H2 方言：主要用于本地开发与测试
+ */
+public class H2Dialect implements SQLDialect {
+
+    /**
+     * 计划文本中的表访问：FROM/JOIN "schema"."table" [alias] 后跟注释 schema.索引名 或 schema.table.tableScan
+     */
+    private static final Pattern PLAN_ACCESS = Pattern.compile(
+            "(?:FROM|JOIN)\\s+\"[^\"]+\"\\.\"([^\"]+)\"(?:\\s+\"[^\"]+\")?\\s*/\\*\\s*[\\w$]+\\.([\\w$]+)(\\.tableScan)?");
+
+    @Override
+    public String getName() {
+        return "h2";
+    }
+
+    @Override
+    public String escapeIdentifier(String identifier) {
+        if (identifier == null) return null;
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public String escapeString(String value) {
+        if (value == null) return "NULL";
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    @Override
+    public String limitSQL(String baseSql, Integer limit, Integer offset) {
+        StringBuilder sb = new StringBuilder(baseSql);
+        if (limit != null) {
+            sb.append(" LIMIT ").append(limit);
+        }
+        if (offset != null) {
+            sb.append(" OFFSET ").append(offset);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String mapOperator(String operator) {
+        if (operator == null) return null;
+        return operator.toUpperCase();
+    }
+
+    @Override
+    public String mapType(String logicalType) {
+        if (logicalType == null) return null;
+        switch (logicalType.toUpperCase()) {
+            case "STRING": return "VARCHAR";
+            case "INT": return "INT";
+            case "BIGINT": return "BIGINT";
+            case "DOUBLE": return "DOUBLE PRECISION";
+            case "DECIMAL": return "DECIMAL";
+            case "DATE": return "DATE";
+            case "TIMESTAMP": return "TIMESTAMP";
+            case "BOOLEAN": return "BOOLEAN";
+            default: return logicalType;
+        }
+    }
+
+    @Override
+    public String createTempTableSQL(String table, String column, String logicalType, int maxLength) {
+        // H2 建表语句不支持内联普通索引，VARCHAR 不指定长度即为上限
+        return "CREATE LOCAL TEMPORARY TABLE " + escapeIdentifier(table) + " (" + escapeIdentifier(column) + " "
+                + mapType(logicalType) + ")";
+    }
+
+    @Override
+    public String dropTempTableSQL(String table) {
+        return "DROP TABLE IF EXISTS " + escapeIdentifier(table);
+    }
+
+    @Override
+    public String valuesSubquery(String column, String rows) {
+        return "SELECT " + escapeIdentifier(column) + " FROM (VALUES " + rows + ") AS " + escapeIdentifier("__in_values")
+                + " (" + escapeIdentifier(column) + ")";
+    }
+
+    @Override
+    public String valuesRowFormat(String logicalType) {
+        // H2 无法从参数推断VALUES列类型（默认按字符串处理），需显式CAST
+        return "(CAST(? AS " + mapType(logicalType) + "))";
+    }
+
+    @Override
+    public int maxPacketBytes() {
+        return 16 * 1024 * 1024;
+    }
+
+    @Override
+    public String upsertSQL(String table, List<String> columns, List<String> keys, List<String> updateColumns, String rows) {
+        // MERGE ... KEY 冲突时更新全部写入列，updateColumns 不能是其真子集
+        if (updateColumns.size() + keys.size() < columns.size()) {
+            throw new IllegalArgumentException("H2 MERGE updates every non-key column; partial updateColumns are not supported");
+        }
+        return "MERGE INTO " + table + " ("
+                + columns.stream().map(this::escapeIdentifier).collect(Collectors.joining(", "))
+                + ") KEY (" + keys.stream().map(this::escapeIdentifier).collect(Collectors.joining(", "))
+                + ") VALUES " + rows;
+    }
+
+    @Override
+    public String addDays(String dateExpr, int days) {
+        // 参数类型无法推断，需显式CAST
+        return "DATEADD(DAY, " + days + ", CAST(" + dateExpr + " AS DATE))";
+    }
+
+    @Override
+    public String explainSQL(String sql) {
+        return "EXPLAIN " + sql;
+    }
+
+    @Override
+    public List<ExplainPlan.Access> parseExplain(List<Map<String, Object>> rows) {
+        // H2 只输出一列计划文本，不含行数估计；访问类型按 MySQL 口径归为 ALL / index
+        List<ExplainPlan.Access> out = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            for (Object plan : row.values()) {
+                if (plan == null) continue;
+                Matcher m = PLAN_ACCESS.matcher(plan.toString());
+                while (m.find()) {
+                    boolean scan = m.group(3) != null;
+                    out.add(new ExplainPlan.Access(m.group(1), scan ? "ALL" : "index", scan ? null : m.group(2), null, false));
+                }
+            }
+        }
+        return out;
+    }
+}
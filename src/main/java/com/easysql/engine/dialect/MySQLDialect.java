@@ -1,7 +1,28 @@
 package com.easysql.engine.dialect;
 
+import com.easysql.engine.monitor.ExplainPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 public class MySQLDialect implements SQLDialect {
 
+    // VALUES ROW(...) 表值构造需 MySQL 8.0.19+；默认关闭以兼容5.7，超大IN列表改用临时表
+    private final boolean valuesRows;
+
+    public MySQLDialect() {
+        this(false);
+    }
+
+    /**
+     * @param valuesRows 目标库为 MySQL 8.0.19+ 时传 true，超大IN列表可改写为 VALUES 派生表
+     */
+    public MySQLDialect(boolean valuesRows) {
+        this.valuesRows = valuesRows;
+    }
+
     @Override
     public String getName() {
         return "mysql";
@@ -57,4 +78,107 @@ public class MySQLDialect implements SQLDialect {
             default: return logicalType;
         }
     }
-}
\ No newline at end of file
+
+    // utf8mb4 下 InnoDB 单个索引键上限 3072 字节
+    private static final int TEMP_KEY_PREFIX = 768;
+    // 超过行大小上限（65535 字节）的长度改用 LONGTEXT
+    private static final int TEMP_VARCHAR_MAX = 16000;
+
+    /**
+     * 列宽按实际最长取值确定，索引为非唯一（排序规则下相等的取值可共存），过长时建前缀索引；
+     * 显式 NULL 避免 TIMESTAMP 列被隐式设为 NOT NULL
+     */
+    @Override
+    public String createTempTableSQL(String table, String column, String logicalType, int maxLength) {
+        String type = mapType(logicalType);
+        String col = escapeIdentifier(column);
+        String key = col;
+        if ("VARCHAR".equals(type)) {
+            int length = Math.max(1, maxLength);
+            type = length <= TEMP_VARCHAR_MAX ? "VARCHAR(" + length + ")" : "LONGTEXT";
+            if (length > TEMP_KEY_PREFIX) key = col + "(" + TEMP_KEY_PREFIX + ")";
+        } else if ("DECIMAL".equals(type)) {
+            // 不带精度的 DECIMAL 为 DECIMAL(10,0)，会截断小数
+            type = "DECIMAL(65, 30)";
+        }
+        return "CREATE TEMPORARY TABLE " + escapeIdentifier(table) + " (" + col + " " + type + " NULL, KEY (" + key + "))";
+    }
+
+    @Override
+    public String dropTempTableSQL(String table) {
+        // 显式TEMPORARY，避免DROP TABLE触发隐式提交
+        return "DROP TEMPORARY TABLE IF EXISTS " + escapeIdentifier(table);
+    }
+
+    @Override
+    public String valuesSubquery(String column, String rows) {
+        if (!valuesRows) return null;
+        return "SELECT " + escapeIdentifier(column) + " FROM (VALUES " + rows + ") AS " + escapeIdentifier("__in_values")
+                + " (" + escapeIdentifier(column) + ")";
+    }
+
+    @Override
+    public String valuesRowFormat(String logicalType) {
+        return "ROW(?)";
+    }
+
+    @Override
+    public int maxPacketBytes() {
+        // max_allowed_packet 在5.7默认为4MB（8.0为64MB），按较小值保守估计
+        return 4 * 1024 * 1024;
+    }
+
+    @Override
+    public String upsertSQL(String table, List<String> columns, List<String> keys, List<String> updateColumns, String rows) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(columns.stream().map(this::escapeIdentifier).collect(Collectors.joining(", ")))
+                .append(") VALUES ").append(rows).append(" ON DUPLICATE KEY UPDATE ");
+        // 仅含键列时以键列自赋值作为空操作，避免退化为INSERT IGNORE吞掉其他错误
+        List<String> set = updateColumns.isEmpty() ? keys.subList(0, 1) : updateColumns;
+        sb.append(set.stream().map(c -> escapeIdentifier(c) + " = VALUES(" + escapeIdentifier(c) + ")")
+                .collect(Collectors.joining(", ")));
+        return sb.toString();
+    }
+
+    @Override
+    public String addDays(String dateExpr, int days) {
+        return "DATE_ADD(" + dateExpr + ", INTERVAL " + days + " DAY)";
+    }
+
+    @Override
+    public String straightJoinModifier() {
+        return "STRAIGHT_JOIN";
+    }
+
+    @Override
+    public String explainSQL(String sql) {
+        return "EXPLAIN " + sql;
+    }
+
+    @Override
+    public List<ExplainPlan.Access> parseExplain(List<Map<String, Object>> rows) {
+        List<ExplainPlan.Access> out = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Object table = column(row, "table");
+            Object type = column(row, "type");
+            Object key = column(row, "key");
+            Object estimate = column(row, "rows");
+            Object extra = column(row, "Extra");
+            out.add(new ExplainPlan.Access(table == null ? null : table.toString(),
+                    type == null ? null : type.toString(),
+                    key == null ? null : key.toString(),
+                    estimate instanceof Number ? ((Number) estimate).longValue() : null,
+                    extra != null && extra.toString().contains("Using filesort")));
+        }
+        return out;
+    }
+
+    private static Object column(Map<String, Object> row, String label) {
+        Object v = row.get(label);
+        if (v != null) return v;
+        for (Map.Entry<String, Object> e : row.entrySet()) {
+            if (e.getKey().equalsIgnoreCase(label)) return e.getValue();
+        }
+        return null;
+    }
+}
@@ -1,5 +1,11 @@
 package com.easysql.engine.dialect;
 
+import com.easysql.engine.monitor.ExplainPlan;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public interface SQLDialect {
     
     /**
@@ -31,4 +37,85 @@ public interface SQLDialect {
      * 获取数据类型映射
      */
     String mapType(String logicalType);
-}
\ No newline at end of file
+
+    /**
+     * 会话级临时表建表语句（单列），用于承载超大IN列表；列可空且不建唯一约束（NULL 须保留以维持 NOT IN 语义）；
+     * 不支持时返回null
+     * @param maxLength 字符串取值的最大长度（字符数），非字符串为0
+     */
+    default String createTempTableSQL(String table, String column, String logicalType, int maxLength) {
+        return null;
+    }
+
+    /**
+     * 删除临时表语句；不支持时返回null
+     */
+    default String dropTempTableSQL(String table) {
+        return null;
+    }
+
+    /**
+     * 单列VALUES派生表子查询，rows处为展开后的行构造；不支持时返回null
+     */
+    default String valuesSubquery(String column, String rows) {
+        return null;
+    }
+
+    /**
+     * VALUES 单行构造格式，? 为占位符；logicalType 为参数逻辑类型，供需要显式类型的方言使用
+     */
+    default String valuesRowFormat(String logicalType) {
+        return "(?)";
+    }
+
+    /**
+     * 单条语句的最大字节数（对应服务端包大小上限），多行INSERT按此切分
+     */
+    default int maxPacketBytes() {
+        return 1024 * 1024;
+    }
+
+    /**
+     * 单条语句允许的最大绑定参数个数
+     */
+    default int maxBindParameters() {
+        return 65535;
+    }
+
+    /**
+     * 多行UPSERT语句：rows 为已展开的 (?, ...), (...) 行构造
+     * @param keys 冲突键列
+     * @param updateColumns 冲突时更新的列
+     */
+    default String upsertSQL(String table, List<String> columns, List<String> keys, List<String> updateColumns, String rows) {
+        throw new UnsupportedOperationException("upsert is not supported by dialect " + getName());
+    }
+
+    /**
+     * 日期表达式加若干天（用于 DATE(col) = :d 改写为半开区间的上界）；不支持时返回null
+     */
+    default String addDays(String dateExpr, int days) {
+        return null;
+    }
+
+    /**
+     * 强制按FROM/JOIN书写顺序连接的SELECT修饰符；不支持时返回null
+     */
+    default String straightJoinModifier() {
+        return null;
+    }
+
+    /**
+     * 查看执行计划的语句（参数占位保持不变）；不支持时返回null
+     */
+    default String explainSQL(String sql) {
+        return null;
+    }
+
+    /**
+     * 解析 EXPLAIN 结果行为逐表访问信息，行按列标签取值
+     */
+    default List<ExplainPlan.Access> parseExplain(List<Map<String, Object>> rows) {
+        return Collections.emptyList();
+    }
+}
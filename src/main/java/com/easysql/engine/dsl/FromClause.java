@@ -28,6 +28,16 @@ public class FromClause {
         return f;
     }
 
+    /**
+     * 派生表：FROM (subquery) alias
+     */
+    public static FromClause subquery(Query query, String alias) {
+        FromClause f = new FromClause();
+        f.from.subquery = query.build();
+        f.from.alias = alias;
+        return f;
+    }
+
     public FromClause alias(String alias) {
         this.from.alias = alias;
         return this;
@@ -3,6 +3,7 @@ package com.easysql.engine.dsl;
 import com.easysql.engine.model.Template;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class OptionsClause {
@@ -15,6 +16,10 @@ public class OptionsClause {
     public OptionsClause scanPartitions(int scanPartitions) { options.scanPartitions = scanPartitions; return this; }
     public OptionsClause fetchSize(int fetchSize) { options.fetchSize = fetchSize; return this; }
     public OptionsClause readOnly(boolean readOnly) { options.readOnly = readOnly; return this; }
+    public OptionsClause neededColumns(String... columns) { options.neededColumns = new ArrayList<>(Arrays.asList(columns)); return this; }
+    public OptionsClause straightJoin(boolean straightJoin) { options.straightJoin = straightJoin; return this; }
+    public OptionsClause parallelUnion(boolean parallelUnion) { options.parallelUnion = parallelUnion; return this; }
+    public OptionsClause disableRules(String... rules) { options.disabledRules = new ArrayList<>(Arrays.asList(rules)); return this; }
     public OptionsClause hints(List<String> hints) { options.hints = hints; return this; }
     public OptionsClause hint(String hint) {
         if (options.hints == null) options.hints = new ArrayList<>();
@@ -22,5 +27,14 @@ public class OptionsClause {
         return this;
     }
 
+    /**
+     * 追加一组自适应提示候选（可为空组，即只用基础 hints），引擎按观测延迟在各组间选择
+     */
+    public OptionsClause hintCandidate(String... hints) {
+        if (options.hintCandidates == null) options.hintCandidates = new ArrayList<>();
+        options.hintCandidates.add(new ArrayList<>(Arrays.asList(hints)));
+        return this;
+    }
+
     Template.Options build() { return options; }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.easysql.engine.dsl;
 import com.easysql.engine.model.Template;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -152,6 +153,31 @@ public class Query {
         return join(JoinClause.left(table).on(on));
     }
     
+    /**
+     * 追加UNION分支（去重）；本查询的ORDER BY/LIMIT作用于合并后的结果
+     */
+    public Query union(Query branch) {
+        return addUnion(branch, false);
+    }
+
+    /**
+     * 追加UNION ALL分支
+     */
+    public Query unionAll(Query branch) {
+        return addUnion(branch, true);
+    }
+
+    private Query addUnion(Query branch, boolean all) {
+        if (this.template.unions == null) {
+            this.template.unions = new ArrayList<>();
+        }
+        Template.UnionItem item = new Template.UnionItem();
+        item.unionAll = all;
+        item.query = branch.build();
+        this.template.unions.add(item);
+        return this;
+    }
+
     /**
      * 设置GROUP BY
      */
@@ -243,6 +269,35 @@ public class Query {
         return this;
     }
     
+    /**
+     * 设置INSERT写入列（目标表取 from）
+     */
+    public Query insert(String... columns) {
+        this.template.insert = new Template.Insert();
+        this.template.insert.columns = new ArrayList<>(Arrays.asList(columns));
+        return this;
+    }
+    
+    /**
+     * 设置UPSERT写入列：冲突键未指定时由引擎按表主键推导
+     */
+    public Query upsert(String... columns) {
+        insert(columns);
+        this.template.insert.upsert = true;
+        return this;
+    }
+    
+    /**
+     * 指定UPSERT冲突键列
+     */
+    public Query upsertKeys(String... keys) {
+        if (this.template.insert == null) {
+            throw new IllegalStateException("upsertKeys() requires upsert() first");
+        }
+        this.template.insert.keys = new ArrayList<>(Arrays.asList(keys));
+        return this;
+    }
+    
     /**
      * 构建Template对象
      */
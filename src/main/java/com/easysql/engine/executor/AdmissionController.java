@@ -0,0 +1,177 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.monitor.ExplainPlan;
+import com.easysql.engine.monitor.MetricsCollector;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于代价的准入控制：每个数据源有一份并发“代价单位”预算，查询执行期间占用其估算代价。
+ * <ul>
+ *   <li>代价未知（尚无 EXPLAIN 采集）或不超过 cheapCost 的查询直接放行，不占预算；</li>
+ *   <li>代价超过整个预算的查询直接拒绝；</li>
+ *   <li>其余查询在预算不足时排队等待，超过 maxWaitMs 仍未获得预算则拒绝。</li>
+ * </ul>
+ * 未设置预算的数据源不受控制。
+ */
+public class AdmissionController {
+
+    public static final String COUNTER_ADMITTED = "admission.admitted";
+    public static final String COUNTER_BYPASSED = "admission.bypassed";
+    public static final String COUNTER_QUEUED = "admission.queued";
+    public static final String COUNTER_REJECTED = "admission.rejected";
+
+    private static final Permit NO_PERMIT = () -> {};
+
+    private final MetricsCollector metrics;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+    private volatile long cheapCost = 1000;
+    private volatile long maxWaitMs = 2000;
+
+    public AdmissionController(MetricsCollector metrics) {
+        this.metrics = metrics;
+    }
+
+    public long getCheapCost() { return cheapCost; }
+    public void setCheapCost(long cheapCost) {
+        if (cheapCost < 0) throw new IllegalArgumentException("cheapCost must be >= 0");
+        this.cheapCost = cheapCost;
+    }
+
+    public long getMaxWaitMs() { return maxWaitMs; }
+    public void setMaxWaitMs(long maxWaitMs) {
+        if (maxWaitMs < 0) throw new IllegalArgumentException("maxWaitMs must be >= 0");
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * 设置数据源的并发代价预算；units <= 0 取消控制。
+     * 已有预算时原地调整容量，在途查询占用的代价仍计入，扩容后唤醒排队者
+     */
+    public void setBudget(String datasource, long units) {
+        if (units <= 0) {
+            budgets.remove(datasource);
+        } else {
+            budgets.compute(datasource, (ds, existing) -> {
+                if (existing == null) return new Budget(units);
+                existing.resize(units);
+                return existing;
+            });
+        }
+    }
+
+    /**
+     * 数据源当前占用的代价单位，未受控时返回0
+     */
+    public long inFlight(String datasource) {
+        Budget b = datasource == null ? null : budgets.get(datasource);
+        return b == null ? 0 : b.used();
+    }
+
+    /**
+     * 按执行计划估算代价：各表访问估计行数之积（嵌套循环连接的扫描量），行数未知的访问按1计；无计划返回 -1
+     */
+    public static long estimateCost(ExplainPlan plan) {
+        if (plan == null || plan.accesses.isEmpty()) return -1;
+        long cost = 1;
+        for (ExplainPlan.Access a : plan.accesses) {
+            long rows = a.rows == null ? 1 : Math.max(1, a.rows);
+            cost = cost > Long.MAX_VALUE / rows ? Long.MAX_VALUE : cost * rows;
+        }
+        return cost;
+    }
+
+    /**
+     * 为一次执行申请预算，执行结束后须关闭返回的许可
+     * @param cost 估算代价，未知时为负数
+     * @throws IllegalStateException 代价超出预算或排队超时
+     */
+    public Permit admit(String datasource, long cost) {
+        Budget budget = datasource == null ? null : budgets.get(datasource);
+        if (budget == null || cost < 0 || cost <= cheapCost) {
+            if (budget != null) metrics.increment(COUNTER_BYPASSED);
+            return NO_PERMIT;
+        }
+        int outcome;
+        try {
+            outcome = budget.acquire(cost, maxWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.increment(COUNTER_REJECTED);
+            throw new IllegalStateException("interrupted while waiting for admission on datasource " + datasource, e);
+        }
+        if (outcome == Budget.TOO_LARGE) {
+            metrics.increment(COUNTER_REJECTED);
+            throw new IllegalStateException("query cost " + cost + " exceeds admission budget " + budget.capacity()
+                    + " of datasource " + datasource);
+        }
+        if (outcome < 0) {
+            metrics.increment(COUNTER_REJECTED);
+            throw new IllegalStateException("admission timed out after " + maxWaitMs + " ms on datasource " + datasource
+                    + " (cost " + cost + ", budget " + budget.capacity() + ")");
+        }
+        if (outcome > 0) metrics.increment(COUNTER_QUEUED);
+        metrics.increment(COUNTER_ADMITTED);
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) budget.release(cost);
+        };
+    }
+
+    /**
+     * 准入许可：关闭时归还预算，可重复关闭
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Budget {
+        static final int TOO_LARGE = -2;
+
+        private long capacity;
+        private long used;
+
+        Budget(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized long capacity() {
+            return capacity;
+        }
+
+        synchronized long used() {
+            return used;
+        }
+
+        synchronized void resize(long capacity) {
+            this.capacity = capacity;
+            notifyAll();
+        }
+
+        /**
+         * @return 0 立即获得，1 排队后获得，-1 等待超时，TOO_LARGE 代价超出整个预算（含等待期间缩容）
+         */
+        synchronized int acquire(long cost, long maxWaitMs) throws InterruptedException {
+            int outcome = 0;
+            long deadline = System.currentTimeMillis() + maxWaitMs;
+            while (used + cost > capacity) {
+                if (cost > capacity) return TOO_LARGE;
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return -1;
+                outcome = 1;
+                wait(remaining);
+            }
+            used += cost;
+            return outcome;
+        }
+
+        synchronized void release(long cost) {
+            used -= cost;
+            notifyAll();
+        }
+    }
+}
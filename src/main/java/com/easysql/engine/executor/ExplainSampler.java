@@ -0,0 +1,150 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.dialect.SQLDialect;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.ExplainPlan;
+import com.easysql.engine.monitor.ExplainRegistry;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 执行计划采样：每个计划指纹（数据源 + 最终SQL）首次出现时、之后每隔 resampleIntervalMs 提交一次 EXPLAIN，
+ * 在后台单线程执行并写入 {@link ExplainRegistry}；请求线程只做一次指纹查找与入队。
+ * 大表（行数不低于 largeTableRows）上的全表扫描或 filesort 计入指标并打印告警。
+ */
+public class ExplainSampler {
+
+    private static final Logger log = LoggerFactory.getLogger(ExplainSampler.class);
+
+    public static final String COUNTER_CAPTURED = "explain.captured";
+    public static final String COUNTER_FULL_SCAN = "explain.full_scan";
+    public static final String COUNTER_FILESORT = "explain.filesort";
+    public static final String COUNTER_DROPPED = "explain.dropped";
+    public static final String COUNTER_FAILED = "explain.failed";
+
+    private final ExplainRegistry registry;
+    private final MetricsCollector metrics;
+    private final ThreadPoolExecutor worker;
+    // 指纹 -> 最近一次提交时间；容量为登记表的4倍，被淘汰的指纹再次出现时按首次处理
+    private final RecencyMaps<String, Long> scheduled;
+    private volatile boolean enabled = true;
+    private volatile long resampleIntervalMs = 10 * 60 * 1000L;
+    private volatile long largeTableRows = 10000;
+
+    public ExplainSampler(ExplainRegistry registry, MetricsCollector metrics, int capacity) {
+        this.registry = registry;
+        this.metrics = metrics;
+        this.scheduled = new RecencyMaps<>(capacity * 4, Long::longValue);
+        this.worker = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(64), r -> {
+            Thread t = new Thread(r, "easysql-explain");
+            t.setDaemon(true);
+            return t;
+        });
+        this.worker.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getResampleIntervalMs() { return resampleIntervalMs; }
+    public void setResampleIntervalMs(long resampleIntervalMs) {
+        if (resampleIntervalMs < 0) throw new IllegalArgumentException("resampleIntervalMs must be >= 0");
+        this.resampleIntervalMs = resampleIntervalMs;
+    }
+
+    public long getLargeTableRows() { return largeTableRows; }
+    public void setLargeTableRows(long largeTableRows) {
+        if (largeTableRows < 0) throw new IllegalArgumentException("largeTableRows must be >= 0");
+        this.largeTableRows = largeTableRows;
+    }
+
+    public ExplainRegistry getRegistry() {
+        return registry;
+    }
+
+    public static String fingerprint(String datasource, String sql) {
+        return (datasource == null ? "" : datasource) + "|" + sql;
+    }
+
+    /**
+     * 需要采样时提交异步 EXPLAIN
+     * @param params 绑定参数，提交时复制一份供后台线程使用
+     * @param runner 以 EXPLAIN 语句和参数在目标数据源上执行并返回结果行（在后台线程调用）
+     * @param tableRows 表的行数估计，EXPLAIN 未给出行数时使用；未知返回 -1
+     * @return 是否已提交
+     */
+    public boolean maybeCapture(Template t, String sql, Map<String, Object> params, SQLDialect dialect,
+                                BiFunction<String, Map<String, Object>, List<Map<String, Object>>> runner,
+                                ToLongFunction<String> tableRows) {
+        if (!enabled) return false;
+        String explainSql = dialect.explainSQL(sql);
+        if (explainSql == null) return false;
+        String fp = fingerprint(t.datasource, sql);
+        long now = System.currentTimeMillis();
+        // 请求线程上无锁：间隔内直接返回，到期时以CAS抢占本次采样
+        Map<String, Long> times = scheduled.map();
+        Long last = times.get(fp);
+        if (last != null && now - last < resampleIntervalMs) return false;
+        if (last == null ? times.putIfAbsent(fp, now) != null : !times.replace(fp, last, now)) return false;
+        if (last == null) scheduled.trim();
+        try {
+            Map<String, Object> bound = params == null ? null : new HashMap<>(params);
+            worker.execute(() -> capture(fp, t, sql, explainSql, bound, dialect, runner, tableRows));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // 队列已满：放弃本次采样，下次请求重试
+            times.remove(fp, now);
+            metrics.increment(COUNTER_DROPPED);
+            return false;
+        }
+    }
+
+    private void capture(String fp, Template t, String sql, String explainSql, Map<String, Object> params, SQLDialect dialect,
+                         BiFunction<String, Map<String, Object>, List<Map<String, Object>>> runner,
+                         ToLongFunction<String> tableRows) {
+        List<ExplainPlan.Access> parsed;
+        try {
+            parsed = dialect.parseExplain(runner.apply(explainSql, params));
+        } catch (RuntimeException e) {
+            metrics.increment(COUNTER_FAILED);
+            log.warn("[explain] failed for template {}: {}", t.id, e.getMessage());
+            return;
+        }
+        // 方言未给出行数的全表扫描以表行数补全，供告警与代价估算使用
+        List<ExplainPlan.Access> accesses = new ArrayList<>(parsed.size());
+        Map<String, Long> rowsByTable = new HashMap<>();
+        for (ExplainPlan.Access a : parsed) {
+            if (a.rows == null && a.table != null && (a.isFullScan() || a.filesort)) {
+                long rows = rowsByTable.computeIfAbsent(a.table, tableRows::applyAsLong);
+                if (rows >= 0) a = new ExplainPlan.Access(a.table, a.accessType, a.key, rows, a.filesort);
+            }
+            accesses.add(a);
+        }
+        registry.record(new ExplainPlan(fp, t.id, t.datasource, sql, System.currentTimeMillis(), accesses));
+        for (ExplainPlan.Access a : accesses) {
+            if (a.rows == null || a.rows < largeTableRows) continue;
+            if (a.isFullScan()) {
+                metrics.increment(COUNTER_FULL_SCAN);
+                log.warn("[explain] full table scan on {} (~{} rows) in template {}: {}", a.table, a.rows, t.id, sql);
+            }
+            if (a.filesort) {
+                metrics.increment(COUNTER_FILESORT);
+                log.warn("[explain] filesort on {} (~{} rows) in template {}: {}", a.table, a.rows, t.id, sql);
+            }
+        }
+        // 最后计数：观察到 captured 时本次采集的告警计数已全部完成
+        metrics.increment(COUNTER_CAPTURED);
+    }
+}
@@ -0,0 +1,215 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.monitor.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自适应提示选择（epsilon-greedy）：按计划指纹为每组候选提示维护延迟的指数滑动平均。
+ * <ul>
+ *   <li>探索期：样本不足 minSamples 的候选优先轮流执行；</li>
+ *   <li>收敛后：以 1-epsilon 的概率选当前最快候选，其余随机探索；</li>
+ *   <li>最快候选的平均延迟超过其入选时基线的 regressionFactor 倍（数据分布变化）时清空样本重新探索；</li>
+ *   <li>执行失败按罚时计入样本（不低于已观测的最大平均延迟的 failurePenalty 倍），本轮全部失败的候选不会被选为最快。</li>
+ * </ul>
+ */
+public class HintTuner {
+
+    private static final Logger log = LoggerFactory.getLogger(HintTuner.class);
+
+    public static final String COUNTER_EXPLORE = "hint.explore";
+    public static final String COUNTER_EXPLOIT = "hint.exploit";
+    public static final String COUNTER_REEXPLORE = "hint.reexplore";
+
+    private static final double SMOOTHING = 0.2;
+
+    private final MetricsCollector metrics;
+    private final RecencyMaps<String, Arms> states;
+    private volatile double epsilon = 0.05;
+    private volatile int minSamples = 5;
+    private volatile double regressionFactor = 2.0;
+    private volatile double failurePenalty = 10.0;
+
+    public HintTuner(MetricsCollector metrics, int capacity) {
+        this.metrics = metrics;
+        this.states = new RecencyMaps<>(capacity, state -> state.lastUsed);
+    }
+
+    public double getEpsilon() { return epsilon; }
+    public void setEpsilon(double epsilon) {
+        if (epsilon < 0 || epsilon > 1) throw new IllegalArgumentException("epsilon must be in [0, 1]");
+        this.epsilon = epsilon;
+    }
+
+    public int getMinSamples() { return minSamples; }
+    public void setMinSamples(int minSamples) {
+        if (minSamples < 1) throw new IllegalArgumentException("minSamples must be >= 1");
+        this.minSamples = minSamples;
+    }
+
+    public double getRegressionFactor() { return regressionFactor; }
+    public void setRegressionFactor(double regressionFactor) {
+        if (regressionFactor <= 1) throw new IllegalArgumentException("regressionFactor must be > 1");
+        this.regressionFactor = regressionFactor;
+    }
+
+    public double getFailurePenalty() { return failurePenalty; }
+    public void setFailurePenalty(double failurePenalty) {
+        if (failurePenalty < 1) throw new IllegalArgumentException("failurePenalty must be >= 1");
+        this.failurePenalty = failurePenalty;
+    }
+
+    /**
+     * 为一次执行选择候选下标
+     * @param arms 候选组数
+     */
+    public int choose(String fingerprint, int arms) {
+        if (arms < 1) throw new IllegalArgumentException("arms must be >= 1");
+        Arms state = state(fingerprint, arms);
+        synchronized (state) {
+            int least = 0;
+            for (int i = 1; i < arms; i++) {
+                if (state.count[i] < state.count[least]) least = i;
+            }
+            if (state.count[least] < minSamples) {
+                metrics.increment(COUNTER_EXPLORE);
+                return least;
+            }
+            int fastest = -1;
+            for (int i = 0; i < arms; i++) {
+                if (state.failures[i] >= state.count[i]) continue;
+                if (fastest < 0 || state.ewma[i] < state.ewma[fastest]) fastest = i;
+            }
+            if (fastest < 0) {
+                // 全部候选本轮都只失败过：仍按罚时比较
+                fastest = 0;
+                for (int i = 1; i < arms; i++) {
+                    if (state.ewma[i] < state.ewma[fastest]) fastest = i;
+                }
+            }
+            if (fastest != state.best) {
+                state.best = fastest;
+                state.baseline = state.ewma[fastest];
+            }
+            if (arms > 1 && ThreadLocalRandom.current().nextDouble() < epsilon) {
+                int other = ThreadLocalRandom.current().nextInt(arms - 1);
+                metrics.increment(COUNTER_EXPLORE);
+                return other >= fastest ? other + 1 : other;
+            }
+            metrics.increment(COUNTER_EXPLOIT);
+            return fastest;
+        }
+    }
+
+    /**
+     * 记录一次执行的耗时
+     */
+    public void record(String fingerprint, int arm, long nanos) {
+        Arms state = states.map().get(fingerprint);
+        if (state == null || arm < 0 || arm >= state.count.length) return;
+        synchronized (state) {
+            sample(state, fingerprint, arm, nanos);
+        }
+    }
+
+    /**
+     * 记录一次失败的执行：按罚时计入样本，避免失败的候选因没有样本而被反复探索或因失败得快而被选中
+     */
+    public void recordFailure(String fingerprint, int arm, long nanos) {
+        Arms state = states.map().get(fingerprint);
+        if (state == null || arm < 0 || arm >= state.count.length) return;
+        synchronized (state) {
+            double worst = nanos;
+            for (int i = 0; i < state.count.length; i++) {
+                if (state.count[i] > 0) worst = Math.max(worst, state.ewma[i]);
+            }
+            state.failures[arm]++;
+            sample(state, fingerprint, arm, (long) (worst * failurePenalty));
+        }
+    }
+
+    // 调用方持有 state 的锁
+    private void sample(Arms state, String fingerprint, int arm, long nanos) {
+        state.ewma[arm] = state.count[arm] == 0 ? nanos : state.ewma[arm] + SMOOTHING * (nanos - state.ewma[arm]);
+        state.count[arm]++;
+        if (arm == state.best && state.ewma[arm] > state.baseline * regressionFactor) {
+            log.info("[hint] latency of candidate {} regressed ({} -> {} ns) for {}, re-exploring",
+                    arm, (long) state.baseline, (long) state.ewma[arm], fingerprint);
+            metrics.increment(COUNTER_REEXPLORE);
+            state.reset();
+        }
+    }
+
+    /**
+     * 候选在当前探索轮次内的失败次数
+     */
+    public long failures(String fingerprint, int arm) {
+        Arms state = states.map().get(fingerprint);
+        if (state == null || arm < 0 || arm >= state.count.length) return 0;
+        synchronized (state) {
+            return state.failures[arm];
+        }
+    }
+
+    /**
+     * 当前选定的最快候选，尚在探索期时返回 -1
+     */
+    public int bestArm(String fingerprint) {
+        Arms state = states.map().get(fingerprint);
+        if (state == null) return -1;
+        synchronized (state) {
+            return state.best;
+        }
+    }
+
+    /**
+     * 候选在当前探索轮次内的样本数
+     */
+    public long samples(String fingerprint, int arm) {
+        Arms state = states.map().get(fingerprint);
+        if (state == null || arm < 0 || arm >= state.count.length) return 0;
+        synchronized (state) {
+            return state.count[arm];
+        }
+    }
+
+    private Arms state(String fingerprint, int arms) {
+        Arms state = states.map().get(fingerprint);
+        if (state == null || state.count.length != arms) {
+            // 候选组数变化（模板调整）时重新开始
+            state = states.map().compute(fingerprint, (k, cur) -> cur != null && cur.count.length == arms ? cur : new Arms(arms));
+            states.trim();
+        }
+        state.lastUsed = System.nanoTime();
+        return state;
+    }
+
+    private static final class Arms {
+        final long[] count;
+        final double[] ewma;
+        final long[] failures;
+        int best = -1;
+        double baseline;
+        // 最近一次选择的时间，超出容量时按此淘汰
+        volatile long lastUsed;
+
+        Arms(int arms) {
+            count = new long[arms];
+            ewma = new double[arms];
+            failures = new long[arms];
+            // 插入后紧接着可能淘汰，新条目须按刚使用计，否则最先被淘汰
+            lastUsed = System.nanoTime();
+        }
+
+        void reset() {
+            Arrays.fill(count, 0);
+            Arrays.fill(ewma, 0);
+            Arrays.fill(failures, 0);
+            best = -1;
+            baseline = 0;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.easysql.engine.executor;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 集合型IN参数工具：按2的幂分桶计算占位符个数，超出上限时切分为多个批次
+ */
+public final class InParameters {
+
+    /**
+     * 超大IN列表的执行策略
+     */
+    public enum Strategy {
+        /** 直接展开为占位符 */
+        INLINE,
+        /** 按上限切分为多次执行再合并 */
+        CHUNKED,
+        /** 改写为 VALUES 派生表子查询 */
+        VALUES,
+        /** 批量写入会话临时表后改写为子查询 */
+        TEMP_TABLE;
+
+        /** 指标计数器名称 */
+        public String counter() {
+            return "in_list.strategy." + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private InParameters() {}
+
+    /**
+     * 参数值是否为集合（Collection 或对象数组）
+     */
+    public static boolean isCollection(Object value) {
+        return value instanceof Collection || value instanceof Object[];
+    }
+
+    /**
+     * 集合参数按插入顺序去重后的取值列表
+     */
+    public static List<Object> values(Object value) {
+        Collection<?> c = value instanceof Object[] ? Arrays.asList((Object[]) value) : (Collection<?>) value;
+        return new ArrayList<>(new LinkedHashSet<>(c));
+    }
+
+    /**
+     * 是否有集合参数去重后仍超过上限（此时执行期会改写为VALUES/临时表或切分执行）
+     */
+    public static boolean exceeds(Map<String, Object> params, int maxArity) {
+        if (params == null) return false;
+        for (Object value : params.values()) {
+            if (!isCollection(value)) continue;
+            int size = value instanceof Object[] ? ((Object[]) value).length : ((Collection<?>) value).size();
+            if (size > maxArity && values(value).size() > maxArity) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 将参数映射中的集合值统一为去重后的List；无集合参数时原样返回
+     */
+    public static Map<String, Object> normalize(Map<String, Object> params) {
+        if (params == null) return null;
+        Map<String, Object> out = null;
+        for (Map.Entry<String, Object> e : params.entrySet()) {
+            if (isCollection(e.getValue())) {
+                if (out == null) out = new HashMap<>(params);
+                out.put(e.getKey(), values(e.getValue()));
+            }
+        }
+        return out == null ? params : out;
+    }
+
+    /**
+     * 分桶后的占位符个数：不小于n的最小2的幂，且不超过上限；空集合占用1个（绑定NULL）
+     */
+    public static int bucketArity(int n, int maxArity) {
+        if (n <= 1) return 1;
+        int bucket = Integer.highestOneBit(n - 1) << 1;
+        return Math.min(bucket, Math.max(n, maxArity));
+    }
+
+    /**
+     * 计算各集合参数的占位符个数（参数须已 {@link #normalize}）
+     */
+    public static Map<String, Integer> arities(Map<String, Object> params, int maxArity) {
+        if (params == null || params.isEmpty()) return Collections.emptyMap();
+        Map<String, Integer> out = new HashMap<>();
+        for (Map.Entry<String, Object> e : params.entrySet()) {
+            if (isCollection(e.getValue())) {
+                out.put(e.getKey(), bucketArity(((List<?>) e.getValue()).size(), maxArity));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 取第 index 个占位符的绑定值：超出实际个数时重复最后一个值
+     */
+    public static Object element(List<?> values, int index) {
+        if (values.isEmpty()) return null;
+        return values.get(Math.min(index, values.size() - 1));
+    }
+
+    /**
+     * 按上限切分集合参数，返回每个批次的参数映射
+     */
+    public static List<Map<String, Object>> chunk(Map<String, Object> params, String name, int maxArity) {
+        List<?> all = (List<?>) params.get(name);
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += maxArity) {
+            Map<String, Object> p = new HashMap<>(params);
+            p.put(name, all.subList(from, Math.min(all.size(), from + maxArity)));
+            out.add(p);
+        }
+        return out;
+    }
+
+    private static Pattern inPattern(String name) {
+        return Pattern.compile("(?i)\\b(NOT\\s+)?IN\\s*\\(\\s*:" + Pattern.quote(name) + "\\s*\\)");
+    }
+
+    /**
+     * SQL中该参数是否作为 NOT IN 列表出现（NOT IN 不能切分执行）
+     */
+    public static boolean negated(String sql, String name) {
+        Matcher m = inPattern(name).matcher(sql);
+        while (m.find()) {
+            if (m.group(1) != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 该参数在SQL中是否仅以 IN (:name) / NOT IN (:name) 形式出现，才可整体替换为子查询
+     */
+    public static boolean rewritable(String sql, String name) {
+        int inCount = 0;
+        Matcher m = inPattern(name).matcher(sql);
+        while (m.find()) inCount++;
+        int total = 0;
+        Matcher all = Pattern.compile(":" + Pattern.quote(name) + "\\b").matcher(sql);
+        while (all.find()) total++;
+        return inCount > 0 && inCount == total;
+    }
+
+    /**
+     * 空集合的 NOT IN 恒为真（与 ConstantFolder 一致）：将 NOT IN (:name) 替换为空结果子查询，
+     * 否则按空集合绑定为 NOT IN (NULL) 时不返回任何行；IN (:name) 保持不变
+     */
+    public static String rewriteEmptyNegated(String sql, String name) {
+        Matcher m = inPattern(name).matcher(sql);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            String replacement = m.group(1) == null ? m.group() : "NOT IN (SELECT NULL FROM (SELECT 1) e WHERE 1 = 0)";
+            m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * 将 IN (:name) 的列表替换为子查询：IN (subquery)
+     */
+    public static String rewrite(String sql, String name, String subquery) {
+        Matcher m = inPattern(name).matcher(sql);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            String not = m.group(1) == null ? "" : "NOT ";
+            m.appendReplacement(sb, Matcher.quoteReplacement(not + "IN (" + subquery + ")"));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+}
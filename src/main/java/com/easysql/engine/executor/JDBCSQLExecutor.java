@@ -1,31 +1,144 @@
 package com.easysql.engine.executor;
 
+import com.easysql.engine.builder.SQLBuilder;
+import com.easysql.engine.dialect.SQLDialect;
 import com.easysql.engine.model.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.easysql.engine.monitor.MetricsCollector;
 import com.easysql.engine.monitor.QueryMetrics;
+import com.easysql.engine.shard.AggregatePlan;
+import com.easysql.engine.shard.ResultMerger;
 
 public class JDBCSQLExecutor implements SQLExecutor {
 
+    private static final Logger log = LoggerFactory.getLogger(JDBCSQLExecutor.class);
+    private static final String TEMP_TABLE_PREFIX = "__easysql_in_";
+    private static final String VALUE_COLUMN = "v";
+    private static final int TEMP_TABLE_BATCH = 1000;
+    private static final AtomicLong TEMP_TABLE_SEQ = new AtomicLong();
+
     private MetricsCollector metrics;
+    // 单个IN参数的最大占位符个数，超出后按方言改写为VALUES/临时表，无方言时切分为多次执行并合并结果
+    private int maxInArity = 1000;
+    // 超过该个数的IN列表改用临时表（VALUES派生表过大时解析开销明显）
+    private int tempTableThreshold = 10000;
+    private SQLDialect dialect;
+    // 按模板解析方言（如引擎按 template.dialect 选择），为null时使用固定方言
+    private Function<Template, SQLDialect> dialectResolver;
 
     public JDBCSQLExecutor() {}
     public JDBCSQLExecutor(MetricsCollector metrics) { this.metrics = metrics; }
+    public JDBCSQLExecutor(MetricsCollector metrics, SQLDialect dialect) {
+        this.metrics = metrics;
+        this.dialect = dialect;
+    }
     public void setMetrics(MetricsCollector metrics) { this.metrics = metrics; }
 
+    public int getMaxInArity() { return maxInArity; }
+    public void setMaxInArity(int maxInArity) {
+        if (maxInArity < 1) throw new IllegalArgumentException("maxInArity must be >= 1");
+        this.maxInArity = maxInArity;
+    }
+
+    public int getTempTableThreshold() { return tempTableThreshold; }
+    public void setTempTableThreshold(int tempTableThreshold) {
+        if (tempTableThreshold < 1) throw new IllegalArgumentException("tempTableThreshold must be >= 1");
+        this.tempTableThreshold = tempTableThreshold;
+    }
+
+    public SQLDialect getDialect() { return dialect; }
+    /**
+     * 设置目标库方言：用于超大IN列表的VALUES/临时表改写；为null时只能切分执行
+     */
+    public void setDialect(SQLDialect dialect) { this.dialect = dialect; }
+
+    /**
+     * 设置按模板解析方言的函数，优先于 {@link #setDialect}；多方言共用一个执行器时使用
+     */
+    public void setDialectResolver(Function<Template, SQLDialect> dialectResolver) { this.dialectResolver = dialectResolver; }
+
+    private SQLDialect dialectOf(Template template) {
+        return dialectResolver != null ? dialectResolver.apply(template) : dialect;
+    }
+
     private MetricsCollector metrics() {
         if (this.metrics == null) this.metrics = new MetricsCollector();
         return this.metrics;
     }
 
+    /**
+     * 超大IN列表处理后的执行计划：改写后的SQL、VALUES参数的展开个数与格式、待清理的临时表、需切分的参数
+     */
+    private static final class Prepared {
+        final SQLDialect dialect;
+        String sql;
+        String chunkParam;
+        final Map<String, Integer> arities = new HashMap<>();
+        final Map<String, String> formats = new HashMap<>();
+        final List<String> tempTables = new ArrayList<>();
+
+        Prepared(SQLDialect dialect) {
+            this.dialect = dialect;
+        }
+    }
+
     @Override
     public QueryResult executeQuery(Connection connection, String sql, Template template, Map<String, Object> params) {
         long start = System.currentTimeMillis();
         try {
-            NamedParameterStatement nps = new NamedParameterStatement(connection, sql);
+            Map<String, Object> bound = InParameters.normalize(params);
+            Prepared prepared = prepare(connection, sql, template, bound, true);
+            List<Map<String, Object>> rows;
+            List<String> cols;
+            try {
+                if (prepared.chunkParam == null) {
+                    QueryResult r = query(connection, prepared, template, bound);
+                    rows = r.getRows();
+                    cols = r.getColumnNames();
+                } else {
+                    List<List<Map<String, Object>>> parts = new ArrayList<>();
+                    cols = null;
+                    for (Map<String, Object> p : InParameters.chunk(bound, prepared.chunkParam, maxInArity)) {
+                        QueryResult r = query(connection, prepared, template, p);
+                        if (cols == null) cols = r.getColumnNames();
+                        parts.add(r.getRows());
+                    }
+                    Integer cap = template.limit;
+                    if (template.options != null && template.options.maxRows != null && template.options.maxRows > 0) {
+                        cap = cap == null ? template.options.maxRows : Math.min(cap, template.options.maxRows);
+                    }
+                    // 各批次的取值互不相交，结果直接拼接；有ORDER BY时按排序键归并
+                    rows = template.orderBy != null && !template.orderBy.isEmpty()
+                            ? ResultMerger.mergeSorted(parts, ResultMerger.comparator(template, cols), null, cap)
+                            : ResultMerger.concat(parts, null, cap);
+                }
+            } finally {
+                dropTempTables(connection, prepared);
+            }
+            long end = System.currentTimeMillis();
+            long execTime = end - start;
+            metrics().record(QueryMetrics.success(template.id, template.datasource, 0, execTime, rows.size()));
+            return new QueryResult(rows, cols, execTime);
+        } catch (SQLException e) {
+            long end = System.currentTimeMillis();
+            long execTime = end - start;
+            metrics().record(QueryMetrics.failure(template.id, template.datasource, 0, "JDBC_ERROR", e.getMessage()));
+            throw new RuntimeException("SQL query failed: " + e.getMessage(), e);
+        }
+    }
+
+    private QueryResult query(Connection connection, Prepared prepared, Template template, Map<String, Object> params) throws SQLException {
+        try (NamedParameterStatement nps = new NamedParameterStatement(connection, prepared.sql,
+                arities(prepared, params), prepared.formats)) {
             // 设置执行参数，如超时、fetchSize、maxRows（若模板提供）
             if (template.options != null) {
                 if (template.options.fetchSize != null) {
@@ -43,45 +156,239 @@ public class JDBCSQLExecutor implements SQLExecutor {
             }
             bindParameters(nps, template, params);
             try (ResultSet rs = nps.getStatement().executeQuery()) {
-                List<Map<String, Object>> rows = new ArrayList<>();
-                ResultSetMetaData meta = rs.getMetaData();
-                int colCount = meta.getColumnCount();
-                List<String> cols = new ArrayList<>();
-                for (int i = 1; i <= colCount; i++) {
-                    cols.add(meta.getColumnLabel(i));
+                return read(rs);
+            }
+        }
+    }
+
+    private static QueryResult read(ResultSet rs) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        ResultSetMetaData meta = rs.getMetaData();
+        int colCount = meta.getColumnCount();
+        List<String> cols = new ArrayList<>();
+        for (int i = 1; i <= colCount; i++) {
+            cols.add(meta.getColumnLabel(i));
+        }
+        while (rs.next()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 1; i <= colCount; i++) {
+                row.put(cols.get(i - 1), rs.getObject(i));
+            }
+            rows.add(row);
+        }
+        return new QueryResult(rows, cols, 0);
+    }
+
+    /**
+     * 执行 EXPLAIN 语句并返回原始结果行：集合参数按分桶展开绑定，不做VALUES/临时表改写，也不计入查询指标；
+     * 集合参数超过 maxInArity 时抛出 IllegalArgumentException（展开后的语句可能超出占位符与包大小上限）
+     */
+    public List<Map<String, Object>> explain(Connection connection, String explainSql, Template template, Map<String, Object> params) throws SQLException {
+        Map<String, Object> bound = InParameters.normalize(params);
+        if (InParameters.exceeds(bound, maxInArity)) {
+            throw new IllegalArgumentException("cannot EXPLAIN with an IN parameter exceeding maxInArity(" + maxInArity + ")");
+        }
+        try (NamedParameterStatement nps = new NamedParameterStatement(connection, explainSql,
+                InParameters.arities(bound, maxInArity))) {
+            bindParameters(nps, template, bound);
+            try (ResultSet rs = nps.getStatement().executeQuery()) {
+                return read(rs).getRows();
+            }
+        }
+    }
+
+    private Map<String, Integer> arities(Prepared prepared, Map<String, Object> params) {
+        if (prepared.arities.isEmpty()) return InParameters.arities(params, maxInArity);
+        Map<String, Integer> out = new HashMap<>(InParameters.arities(params, maxInArity));
+        out.putAll(prepared.arities);
+        return out;
+    }
+
+    /**
+     * 为每个集合参数选择执行策略；VALUES/临时表策略在此改写SQL并装载临时表，切分策略在此校验能否逐批执行
+     */
+    private Prepared prepare(Connection connection, String sql, Template template, Map<String, Object> params,
+                             boolean query) throws SQLException {
+        SQLDialect dialect = dialectOf(template);
+        Prepared prepared = new Prepared(dialect);
+        prepared.sql = sql;
+        if (params == null) return prepared;
+        try {
+            for (Map.Entry<String, Object> e : params.entrySet()) {
+                if (!(e.getValue() instanceof List)) continue;
+                String name = e.getKey();
+                List<?> values = (List<?>) e.getValue();
+                if (values.isEmpty() && InParameters.negated(prepared.sql, name)) {
+                    prepared.sql = InParameters.rewriteEmptyNegated(prepared.sql, name);
                 }
-                while (rs.next()) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= colCount; i++) {
-                        row.put(cols.get(i - 1), rs.getObject(i));
-                    }
-                    rows.add(row);
+                InParameters.Strategy strategy = chooseStrategy(dialect, prepared.sql, name, values.size());
+                switch (strategy) {
+                    case TEMP_TABLE:
+                        String table = TEMP_TABLE_PREFIX + TEMP_TABLE_SEQ.incrementAndGet();
+                        prepared.tempTables.add(table);
+                        loadTempTable(connection, dialect, template, table, name, values);
+                        prepared.sql = InParameters.rewrite(prepared.sql, name,
+                                "SELECT " + dialect.escapeIdentifier(VALUE_COLUMN) + " FROM " + dialect.escapeIdentifier(table));
+                        break;
+                    case VALUES:
+                        // 行数按2的幂分桶以复用语句缓存，重复的末行不影响半连接结果
+                        prepared.sql = InParameters.rewrite(prepared.sql, name, dialect.valuesSubquery(VALUE_COLUMN, ":" + name));
+                        prepared.arities.put(name, InParameters.bucketArity(values.size(), Integer.MAX_VALUE));
+                        prepared.formats.put(name, dialect.valuesRowFormat(paramType(template, name)));
+                        break;
+                    case CHUNKED:
+                        if (prepared.chunkParam != null) {
+                            throw new IllegalArgumentException("only one IN parameter may exceed maxInArity(" + maxInArity + "): "
+                                    + prepared.chunkParam + ", " + name);
+                        }
+                        checkChunkable(template, prepared.sql, name, query);
+                        prepared.chunkParam = name;
+                        break;
+                    default:
+                        break;
                 }
-                long end = System.currentTimeMillis();
-                long execTime = end - start;
-                metrics().record(QueryMetrics.success(template.id, template.datasource, 0, execTime, rows.size()));
-                return new QueryResult(rows, cols, execTime);
+                metrics().increment(strategy.counter());
+            }
+        } catch (SQLException | RuntimeException ex) {
+            dropTempTables(connection, prepared);
+            throw ex;
+        }
+        return prepared;
+    }
+
+    private InParameters.Strategy chooseStrategy(SQLDialect dialect, String sql, String name, int size) {
+        if (size <= maxInArity) return InParameters.Strategy.INLINE;
+        if (dialect != null && InParameters.rewritable(sql, name)) {
+            // 方言返回null表示不支持对应改写：只支持其一时不受阈值限制
+            boolean values = dialect.valuesSubquery(VALUE_COLUMN, ":" + name) != null;
+            boolean tempTable = dialect.createTempTableSQL(TEMP_TABLE_PREFIX, VALUE_COLUMN, "STRING", 0) != null
+                    && dialect.dropTempTableSQL(TEMP_TABLE_PREFIX) != null;
+            if (values && (size < tempTableThreshold || !tempTable)) return InParameters.Strategy.VALUES;
+            if (tempTable) return InParameters.Strategy.TEMP_TABLE;
+        }
+        if (InParameters.negated(sql, name)) {
+            // 切分后各批次的 NOT IN 结果取并集并不等价于整体的 NOT IN
+            throw new IllegalArgumentException("NOT IN parameter '" + name
+                    + "' exceeds maxInArity and cannot be chunked; configure a dialect with VALUES or temp-table support");
+        }
+        return InParameters.Strategy.CHUNKED;
+    }
+
+    /**
+     * 建会话临时表并分批写入取值；NULL 同样入表，NOT IN 的三值逻辑（含NULL时结果为空）与内联形式一致
+     */
+    private void loadTempTable(Connection connection, SQLDialect dialect, Template template, String table, String name,
+                               List<?> values) throws SQLException {
+        String type = paramType(template, name);
+        int maxLength = 0;
+        if ("STRING".equalsIgnoreCase(type)) {
+            for (Object v : values) {
+                if (v != null) maxLength = Math.max(maxLength, v.toString().codePointCount(0, v.toString().length()));
             }
-        } catch (SQLException e) {
-            long end = System.currentTimeMillis();
-            long execTime = end - start;
-            metrics().record(QueryMetrics.failure(template.id, template.datasource, 0, "JDBC_ERROR", e.getMessage()));
-            throw new RuntimeException("SQL query failed: " + e.getMessage(), e);
+        }
+        try (Statement st = connection.createStatement()) {
+            st.execute(dialect.createTempTableSQL(table, VALUE_COLUMN, type, maxLength));
+        }
+        String insert = "INSERT INTO " + dialect.escapeIdentifier(table) + " (" + dialect.escapeIdentifier(VALUE_COLUMN) + ") VALUES (?)";
+        try (PreparedStatement ps = connection.prepareStatement(insert)) {
+            int pending = 0;
+            for (Object v : values) {
+                ps.setObject(1, SQLExecutor.ParameterConverter.convertParameter(type, v));
+                ps.addBatch();
+                if (++pending == TEMP_TABLE_BATCH) {
+                    ps.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) ps.executeBatch();
         }
     }
 
+    private void dropTempTables(Connection connection, Prepared prepared) {
+        for (String table : prepared.tempTables) {
+            try (Statement st = connection.createStatement()) {
+                st.execute(prepared.dialect.dropTempTableSQL(table));
+            } catch (SQLException e) {
+                // 临时表随会话结束自动释放，这里只记录
+                log.warn("[executor] failed to drop temp table {}: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    private static String paramType(Template template, String name) {
+        if (template.params != null) {
+            for (Template.Param p : template.params) {
+                if (name.equals(p.name) && p.type != null) return p.type;
+            }
+        }
+        return "STRING";
+    }
+
+    /**
+     * 切分执行仅适用于逐行过滤：参数只能出现在 WHERE 的顶层 AND 合取项中，否则其他分支（OR、JOIN ON）
+     * 命中的行会在每个批次重复返回；查询还要求无聚合/分组、DISTINCT、UNION 与 OFFSET，这些在批次间无法正确合并
+     */
+    private static void checkChunkable(Template template, String sql, String param, boolean query) {
+        int conjuncts = topLevelInConjuncts(template.where, param);
+        if (conjuncts == 0 || conjuncts != occurrences(sql, param)) {
+            throw new IllegalArgumentException("IN parameter '" + param
+                    + "' exceeds maxInArity and cannot be chunked unless it only appears in top-level AND conditions of WHERE");
+        }
+        if (!query) return;
+        boolean distinct = template.select != null && template.select.stream()
+                .anyMatch(item -> item.expr != null && item.expr.trim().toUpperCase(Locale.ROOT).startsWith("DISTINCT"));
+        if (AggregatePlan.needsAggregation(template) || distinct
+                || (template.unions != null && !template.unions.isEmpty())
+                || (template.offset != null && template.offset > 0)) {
+            throw new IllegalArgumentException("IN parameter '" + param
+                    + "' exceeds maxInArity and cannot be chunked for templates with GROUP BY/aggregates/DISTINCT/UNION/OFFSET");
+        }
+    }
+
+    private static int topLevelInConjuncts(Template.Condition c, String param) {
+        if (c == null) return 0;
+        if (c.leaf != null) {
+            Template.On leaf = c.leaf;
+            return "IN".equalsIgnoreCase(leaf.operator) && leaf.right != null && param.equals(leaf.right.param) ? 1 : 0;
+        }
+        if (c.op == null || !"AND".equalsIgnoreCase(c.op) || c.conditions == null) return 0;
+        int n = 0;
+        for (Template.Condition child : c.conditions) n += topLevelInConjuncts(child, param);
+        return n;
+    }
+
+    private static int occurrences(String sql, String param) {
+        Matcher m = Pattern.compile(":" + Pattern.quote(param) + "\\b").matcher(sql);
+        int n = 0;
+        while (m.find()) n++;
+        return n;
+    }
+
     @Override
     public int executeUpdate(Connection connection, String sql, Template template, Map<String, Object> params) {
         long start = System.currentTimeMillis();
         try {
-            NamedParameterStatement nps = new NamedParameterStatement(connection, sql);
-            if (template.options != null) {
-                if (template.options.timeoutMs != null) {
-                    nps.getStatement().setQueryTimeout(Math.max(1, template.options.timeoutMs / 1000));
+            Map<String, Object> bound = InParameters.normalize(params);
+            Prepared prepared = prepare(connection, sql, template, bound, false);
+            int updated = 0;
+            try {
+                List<Map<String, Object>> batches = prepared.chunkParam == null
+                        ? Collections.singletonList(bound) : InParameters.chunk(bound, prepared.chunkParam, maxInArity);
+                for (Map<String, Object> p : batches) {
+                    try (NamedParameterStatement nps = new NamedParameterStatement(connection, prepared.sql,
+                            arities(prepared, p), prepared.formats)) {
+                        if (template.options != null) {
+                            if (template.options.timeoutMs != null) {
+                                nps.getStatement().setQueryTimeout(Math.max(1, template.options.timeoutMs / 1000));
+                            }
+                        }
+                        bindParameters(nps, template, p);
+                        updated += nps.getStatement().executeUpdate();
+                    }
                 }
+            } finally {
+                dropTempTables(connection, prepared);
             }
-            bindParameters(nps, template, params);
-            int updated = nps.getStatement().executeUpdate();
             long end = System.currentTimeMillis();
             long execTime = end - start;
             metrics().record(QueryMetrics.success(template.id, template.datasource, 0, execTime, updated));
@@ -94,20 +401,62 @@ public class JDBCSQLExecutor implements SQLExecutor {
         }
     }
 
-    private void bindParameters(NamedParameterStatement nps, Template template, Map<String, Object> params) throws SQLException {
+    /**
+     * 逐条执行多行INSERT语句（由 {@link SQLBuilder#buildInsert} 惰性生成），返回影响行数之和
+     */
+    public int executeInsert(Connection connection, Template template, Iterator<SQLBuilder.InsertStatement> statements) {
+        long start = System.currentTimeMillis();
+        Map<String, String> typeMap = paramTypes(template);
+        int updated = 0;
+        try {
+            while (statements.hasNext()) {
+                SQLBuilder.InsertStatement stmt = statements.next();
+                try (PreparedStatement ps = connection.prepareStatement(stmt.sql)) {
+                    if (template.options != null && template.options.timeoutMs != null) {
+                        ps.setQueryTimeout(Math.max(1, template.options.timeoutMs / 1000));
+                    }
+                    int width = stmt.columns.size();
+                    for (int i = 0; i < stmt.values.size(); i++) {
+                        String type = typeMap.get(stmt.columns.get(i % width));
+                        Object v = stmt.values.get(i);
+                        ps.setObject(i + 1, type == null ? v : SQLExecutor.ParameterConverter.convertParameter(type, v));
+                    }
+                    updated += ps.executeUpdate();
+                }
+            }
+            long execTime = System.currentTimeMillis() - start;
+            metrics().record(QueryMetrics.success(template.id, template.datasource, 0, execTime, updated));
+            return updated;
+        } catch (SQLException e) {
+            metrics().record(QueryMetrics.failure(template.id, template.datasource, 0, "JDBC_ERROR", e.getMessage()));
+            throw new RuntimeException("SQL insert failed after " + updated + " rows: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, String> paramTypes(Template template) {
         Map<String, String> typeMap = new HashMap<>();
         if (template.params != null) {
             for (Template.Param p : template.params) {
                 typeMap.put(p.name, p.type);
             }
         }
+        return typeMap;
+    }
+
+    private void bindParameters(NamedParameterStatement nps, Template template, Map<String, Object> params) throws SQLException {
+        Map<String, String> typeMap = paramTypes(template);
         List<String> order = nps.getOrder();
         for (int i = 0; i < order.size(); i++) {
             String name = order.get(i);
             Object val = params == null ? null : params.get(name);
+            int element = nps.getElementIndex(i);
+            if (element >= 0) {
+                // 集合参数：按位置取元素，不足分桶个数时重复最后一个值
+                val = InParameters.element((List<?>) val, element);
+            }
             String type = typeMap.getOrDefault(name, "STRING");
             Object converted = SQLExecutor.ParameterConverter.convertParameter(type, val);
             nps.setObject(i + 1, converted);
         }
     }
-}
\ No newline at end of file
+}
@@ -8,27 +8,70 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * 简易命名参数语句：将 :name 转换为 ? 并记录位置
+ * 简易命名参数语句：将 :name 转换为 ? 并记录位置；集合参数按给定个数展开为 ?, ?, ...（或按元素格式展开，如 ROW(?), ROW(?)）
  */
-public class NamedParameterStatement {
+public class NamedParameterStatement implements AutoCloseable {
 
     private static final Pattern PARAM_PATTERN = Pattern.compile("(:)([a-zA-Z_][a-zA-Z0-9_]*)");
 
     private final PreparedStatement statement;
     private final List<String> order;
+    private final List<Integer> elementIndexes;
 
     public NamedParameterStatement(Connection connection, String namedSql) throws SQLException {
-        // 解析 :name -> ?
+        this(connection, namedSql, Collections.emptyMap());
+    }
+
+    /**
+     * @param arities 集合参数名到占位符个数的映射
+     */
+    public NamedParameterStatement(Connection connection, String namedSql, Map<String, Integer> arities) throws SQLException {
+        this(connection, namedSql, arities, Collections.emptyMap());
+    }
+
+    /**
+     * @param arities 集合参数名到占位符个数的映射
+     * @param formats 集合参数名到单个元素格式的映射（须含一个 ?），缺省为 ?
+     */
+    public NamedParameterStatement(Connection connection, String namedSql, Map<String, Integer> arities,
+                                   Map<String, String> formats) throws SQLException {
+        this.order = new ArrayList<>();
+        this.elementIndexes = new ArrayList<>();
+        this.statement = connection.prepareStatement(parse(namedSql, arities, formats, order, elementIndexes));
+    }
+
+    static String parse(String namedSql, Map<String, Integer> arities, List<String> order, List<Integer> elementIndexes) {
+        return parse(namedSql, arities, Collections.emptyMap(), order, elementIndexes);
+    }
+
+    /**
+     * 解析 :name -> ?，返回JDBC SQL；order/elementIndexes 按占位符顺序记录参数名与集合元素下标（标量为-1）
+     */
+    static String parse(String namedSql, Map<String, Integer> arities, Map<String, String> formats,
+                        List<String> order, List<Integer> elementIndexes) {
         Matcher matcher = PARAM_PATTERN.matcher(namedSql);
         StringBuffer sb = new StringBuffer();
-        this.order = new ArrayList<>();
         while (matcher.find()) {
             String name = matcher.group(2);
-            order.add(name);
-            matcher.appendReplacement(sb, "?");
+            Integer arity = arities.get(name);
+            if (arity == null) {
+                order.add(name);
+                elementIndexes.add(-1);
+                matcher.appendReplacement(sb, "?");
+            } else {
+                String format = formats.getOrDefault(name, "?");
+                StringBuilder marks = new StringBuilder();
+                for (int i = 0; i < arity; i++) {
+                    if (i > 0) marks.append(", ");
+                    marks.append(format);
+                    order.add(name);
+                    elementIndexes.add(i);
+                }
+                matcher.appendReplacement(sb, Matcher.quoteReplacement(marks.toString()));
+            }
         }
         matcher.appendTail(sb);
-        this.statement = connection.prepareStatement(sb.toString());
+        return sb.toString();
     }
 
     public PreparedStatement getStatement() {
@@ -39,7 +82,19 @@ public class NamedParameterStatement {
         return Collections.unmodifiableList(order);
     }
 
+    /**
+     * 第 index（从0开始）个占位符对应的集合元素下标，标量参数为-1
+     */
+    public int getElementIndex(int index) {
+        return elementIndexes.get(index);
+    }
+
     public void setObject(int index, Object value) throws SQLException {
         statement.setObject(index, value);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+}
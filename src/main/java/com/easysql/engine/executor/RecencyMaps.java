@@ -0,0 +1,64 @@
+package com.easysql.engine.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按指纹记录状态的有界并发表：读写走 ConcurrentHashMap 不加全局锁，超出容量时由单个线程
+ * 按最近使用时间淘汰到容量的3/4（分摊排序开销），其余线程不等待
+ */
+final class RecencyMaps<K, V> {
+
+    private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final ToLongFunction<V> lastUsed;
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    RecencyMaps(int capacity, ToLongFunction<V> lastUsed) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.capacity = capacity;
+        this.lastUsed = lastUsed;
+    }
+
+    ConcurrentHashMap<K, V> map() {
+        return map;
+    }
+
+    /**
+     * 插入新键后调用：超出容量时淘汰最久未使用的条目
+     */
+    void trim() {
+        if (map.size() <= capacity || !trimming.compareAndSet(false, true)) return;
+        try {
+            // 先取下每个条目的使用时间再排序：值可能被其他线程并发更新，排序期间读到变化的键会违反比较器约定
+            List<Stamp<K, V>> entries = new ArrayList<>();
+            for (Map.Entry<K, V> e : map.entrySet()) {
+                entries.add(new Stamp<>(e.getKey(), e.getValue(), lastUsed.applyAsLong(e.getValue())));
+            }
+            int excess = entries.size() - capacity * 3 / 4;
+            if (excess <= 0) return;
+            entries.sort((a, b) -> Long.compare(a.lastUsed, b.lastUsed));
+            for (int i = 0; i < excess; i++) {
+                map.remove(entries.get(i).key, entries.get(i).value);
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private static final class Stamp<K, V> {
+        final K key;
+        final V value;
+        final long lastUsed;
+
+        Stamp(K key, V value, long lastUsed) {
+            this.key = key;
+            this.value = value;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
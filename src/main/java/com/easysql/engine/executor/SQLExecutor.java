@@ -72,6 +72,10 @@ public interface SQLExecutor {
         
         public static Object convertParameter(String type, Object value) {
             if (value == null) return null;
+            if (InParameters.isCollection(value)) {
+                // 集合参数须在执行期展开为单个元素后再转换
+                throw new IllegalArgumentException("collection parameter must be bound to an IN placeholder");
+            }
             
             switch (type.toUpperCase()) {
                 case "STRING":
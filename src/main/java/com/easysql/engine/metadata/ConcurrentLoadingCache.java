@@ -0,0 +1,371 @@
+package com.easysql.engine.metadata;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 并发加载缓存：
+ * <ul>
+ *   <li>读路径无锁（ConcurrentHashMap + 频率草图计数），仅插入/淘汰持有淘汰锁；</li>
+ *   <li>同一键同时只有一个加载在执行，其余调用方等待其结果（防止过期瞬间的惊群）；</li>
+ *   <li>容量满时按 TinyLFU 准入：从随机采样中选出访问频率最低的条目作为淘汰候选，
+ *       新条目的估计频率高于它才替换，否则新值仅返回给调用方而不入缓存。</li>
+ * </ul>
+ * 加载结果为null时不缓存，并移除该键的过期条目。
+ */
+public class ConcurrentLoadingCache<K, V> {
+
+    private static final int SAMPLE_SIZE = 8;
+
+    private final int capacity;
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private final Object evictionLock = new Object();
+    // 淘汰采样用的键数组，受 evictionLock 保护；节点记录自身下标以便 O(1) 删除
+    private final List<Node<K, V>> nodes = new ArrayList<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccess = new LongAdder();
+    private final LongAdder loadFailure = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder dedupedLoads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public ConcurrentLoadingCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * 取有效值，无有效值时加载
+     * @param valid 判断已缓存的值是否仍可用（如TTL）
+     * @param loader 加载函数，同一键并发调用时只执行一次
+     */
+    public V get(K key, Predicate<V> valid, Callable<V> loader) throws Exception {
+        sketch.increment(key);
+        Node<K, V> node = map.get(key);
+        if (node != null && valid.test(node.value)) {
+            hits.increment();
+            return node.value;
+        }
+        misses.increment();
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> inflight = loads.putIfAbsent(key, mine);
+        if (inflight != null) {
+            dedupedLoads.increment();
+            return await(inflight);
+        }
+        try {
+            // 抢到加载权前可能已有加载完成，复查一次
+            node = map.get(key);
+            if (node != null && valid.test(node.value)) {
+                mine.complete(node.value);
+                return node.value;
+            }
+            long start = System.nanoTime();
+            V value;
+            try {
+                value = loader.call();
+            } catch (Exception | Error e) {
+                loadFailure.increment();
+                mine.completeExceptionally(e);
+                throw e;
+            }
+            loadNanos.add(System.nanoTime() - start);
+            loadSuccess.increment();
+            if (value != null) {
+                put(key, value);
+            } else if (node != null) {
+                // 已不存在（如表被删除）：丢弃过期条目
+                invalidate(key);
+            }
+            mine.complete(value);
+            return value;
+        } finally {
+            loads.remove(key, mine);
+        }
+    }
+
+    /**
+     * 异步刷新：该键已有在途加载时跳过；成功后替换缓存值（结果为null时移除），失败保留旧值并回调 onFailure。
+     * 加载抛出 Error 时同样以异常结束本次加载，等待的调用方不会挂起，Error 在刷新线程上继续抛出。
+     * 刷新期间过期调用方的 {@link #get} 会等待本次刷新而不另行加载
+     * @return 是否已提交刷新
+     */
+    public boolean refresh(K key, Callable<V> loader, Executor executor, Consumer<Exception> onFailure) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        if (loads.putIfAbsent(key, mine) != null) return false;
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    V value = loader.call();
+                    loadNanos.add(System.nanoTime() - start);
+                    loadSuccess.increment();
+                    if (value != null) {
+                        put(key, value);
+                    } else {
+                        invalidate(key);
+                    }
+                    mine.complete(value);
+                } catch (Exception e) {
+                    loadFailure.increment();
+                    mine.completeExceptionally(e);
+                    onFailure.accept(e);
+                } catch (Throwable e) {
+                    loadFailure.increment();
+                    mine.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    loads.remove(key, mine);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // 执行器已满：已在等待的调用方拿到当前值
+            loads.remove(key, mine);
+            mine.complete(getIfPresent(key));
+            return false;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * 不加载、不计入命中统计的查找
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = map.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * 写入：已存在则替换；容量满时按频率决定是否准入
+     * @return 是否已写入缓存
+     */
+    public boolean put(K key, V value) {
+        synchronized (evictionLock) {
+            Node<K, V> existing = map.get(key);
+            if (existing != null) {
+                existing.value = value;
+                return true;
+            }
+            if (nodes.size() >= capacity) {
+                Node<K, V> victim = sampleVictim();
+                if (sketch.frequency(key) <= sketch.frequency(victim.key)) {
+                    rejections.increment();
+                    return false;
+                }
+                unlink(victim);
+                map.remove(victim.key, victim);
+                evictions.increment();
+            }
+            Node<K, V> node = new Node<>(key, value);
+            node.index = nodes.size();
+            nodes.add(node);
+            map.put(key, node);
+            return true;
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (evictionLock) {
+            Node<K, V> node = map.remove(key);
+            if (node != null) unlink(node);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (evictionLock) {
+            map.clear();
+            nodes.clear();
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 当前全部键值（弱一致快照）
+     */
+    public Map<K, V> asMap() {
+        Map<K, V> out = new LinkedHashMap<>(map.size() * 2);
+        for (Node<K, V> n : map.values()) out.put(n.key, n.value);
+        return out;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), loadSuccess.sum(), loadFailure.sum(), loadNanos.sum(),
+                dedupedLoads.sum(), evictions.sum(), rejections.sum());
+    }
+
+    private Node<K, V> sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Node<K, V> victim = null;
+        int victimFreq = Integer.MAX_VALUE;
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            Node<K, V> n = nodes.get(random.nextInt(nodes.size()));
+            int f = sketch.frequency(n.key);
+            if (f < victimFreq) {
+                victim = n;
+                victimFreq = f;
+            }
+        }
+        return victim;
+    }
+
+    private void unlink(Node<K, V> node) {
+        int last = nodes.size() - 1;
+        Node<K, V> moved = nodes.get(last);
+        nodes.set(node.index, moved);
+        moved.index = node.index;
+        nodes.remove(last);
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        int index;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 计数最小草图：4个哈希位置取最小值，计数饱和于15，累计增量达到容量10倍时全部减半（老化），计数允许并发丢失
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb9f8b4c5, 0x2c1b3c6d, 0x297a2d39};
+        private static final int MAX = 15;
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            // 每个条目约16个计数槽，控制哈希冲突带来的高估
+            int size = Integer.highestOneBit(Math.max(64, capacity * 16 - 1)) << 1;
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = Math.max(10 * capacity, 100);
+        }
+
+        int frequency(Object key) {
+            int h = spread(key.hashCode());
+            int min = MAX;
+            for (int seed : SEEDS) {
+                min = Math.min(min, table[index(h, seed)]);
+            }
+            return min;
+        }
+
+        void increment(Object key) {
+            int h = spread(key.hashCode());
+            boolean added = false;
+            for (int seed : SEEDS) {
+                int i = index(h, seed);
+                if (table[i] < MAX) {
+                    table[i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) reset();
+        }
+
+        private synchronized void reset() {
+            if (additions < sampleSize) return;
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (byte) (table[i] >>> 1);
+            }
+            additions = 0;
+        }
+
+        private int index(int h, int seed) {
+            int x = h * seed;
+            return (x ^ (x >>> 16)) & mask;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 17;
+            h *= 0xed5ad4bb;
+            h ^= h >>> 11;
+            return h;
+        }
+    }
+
+    /**
+     * 缓存统计快照
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long loadSuccess;
+        public final long loadFailure;
+        public final long totalLoadNanos;
+        public final long dedupedLoads; // 等待他人在途加载而未自行加载的次数
+        public final long evictions;
+        public final long rejections; // 因频率低未被准入的新值
+
+        Stats(long hits, long misses, long loadSuccess, long loadFailure, long totalLoadNanos,
+              long dedupedLoads, long evictions, long rejections) {
+            this.hits = hits;
+            this.misses = misses;
+            this.loadSuccess = loadSuccess;
+            this.loadFailure = loadFailure;
+            this.totalLoadNanos = totalLoadNanos;
+            this.dedupedLoads = dedupedLoads;
+            this.evictions = evictions;
+            this.rejections = rejections;
+        }
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 1.0 : (double) hits / total;
+        }
+
+        public double averageLoadMillis() {
+            long loads = loadSuccess + loadFailure;
+            return loads == 0 ? 0 : totalLoadNanos / 1e6 / loads;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hits + ", misses=" + misses + ", loads=" + loadSuccess + ", loadFailures=" + loadFailure
+                    + ", avgLoadMs=" + String.format("%.2f", averageLoadMillis()) + ", deduped=" + dedupedLoads
+                    + ", evictions=" + evictions + ", rejections=" + rejections + "}";
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.easysql.engine.metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引元数据信息
+ */
+public class IndexMetadata {
+    private String indexName;
+    private boolean unique;
+    private List<String> columns = new ArrayList<>(); // 按 ORDINAL_POSITION 排序
+    private long cardinality = -1; // 不同键值数（近似），-1 表示未知
+
+    public IndexMetadata() {}
+
+    public IndexMetadata(String indexName, boolean unique) {
+        this.indexName = indexName;
+        this.unique = unique;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public void setIndexName(String indexName) {
+        this.indexName = indexName;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public void setUnique(boolean unique) {
+        this.unique = unique;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    public void setCardinality(long cardinality) {
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * 是否以指定列为前导列
+     */
+    public boolean leadsWith(String column) {
+        return !columns.isEmpty() && columns.get(0).equalsIgnoreCase(column);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexMetadata{" +
+                "indexName='" + indexName + '\'' +
+                ", unique=" + unique +
+                ", columns=" + columns +
+                ", cardinality=" + cardinality +
+                '}';
+    }
+}
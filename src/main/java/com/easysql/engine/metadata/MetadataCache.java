@@ -1,29 +1,85 @@
 package com.easysql.engine.metadata;
 
-import cn.hutool.cache.Cache;
-import cn.hutool.cache.impl.LRUCache;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 元数据缓存：按数据源别名 + 表全名 缓存表与列信息，支持TTL与容量
+ * 元数据缓存：按数据源别名 + 表全名 缓存表与列信息，支持TTL与容量；
+ * 读无锁，同一张表过期时并发请求只触发一次加载。
+ * <p>
+ * 超过软TTL的条目立即返回旧值并在后台刷新，超过硬TTL才阻塞加载；刷新失败时继续提供上次成功的值，
+ * 并在 refreshRetryMs 内不再重试。
+ * <p>
+ * 缓存内容可保存为本地快照，重启时加载快照即可服务，再由后台重新校验。
  */
 public class MetadataCache {
 
-    private final Cache<String, TableMetadata> tableCache;
-    private final long ttlMs;
+    private static final Logger log = LoggerFactory.getLogger(MetadataCache.class);
+
+    public static final String COUNTER_STALE_SERVED = "metadata.stale_served";
+    public static final String COUNTER_REFRESH = "metadata.refresh";
+    public static final String COUNTER_REFRESH_FAILED = "metadata.refresh_failed";
+
+    private final ConcurrentLoadingCache<String, TableMetadata> tableCache;
+    private final long softTtlMs;
+    private final long hardTtlMs;
+    private final ThreadPoolExecutor refresher;
+    // 刷新失败的键 -> 允许再次刷新的时间
+    private final Map<String, Long> refreshRetryAt = new ConcurrentHashMap<>();
+    private volatile long refreshRetryMs = 10000;
+    private volatile MetricsCollector metrics = new MetricsCollector();
 
     // 数据源别名到连接提供者（外部注入）
     private final Map<String, java.util.function.Supplier<Connection>> connectionSuppliers = new ConcurrentHashMap<>();
 
+    /**
+     * 单一TTL：过期即阻塞加载
+     */
     public MetadataCache(int capacity, long ttlMs) {
-        this.tableCache = new LRUCache<>(capacity);
-        this.ttlMs = ttlMs;
+        this(capacity, ttlMs, ttlMs);
+    }
+
+    public MetadataCache(int capacity, long softTtlMs, long hardTtlMs) {
+        if (softTtlMs > hardTtlMs) throw new IllegalArgumentException("softTtlMs must be <= hardTtlMs");
+        this.tableCache = new ConcurrentLoadingCache<>(capacity);
+        this.softTtlMs = softTtlMs;
+        this.hardTtlMs = hardTtlMs;
+        AtomicInteger seq = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256), r -> {
+            Thread t = new Thread(r, "easysql-metadata-refresh-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.refresher.allowCoreThreadTimeOut(true);
+    }
+
+    public void setMetrics(MetricsCollector metrics) {
+        this.metrics = metrics;
+    }
+
+    public long getRefreshRetryMs() { return refreshRetryMs; }
+    public void setRefreshRetryMs(long refreshRetryMs) {
+        if (refreshRetryMs < 0) throw new IllegalArgumentException("refreshRetryMs must be >= 0");
+        this.refreshRetryMs = refreshRetryMs;
     }
 
     public void registerDatasource(String name, java.util.function.Supplier<Connection> connectionSupplier) {
@@ -41,52 +97,393 @@ public class MetadataCache {
 
     public TableMetadata getTable(String datasource, String catalog, String schema, String table) throws SQLException {
         String k = key(datasource, catalog, schema, table);
-        TableMetadata tm = tableCache.get(k, false);
-        if (tm != null && (System.currentTimeMillis() - tm.getLastUpdated() <= ttlMs)) {
-            return tm;
+        TableMetadata tm;
+        try {
+            tm = tableCache.get(k, cached -> System.currentTimeMillis() - cached.getLastUpdated() <= hardTtlMs,
+                    () -> loadTable(datasource, catalog, schema, table));
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load metadata of " + k + ": " + e.getMessage(), e);
         }
-        // 重新加载
-        TableMetadata loaded = loadTable(datasource, catalog, schema, table);
-        if (loaded != null) {
-            tableCache.put(k, loaded);
+        if (tm != null && System.currentTimeMillis() - tm.getLastUpdated() > softTtlMs) {
+            metrics.increment(COUNTER_STALE_SERVED);
+            refreshAsync(k, datasource, catalog, schema, table);
         }
-        return loaded;
+        return tm;
     }
 
-    private TableMetadata loadTable(String datasource, String catalog, String schema, String table) throws SQLException {
+    private void refreshAsync(String k, String datasource, String catalog, String schema, String table) {
+        Long retryAt = refreshRetryAt.get(k);
+        if (retryAt != null && System.currentTimeMillis() < retryAt) return;
+        boolean submitted = tableCache.refresh(k, () -> {
+            TableMetadata loaded = loadTable(datasource, catalog, schema, table);
+            refreshRetryAt.remove(k);
+            return loaded;
+        }, refresher, e -> {
+            refreshRetryAt.put(k, System.currentTimeMillis() + refreshRetryMs);
+            metrics.increment(COUNTER_REFRESH_FAILED);
+            log.warn("[metadata] refresh of {} failed, serving last good value: {}", k, e.getMessage());
+        });
+        if (submitted) metrics.increment(COUNTER_REFRESH);
+    }
+
+    /**
+     * 缓存命中、加载耗时等统计
+     */
+    public ConcurrentLoadingCache.Stats getStats() {
+        return tableCache.stats();
+    }
+
+    private static final String[] TABLE_TYPES = {"TABLE", "VIEW"};
+    // 未指定catalog/schema预加载时跳过的系统库（MySQL 的系统库为 catalog）
+    private static final Set<String> SYSTEM_SCHEMAS = new HashSet<>(Arrays.asList(
+            "information_schema", "performance_schema", "mysql", "sys", "pg_catalog"));
+
+    private java.util.function.Supplier<Connection> supplier(String datasource) {
         java.util.function.Supplier<Connection> supplier = connectionSuppliers.get(datasource);
         if (supplier == null) {
             throw new IllegalStateException("No datasource registered: " + datasource);
         }
-        try (Connection conn = supplier.get()) {
+        return supplier;
+    }
+
+    private TableMetadata loadTable(String datasource, String catalog, String schema, String table) throws SQLException {
+        try (Connection conn = supplier(datasource).get()) {
+            return loadTable(conn.getMetaData(), catalog, schema, table);
+        }
+    }
+
+    private TableMetadata loadTable(DatabaseMetaData meta, String catalog, String schema, String table) throws SQLException {
+        try (ResultSet rs = meta.getTables(catalog, schema, table, TABLE_TYPES)) {
+            if (!rs.next()) return null;
+            TableMetadata tm = readTable(rs);
+            // 列信息
+            List<ColumnMetadata> cols = new ArrayList<>();
+            try (ResultSet crs = meta.getColumns(catalog, schema, table, null)) {
+                while (crs.next()) {
+                    cols.add(readColumn(crs));
+                }
+            }
+            tm.setColumns(cols);
+            loadKeys(meta, tm);
+            return tm;
+        }
+    }
+
+    private static TableMetadata readTable(ResultSet rs) throws SQLException {
+        TableMetadata tm = new TableMetadata(rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME"));
+        tm.setTableType(rs.getString("TABLE_TYPE"));
+        tm.setComment(rs.getString("REMARKS"));
+        return tm;
+    }
+
+    private ColumnMetadata readColumn(ResultSet crs) throws SQLException {
+        ColumnMetadata cm = new ColumnMetadata();
+        cm.setColumnName(crs.getString("COLUMN_NAME"));
+        cm.setDataType(jdbcTypeToStd(crs.getInt("DATA_TYPE")));
+        cm.setSize(crs.getInt("COLUMN_SIZE"));
+        cm.setScale(crs.getInt("DECIMAL_DIGITS"));
+        cm.setNullable(crs.getInt("NULLABLE") == DatabaseMetaData.columnNullable);
+        cm.setComment(crs.getString("REMARKS"));
+        return cm;
+    }
+
+    /**
+     * 主键与索引（JDBC 要求指定表名，只能逐表读取），并标记加载时间
+     */
+    private void loadKeys(DatabaseMetaData meta, TableMetadata tm) throws SQLException {
+        tm.setPrimaryKeys(loadPrimaryKeys(meta, tm));
+        tm.setIndexes(loadIndexes(meta, tm));
+        tm.setLastUpdated(System.currentTimeMillis());
+    }
+
+    /**
+     * 预加载进度回调
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(String datasource, int loaded, int total);
+    }
+
+    /**
+     * 一个数据源的预加载结果；失败时 error 非空。
+     * tables 只计已写入缓存的表，缓存已满未能准入的表计入 skipped
+     */
+    public static class PreloadResult {
+        public final String datasource;
+        public final int tables;
+        public final int columns;
+        public final int skipped;
+        public final long elapsedMs;
+        public final String error;
+
+        PreloadResult(String datasource, int tables, int columns, int skipped, long elapsedMs, String error) {
+            this.datasource = datasource;
+            this.tables = tables;
+            this.columns = columns;
+            this.skipped = skipped;
+            this.elapsedMs = elapsedMs;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return datasource + ": " + (error != null ? "failed (" + error + ")" : tables + " tables, " + columns + " columns"
+                    + (skipped > 0 ? ", " + skipped + " skipped (cache full)" : "")) + " in " + elapsedMs + " ms";
+        }
+    }
+
+    public PreloadResult preloadSchema(String datasource, String catalog, String schema) throws SQLException {
+        return preloadSchema(datasource, catalog, schema, null);
+    }
+
+    /**
+     * 批量预加载一个schema：一次 getTables + 一次 getColumns(catalog, schema, null, null) 取全部表与列并在客户端分组，
+     * 主键与索引在同一连接上逐表读取。缓存键与以相同 catalog/schema 参数调用 {@link #getTable} 一致；
+     * 表与列按 catalog + schema + 表名 对应；catalog/schema 为空时分别跳过系统库，映射到同一缓存键的同名表保留首个。
+     * 预加载的键没有访问频率，缓存满后不会被准入：首个被拒的表之后停止加载，其余表计入 skipped 并告警。
+     * @param listener 每加载约10%的表回调一次，为空时写日志
+     */
+    public PreloadResult preloadSchema(String datasource, String catalog, String schema, ProgressListener listener) throws SQLException {
+        long start = System.currentTimeMillis();
+        ProgressListener progress = listener != null ? listener
+                : (ds, loaded, total) -> log.info("[metadata] preload {}: {}/{} tables", ds, loaded, total);
+        // catalog.schema.表名（小写）-> 表；MySQL 的库为 catalog，TABLE_SCHEM 为空
+        Map<String, TableMetadata> tables = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>();
+        int columns = 0;
+        int loaded = 0;
+        try (Connection conn = supplier(datasource).get()) {
             DatabaseMetaData meta = conn.getMetaData();
-            String[] types = {"TABLE", "VIEW"};
-            try (ResultSet rs = meta.getTables(catalog, schema, table, types)) {
-                if (!rs.next()) return null;
-                TableMetadata tm = new TableMetadata(rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME"));
-                tm.setTableType(rs.getString("TABLE_TYPE"));
-                tm.setComment(rs.getString("REMARKS"));
-                // 列信息
-                List<ColumnMetadata> cols = new ArrayList<>();
-                try (ResultSet crs = meta.getColumns(catalog, schema, table, null)) {
-                    while (crs.next()) {
-                        ColumnMetadata cm = new ColumnMetadata();
-                        cm.setColumnName(crs.getString("COLUMN_NAME"));
-                        cm.setDataType(jdbcTypeToStd(crs.getInt("DATA_TYPE")));
-                        cm.setSize(crs.getInt("COLUMN_SIZE"));
-                        cm.setScale(crs.getInt("DECIMAL_DIGITS"));
-                        cm.setNullable(crs.getInt("NULLABLE") == DatabaseMetaData.columnNullable);
-                        cm.setComment(crs.getString("REMARKS"));
-                        cols.add(cm);
+            try (ResultSet rs = meta.getTables(catalog, schema, null, TABLE_TYPES)) {
+                while (rs.next()) {
+                    if (schema == null && isSystemSchema(rs.getString("TABLE_SCHEM"))) continue;
+                    if (catalog == null && isSystemSchema(rs.getString("TABLE_CAT"))) continue;
+                    TableMetadata tm = readTable(rs);
+                    // 不同 catalog/schema 的同名表映射到同一缓存键时保留首个
+                    if (!keys.add(key(datasource, catalog, schema, tm.getTableName()))) continue;
+                    tm.setColumns(new ArrayList<>());
+                    tables.put(qualifiedName(tm.getCatalog(), tm.getSchema(), tm.getTableName()), tm);
+                }
+            }
+            try (ResultSet crs = meta.getColumns(catalog, schema, null, null)) {
+                while (crs.next()) {
+                    TableMetadata tm = tables.get(qualifiedName(crs.getString("TABLE_CAT"), crs.getString("TABLE_SCHEM"),
+                            crs.getString("TABLE_NAME")));
+                    if (tm != null) tm.getColumns().add(readColumn(crs));
+                }
+            }
+            int total = tables.size();
+            int step = Math.max(1, total / 10);
+            for (Map.Entry<String, TableMetadata> e : tables.entrySet()) {
+                String k = key(datasource, catalog, schema, e.getValue().getTableName());
+                // 频率为0的新键准入不了已满的缓存，后续表同样会被拒，不再读取其主键与索引
+                if (tableCache.size() >= tableCache.capacity() && tableCache.getIfPresent(k) == null) break;
+                loadKeys(meta, e.getValue());
+                if (!tableCache.put(k, e.getValue())) break;
+                columns += e.getValue().getColumns().size();
+                if (++loaded % step == 0 || loaded == total) progress.onProgress(datasource, loaded, total);
+            }
+        }
+        PreloadResult result = new PreloadResult(datasource, loaded, columns, tables.size() - loaded,
+                System.currentTimeMillis() - start, null);
+        if (result.skipped > 0) {
+            log.warn("[metadata] preload of {} stopped at cache capacity: {} of {} tables skipped",
+                    datasource, result.skipped, tables.size());
+        } else {
+            log.info("[metadata] preloaded {}", result);
+        }
+        return result;
+    }
+
+    /**
+     * 在全部已注册数据源上并发预加载，单个数据源失败不影响其他数据源
+     */
+    public List<PreloadResult> preloadAll(String catalog, String schema, ProgressListener listener) {
+        List<String> names = new ArrayList<>(connectionSuppliers.keySet());
+        if (names.isEmpty()) return new ArrayList<>();
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(names.size(), 8), r -> {
+            Thread t = new Thread(r, "easysql-metadata-preload-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<PreloadResult>> futures = new ArrayList<>();
+            for (String name : names) {
+                futures.add(pool.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        return preloadSchema(name, catalog, schema, listener);
+                    } catch (SQLException | RuntimeException e) {
+                        log.warn("[metadata] preload of {} failed: {}", name, e.getMessage());
+                        return new PreloadResult(name, 0, 0, 0, System.currentTimeMillis() - start, e.getMessage());
                     }
+                }));
+            }
+            List<PreloadResult> results = new ArrayList<>();
+            for (Future<PreloadResult> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while preloading metadata", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("metadata preload failed: " + e.getCause().getMessage(), e.getCause());
                 }
-                tm.setColumns(cols);
-                tm.setLastUpdated(System.currentTimeMillis());
-                return tm;
             }
+            return results;
+        } finally {
+            pool.shutdown();
         }
     }
 
+    /**
+     * 将当前缓存的全部表结构写入本地快照文件（先写临时文件再原子替换）
+     * @return 写入的表数
+     */
+    public int saveSnapshot(Path file) throws IOException {
+        List<MetadataSnapshot.Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, TableMetadata> e : tableCache.asMap().entrySet()) {
+            String k = e.getKey();
+            entries.add(new MetadataSnapshot.Entry(k, k.substring(0, k.indexOf('|')), e.getValue()));
+        }
+        long start = System.currentTimeMillis();
+        MetadataSnapshot.write(file, entries);
+        log.info("[metadata] saved snapshot of {} tables to {} in {} ms", entries.size(), file, System.currentTimeMillis() - start);
+        return entries.size();
+    }
+
+    /**
+     * 启动预热：以内存映射读取快照并写入缓存，条目标记为已过软TTL，随后在后台逐表重新校验。
+     * 已注册的数据源在后台线程上各用一个连接顺序刷新，未注册的数据源在首次访问时经软TTL路径刷新；
+     * 单一TTL的缓存无法标记过期而不阻塞，条目按刚加载处理。应在注册数据源之后调用。
+     * 文件不存在或已损坏时不加载任何条目。
+     * @return 载入的表数
+     */
+    public int loadSnapshot(Path file) {
+        if (!Files.isRegularFile(file)) return 0;
+        long start = System.currentTimeMillis();
+        List<MetadataSnapshot.Entry> entries;
+        try {
+            entries = MetadataSnapshot.read(file);
+        } catch (IOException e) {
+            log.warn("[metadata] ignoring snapshot {}: {}", file, e.getMessage());
+            return 0;
+        }
+        long loadedAt = softTtlMs < hardTtlMs ? start - softTtlMs - 1 : start;
+        Map<String, List<MetadataSnapshot.Entry>> byDatasource = new LinkedHashMap<>();
+        int loaded = 0;
+        for (MetadataSnapshot.Entry e : entries) {
+            e.table.setLastUpdated(loadedAt);
+            // 运行中已加载的值比快照新
+            if (tableCache.getIfPresent(e.key) != null || !tableCache.put(e.key, e.table)) continue;
+            loaded++;
+            byDatasource.computeIfAbsent(e.datasource, ds -> new ArrayList<>()).add(e);
+        }
+        log.info("[metadata] loaded snapshot of {} tables from {} in {} ms", loaded, file, System.currentTimeMillis() - start);
+        if (!byDatasource.isEmpty()) {
+            Thread t = new Thread(() -> revalidate(byDatasource), "easysql-metadata-revalidate");
+            t.setDaemon(true);
+            t.start();
+        }
+        return loaded;
+    }
+
+    private void revalidate(Map<String, List<MetadataSnapshot.Entry>> byDatasource) {
+        for (Map.Entry<String, List<MetadataSnapshot.Entry>> group : byDatasource.entrySet()) {
+            String datasource = group.getKey();
+            if (!hasDatasource(datasource)) continue;
+            int refreshed = 0;
+            try (Connection conn = supplier(datasource).get()) {
+                DatabaseMetaData meta = conn.getMetaData();
+                for (MetadataSnapshot.Entry e : group.getValue()) {
+                    TableMetadata tm = e.table;
+                    // 仍是快照中的值才刷新；在途加载的键已在刷新中
+                    if (tableCache.getIfPresent(e.key) != tm) continue;
+                    boolean submitted = tableCache.refresh(e.key,
+                            () -> loadTable(meta, tm.getCatalog(), tm.getSchema(), tm.getTableName()),
+                            Runnable::run, ex -> {
+                                metrics.increment(COUNTER_REFRESH_FAILED);
+                                log.warn("[metadata] revalidation of {} failed: {}", e.key, ex.getMessage());
+                            });
+                    if (submitted) {
+                        metrics.increment(COUNTER_REFRESH);
+                        refreshed++;
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                log.warn("[metadata] revalidation of {} failed, snapshot entries refresh on access: {}", datasource, ex.getMessage());
+            }
+            log.info("[metadata] revalidated {} snapshot tables of {}", refreshed, datasource);
+        }
+    }
+
+    private static String qualifiedName(String catalog, String schema, String table) {
+        return ((catalog == null ? "" : catalog) + "." + (schema == null ? "" : schema) + "." + table).toLowerCase();
+    }
+
+    private static boolean isSystemSchema(String schema) {
+        return schema != null && SYSTEM_SCHEMAS.contains(schema.toLowerCase());
+    }
+
+    private List<String> loadPrimaryKeys(DatabaseMetaData meta, TableMetadata tm) throws SQLException {
+        TreeMap<Integer, String> keys = new TreeMap<>();
+        try (ResultSet rs = meta.getPrimaryKeys(tm.getCatalog(), tm.getSchema(), tm.getTableName())) {
+            while (rs.next()) {
+                keys.put(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(keys.values());
+    }
+
+    /**
+     * 加载索引及统计信息（近似值）：索引基数取其最后一列的 CARDINALITY（MySQL 为前缀累计基数）；
+     * 表行数取 tableIndexStatistic 行，驱动未提供时以唯一索引的最大基数估计
+     */
+    private List<IndexMetadata> loadIndexes(DatabaseMetaData meta, TableMetadata tm) throws SQLException {
+        Map<String, IndexMetadata> byName = new LinkedHashMap<>();
+        Map<String, TreeMap<Integer, String>> columns = new HashMap<>();
+        Map<String, TreeMap<Integer, Long>> cardinalities = new HashMap<>();
+        long tableRows = -1;
+        try (ResultSet rs = meta.getIndexInfo(tm.getCatalog(), tm.getSchema(), tm.getTableName(), false, true)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                long cardinality = rs.getLong("CARDINALITY");
+                if (rs.wasNull()) cardinality = -1;
+                // tableIndexStatistic 行没有索引名/列名
+                if (rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    tableRows = cardinality;
+                    continue;
+                }
+                if (name == null || column == null) continue;
+                if (!byName.containsKey(name)) {
+                    byName.put(name, new IndexMetadata(name, !rs.getBoolean("NON_UNIQUE")));
+                }
+                int position = rs.getShort("ORDINAL_POSITION");
+                columns.computeIfAbsent(name, n -> new TreeMap<>()).put(position, column);
+                cardinalities.computeIfAbsent(name, n -> new TreeMap<>()).put(position, cardinality);
+            }
+        }
+        long uniqueRows = -1;
+        for (IndexMetadata idx : byName.values()) {
+            idx.setColumns(new ArrayList<>(columns.get(idx.getIndexName()).values()));
+            idx.setCardinality(cardinalities.get(idx.getIndexName()).lastEntry().getValue());
+            if (idx.isUnique()) uniqueRows = Math.max(uniqueRows, idx.getCardinality());
+        }
+        tm.setRowCount(tableRows >= 0 ? tableRows : uniqueRows);
+        return new ArrayList<>(byName.values());
+    }
+
+    /**
+     * 是否已注册该数据源（用于判断能否进行元数据驱动的改写）
+     */
+    public boolean hasDatasource(String name) {
+        return name != null && connectionSuppliers.containsKey(name);
+    }
+
     private String jdbcTypeToStd(int jdbcType) {
         switch (jdbcType) {
             case java.sql.Types.INTEGER:
@@ -0,0 +1,243 @@
+package com.easysql.engine.metadata;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 元数据快照的二进制格式：
+ * <pre>
+ * magic(int) version(int) createdAt(long) count(int) { entry }* crc32(long)
+ * entry = key datasource table
+ * </pre>
+ * 字符串为 UTF-8 长度前缀（-1 表示null），可空的数值/布尔以标记字节开头。
+ * 写入先落临时文件再原子替换；读取用内存映射，魔数、版本或校验和不符时整体拒绝。
+ */
+final class MetadataSnapshot {
+
+    static final int MAGIC = 0x45534D53; // "ESMS"
+    static final int VERSION = 1;
+
+    private MetadataSnapshot() {}
+
+    /**
+     * 快照中的一条：缓存键、数据源与表结构
+     */
+    static final class Entry {
+        final String key;
+        final String datasource;
+        final TableMetadata table;
+
+        Entry(String key, String datasource, TableMetadata table) {
+            this.key = key;
+            this.datasource = datasource;
+            this.table = table;
+        }
+    }
+
+    static void write(Path file, List<Entry> entries) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream fos = Files.newOutputStream(tmp)) {
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fos, 64 * 1024), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(entries.size());
+                for (Entry e : entries) {
+                    writeString(out, e.key);
+                    writeString(out, e.datasource);
+                    writeTable(out, e.table);
+                }
+                out.flush();
+                // 校验和本身不计入校验
+                new DataOutputStream(fos).writeLong(crc.getValue());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 读取快照，格式不符或已损坏时抛出 IOException
+     */
+    static List<Entry> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 28) throw new IOException("snapshot too short: " + size + " bytes");
+            if (size > Integer.MAX_VALUE) throw new IOException("snapshot too large: " + size + " bytes");
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - 8;
+            ByteBuffer body = buf.duplicate();
+            body.limit(bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != buf.getLong(bodyLength)) throw new IOException("snapshot checksum mismatch");
+            buf.limit(bodyLength);
+
+            if (buf.getInt() != MAGIC) throw new IOException("not a metadata snapshot");
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("unsupported snapshot version: " + version);
+            buf.getLong(); // createdAt
+            int count = readCount(buf);
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String key = readString(buf);
+                String datasource = readString(buf);
+                entries.add(new Entry(key, datasource, readTable(buf)));
+            }
+            return entries;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("snapshot truncated or corrupt", e);
+        }
+    }
+
+    private static void writeTable(DataOutputStream out, TableMetadata tm) throws IOException {
+        writeString(out, tm.getCatalog());
+        writeString(out, tm.getSchema());
+        writeString(out, tm.getTableName());
+        writeString(out, tm.getTableType());
+        writeString(out, tm.getComment());
+        out.writeLong(tm.getRowCount());
+        out.writeLong(tm.getLastUpdated());
+
+        List<ColumnMetadata> columns = tm.getColumns() == null ? Collections.emptyList() : tm.getColumns();
+        out.writeInt(columns.size());
+        for (ColumnMetadata c : columns) {
+            writeString(out, c.getColumnName());
+            writeString(out, c.getDataType());
+            writeInteger(out, c.getSize());
+            writeInteger(out, c.getScale());
+            out.writeByte(c.getNullable() == null ? -1 : c.getNullable() ? 1 : 0);
+            writeString(out, c.getComment());
+        }
+        writeStrings(out, tm.getPrimaryKeys());
+
+        List<IndexMetadata> indexes = tm.getIndexes() == null ? Collections.emptyList() : tm.getIndexes();
+        out.writeInt(indexes.size());
+        for (IndexMetadata idx : indexes) {
+            writeString(out, idx.getIndexName());
+            out.writeBoolean(idx.isUnique());
+            out.writeLong(idx.getCardinality());
+            writeStrings(out, idx.getColumns());
+        }
+
+        Map<String, String> properties = tm.getProperties() == null ? Collections.emptyMap() : tm.getProperties();
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> p : properties.entrySet()) {
+            writeString(out, p.getKey());
+            writeString(out, p.getValue());
+        }
+    }
+
+    private static TableMetadata readTable(ByteBuffer buf) {
+        TableMetadata tm = new TableMetadata(readString(buf), readString(buf), readString(buf));
+        tm.setTableType(readString(buf));
+        tm.setComment(readString(buf));
+        tm.setRowCount(buf.getLong());
+        tm.setLastUpdated(buf.getLong());
+
+        int columnCount = readCount(buf);
+        List<ColumnMetadata> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            ColumnMetadata c = new ColumnMetadata(readString(buf), readString(buf));
+            c.setSize(readInteger(buf));
+            c.setScale(readInteger(buf));
+            byte nullable = buf.get();
+            c.setNullable(nullable < 0 ? null : nullable == 1);
+            c.setComment(readString(buf));
+            columns.add(c);
+        }
+        tm.setColumns(columns);
+        tm.setPrimaryKeys(readStrings(buf));
+
+        int indexCount = readCount(buf);
+        List<IndexMetadata> indexes = new ArrayList<>(indexCount);
+        for (int i = 0; i < indexCount; i++) {
+            IndexMetadata idx = new IndexMetadata(readString(buf), buf.get() != 0);
+            idx.setCardinality(buf.getLong());
+            idx.setColumns(readStrings(buf));
+            indexes.add(idx);
+        }
+        tm.setIndexes(indexes);
+
+        int propertyCount = readCount(buf);
+        if (propertyCount > 0) {
+            Map<String, String> properties = new LinkedHashMap<>();
+            for (int i = 0; i < propertyCount; i++) properties.put(readString(buf), readString(buf));
+            tm.setProperties(properties);
+        }
+        return tm;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        if (length > buf.remaining()) throw new IllegalArgumentException("string length " + length + " exceeds snapshot");
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String v : values) writeString(out, v);
+    }
+
+    private static List<String> readStrings(ByteBuffer buf) {
+        int count = readCount(buf);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) values.add(readString(buf));
+        return values;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeInt(value);
+    }
+
+    private static Integer readInteger(ByteBuffer buf) {
+        return buf.get() != 0 ? buf.getInt() : null;
+    }
+
+    private static int readCount(ByteBuffer buf) {
+        int count = buf.getInt();
+        // 每个元素至少占4字节，借此拒绝损坏的计数而不是按它分配内存
+        if (count < 0 || count > buf.remaining() / 4) throw new IllegalArgumentException("bad count " + count);
+        return count;
+    }
+}
@@ -14,6 +14,9 @@ public class TableMetadata {
     private String tableType; // TABLE, VIEW, etc.
     private String comment;
     private List<ColumnMetadata> columns;
+    private List<String> primaryKeys; // 主键列，按KEY_SEQ排序
+    private List<IndexMetadata> indexes; // 含唯一与非唯一索引
+    private long rowCount = -1; // 行数（近似），-1 表示未知
     private Map<String, String> properties;
     private long lastUpdated; // 最后更新时间戳
     
@@ -74,6 +77,79 @@ public class TableMetadata {
         this.columns = columns;
     }
     
+    public List<String> getPrimaryKeys() {
+        return primaryKeys;
+    }
+    
+    public void setPrimaryKeys(List<String> primaryKeys) {
+        this.primaryKeys = primaryKeys;
+    }
+    
+    public List<IndexMetadata> getIndexes() {
+        return indexes;
+    }
+    
+    public void setIndexes(List<IndexMetadata> indexes) {
+        this.indexes = indexes;
+    }
+    
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+    
+    /**
+     * 列的不同值个数（近似）：取该列上单列索引的基数，无此类索引或未知时返回-1
+     */
+    public long getColumnCardinality(String columnName) {
+        long best = -1;
+        if (indexes == null) return best;
+        for (IndexMetadata idx : indexes) {
+            if (!idx.leadsWith(columnName)) continue;
+            // 多列索引的基数是组合键的不同值个数，不能代表单列
+            long c = idx.getColumns().size() == 1 ? idx.getCardinality() : -1;
+            best = Math.max(best, c);
+        }
+        return best;
+    }
+    
+    /**
+     * 给定列集合是否覆盖主键或某个唯一索引的全部列（即至多匹配一行）
+     */
+    public boolean isUniqueKey(java.util.Collection<String> columnNames) {
+        java.util.Set<String> cols = new java.util.HashSet<>();
+        for (String c : columnNames) cols.add(c.toLowerCase());
+        if (primaryKeys != null && !primaryKeys.isEmpty()
+                && primaryKeys.stream().allMatch(k -> cols.contains(k.toLowerCase()))) {
+            return true;
+        }
+        if (indexes == null) return false;
+        for (IndexMetadata idx : indexes) {
+            if (idx.isUnique() && !idx.getColumns().isEmpty()
+                    && idx.getColumns().stream().allMatch(k -> cols.contains(k.toLowerCase()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 列是否为某个索引（含主键）的前导列
+     */
+    public boolean isIndexed(String columnName) {
+        if (primaryKeys != null && !primaryKeys.isEmpty() && primaryKeys.get(0).equalsIgnoreCase(columnName)) {
+            return true;
+        }
+        if (indexes == null) return false;
+        for (IndexMetadata idx : indexes) {
+            if (idx.leadsWith(columnName)) return true;
+        }
+        return false;
+    }
+    
     public Map<String, String> getProperties() {
         return properties;
     }
@@ -1,5 +1,6 @@
 package com.easysql.engine.model;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +23,32 @@ public class Template {
     public Options options;
     public List<Param> params;
 
+    public Insert insert; // 写入模板：目标表取 from，行数据在执行期提供
+
+    /**
+     * 浅拷贝：仅复制顶层字段，子结构与原模板共享；用于改写limit/offset等标量字段而不影响原模板
+     */
+    public Template shallowCopy() {
+        Template c = new Template();
+        c.id = id;
+        c.datasource = datasource;
+        c.dialect = dialect;
+        c.select = select;
+        c.from = from;
+        c.joins = joins;
+        c.where = where;
+        c.groupBy = groupBy;
+        c.having = having;
+        c.orderBy = orderBy;
+        c.limit = limit;
+        c.offset = offset;
+        c.unions = unions;
+        c.options = options;
+        c.params = params;
+        c.insert = insert;
+        return c;
+    }
+
     public static class SelectItem {
         public String expr;
         public String alias;
@@ -32,6 +59,7 @@ public class Template {
         public String schema;
         public String table;
         public String alias;
+        public Template subquery; // 派生表：非空时忽略 catalog/schema/table，须提供 alias
     }
 
     public static class Join {
@@ -68,6 +96,13 @@ public class Template {
         public Template query;
     }
 
+    public static class Insert {
+        public List<String> columns; // 写入列，行数据按列名取值，缺失视为NULL
+        public Boolean upsert; // true 时主键/唯一键冲突则更新
+        public List<String> keys; // 冲突键列；为空时从元数据主键推导
+        public List<String> updateColumns; // 冲突时更新的列；为空时取 columns 中的非键列
+    }
+
     public static class Options {
         public Integer timeoutMs;
         public Integer maxRows;
@@ -75,6 +110,33 @@ public class Template {
         public List<String> hints;
         public Integer fetchSize;
         public Boolean readOnly;
+        public List<String> neededColumns; // 调用方实际使用的输出列；非空时裁剪其余select项
+        public Boolean straightJoin; // true 时按书写顺序连接（方言支持时输出 STRAIGHT_JOIN）
+        public List<String> disabledRules; // 本模板跳过的优化规则名
+        public Boolean parallelUnion; // true 时 UNION ALL 各分支在各自连接上并发执行，客户端合并
+        public List<List<String>> hintCandidates; // 自适应提示候选：每组追加在 hints 之后，按观测延迟择优
+
+        /**
+         * 深拷贝（列表字段复制）
+         */
+        public Options copy() {
+            Options c = new Options();
+            c.timeoutMs = timeoutMs;
+            c.maxRows = maxRows;
+            c.scanPartitions = scanPartitions;
+            c.hints = hints == null ? null : new ArrayList<>(hints);
+            c.fetchSize = fetchSize;
+            c.readOnly = readOnly;
+            c.neededColumns = neededColumns == null ? null : new ArrayList<>(neededColumns);
+            c.straightJoin = straightJoin;
+            c.disabledRules = disabledRules == null ? null : new ArrayList<>(disabledRules);
+            c.parallelUnion = parallelUnion;
+            if (hintCandidates != null) {
+                c.hintCandidates = new ArrayList<>();
+                for (List<String> set : hintCandidates) c.hintCandidates.add(set == null ? null : new ArrayList<>(set));
+            }
+            return c;
+        }
     }
 
     public static class Param {
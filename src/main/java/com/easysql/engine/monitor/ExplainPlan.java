@@ -0,0 +1,60 @@
+package com.easysql.engine.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次 EXPLAIN 采集结果：按计划指纹（数据源 + 最终SQL）归档，每个表访问一条 {@link Access}
+ */
+public class ExplainPlan {
+
+    public final String fingerprint;
+    public final String templateId;
+    public final String datasource;
+    public final String sql;
+    public final long capturedAt;
+    public final List<Access> accesses;
+
+    public ExplainPlan(String fingerprint, String templateId, String datasource, String sql, long capturedAt, List<Access> accesses) {
+        this.fingerprint = fingerprint;
+        this.templateId = templateId;
+        this.datasource = datasource;
+        this.sql = sql;
+        this.capturedAt = capturedAt;
+        this.accesses = Collections.unmodifiableList(new ArrayList<>(accesses));
+    }
+
+    public boolean hasFullScan() {
+        for (Access a : accesses) {
+            if (a.isFullScan()) return true;
+        }
+        return false;
+    }
+
+    public static class Access {
+        public final String table;
+        public final String accessType; // 按 MySQL EXPLAIN type 取值：ALL 为全表扫描，index/range/ref/eq_ref/const 等为索引访问
+        public final String key; // 使用的索引，无则为null
+        public final Long rows; // 估计扫描行数，方言不提供时为null
+        public final boolean filesort;
+
+        public Access(String table, String accessType, String key, Long rows, boolean filesort) {
+            this.table = table;
+            this.accessType = accessType;
+            this.key = key;
+            this.rows = rows;
+            this.filesort = filesort;
+        }
+
+        public boolean isFullScan() {
+            return "ALL".equalsIgnoreCase(accessType);
+        }
+
+        @Override
+        public String toString() {
+            return table + "(" + accessType + (key != null ? " " + key : "") + (rows != null ? " ~" + rows : "")
+                    + (filesort ? " filesort" : "") + ")";
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.easysql.engine.monitor;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.impl.LRUCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 执行计划登记表：每个指纹保留最近一次采集结果，容量满时淘汰最久未访问的指纹
+ */
+public class ExplainRegistry {
+
+    private final Cache<String, ExplainPlan> plans;
+
+    public ExplainRegistry(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.plans = new LRUCache<>(capacity);
+    }
+
+    public void record(ExplainPlan plan) {
+        plans.put(plan.fingerprint, plan);
+    }
+
+    public ExplainPlan get(String fingerprint) {
+        return plans.get(fingerprint, false);
+    }
+
+    /**
+     * 当前全部采集结果（无序快照）
+     */
+    public List<ExplainPlan> snapshot() {
+        List<ExplainPlan> out = new ArrayList<>();
+        for (ExplainPlan p : plans) out.add(p);
+        return out;
+    }
+
+    public int size() {
+        return plans.size();
+    }
+}
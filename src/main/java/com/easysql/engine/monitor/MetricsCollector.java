@@ -3,6 +3,9 @@ package com.easysql.engine.monitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -14,6 +17,8 @@ public class MetricsCollector {
     private final AtomicLong totalQueries = new AtomicLong();
     private final AtomicLong successQueries = new AtomicLong();
     private final AtomicLong failedQueries = new AtomicLong();
+    // 命名计数器：执行策略、优化改写等维度的累计次数
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
 
     public void record(QueryMetrics m) {
         totalQueries.incrementAndGet();
@@ -31,4 +36,26 @@ public class MetricsCollector {
     public long getTotalQueries() { return totalQueries.get(); }
     public long getSuccessQueries() { return successQueries.get(); }
     public long getFailedQueries() { return failedQueries.get(); }
-}
\ No newline at end of file
+
+    public void increment(String counter) {
+        increment(counter, 1);
+    }
+
+    public void increment(String counter, long delta) {
+        counters.computeIfAbsent(counter, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    public long getCounter(String counter) {
+        AtomicLong c = counters.get(counter);
+        return c == null ? 0 : c.get();
+    }
+
+    /**
+     * 全部命名计数器快照（按名称排序）
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> out = new TreeMap<>();
+        counters.forEach((k, v) -> out.put(k, v.get()));
+        return out;
+    }
+}
@@ -1,25 +1,75 @@
 package com.easysql.engine.optimizer;
 
 import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.MetricsCollector;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
+import java.util.regex.Pattern;
 
 public class BasicOptimizer {
 
+    private static final Pattern AGGREGATE = Pattern.compile("\\b(COUNT|SUM|MIN|MAX|AVG|GROUP_CONCAT)\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WINDOW = Pattern.compile("\\bOVER\\s*\\(", Pattern.CASE_INSENSITIVE);
+    // 对NULL不成立的比较：内表取值为NULL（未匹配）时整行被过滤
+    private static final Set<String> NULL_REJECTING = new HashSet<>(Arrays.asList(
+            "=", "!=", "<>", ">", ">=", "<", "<=", "IN", "NOT IN", "LIKE", "NOT LIKE", "BETWEEN", "IS NOT NULL"));
+
+    public static final String RULE_NORMALIZE = "normalize";
+    public static final String RULE_CONSTANT_FOLD = "constant_fold";
+    public static final String RULE_PREDICATE_REWRITE = "predicate_rewrite";
+    public static final String RULE_PREDICATE_PUSHDOWN = "predicate_pushdown";
+    public static final String RULE_HINT_DEDUP = "hint_dedup";
+
+    private final RuleEngine rules;
+
+    public BasicOptimizer() {
+        this(new MetricsCollector());
+    }
+
+    public BasicOptimizer(MetricsCollector metrics) {
+        rules = new RuleEngine(metrics);
+        // 1) 归一化WHERE与HAVING：移除空子条件、扁平化同构AND/OR
+        rules.register(Rule.of(RULE_NORMALIZE, 10, t -> {
+            t.where = normalize(t.where);
+            t.having = normalize(t.having);
+            return t;
+        }));
+        // 2) 常量折叠：恒真项移除，恒假/矛盾条件折叠为 1 = 0
+        rules.register(Rule.of(RULE_CONSTANT_FOLD, 20, t -> {
+            t.where = ConstantFolder.fold(t.where);
+            t.having = ConstantFolder.fold(t.having);
+            return t;
+        }));
+        // 3) 同列等值OR合并为IN、同列范围合并为单一边界或BETWEEN
+        rules.register(Rule.of(RULE_PREDICATE_REWRITE, 30, t -> {
+            t.where = PredicateRewriter.rewrite(t.where);
+            return t;
+        }));
+        // 4) 谓词下推：内连接表上的过滤并入 JOIN.on，派生表上的过滤下推到子查询（空的JOIN.on由builder省略ON）
+        rules.register(Rule.of(RULE_PREDICATE_PUSHDOWN, 40, t -> {
+            if (!ConstantFolder.isFalse(t.where)) pushDownPredicates(t);
+            return t;
+        }));
+        // 5) Hints去重
+        rules.register(Rule.of(RULE_HINT_DEDUP, 90, t -> {
+            if (t.options != null && t.options.hints != null) {
+                t.options.hints = new ArrayList<>(new java.util.LinkedHashSet<>(t.options.hints));
+            }
+            return t;
+        }));
+    }
+
+    /**
+     * 规则引擎：可追加自定义规则或查看各规则的指标
+     */
+    public RuleEngine getRules() {
+        return rules;
+    }
+
     public Template optimize(Template t) {
         if (t == null) return null;
-        // 1) 归一化WHERE与HAVING：移除空子条件、扁平化同构AND/OR
-        t.where = normalize(t.where);
-        t.having = normalize(t.having);
-        // 2) 裁剪空的JOIN.on 条件（无on则省略ON）—builder已兼容
-        // 3) 预留：列裁剪、谓词下推（当前不改写计划结构，留空）
-        // 4) Hints去重
-        if (t.options != null && t.options.hints != null) {
-            t.options.hints = new ArrayList<>(new java.util.LinkedHashSet<>(t.options.hints));
-        }
-        return t;
+        // 各规则迭代至不动点，派生表子查询递归优化
+        return rules.optimize(t);
     }
 
     private Template.Condition normalize(Template.Condition c) {
@@ -55,4 +105,181 @@ public class BasicOptimizer {
         out.conditions = flattened;
         return out;
     }
-}
\ No newline at end of file
+
+    /**
+     * 谓词下推。仅处理 WHERE 顶层 AND 中的叶子条件：
+     * <ul>
+     *   <li>LEFT JOIN 外侧（保留侧）的过滤留在 WHERE；内侧存在拒绝NULL的过滤时该连接等价于 INNER JOIN，先行转换</li>
+     *   <li>只引用 INNER JOIN 表（及其之前的表）的过滤并入该表的 JOIN.on</li>
+     *   <li>只引用派生表单列与常量/参数的过滤改写为子查询内的表达式并入子查询 WHERE</li>
+     * </ul>
+     * 其后存在 RIGHT/FULL JOIN 时不移动，避免改变补NULL行的语义。
+     */
+    private void pushDownPredicates(Template t) {
+        if (t.where == null || t.from == null) return;
+        List<Template.Condition> conjuncts = new ArrayList<>();
+        if (t.where.leaf == null && "AND".equalsIgnoreCase(t.where.op == null ? "AND" : t.where.op)) {
+            conjuncts.addAll(t.where.conditions);
+        } else {
+            conjuncts.add(t.where);
+        }
+        List<Template.From> relations = new ArrayList<>();
+        relations.add(t.from);
+        if (t.joins != null) {
+            for (Template.Join j : t.joins) relations.add(j.table);
+        }
+        simplifyOuterJoins(t, relations, conjuncts);
+
+        List<Template.Condition> remaining = new ArrayList<>();
+        for (Template.Condition c : conjuncts) {
+            if (c.leaf == null || !pushDown(t, relations, c.leaf)) remaining.add(c);
+        }
+        if (remaining.size() == conjuncts.size()) return;
+        if (remaining.isEmpty()) {
+            t.where = null;
+        } else if (remaining.size() == 1) {
+            t.where = remaining.get(0);
+        } else {
+            Template.Condition and = new Template.Condition();
+            and.op = "AND";
+            and.conditions = remaining;
+            t.where = and;
+        }
+    }
+
+    private void simplifyOuterJoins(Template t, List<Template.From> relations, List<Template.Condition> conjuncts) {
+        if (t.joins == null) return;
+        for (Template.Condition c : conjuncts) {
+            if (c.leaf == null || c.leaf.operator == null) continue;
+            String op = c.leaf.operator.trim().toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+            boolean isNotNull = "IS NOT".equals(op) && (c.leaf.right == null || c.leaf.right.param == null
+                    && (c.leaf.right.value == null || "NULL".equalsIgnoreCase(c.leaf.right.value.trim())));
+            if (!NULL_REJECTING.contains(op) && !isNotNull) continue;
+            String[] col = Expressions.simpleColumn(c.leaf.left);
+            if (col == null || col[0] == null) continue;
+            int idx = relationIndex(relations, col[0]);
+            if (idx > 0 && "LEFT".equalsIgnoreCase(t.joins.get(idx - 1).type)) {
+                t.joins.get(idx - 1).type = "INNER";
+            }
+        }
+    }
+
+    private boolean pushDown(Template t, List<Template.From> relations, Template.On leaf) {
+        Set<Integer> left = references(relations, leaf.left);
+        Set<Integer> right = rightReferences(relations, leaf.right);
+        if (left == null || right == null) return false;
+        Set<Integer> refs = new TreeSet<>(left);
+        refs.addAll(right);
+        if (refs.isEmpty()) return false;
+        int target = Collections.max(refs);
+        if (hasNullExtendingJoinAfter(t, target)) return false;
+
+        Template.From rel = relations.get(target);
+        boolean innerTarget = target == 0 || isInner(t.joins.get(target - 1));
+        if (rel.subquery != null && refs.size() == 1 && right.isEmpty() && innerTarget) {
+            return pushIntoDerived(rel, relations.size() == 1, leaf);
+        }
+        if (target > 0 && isInner(t.joins.get(target - 1))) {
+            Template.Join j = t.joins.get(target - 1);
+            List<Template.On> on = j.on == null ? new ArrayList<>() : new ArrayList<>(j.on);
+            on.add(leaf);
+            j.on = on;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 将派生表上的过滤改写为子查询选择表达式上的过滤；以下情况不下推：
+     * 子查询含 LIMIT/OFFSET/UNION 或窗口函数，目标列为聚合，无 GROUP BY 的整体聚合或 HAVING，分组查询的非分组键列
+     */
+    private boolean pushIntoDerived(Template.From rel, boolean singleRelation, Template.On leaf) {
+        Template sub = rel.subquery;
+        if (sub.limit != null || sub.offset != null || (sub.unions != null && !sub.unions.isEmpty())) return false;
+        boolean grouped = sub.groupBy != null && !sub.groupBy.isEmpty();
+        // 窗口函数在 WHERE 之后计算，过滤会改变其结果；无分组时聚合/HAVING 作用于整个输入
+        if (!grouped && sub.having != null) return false;
+        for (Template.SelectItem item : sub.select) {
+            if (item.expr == null) continue;
+            if (WINDOW.matcher(item.expr).find() || (!grouped && AGGREGATE.matcher(item.expr).find())) return false;
+        }
+        String[] col = Expressions.simpleColumn(leaf.left);
+        if (col == null || (col[0] == null && !singleRelation)) return false;
+        String column = col[1];
+        String expr = null;
+        for (Template.SelectItem item : sub.select) {
+            String label = item.alias != null && !item.alias.isEmpty() ? item.alias : Expressions.bareName(item.expr);
+            if (column.equalsIgnoreCase(label)) {
+                expr = item.expr;
+                break;
+            }
+        }
+        if (expr == null || AGGREGATE.matcher(expr).find()) return false;
+        if (grouped) {
+            // 分组查询只允许下推分组键上的过滤
+            String norm = expr.replaceAll("[\\s`]", "");
+            if (sub.groupBy.stream().noneMatch(g -> g.replaceAll("[\\s`]", "").equalsIgnoreCase(norm))) return false;
+        }
+        Template.On pushed = new Template.On();
+        pushed.left = expr;
+        pushed.operator = leaf.operator;
+        pushed.right = leaf.right;
+        Template.Condition c = new Template.Condition();
+        c.leaf = pushed;
+        if (sub.where == null) {
+            sub.where = c;
+        } else {
+            Template.Condition and = new Template.Condition();
+            and.op = "AND";
+            and.conditions = new ArrayList<>(Arrays.asList(sub.where, c));
+            sub.where = normalize(and);
+        }
+        return true;
+    }
+
+    private static boolean isInner(Template.Join j) {
+        return j.type == null || "INNER".equalsIgnoreCase(j.type.trim()) || "CROSS".equalsIgnoreCase(j.type.trim());
+    }
+
+    private static boolean hasNullExtendingJoinAfter(Template t, int relationIndex) {
+        if (t.joins == null) return false;
+        for (int i = Math.max(relationIndex, 0); i < t.joins.size(); i++) {
+            String type = t.joins.get(i).type == null ? "" : t.joins.get(i).type.trim().toUpperCase(Locale.ROOT);
+            if ("RIGHT".equals(type) || "FULL".equals(type)) return true;
+        }
+        return false;
+    }
+
+    private static Set<Integer> rightReferences(List<Template.From> relations, Template.RightValue rv) {
+        if (rv == null || rv.param != null || !Expressions.isColumnValue(rv.value)) return Collections.emptySet();
+        return references(relations, rv.value);
+    }
+
+    /**
+     * 表达式引用的关系下标（0为FROM，i为第i个JOIN）；存在无法归属的列引用时返回null
+     */
+    static Set<Integer> references(List<Template.From> relations, String expr) {
+        if (expr == null) return null;
+        Set<Integer> refs = new TreeSet<>();
+        for (String q : Expressions.qualifiers(expr)) {
+            int idx = relationIndex(relations, q);
+            if (idx < 0) return null;
+            refs.add(idx);
+        }
+        if (!Expressions.unqualified(expr).isEmpty()) {
+            // 未限定的列只有在单表查询中才能确定归属
+            if (relations.size() != 1) return null;
+            refs.add(0);
+        }
+        return refs;
+    }
+
+    static int relationIndex(List<Template.From> relations, String qualifier) {
+        for (int i = 0; i < relations.size(); i++) {
+            Template.From f = relations.get(i);
+            String name = f.alias != null && !f.alias.isEmpty() ? f.alias : f.table;
+            if (qualifier.equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+}
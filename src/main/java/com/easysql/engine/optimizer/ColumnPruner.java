@@ -0,0 +1,352 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.dialect.SQLDialect;
+import com.easysql.engine.metadata.ColumnMetadata;
+import com.easysql.engine.metadata.MetadataCache;
+import com.easysql.engine.metadata.TableMetadata;
+import com.easysql.engine.model.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * 基于元数据的列裁剪：
+ * <ul>
+ *   <li>将 * 与 q.* 展开为元数据中的列清单（派生表取子查询输出列）；元数据不可用时保留通配符</li>
+ *   <li>options.neededColumns 非空时移除未被使用的select项；派生表按外层引用裁剪</li>
+ *   <li>移除未被引用、且连接键为右表主键/唯一索引的 LEFT JOIN（至多匹配一行，不影响结果行数）</li>
+ * </ul>
+ */
+public class ColumnPruner {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnPruner.class);
+    private static final String SIMPLE_IDENTIFIER = "^[A-Za-z_][\\w$]*$";
+
+    private final MetadataCache metadataCache;
+    private final SQLDialect dialect;
+
+    public ColumnPruner(MetadataCache metadataCache, SQLDialect dialect) {
+        this.metadataCache = metadataCache;
+        this.dialect = dialect;
+    }
+
+    public Template optimize(Template t) {
+        if (t == null || t.from == null || t.select == null) return t;
+        List<Template.From> relations = relations(t);
+        for (Template.From f : relations) {
+            if (f.subquery != null) {
+                if (f.subquery.datasource == null) f.subquery.datasource = t.datasource;
+                f.subquery = optimize(f.subquery);
+            }
+        }
+        expandWildcards(t, relations);
+        if (t.options != null && t.options.neededColumns != null && !t.options.neededColumns.isEmpty()) {
+            pruneSelect(t, new HashSet<>(lower(t.options.neededColumns)));
+        }
+        pruneDerivedTables(t, relations);
+        eliminateLeftJoins(t);
+        return t;
+    }
+
+    private void expandWildcards(Template t, List<Template.From> relations) {
+        boolean single = relations.size() == 1;
+        List<Template.SelectItem> expanded = new ArrayList<>();
+        boolean changed = false;
+        for (Template.SelectItem item : t.select) {
+            String expr = item.expr == null ? "" : item.expr.trim();
+            List<Template.From> targets = null;
+            if ("*".equals(expr)) {
+                targets = relations;
+            } else if (expr.endsWith("*") && item.alias == null) {
+                List<String[]> cols = Expressions.qualifiedColumns(expr);
+                if (cols.size() == 1 && "*".equals(cols.get(0)[1])) {
+                    int idx = BasicOptimizer.relationIndex(relations, cols.get(0)[0]);
+                    if (idx >= 0) targets = Collections.singletonList(relations.get(idx));
+                }
+            }
+            List<Template.SelectItem> columns = targets == null ? null : columnsOf(t.datasource, targets, single);
+            if (columns == null) {
+                expanded.add(item);
+            } else {
+                expanded.addAll(columns);
+                changed = true;
+            }
+        }
+        if (changed) t.select = expanded;
+    }
+
+    /**
+     * 按关系顺序列出输出列；任一关系的列未知时返回null
+     */
+    private List<Template.SelectItem> columnsOf(String datasource, List<Template.From> targets, boolean single) {
+        List<Template.SelectItem> out = new ArrayList<>();
+        for (Template.From f : targets) {
+            List<String> names = outputColumns(datasource, f);
+            if (names == null) return null;
+            String qualifier = single ? null : nameOf(f);
+            for (String name : names) {
+                Template.SelectItem item = new Template.SelectItem();
+                String column = name.matches(SIMPLE_IDENTIFIER) ? name : dialect.escapeIdentifier(name);
+                item.expr = qualifier == null ? column : qualifier + "." + column;
+                out.add(item);
+            }
+        }
+        return out;
+    }
+
+    private List<String> outputColumns(String datasource, Template.From f) {
+        if (f.subquery != null) {
+            List<String> names = new ArrayList<>();
+            for (Template.SelectItem item : f.subquery.select) {
+                String expr = item.expr == null ? "" : item.expr.trim();
+                if (item.alias == null && expr.endsWith("*")) return null;
+                names.add(label(item));
+            }
+            return names;
+        }
+        TableMetadata table = table(datasource, f);
+        if (table == null || table.getColumns() == null || table.getColumns().isEmpty()) return null;
+        List<String> names = new ArrayList<>();
+        for (ColumnMetadata c : table.getColumns()) names.add(c.getColumnName());
+        return names;
+    }
+
+    /**
+     * 只保留调用方需要的列，以及 ORDER BY/GROUP BY/HAVING 通过别名引用的列
+     */
+    private void pruneSelect(Template t, Set<String> needed) {
+        if (!prunable(t)) return;
+        Set<String> keep = new HashSet<>(needed);
+        for (String expr : clauseExpressions(t)) {
+            for (String id : Expressions.unqualified(expr)) keep.add(id.toLowerCase(Locale.ROOT));
+            keep.add(expr.trim().toLowerCase(Locale.ROOT));
+        }
+        List<Template.SelectItem> kept = new ArrayList<>();
+        Set<String> labels = new HashSet<>();
+        for (Template.SelectItem item : t.select) {
+            String expr = item.expr == null ? "" : item.expr.trim();
+            String label = label(item).toLowerCase(Locale.ROOT);
+            if (item.alias == null && expr.endsWith("*")) {
+                // 未能展开的通配符无法判断，原样保留
+                kept.add(item);
+            } else if (keep.contains(label) && labels.add(label)) {
+                // 同名输出列（如 o.*, u.* 展开后的两个 id）只保留第一个
+                kept.add(item);
+            }
+        }
+        if (kept.isEmpty()) {
+            throw new IllegalArgumentException("options.neededColumns matches no select item: " + needed);
+        }
+        t.select = kept;
+    }
+
+    /**
+     * 派生表只保留外层查询引用到的输出列；多表查询中存在可能指向该表的未限定列时不裁剪
+     */
+    private void pruneDerivedTables(Template t, List<Template.From> relations) {
+        for (Template.From f : relations) {
+            if (f.subquery == null || !prunable(f.subquery)) continue;
+            String name = nameOf(f);
+            Template sub = f.subquery;
+            Set<String> labels = new HashSet<>();
+            for (Template.SelectItem item : sub.select) labels.add(label(item).toLowerCase(Locale.ROOT));
+            Set<String> used = new HashSet<>();
+            boolean all = false;
+            for (String expr : allExpressions(t)) {
+                if ("*".equals(expr.trim())) all = true;
+                for (String[] col : Expressions.qualifiedColumns(expr)) {
+                    if (!col[0].equalsIgnoreCase(name)) continue;
+                    if ("*".equals(col[1])) all = true;
+                    used.add(col[1].toLowerCase(Locale.ROOT));
+                }
+                for (String id : Expressions.unqualified(expr)) {
+                    String lower = id.toLowerCase(Locale.ROOT);
+                    if (relations.size() == 1) {
+                        used.add(lower);
+                    } else if (labels.contains(lower)) {
+                        // 未限定列无法确定归属（与 BasicOptimizer.references 一致），整体保留
+                        all = true;
+                    }
+                }
+            }
+            if (all || used.isEmpty()) continue;
+            if (labels.stream().noneMatch(used::contains)) continue;
+            Template copy = sub.shallowCopy();
+            pruneSelect(copy, used);
+            f.subquery = copy;
+        }
+    }
+
+    private static boolean prunable(Template t) {
+        // UNION 需各分支列数一致，DISTINCT 的去重依赖全部输出列
+        if (t.unions != null && !t.unions.isEmpty()) return false;
+        for (Template.SelectItem item : t.select) {
+            if (item.expr != null && item.expr.trim().toUpperCase(Locale.ROOT).startsWith("DISTINCT")) return false;
+        }
+        // ORDER BY 2 / GROUP BY 1 按位置引用select项，移除前面的项会改变其指向
+        if (t.orderBy != null) {
+            for (Template.OrderBy o : t.orderBy) {
+                if (isOrdinal(o.expr)) return false;
+            }
+        }
+        if (t.groupBy != null) {
+            for (String g : t.groupBy) {
+                if (isOrdinal(g)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOrdinal(String expr) {
+        return expr != null && expr.trim().matches("\\d+");
+    }
+
+    /**
+     * 自后向前移除未被引用的 LEFT JOIN；ON 中右表的等值列须覆盖其主键或唯一索引
+     */
+    private void eliminateLeftJoins(Template t) {
+        if (t.joins == null || t.joins.isEmpty()) return;
+        List<Template.Join> joins = new ArrayList<>(t.joins);
+        t.joins = joins;
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            Template.Join j = joins.get(i);
+            if (!"LEFT".equalsIgnoreCase(j.type == null ? "" : j.type.trim()) || j.table.subquery != null) continue;
+            if (!isReferenced(t, j) && joinsOnUniqueKey(t.datasource, j)) joins.remove(i);
+        }
+    }
+
+    private boolean isReferenced(Template t, Template.Join target) {
+        String name = nameOf(target.table);
+        TableMetadata table = null;
+        List<String> exprs = new ArrayList<>();
+        for (Template.SelectItem item : t.select) exprs.add(item.expr);
+        exprs.addAll(clauseExpressions(t));
+        collect(t.where, exprs);
+        for (Template.Join j : t.joins) {
+            if (j == target || j.on == null) continue;
+            for (Template.On on : j.on) collect(on, exprs);
+        }
+        for (String expr : exprs) {
+            if (expr == null) continue;
+            if ("*".equals(expr.trim())) return true;
+            for (String q : Expressions.qualifiers(expr)) {
+                if (q.equalsIgnoreCase(name)) return true;
+            }
+            Set<String> bare = Expressions.unqualified(expr);
+            if (bare.isEmpty()) continue;
+            // 未限定列可能属于该表：有同名列即视为引用
+            if (table == null) table = table(t.datasource, target.table);
+            if (table == null) return true;
+            for (String id : bare) {
+                if (table.hasColumn(id)) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean joinsOnUniqueKey(String datasource, Template.Join j) {
+        if (j.on == null || j.on.isEmpty()) return false;
+        String name = nameOf(j.table);
+        Set<String> keys = new HashSet<>();
+        for (Template.On on : j.on) {
+            if (!"=".equals(on.operator == null ? "" : on.operator.trim())) continue;
+            String other = on.right == null ? null : on.right.param != null ? "" : on.right.value;
+            String key = keyColumn(name, on.left, other);
+            if (key == null && on.right != null && on.right.param == null && Expressions.isColumnValue(on.right.value)) {
+                key = keyColumn(name, on.right.value, on.left);
+            }
+            if (key != null) keys.add(key);
+        }
+        if (keys.isEmpty()) return false;
+        TableMetadata table = table(datasource, j.table);
+        return table != null && table.isUniqueKey(keys);
+    }
+
+    /**
+     * expr 为右表的简单列、other 不引用右表时返回该列名
+     */
+    private static String keyColumn(String name, String expr, String other) {
+        String[] col = Expressions.simpleColumn(expr);
+        if (col == null || col[0] == null || !col[0].equalsIgnoreCase(name) || other == null) return null;
+        for (String q : Expressions.qualifiers(other)) {
+            if (q.equalsIgnoreCase(name)) return null;
+        }
+        return col[1];
+    }
+
+    private TableMetadata table(String datasource, Template.From f) {
+        if (datasource == null || f.table == null) return null;
+        try {
+            return metadataCache.getTable(datasource, f.catalog, f.schema, f.table);
+        } catch (Exception e) {
+            log.warn("[optimizer] metadata unavailable for {}: {}", f.table, e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<String> clauseExpressions(Template t) {
+        List<String> exprs = new ArrayList<>();
+        if (t.groupBy != null) exprs.addAll(t.groupBy);
+        if (t.orderBy != null) {
+            for (Template.OrderBy o : t.orderBy) exprs.add(o.expr);
+        }
+        collect(t.having, exprs);
+        exprs.removeIf(Objects::isNull);
+        return exprs;
+    }
+
+    private static List<String> allExpressions(Template t) {
+        List<String> exprs = new ArrayList<>();
+        for (Template.SelectItem item : t.select) exprs.add(item.expr);
+        exprs.addAll(clauseExpressions(t));
+        collect(t.where, exprs);
+        if (t.joins != null) {
+            for (Template.Join j : t.joins) {
+                if (j.on == null) continue;
+                for (Template.On on : j.on) collect(on, exprs);
+            }
+        }
+        exprs.removeIf(Objects::isNull);
+        return exprs;
+    }
+
+    private static void collect(Template.Condition c, List<String> exprs) {
+        if (c == null) return;
+        if (c.leaf != null) {
+            collect(c.leaf, exprs);
+        } else if (c.conditions != null) {
+            for (Template.Condition sub : c.conditions) collect(sub, exprs);
+        }
+    }
+
+    private static void collect(Template.On on, List<String> exprs) {
+        exprs.add(on.left);
+        if (on.right != null && on.right.param == null && Expressions.isColumnValue(on.right.value)) {
+            exprs.add(on.right.value);
+        }
+    }
+
+    private static List<Template.From> relations(Template t) {
+        List<Template.From> relations = new ArrayList<>();
+        relations.add(t.from);
+        if (t.joins != null) {
+            for (Template.Join j : t.joins) relations.add(j.table);
+        }
+        return relations;
+    }
+
+    private static String nameOf(Template.From f) {
+        return f.alias != null && !f.alias.isEmpty() ? f.alias : f.table;
+    }
+
+    private static String label(Template.SelectItem item) {
+        return item.alias != null && !item.alias.isEmpty() ? item.alias : Expressions.bareName(item.expr);
+    }
+
+    private static List<String> lower(List<String> names) {
+        List<String> out = new ArrayList<>();
+        for (String n : names) out.add(n.toLowerCase(Locale.ROOT));
+        return out;
+    }
+}
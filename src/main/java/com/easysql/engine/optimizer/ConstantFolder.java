@@ -0,0 +1,361 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.executor.InParameters;
+import com.easysql.engine.model.Template;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 常量折叠与矛盾检测：
+ * <ul>
+ *   <li>常量间比较（如 1 = 0、'a' = 'a'）、空 IN 列表直接求值</li>
+ *   <li>AND 中恒真项移除、恒假项使整体为假；OR 反之；NOT 取反</li>
+ *   <li>同一列上的常量等值/范围互相矛盾（status = 'a' AND status = 'b'、x &gt; 5 AND x &lt; 3）时整体为假；
+ *   列为NULL时该条件实为NULL而非假，取反后仍不成立，因此NOT之下不做矛盾检测</li>
+ * </ul>
+ * 恒假条件折叠为 {@code 1 = 0}，恒真条件折叠为null（省略该子句）。
+ */
+public final class ConstantFolder {
+
+    private static final Pattern NUMBER = Pattern.compile("^-?\\d+(\\.\\d+)?$");
+    private static final Pattern QUOTED = Pattern.compile("^'(?:[^']|'')*'$");
+    private static final Pattern EMPTY_LIST = Pattern.compile("^\\(\\s*\\)$");
+    private static final Pattern AGGREGATE = Pattern.compile("\\b(COUNT|SUM|MIN|MAX|AVG|GROUP_CONCAT)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private enum Truth { TRUE, FALSE, UNKNOWN }
+
+    private ConstantFolder() {}
+
+    /**
+     * 折叠条件树；结果恒真时返回null
+     */
+    public static Template.Condition fold(Template.Condition c) {
+        if (c == null) return null;
+        Template.Condition folded = foldCondition(c, Collections.emptyMap(), true);
+        if (folded == null) return null;
+        Truth truth = truthOf(folded);
+        if (truth == Truth.TRUE) return null;
+        return truth == Truth.FALSE ? falseCondition() : folded;
+    }
+
+    /**
+     * 是否为折叠后的恒假条件
+     */
+    public static boolean isFalse(Template.Condition c) {
+        return c != null && truthOf(c) == Truth.FALSE;
+    }
+
+    /**
+     * 结合本次参数判断查询是否必然返回空结果：WHERE 恒假（无分组的聚合查询除外，其仍返回一行）或 HAVING 恒假；
+     * 绑定为空集合的 IN 参数视为空列表
+     */
+    public static boolean neverMatches(Template t, Map<String, Object> params) {
+        if (t == null || (t.unions != null && !t.unions.isEmpty())) return false;
+        Map<String, Object> bound = params == null ? Collections.emptyMap() : params;
+        if (t.having != null && isFalse(foldCondition(t.having, bound, true))) return true;
+        if (t.where == null || !isFalse(foldCondition(t.where, bound, true))) return false;
+        if (t.groupBy != null && !t.groupBy.isEmpty()) return true;
+        for (Template.SelectItem item : t.select) {
+            if (item.expr != null && AGGREGATE.matcher(item.expr).find()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 短路返回空结果时的列名：别名或列名；含未展开的通配符时返回null
+     */
+    public static List<String> outputColumns(Template t) {
+        List<String> columns = new ArrayList<>();
+        for (Template.SelectItem item : t.select) {
+            String expr = item.expr == null ? "" : item.expr.trim();
+            if (item.alias != null && !item.alias.isEmpty()) {
+                columns.add(item.alias);
+            } else if (expr.endsWith("*")) {
+                return null;
+            } else {
+                columns.add(Expressions.bareName(expr));
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * contradictions=false 时只按常量求值，结果在三值逻辑下也确定，可安全取反
+     */
+    private static Template.Condition foldCondition(Template.Condition c, Map<String, Object> params, boolean contradictions) {
+        if (c == null) return null;
+        if (c.leaf != null) {
+            Truth truth = evaluate(c.leaf, params);
+            if (truth == Truth.TRUE) return trueCondition();
+            if (truth == Truth.FALSE) return falseCondition();
+            return c;
+        }
+        if (c.conditions == null || c.conditions.isEmpty()) return null;
+        String op = c.op == null ? "AND" : c.op.toUpperCase(Locale.ROOT);
+        boolean not = "NOT".equals(op);
+        List<Template.Condition> subs = new ArrayList<>();
+        for (Template.Condition sub : c.conditions) {
+            Template.Condition f = foldCondition(sub, params, contradictions && !not);
+            if (f != null) subs.add(f);
+        }
+        if (subs.isEmpty()) return null;
+        if (not) {
+            Truth truth = truthOf(subs.get(0));
+            if (truth == Truth.TRUE) return falseCondition();
+            if (truth == Truth.FALSE) return trueCondition();
+            return rebuild(op, subs);
+        }
+        boolean and = !"OR".equals(op);
+        Truth absorbing = and ? Truth.FALSE : Truth.TRUE;
+        List<Template.Condition> kept = new ArrayList<>();
+        for (Template.Condition sub : subs) {
+            Truth truth = truthOf(sub);
+            if (truth == absorbing) return absorbing == Truth.FALSE ? falseCondition() : trueCondition();
+            if (truth == Truth.UNKNOWN && !containsLeaf(kept, sub)) kept.add(sub);
+        }
+        if (kept.isEmpty()) return and ? trueCondition() : falseCondition();
+        if (and && contradictions && contradictory(kept)) return falseCondition();
+        return kept.size() == 1 ? kept.get(0) : rebuild(op, kept);
+    }
+
+    private static Truth evaluate(Template.On leaf, Map<String, Object> params) {
+        if (leaf.operator == null || leaf.right == null) return Truth.UNKNOWN;
+        String op = leaf.operator.trim().toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+        boolean in = "IN".equals(op);
+        if (in || "NOT IN".equals(op)) {
+            boolean empty;
+            if (leaf.right.param != null) {
+                Object value = params.get(leaf.right.param);
+                empty = InParameters.isCollection(value) && InParameters.values(value).isEmpty();
+            } else {
+                empty = leaf.right.value != null && EMPTY_LIST.matcher(leaf.right.value.trim()).matches();
+            }
+            if (!empty) return Truth.UNKNOWN;
+            return in ? Truth.FALSE : Truth.TRUE;
+        }
+        if (leaf.right.param != null || leaf.left == null) return Truth.UNKNOWN;
+        Object left = literal(leaf.left, true);
+        Object right = literal(leaf.right.value, false);
+        if (left == null || right == null) return Truth.UNKNOWN;
+        Integer cmp = compare(left, right);
+        if (cmp == null) return Truth.UNKNOWN;
+        Boolean result = apply(op, cmp, left instanceof String);
+        if (result == null) return Truth.UNKNOWN;
+        return result ? Truth.TRUE : Truth.FALSE;
+    }
+
+    /**
+     * 同一简单列上的常量约束是否互相矛盾
+     */
+    private static boolean contradictory(List<Template.Condition> conjuncts) {
+        Map<String, Range> ranges = new HashMap<>();
+        for (Template.Condition c : conjuncts) {
+            if (c.leaf == null || c.leaf.operator == null || c.leaf.right == null || c.leaf.right.param != null) continue;
+            String[] col = Expressions.simpleColumn(c.leaf.left);
+            Object value = literal(c.leaf.right.value, false);
+            if (col == null || value == null) continue;
+            String key = (col[0] == null ? "" : col[0].toLowerCase(Locale.ROOT) + ".") + col[1].toLowerCase(Locale.ROOT);
+            Range r = ranges.computeIfAbsent(key, k -> new Range());
+            String op = c.leaf.operator.trim().toUpperCase(Locale.ROOT);
+            if (!r.add(op, value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 单列上的常量约束：等值、不等值与上下界；类型混杂时放弃判断
+     */
+    private static final class Range {
+        Object eq;
+        final List<Object> ne = new ArrayList<>();
+        Object lower;
+        boolean lowerInclusive;
+        Object upper;
+        boolean upperInclusive;
+        boolean mixed;
+
+        /**
+         * 加入约束，出现矛盾时返回false
+         */
+        boolean add(String op, Object value) {
+            if (mixed) return true;
+            switch (op) {
+                case "=":
+                    if (eq != null && !same(eq, value)) {
+                        // 字符串比较受排序规则影响，仅忽略大小写与尾部空格后仍不同才判定矛盾
+                        if (compare(eq, value) != null) return false;
+                        mixed = true;
+                        return true;
+                    }
+                    eq = value;
+                    break;
+                case "!=":
+                case "<>":
+                    ne.add(value);
+                    break;
+                case ">":
+                case ">=":
+                    if (value instanceof String) return true;
+                    if (lower == null || compareOrMix(value, lower) > 0 || (compareOrMix(value, lower) == 0 && ">".equals(op))) {
+                        lower = value;
+                        lowerInclusive = ">=".equals(op);
+                    }
+                    break;
+                case "<":
+                case "<=":
+                    if (value instanceof String) return true;
+                    if (upper == null || compareOrMix(value, upper) < 0 || (compareOrMix(value, upper) == 0 && "<".equals(op))) {
+                        upper = value;
+                        upperInclusive = "<=".equals(op);
+                    }
+                    break;
+                default:
+                    return true;
+            }
+            return mixed || consistent();
+        }
+
+        private boolean consistent() {
+            if (eq != null) {
+                for (Object n : ne) {
+                    if (same(eq, n)) return false;
+                }
+                if (eq instanceof String) return true;
+                if (lower != null && !(compareOrMix(eq, lower) > 0 || (lowerInclusive && compareOrMix(eq, lower) == 0))) return false;
+                if (upper != null && !(compareOrMix(eq, upper) < 0 || (upperInclusive && compareOrMix(eq, upper) == 0))) return false;
+                return true;
+            }
+            if (lower != null && upper != null) {
+                int cmp = compareOrMix(lower, upper);
+                return cmp < 0 || (cmp == 0 && lowerInclusive && upperInclusive);
+            }
+            return true;
+        }
+
+        private int compareOrMix(Object a, Object b) {
+            Integer cmp = compare(a, b);
+            if (cmp == null) {
+                mixed = true;
+                return 0;
+            }
+            return cmp;
+        }
+
+        private static boolean same(Object a, Object b) {
+            Integer cmp = compare(a, b);
+            return cmp != null && cmp == 0;
+        }
+    }
+
+    /**
+     * 常量值：数字为 BigDecimal，字符串为去引号后的文本，布尔为 Boolean；非常量返回null。
+     * 左侧只认带引号的字符串，右侧沿用 SQLBuilder 的渲染规则（未加引号的文本视为字符串）
+     */
+    private static Object literal(String text, boolean left) {
+        if (text == null) return null;
+        String v = text.trim();
+        if (v.equalsIgnoreCase("null")) return null;
+        if (NUMBER.matcher(v).matches()) return new BigDecimal(v);
+        if (v.equalsIgnoreCase("true") || v.equalsIgnoreCase("false")) return Boolean.valueOf(v.toLowerCase(Locale.ROOT));
+        if (QUOTED.matcher(v).matches()) return left ? v.substring(1, v.length() - 1).replace("''", "'") : null;
+        if (left || Expressions.isColumnValue(v) || v.contains("'")) return null;
+        return v;
+    }
+
+    /**
+     * 比较两个常量；布尔按 FALSE(0) < TRUE(1) 排序，字符串仅在忽略大小写与尾部空格后相同或不同时给出结果（0或1），
+     * 类型不同返回null
+     */
+    private static Integer compare(Object a, Object b) {
+        if (a instanceof BigDecimal && b instanceof BigDecimal) return ((BigDecimal) a).compareTo((BigDecimal) b);
+        if (a instanceof Boolean && b instanceof Boolean) return ((Boolean) a).compareTo((Boolean) b);
+        if (a instanceof String && b instanceof String) {
+            String x = rtrim((String) a);
+            String y = rtrim((String) b);
+            if (x.equals(y)) return 0;
+            return x.equalsIgnoreCase(y) ? null : 1;
+        }
+        return null;
+    }
+
+    private static Boolean apply(String op, int cmp, boolean text) {
+        switch (op) {
+            case "=":
+                return cmp == 0;
+            case "!=":
+            case "<>":
+                return cmp != 0;
+            default:
+                break;
+        }
+        // 字符串只判断相等与否，大小关系依赖排序规则
+        if (text) return null;
+        switch (op) {
+            case ">":
+                return cmp > 0;
+            case ">=":
+                return cmp >= 0;
+            case "<":
+                return cmp < 0;
+            case "<=":
+                return cmp <= 0;
+            default:
+                return null;
+        }
+    }
+
+    private static String rtrim(String s) {
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == ' ') end--;
+        return s.substring(0, end);
+    }
+
+    private static Truth truthOf(Template.Condition c) {
+        if (c == null || c.leaf == null || c.leaf.right == null || c.leaf.right.param != null) return Truth.UNKNOWN;
+        if (!"1".equals(c.leaf.left) || !"=".equals(c.leaf.operator)) return Truth.UNKNOWN;
+        if ("1".equals(c.leaf.right.value)) return Truth.TRUE;
+        return "0".equals(c.leaf.right.value) ? Truth.FALSE : Truth.UNKNOWN;
+    }
+
+    private static boolean containsLeaf(List<Template.Condition> list, Template.Condition c) {
+        if (c.leaf == null) return false;
+        for (Template.Condition other : list) {
+            if (other.leaf != null && sameLeaf(other.leaf, c.leaf)) return true;
+        }
+        return false;
+    }
+
+    private static boolean sameLeaf(Template.On a, Template.On b) {
+        return Objects.equals(a.left, b.left) && Objects.equals(a.operator, b.operator)
+                && Objects.equals(a.right == null ? null : a.right.value, b.right == null ? null : b.right.value)
+                && Objects.equals(a.right == null ? null : a.right.param, b.right == null ? null : b.right.param);
+    }
+
+    private static Template.Condition rebuild(String op, List<Template.Condition> subs) {
+        Template.Condition c = new Template.Condition();
+        c.op = op;
+        c.conditions = subs;
+        return c;
+    }
+
+    private static Template.Condition trueCondition() {
+        return constant("1");
+    }
+
+    private static Template.Condition falseCondition() {
+        return constant("0");
+    }
+
+    private static Template.Condition constant(String right) {
+        Template.On on = new Template.On();
+        on.left = "1";
+        on.operator = "=";
+        on.right = new Template.RightValue();
+        on.right.value = right;
+        Template.Condition c = new Template.Condition();
+        c.leaf = on;
+        return c;
+    }
+}
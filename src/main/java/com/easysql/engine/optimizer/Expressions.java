@@ -0,0 +1,90 @@
+package com.easysql.engine.optimizer;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 表达式文本的轻量分析：识别限定列引用、未限定列与简单列
+ */
+final class Expressions {
+
+    // 限定列引用 q.col（q 可带反引号）
+    private static final Pattern QUALIFIED = Pattern.compile("`?([A-Za-z_][\\w$]*)`?\\s*\\.\\s*`?([A-Za-z_][\\w$]*|\\*)`?");
+    // 未限定标识符：前面不是 . 或标识符字符，后面不跟 . 或 (（排除函数名）
+    private static final Pattern IDENT = Pattern.compile("(?<![\\w$.`])`?([A-Za-z_][\\w$]*)`?(?![\\w$`]*\\s*[.(])");
+    private static final Pattern SIMPLE_COLUMN = Pattern.compile("^\\s*(?:`?([A-Za-z_][\\w$]*)`?\\s*\\.\\s*)?`?([A-Za-z_][\\w$]*)`?\\s*$");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "AND", "OR", "NOT", "NULL", "IS", "TRUE", "FALSE", "AS", "CASE", "WHEN", "THEN", "ELSE", "END",
+            "INTERVAL", "YEAR", "MONTH", "WEEK", "DAY", "HOUR", "MINUTE", "SECOND", "DISTINCT", "BINARY",
+            "ASC", "DESC", "IN", "LIKE", "BETWEEN"));
+
+    private Expressions() {}
+
+    private static String stripLiterals(String expr) {
+        return STRING_LITERAL.matcher(expr).replaceAll("''");
+    }
+
+    /**
+     * 表达式中出现的表限定名（按出现顺序）
+     */
+    static List<String> qualifiers(String expr) {
+        List<String> out = new ArrayList<>();
+        if (expr == null) return out;
+        Matcher q = QUALIFIED.matcher(stripLiterals(expr));
+        while (q.find()) out.add(q.group(1));
+        return out;
+    }
+
+    /**
+     * 表达式中的限定列引用 {q, col}（q.* 的 col 为 *）
+     */
+    static List<String[]> qualifiedColumns(String expr) {
+        List<String[]> out = new ArrayList<>();
+        if (expr == null) return out;
+        Matcher q = QUALIFIED.matcher(stripLiterals(expr));
+        while (q.find()) out.add(new String[]{q.group(1), q.group(2)});
+        return out;
+    }
+
+    /**
+     * 表达式中未限定的列名（去除关键字与函数名）
+     */
+    static Set<String> unqualified(String expr) {
+        Set<String> out = new LinkedHashSet<>();
+        if (expr == null) return out;
+        String rest = QUALIFIED.matcher(stripLiterals(expr)).replaceAll(" ");
+        Matcher id = IDENT.matcher(rest);
+        while (id.find()) {
+            if (!KEYWORDS.contains(id.group(1).toUpperCase(Locale.ROOT))) out.add(id.group(1));
+        }
+        return out;
+    }
+
+    /**
+     * 简单列引用 [q.]col，返回 {q, col}（q 可为null）；非简单列返回null
+     */
+    static String[] simpleColumn(String expr) {
+        if (expr == null) return null;
+        Matcher m = SIMPLE_COLUMN.matcher(expr);
+        return m.matches() ? new String[]{m.group(1), m.group(2)} : null;
+    }
+
+    /**
+     * 输出列名：简单列取列名，其余取原表达式
+     */
+    static String bareName(String expr) {
+        String[] c = simpleColumn(expr);
+        return c != null ? c[1] : expr.trim();
+    }
+
+    /**
+     * 与SQLBuilder一致：a.b 形式或含括号的右值视为列引用/表达式，其余为常量
+     */
+    static boolean isColumnValue(String value) {
+        if (value == null) return false;
+        String v = value.trim();
+        return v.matches("^[a-zA-Z_][\\w$]*(\\.[a-zA-Z_][\\w$]*)+$") || v.contains("(");
+    }
+}
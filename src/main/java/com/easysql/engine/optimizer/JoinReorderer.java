@@ -0,0 +1,214 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.metadata.MetadataCache;
+import com.easysql.engine.metadata.TableMetadata;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * 基于统计信息的连接重排：仅处理 FROM 起始的连续 INNER JOIN 链，第一个外连接及其后的连接保持原位，
+ * 因此外连接可见的关系集合不变。
+ * <p>
+ * 按元数据行数与单表过滤条件的选择率估算各关系的过滤后行数，从最小者开始，贪心选择与已连接集合
+ * 有连接条件的最小关系；链上的 ON 条件按新顺序重新分配。首个输入相比原顺序缩小
+ * {@link #CONFIDENCE_RATIO} 倍以上时设置 options.straightJoin，由方言输出 STRAIGHT_JOIN 固定顺序。
+ * 任一关系缺少统计、为派生表、或条件无法归属时不做改动。
+ */
+public class JoinReorderer {
+
+    public static final String COUNTER_REORDERED = "join_reorder.applied";
+    public static final String COUNTER_STRAIGHT_JOIN = "join_reorder.straight_join";
+    static final double CONFIDENCE_RATIO = 10.0;
+
+    private static final Logger log = LoggerFactory.getLogger(JoinReorderer.class);
+
+    private final MetadataCache metadataCache;
+    private final MetricsCollector metrics;
+
+    public JoinReorderer(MetadataCache metadataCache, MetricsCollector metrics) {
+        this.metadataCache = metadataCache;
+        this.metrics = metrics;
+    }
+
+    public Template optimize(Template t) {
+        if (t == null || t.from == null || t.joins == null || t.joins.isEmpty()) return t;
+        if (t.options != null && Boolean.TRUE.equals(t.options.straightJoin)) return t; // 作者已固定顺序
+        int chain = 0;
+        while (chain < t.joins.size() && isInner(t.joins.get(chain))) chain++;
+        if (chain == 0) return t;
+
+        List<Template.From> relations = new ArrayList<>();
+        relations.add(t.from);
+        for (int i = 0; i < chain; i++) relations.add(t.joins.get(i).table);
+        List<Template.From> all = new ArrayList<>(relations);
+        for (int i = chain; i < t.joins.size(); i++) all.add(t.joins.get(i).table);
+
+        // 链上 ON 条件与 WHERE 顶层 AND 条件（INNER 连接下二者等价，前者参与重新分配）
+        List<Template.On> onPredicates = new ArrayList<>();
+        for (int i = 0; i < chain; i++) {
+            if (t.joins.get(i).on != null) onPredicates.addAll(t.joins.get(i).on);
+        }
+        List<Template.On> filters = new ArrayList<>(onPredicates);
+        filters.addAll(whereConjuncts(t.where));
+
+        double[] estimates = new double[relations.size()];
+        List<Set<Integer>> onRefs = new ArrayList<>();
+        for (Template.On on : onPredicates) {
+            Set<Integer> refs = references(all, on);
+            if (refs == null) return t;
+            onRefs.add(refs);
+        }
+        for (int i = 0; i < relations.size(); i++) {
+            Template.From f = relations.get(i);
+            if (f.subquery != null || f.table == null) return t;
+            TableMetadata table = table(t.datasource, f);
+            if (table == null || table.getRowCount() <= 0) return t;
+            estimates[i] = Selectivity.estimate(table, localFilters(all, filters, i));
+        }
+
+        List<Integer> order = order(estimates, onRefs);
+        if (order == null || isIdentity(order)) return t;
+        List<Template.Join> rebuilt = rebuild(relations, order, onPredicates, onRefs);
+        if (rebuilt == null) return t;
+
+        Template.From first = relations.get(order.get(0));
+        List<Template.Join> joins = new ArrayList<>(rebuilt);
+        joins.addAll(t.joins.subList(chain, t.joins.size()));
+        t.from = first;
+        t.joins = joins;
+        metrics.increment(COUNTER_REORDERED);
+        log.debug("[optimizer] template {} join order {} (estimated rows {})", t.id, order, Arrays.toString(estimates));
+        if (estimates[0] >= estimates[order.get(0)] * CONFIDENCE_RATIO) {
+            if (t.options == null) t.options = new Template.Options();
+            t.options.straightJoin = true;
+            metrics.increment(COUNTER_STRAIGHT_JOIN);
+        }
+        return t;
+    }
+
+    /**
+     * 贪心顺序：最小的关系开始，每步选与已选集合存在连接条件的最小关系；出现笛卡尔积时放弃
+     */
+    private static List<Integer> order(double[] estimates, List<Set<Integer>> onRefs) {
+        int n = estimates.length;
+        List<Integer> order = new ArrayList<>();
+        Set<Integer> placed = new HashSet<>();
+        int start = 0;
+        for (int i = 1; i < n; i++) {
+            if (estimates[i] < estimates[start]) start = i;
+        }
+        order.add(start);
+        placed.add(start);
+        while (order.size() < n) {
+            int best = -1;
+            for (int i = 0; i < n; i++) {
+                if (placed.contains(i) || !connected(i, placed, onRefs)) continue;
+                if (best < 0 || estimates[i] < estimates[best]) best = i;
+            }
+            if (best < 0) return null;
+            order.add(best);
+            placed.add(best);
+        }
+        return order;
+    }
+
+    private static boolean connected(int candidate, Set<Integer> placed, List<Set<Integer>> onRefs) {
+        for (Set<Integer> refs : onRefs) {
+            if (refs.size() < 2 || !refs.contains(candidate)) continue;
+            for (int r : refs) {
+                if (placed.contains(r)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按新顺序分配 ON 条件：每个条件挂在其引用关系全部就位的第一个连接上
+     */
+    private static List<Template.Join> rebuild(List<Template.From> relations, List<Integer> order,
+                                               List<Template.On> onPredicates, List<Set<Integer>> onRefs) {
+        List<Template.Join> joins = new ArrayList<>();
+        Set<Integer> placed = new HashSet<>();
+        placed.add(order.get(0));
+        boolean[] assigned = new boolean[onPredicates.size()];
+        for (int k = 1; k < order.size(); k++) {
+            placed.add(order.get(k));
+            List<Template.On> on = new ArrayList<>();
+            for (int p = 0; p < onPredicates.size(); p++) {
+                if (!assigned[p] && placed.containsAll(onRefs.get(p))) {
+                    on.add(onPredicates.get(p));
+                    assigned[p] = true;
+                }
+            }
+            if (on.isEmpty()) return null;
+            Template.Join j = new Template.Join();
+            j.type = "INNER";
+            j.table = relations.get(order.get(k));
+            j.on = on;
+            joins.add(j);
+        }
+        for (boolean a : assigned) {
+            if (!a) return null;
+        }
+        return joins;
+    }
+
+    private static List<Template.On> localFilters(List<Template.From> all, List<Template.On> filters, int relation) {
+        List<Template.On> out = new ArrayList<>();
+        for (Template.On on : filters) {
+            Set<Integer> refs = references(all, on);
+            if (refs != null && refs.size() == 1 && refs.contains(relation)) out.add(on);
+        }
+        return out;
+    }
+
+    private static Set<Integer> references(List<Template.From> relations, Template.On on) {
+        Set<Integer> left = BasicOptimizer.references(relations, on.left);
+        if (left == null) return null;
+        Set<Integer> refs = new TreeSet<>(left);
+        if (on.right != null && on.right.param == null && Expressions.isColumnValue(on.right.value)) {
+            Set<Integer> right = BasicOptimizer.references(relations, on.right.value);
+            if (right == null) return null;
+            refs.addAll(right);
+        }
+        return refs;
+    }
+
+    private static List<Template.On> whereConjuncts(Template.Condition where) {
+        List<Template.On> out = new ArrayList<>();
+        if (where == null) return out;
+        if (where.leaf != null) {
+            out.add(where.leaf);
+        } else if (where.conditions != null && !"OR".equalsIgnoreCase(where.op) && !"NOT".equalsIgnoreCase(where.op)) {
+            for (Template.Condition c : where.conditions) {
+                if (c.leaf != null) out.add(c.leaf);
+            }
+        }
+        return out;
+    }
+
+    private static boolean isInner(Template.Join j) {
+        return j.type == null || "INNER".equalsIgnoreCase(j.type.trim());
+    }
+
+    private static boolean isIdentity(List<Integer> order) {
+        for (int i = 0; i < order.size(); i++) {
+            if (order.get(i) != i) return false;
+        }
+        return true;
+    }
+
+    private TableMetadata table(String datasource, Template.From f) {
+        if (datasource == null) return null;
+        try {
+            return metadataCache.getTable(datasource, f.catalog, f.schema, f.table);
+        } catch (Exception e) {
+            log.warn("[optimizer] metadata unavailable for {}: {}", f.table, e.getMessage());
+            return null;
+        }
+    }
+}
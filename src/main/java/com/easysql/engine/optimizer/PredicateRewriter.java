@@ -0,0 +1,209 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.model.Template;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 谓词改写（作用于归一化、常量折叠后的条件树）：
+ * <ul>
+ *   <li>OR 中同一列的常量等值合并为 IN 列表：a = 1 OR a = 2 OR a = 3 → a IN (1, 2, 3)</li>
+ *   <li>AND 中同一列的数值范围合并为单个上/下界或 BETWEEN：x &gt; 5 AND x &gt; 7 → x &gt; 7</li>
+ * </ul>
+ * 参数与列引用的比较不参与合并，其取值在构建期未知。
+ */
+final class PredicateRewriter {
+
+    private static final Pattern NUMBER = Pattern.compile("^-?\\d+(\\.\\d+)?$");
+
+    private PredicateRewriter() {}
+
+    static Template.Condition rewrite(Template.Condition c) {
+        if (c == null || c.leaf != null || c.conditions == null) return c;
+        String op = c.op == null ? "AND" : c.op.toUpperCase(Locale.ROOT);
+        List<Template.Condition> subs = new ArrayList<>();
+        for (Template.Condition sub : c.conditions) subs.add(rewrite(sub));
+        if ("OR".equals(op)) {
+            subs = collapseEqualities(subs);
+        } else if ("AND".equals(op)) {
+            subs = mergeRanges(subs);
+        }
+        if (subs.size() == 1 && !"NOT".equals(op)) return subs.get(0);
+        Template.Condition out = new Template.Condition();
+        out.op = op;
+        out.conditions = subs;
+        return out;
+    }
+
+    /**
+     * 同列常量等值按首次出现位置合并为 IN，取值去重
+     */
+    private static List<Template.Condition> collapseEqualities(List<Template.Condition> subs) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < subs.size(); i++) {
+            Template.On leaf = subs.get(i).leaf;
+            if (leaf == null || !"=".equals(operator(leaf)) || constant(leaf.right) == null) continue;
+            groups.computeIfAbsent(columnKey(leaf.left), k -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, Template.Condition> replaced = new HashMap<>();
+        Set<Integer> dropped = new HashSet<>();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() < 2) continue;
+            Set<String> values = new LinkedHashSet<>();
+            for (int i : group) values.add(constant(subs.get(i).leaf.right));
+            Template.On first = subs.get(group.get(0)).leaf;
+            replaced.put(group.get(0), values.size() == 1
+                    ? subs.get(group.get(0))
+                    : leaf(first.left, "IN", "(" + String.join(", ", values) + ")"));
+            dropped.addAll(group.subList(1, group.size()));
+        }
+        if (replaced.isEmpty()) return subs;
+        List<Template.Condition> out = new ArrayList<>();
+        for (int i = 0; i < subs.size(); i++) {
+            if (dropped.contains(i)) continue;
+            out.add(replaced.getOrDefault(i, subs.get(i)));
+        }
+        return out;
+    }
+
+    /**
+     * 同列数值约束合并：有等值时只保留等值；上下界均为闭区间时改写为 BETWEEN（相等时为等值）
+     */
+    private static List<Template.Condition> mergeRanges(List<Template.Condition> subs) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < subs.size(); i++) {
+            Template.On leaf = subs.get(i).leaf;
+            if (leaf == null || Expressions.simpleColumn(leaf.left) == null || number(leaf.right) == null) continue;
+            String op = operator(leaf);
+            if (!"=".equals(op) && !">".equals(op) && !">=".equals(op) && !"<".equals(op) && !"<=".equals(op)) continue;
+            groups.computeIfAbsent(columnKey(leaf.left), k -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, List<Template.Condition>> replaced = new HashMap<>();
+        Set<Integer> dropped = new HashSet<>();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() < 2) continue;
+            List<Template.Condition> merged = merge(subs, group);
+            if (merged == null) continue;
+            replaced.put(group.get(0), merged);
+            dropped.addAll(group.subList(1, group.size()));
+        }
+        if (replaced.isEmpty()) return subs;
+        List<Template.Condition> out = new ArrayList<>();
+        for (int i = 0; i < subs.size(); i++) {
+            if (dropped.contains(i)) continue;
+            List<Template.Condition> r = replaced.get(i);
+            if (r != null) {
+                out.addAll(r);
+            } else {
+                out.add(subs.get(i));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 合并一组同列约束；等值互相冲突或不在范围内时返回null（留给常量折叠判定）
+     */
+    private static List<Template.Condition> merge(List<Template.Condition> subs, List<Integer> group) {
+        Template.Condition eq = null;
+        Template.Condition lower = null;
+        Template.Condition upper = null;
+        for (int i : group) {
+            Template.Condition c = subs.get(i);
+            BigDecimal v = number(c.leaf.right);
+            switch (operator(c.leaf)) {
+                case "=":
+                    if (eq != null && number(eq.leaf.right).compareTo(v) != 0) return null;
+                    if (eq == null) eq = c;
+                    break;
+                case ">":
+                case ">=":
+                    if (lower == null || tighterLower(c.leaf, lower.leaf)) lower = c;
+                    break;
+                default:
+                    if (upper == null || tighterUpper(c.leaf, upper.leaf)) upper = c;
+                    break;
+            }
+        }
+        if (eq != null) {
+            BigDecimal v = number(eq.leaf.right);
+            if (lower != null && !satisfies(v, lower.leaf)) return null;
+            if (upper != null && !satisfies(v, upper.leaf)) return null;
+            return Collections.singletonList(eq);
+        }
+        if (lower != null && upper != null && ">=".equals(operator(lower.leaf)) && "<=".equals(operator(upper.leaf))) {
+            BigDecimal lo = number(lower.leaf.right);
+            BigDecimal hi = number(upper.leaf.right);
+            int cmp = lo.compareTo(hi);
+            if (cmp > 0) return null;
+            if (cmp == 0) return Collections.singletonList(leaf(lower.leaf.left, "=", lower.leaf.right.value.trim()));
+            return Collections.singletonList(leaf(lower.leaf.left, "BETWEEN",
+                    lower.leaf.right.value.trim() + " AND " + upper.leaf.right.value.trim()));
+        }
+        List<Template.Condition> out = new ArrayList<>();
+        if (lower != null) out.add(lower);
+        if (upper != null) out.add(upper);
+        return out;
+    }
+
+    private static boolean tighterLower(Template.On a, Template.On b) {
+        int cmp = number(a.right).compareTo(number(b.right));
+        return cmp > 0 || (cmp == 0 && ">".equals(operator(a)));
+    }
+
+    private static boolean tighterUpper(Template.On a, Template.On b) {
+        int cmp = number(a.right).compareTo(number(b.right));
+        return cmp < 0 || (cmp == 0 && "<".equals(operator(a)));
+    }
+
+    private static boolean satisfies(BigDecimal v, Template.On bound) {
+        int cmp = v.compareTo(number(bound.right));
+        switch (operator(bound)) {
+            case ">": return cmp > 0;
+            case ">=": return cmp >= 0;
+            case "<": return cmp < 0;
+            default: return cmp <= 0;
+        }
+    }
+
+    private static String operator(Template.On leaf) {
+        return leaf.operator == null ? "" : leaf.operator.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 列的归一化键：忽略反引号、空白与大小写
+     */
+    private static String columnKey(String column) {
+        return column == null ? "" : column.replaceAll("[\\s`]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static BigDecimal number(Template.RightValue rv) {
+        if (rv == null || rv.param != null || rv.value == null || !NUMBER.matcher(rv.value.trim()).matches()) return null;
+        return new BigDecimal(rv.value.trim());
+    }
+
+    /**
+     * 常量的SQL文本，与 SQLBuilder 渲染规则一致；NULL、参数、列引用与表达式返回null
+     */
+    private static String constant(Template.RightValue rv) {
+        if (rv == null || rv.param != null || rv.value == null) return null;
+        String v = rv.value.trim();
+        if (v.equalsIgnoreCase("null") || Expressions.isColumnValue(v)) return null;
+        if (NUMBER.matcher(v).matches()) return v;
+        if (v.equalsIgnoreCase("true") || v.equalsIgnoreCase("false")) return v.toUpperCase(Locale.ROOT);
+        return "'" + v.replace("'", "''") + "'";
+    }
+
+    private static Template.Condition leaf(String left, String operator, String value) {
+        Template.On on = new Template.On();
+        on.left = left;
+        on.operator = operator;
+        on.right = new Template.RightValue();
+        on.right.value = value;
+        Template.Condition c = new Template.Condition();
+        c.leaf = on;
+        return c;
+    }
+}
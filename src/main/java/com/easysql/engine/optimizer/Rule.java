@@ -0,0 +1,42 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.model.Template;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * 优化规则：作用于单层查询（派生表子查询由 {@link RuleEngine} 递归处理），可原地改写并返回模板。
+ * priority 数值小的先执行；name 用于指标与按模板禁用（options.disabledRules）。
+ */
+public interface Rule {
+
+    String name();
+
+    int priority();
+
+    Template apply(Template t);
+
+    static Rule of(String name, int priority, UnaryOperator<Template> body) {
+        return new Rule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public int priority() {
+                return priority;
+            }
+
+            @Override
+            public Template apply(Template t) {
+                return body.apply(t);
+            }
+
+            @Override
+            public String toString() {
+                return name + "@" + priority;
+            }
+        };
+    }
+}
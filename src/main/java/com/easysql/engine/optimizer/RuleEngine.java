@@ -0,0 +1,157 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.MetricsCollector;
+import com.easysql.engine.plan.LogicalPlan;
+import com.easysql.engine.plan.PlanNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * 规则驱动：按 priority 顺序逐条应用已注册规则，一轮内无任何改动即为不动点，最多执行 maxIterations 轮；
+ * 随后对 FROM/JOIN 中的派生表子查询及 UNION 分支递归执行。
+ * <p>
+ * 改动以规则前后的驻留计划是否为同一实例判断。每条规则记录调用次数、耗时（纳秒）与产生改动的次数：
+ * {@code optimizer.rule.<name>.invocations / .nanos / .changes}，按模板禁用而跳过的记为 {@code .skipped}。
+ * <p>
+ * 判断改动需每条规则后整棵计划重新驻留，适用于结果按计划缓存的规则组；每次查询都执行的规则组用
+ * {@link #singlePass} 按优先级各执行一次，不做改动检测，也不记 {@code .changes}。
+ */
+public class RuleEngine {
+
+    public static final String COUNTER_PREFIX = "optimizer.rule.";
+    public static final String COUNTER_ITERATION_CAP = "optimizer.rule.iteration_cap";
+    public static final int DEFAULT_MAX_ITERATIONS = 4;
+
+    private static final Logger log = LoggerFactory.getLogger(RuleEngine.class);
+
+    private final MetricsCollector metrics;
+    private final int maxIterations;
+    private final boolean fixpoint;
+    private volatile List<Rule> rules = Collections.emptyList();
+
+    public RuleEngine(MetricsCollector metrics) {
+        this(metrics, DEFAULT_MAX_ITERATIONS);
+    }
+
+    public RuleEngine(MetricsCollector metrics, int maxIterations) {
+        this(metrics, maxIterations, true);
+    }
+
+    private RuleEngine(MetricsCollector metrics, int maxIterations, boolean fixpoint) {
+        if (maxIterations < 1) throw new IllegalArgumentException("maxIterations must be >= 1");
+        this.metrics = metrics;
+        this.maxIterations = maxIterations;
+        this.fixpoint = fixpoint;
+    }
+
+    /**
+     * 单轮执行的规则引擎：不构造计划判断改动，用于未缓存的逐查询优化
+     */
+    public static RuleEngine singlePass(MetricsCollector metrics) {
+        return new RuleEngine(metrics, 1, false);
+    }
+
+    /**
+     * 注册规则；同名规则不可重复注册，同优先级按注册顺序执行
+     */
+    public synchronized RuleEngine register(Rule rule) {
+        for (Rule r : rules) {
+            if (r.name().equalsIgnoreCase(rule.name())) {
+                throw new IllegalArgumentException("rule already registered: " + rule.name());
+            }
+        }
+        List<Rule> next = new ArrayList<>(rules);
+        next.add(rule);
+        next.sort(Comparator.comparingInt(Rule::priority));
+        rules = Collections.unmodifiableList(next);
+        return this;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public Template optimize(Template t) {
+        if (t == null) return null;
+        return optimize(t, disabledRules(t));
+    }
+
+    /**
+     * 规则产生改动的比例（改动次数 / 调用次数），未调用过时为0
+     */
+    public double changeRate(String rule) {
+        long invocations = metrics.getCounter(COUNTER_PREFIX + rule + ".invocations");
+        return invocations == 0 ? 0.0 : (double) metrics.getCounter(COUNTER_PREFIX + rule + ".changes") / invocations;
+    }
+
+    private Template optimize(Template t, Set<String> disabled) {
+        List<Rule> active = new ArrayList<>();
+        for (Rule r : rules) {
+            if (disabled.contains(r.name().toLowerCase(Locale.ROOT))) {
+                metrics.increment(COUNTER_PREFIX + r.name() + ".skipped");
+            } else {
+                active.add(r);
+            }
+        }
+        if (!active.isEmpty()) t = fixpoint ? fixpoint(t, active) : applyOnce(t, active);
+        if (t.from != null && t.from.subquery != null) t.from.subquery = optimize(t.from.subquery, disabled);
+        if (t.joins != null) {
+            for (Template.Join j : t.joins) {
+                if (j.table != null && j.table.subquery != null) j.table.subquery = optimize(j.table.subquery, disabled);
+            }
+        }
+        if (t.unions != null) {
+            for (Template.UnionItem u : t.unions) {
+                if (u.query != null) u.query = optimize(u.query, disabled);
+            }
+        }
+        return t;
+    }
+
+    private Template fixpoint(Template t, List<Rule> active) {
+        PlanNode plan = LogicalPlan.of(t);
+        for (int i = 0; i < maxIterations; i++) {
+            boolean changed = false;
+            for (Rule r : active) {
+                long start = System.nanoTime();
+                t = r.apply(t);
+                long elapsed = System.nanoTime() - start;
+                PlanNode after = LogicalPlan.of(t);
+                boolean ruleChanged = after != plan;
+                plan = after;
+                changed |= ruleChanged;
+                metrics.increment(COUNTER_PREFIX + r.name() + ".invocations");
+                metrics.increment(COUNTER_PREFIX + r.name() + ".nanos", elapsed);
+                if (ruleChanged) metrics.increment(COUNTER_PREFIX + r.name() + ".changes");
+            }
+            if (!changed) return t;
+        }
+        metrics.increment(COUNTER_ITERATION_CAP);
+        log.debug("[optimizer] template {} did not reach a fixpoint within {} iterations", t.id, maxIterations);
+        return t;
+    }
+
+    private Template applyOnce(Template t, List<Rule> active) {
+        for (Rule r : active) {
+            long start = System.nanoTime();
+            t = r.apply(t);
+            metrics.increment(COUNTER_PREFIX + r.name() + ".invocations");
+            metrics.increment(COUNTER_PREFIX + r.name() + ".nanos", System.nanoTime() - start);
+        }
+        return t;
+    }
+
+    private static Set<String> disabledRules(Template t) {
+        if (t.options == null || t.options.disabledRules == null || t.options.disabledRules.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<>();
+        for (String name : t.options.disabledRules) {
+            if (name != null) names.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+}
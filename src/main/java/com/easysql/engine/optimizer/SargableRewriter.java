@@ -0,0 +1,219 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.dialect.SQLDialect;
+import com.easysql.engine.metadata.ColumnMetadata;
+import com.easysql.engine.metadata.MetadataCache;
+import com.easysql.engine.metadata.TableMetadata;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 可索引化改写：对索引前导列上的 WHERE 条件
+ * <ul>
+ *   <li>DATE/TIMESTAMP 列上 DATE(col) = :d 改写为半开区间 col &gt;= CAST(:d AS DATE) AND col &lt; 其后1天</li>
+ *   <li>INT/BIGINT/DECIMAL 列上 col + k 与常量/参数比较改写为 col 与 (右值 - k) 比较（浮点列移项不等价）</li>
+ *   <li>以 % 或 _ 开头的 LIKE 常量模式无法使用索引，只记录告警</li>
+ * </ul>
+ * 每次改写/告警累加对应计数器，见 {@link #COUNTER_DATE_RANGE} 等。
+ */
+public class SargableRewriter {
+
+    public static final String COUNTER_DATE_RANGE = "sargable.date_range";
+    public static final String COUNTER_ARITHMETIC = "sargable.arithmetic";
+    public static final String COUNTER_LEADING_WILDCARD = "sargable.leading_wildcard";
+
+    private static final Logger log = LoggerFactory.getLogger(SargableRewriter.class);
+    private static final Pattern DATE_CALL = Pattern.compile("(?i)^\\s*DATE\\s*\\(([^()]+)\\)\\s*$");
+    private static final Pattern COLUMN_PLUS = Pattern.compile("^(.+?)\\s*([+-])\\s*(\\d+(?:\\.\\d+)?)\\s*$");
+    private static final Pattern PLUS_COLUMN = Pattern.compile("^\\s*(\\d+(?:\\.\\d+)?)\\s*\\+\\s*(.+)$");
+    private static final Pattern NUMBER = Pattern.compile("^-?\\d+(\\.\\d+)?$");
+    private static final Set<String> COMPARISONS = new HashSet<>(Arrays.asList("=", "!=", "<>", "<", "<=", ">", ">="));
+    private static final Set<String> EXACT_NUMERIC = new HashSet<>(Arrays.asList("INT", "BIGINT", "DECIMAL"));
+    private static final Set<String> TEMPORAL = new HashSet<>(Arrays.asList("DATE", "TIMESTAMP"));
+
+    private final MetadataCache metadataCache;
+    private final SQLDialect dialect;
+    private final MetricsCollector metrics;
+
+    public SargableRewriter(MetadataCache metadataCache, SQLDialect dialect, MetricsCollector metrics) {
+        this.metadataCache = metadataCache;
+        this.dialect = dialect;
+        this.metrics = metrics;
+    }
+
+    public Template optimize(Template t) {
+        if (t == null || t.from == null || t.where == null) return t;
+        List<Template.From> relations = new ArrayList<>();
+        relations.add(t.from);
+        if (t.joins != null) {
+            for (Template.Join j : t.joins) relations.add(j.table);
+        }
+        t.where = rewrite(t, relations, t.where);
+        return t;
+    }
+
+    private Template.Condition rewrite(Template t, List<Template.From> relations, Template.Condition c) {
+        if (c.leaf != null) {
+            Template.Condition r = rewriteLeaf(t, relations, c.leaf);
+            return r != null ? r : c;
+        }
+        if (c.conditions == null) return c;
+        List<Template.Condition> subs = new ArrayList<>();
+        boolean changed = false;
+        for (Template.Condition sub : c.conditions) {
+            Template.Condition r = rewrite(t, relations, sub);
+            changed |= r != sub;
+            subs.add(r);
+        }
+        if (!changed) return c;
+        Template.Condition out = new Template.Condition();
+        out.op = c.op;
+        out.conditions = subs;
+        return out;
+    }
+
+    private Template.Condition rewriteLeaf(Template t, List<Template.From> relations, Template.On leaf) {
+        if (leaf.left == null || leaf.operator == null || leaf.right == null) return null;
+        String op = leaf.operator.trim().toUpperCase(Locale.ROOT);
+        if ("LIKE".equals(op)) {
+            flagLeadingWildcard(t, relations, leaf);
+            return null;
+        }
+        if (!COMPARISONS.contains(op)) return null;
+        Matcher date = DATE_CALL.matcher(leaf.left);
+        if (date.matches()) {
+            return "=".equals(op) ? dateRange(t, relations, date.group(1).trim(), leaf.right) : null;
+        }
+        return arithmetic(t, relations, leaf, op);
+    }
+
+    /**
+     * DATE(col) = d → col &gt;= d AND col &lt; d + 1天；参数先截断为日期（可能带时间部分），常量日期在构建期计算上界
+     */
+    private Template.Condition dateRange(Template t, List<Template.From> relations, String column, Template.RightValue right) {
+        if (!indexedOfType(t.datasource, relations, column, TEMPORAL)) return null;
+        Template.RightValue lower = new Template.RightValue();
+        Template.RightValue upper = new Template.RightValue();
+        if (right.param != null) {
+            String day = "CAST(:" + right.param + " AS DATE)";
+            String next = dialect.addDays(day, 1);
+            if (next == null) return null;
+            lower.value = day;
+            upper.value = next;
+        } else {
+            LocalDate day = parseDate(right.value);
+            if (day == null) return null;
+            lower.value = day.toString();
+            upper.value = day.plusDays(1).toString();
+        }
+        metrics.increment(COUNTER_DATE_RANGE);
+        Template.Condition and = new Template.Condition();
+        and.op = "AND";
+        and.conditions = new ArrayList<>(Arrays.asList(leaf(column, ">=", lower), leaf(column, "<", upper)));
+        return and;
+    }
+
+    /**
+     * col ± k op v → col op v ∓ k；k + col 同理
+     */
+    private Template.Condition arithmetic(Template t, List<Template.From> relations, Template.On leaf, String op) {
+        String column;
+        BigDecimal k;
+        Matcher m = COLUMN_PLUS.matcher(leaf.left);
+        Matcher p = PLUS_COLUMN.matcher(leaf.left);
+        if (m.matches() && Expressions.simpleColumn(m.group(1)) != null) {
+            column = m.group(1).trim();
+            k = new BigDecimal(m.group(3));
+            if ("-".equals(m.group(2))) k = k.negate();
+        } else if (p.matches() && Expressions.simpleColumn(p.group(2)) != null) {
+            column = p.group(2).trim();
+            k = new BigDecimal(p.group(1));
+        } else {
+            return null;
+        }
+        Template.RightValue right = new Template.RightValue();
+        if (leaf.right.param != null) {
+            right.value = "(:" + leaf.right.param + (k.signum() >= 0 ? " - " + k.toPlainString() : " + " + k.negate().toPlainString()) + ")";
+        } else if (leaf.right.value != null && NUMBER.matcher(leaf.right.value.trim()).matches()) {
+            right.value = new BigDecimal(leaf.right.value.trim()).subtract(k).toPlainString();
+        } else {
+            return null;
+        }
+        if (!indexedOfType(t.datasource, relations, column, EXACT_NUMERIC)) return null;
+        metrics.increment(COUNTER_ARITHMETIC);
+        return leaf(column, op, right);
+    }
+
+    private void flagLeadingWildcard(Template t, List<Template.From> relations, Template.On leaf) {
+        if (leaf.right.param != null || leaf.right.value == null) return;
+        String pattern = leaf.right.value.trim();
+        if (pattern.startsWith("'")) pattern = pattern.substring(1);
+        if (!pattern.startsWith("%") && !pattern.startsWith("_")) return;
+        if (Expressions.simpleColumn(leaf.left) == null || !indexed(t.datasource, relations, leaf.left)) return;
+        metrics.increment(COUNTER_LEADING_WILDCARD);
+        log.warn("[optimizer] leading-wildcard LIKE cannot use the index on {} (template {})", leaf.left.trim(), t.id);
+    }
+
+    private boolean indexed(String datasource, List<Template.From> relations, String column) {
+        return indexedOfType(datasource, relations, column, null);
+    }
+
+    /**
+     * 列是否为索引列，且标准化类型（{@link ColumnMetadata#getDataType}）属于 types；types 为null时不校验类型
+     */
+    private boolean indexedOfType(String datasource, List<Template.From> relations, String column, Set<String> types) {
+        String[] col = Expressions.simpleColumn(column);
+        if (col == null || datasource == null) return false;
+        Template.From f;
+        if (col[0] == null) {
+            // 未限定列只在单表查询中可确定归属
+            if (relations.size() != 1) return false;
+            f = relations.get(0);
+        } else {
+            int idx = BasicOptimizer.relationIndex(relations, col[0]);
+            if (idx < 0) return false;
+            f = relations.get(idx);
+        }
+        if (f.subquery != null || f.table == null) return false;
+        try {
+            TableMetadata table = metadataCache.getTable(datasource, f.catalog, f.schema, f.table);
+            if (table == null || !table.isIndexed(col[1])) return false;
+            if (types == null) return true;
+            ColumnMetadata meta = table.getColumn(col[1]);
+            return meta != null && meta.getDataType() != null && types.contains(meta.getDataType());
+        } catch (Exception e) {
+            log.warn("[optimizer] metadata unavailable for {}: {}", f.table, e.getMessage());
+            return false;
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null) return null;
+        String v = value.trim();
+        if (v.length() >= 2 && v.startsWith("'") && v.endsWith("'")) v = v.substring(1, v.length() - 1);
+        try {
+            return LocalDate.parse(v);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Template.Condition leaf(String left, String operator, Template.RightValue right) {
+        Template.On on = new Template.On();
+        on.left = left;
+        on.operator = operator;
+        on.right = right;
+        Template.Condition c = new Template.Condition();
+        c.leaf = on;
+        return c;
+    }
+}
@@ -0,0 +1,83 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.metadata.TableMetadata;
+import com.easysql.engine.model.Template;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 选择率估算：有索引统计时等值取 1/基数（唯一键为单行），否则采用常用的经验值；各条件视为相互独立
+ */
+final class Selectivity {
+
+    static final double DEFAULT_EQUALITY = 0.1;
+    static final double RANGE = 0.3;
+    static final double BETWEEN = 0.25;
+    static final double LIKE = 0.25;
+    static final double NOT_EQUAL = 0.9;
+    static final double OTHER = 0.5;
+
+    private Selectivity() {}
+
+    /**
+     * 表在单表过滤条件下的估计行数（不小于1）
+     */
+    static double estimate(TableMetadata table, List<Template.On> filters) {
+        double rows = table.getRowCount();
+        double s = 1.0;
+        for (Template.On on : filters) s *= of(table, on);
+        return Math.max(1.0, rows * s);
+    }
+
+    static double of(TableMetadata table, Template.On on) {
+        String op = on.operator == null ? "" : on.operator.trim().toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+        String[] col = Expressions.simpleColumn(on.left);
+        switch (op) {
+            case "=":
+                return col == null ? DEFAULT_EQUALITY : equality(table, col[1]);
+            case "IN":
+                double eq = col == null ? DEFAULT_EQUALITY : equality(table, col[1]);
+                return Math.min(1.0, eq * listSize(on.right));
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return RANGE;
+            case "BETWEEN":
+                return BETWEEN;
+            case "LIKE":
+                return LIKE;
+            case "!=":
+            case "<>":
+            case "NOT IN":
+                return NOT_EQUAL;
+            case "IS":
+                return DEFAULT_EQUALITY;
+            default:
+                return OTHER;
+        }
+    }
+
+    private static double equality(TableMetadata table, String column) {
+        long rows = table.getRowCount();
+        if (rows > 0 && table.isUniqueKey(Collections.singletonList(column))) return 1.0 / rows;
+        long cardinality = table.getColumnCardinality(column);
+        return cardinality > 0 ? 1.0 / cardinality : DEFAULT_EQUALITY;
+    }
+
+    /**
+     * IN 列表元素个数：常量列表按逗号计数，参数列表未知时按4估计
+     */
+    private static int listSize(Template.RightValue rv) {
+        if (rv == null || rv.param != null || rv.value == null) return 4;
+        int n = 1;
+        boolean quoted = false;
+        for (char c : rv.value.toCharArray()) {
+            if (c == '\'') quoted = !quoted;
+            if (c == ',' && !quoted) n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,129 @@
+package com.easysql.engine.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 不可变条件表达式：对应 Template.Condition / Template.On，结构相等，哈希值首次计算后缓存
+ */
+public abstract class Expr {
+
+    private int hash;
+
+    Expr() {}
+
+    protected abstract int computeHash();
+
+    protected abstract boolean sameAs(Expr other);
+
+    @Override
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = computeHash();
+            if (h == 0) h = 1;
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
+        return sameAs((Expr) o);
+    }
+
+    /**
+     * 叶子比较：left operator right；right 为空表示无右值（如 IS NULL 写法）
+     */
+    public static final class Compare extends Expr {
+        public final String left;
+        public final String operator;
+        public final Value right;
+
+        Compare(String left, String operator, Value right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(left, operator, right);
+        }
+
+        @Override
+        protected boolean sameAs(Expr other) {
+            Compare c = (Compare) other;
+            return Objects.equals(left, c.left) && Objects.equals(operator, c.operator) && Objects.equals(right, c.right);
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + operator + " " + right;
+        }
+    }
+
+    /**
+     * 逻辑组合：AND / OR / NOT，子项顺序有意义
+     */
+    public static final class Logical extends Expr {
+        public final String op;
+        public final List<Expr> operands;
+
+        Logical(String op, List<Expr> operands) {
+            this.op = op;
+            this.operands = Collections.unmodifiableList(new ArrayList<>(operands));
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(op, operands);
+        }
+
+        @Override
+        protected boolean sameAs(Expr other) {
+            Logical l = (Logical) other;
+            return Objects.equals(op, l.op) && operands.equals(l.operands);
+        }
+
+        @Override
+        public String toString() {
+            return op + operands;
+        }
+    }
+
+    /**
+     * 右值：常量或参数名，二者取其一
+     */
+    public static final class Value {
+        public final String value;
+        public final String param;
+
+        Value(String value, String param) {
+            this.value = value;
+            this.param = param;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, param);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Value)) return false;
+            Value v = (Value) o;
+            return Objects.equals(value, v.value) && Objects.equals(param, v.param);
+        }
+
+        @Override
+        public String toString() {
+            return param != null ? ":" + param : value;
+        }
+    }
+}
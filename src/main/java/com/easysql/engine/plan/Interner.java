@@ -0,0 +1,66 @@
+package com.easysql.engine.plan;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 弱引用驻留表：结构相等的对象返回同一规范实例；不再被引用的实例随 GC 回收。
+ * 基于 ConcurrentHashMap，键为按结构哈希比较的弱引用，各线程并发驻留不争用同一把锁
+ */
+final class Interner<T> {
+
+    private final ConcurrentHashMap<Ref<T>, Ref<T>> canonical = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+    T intern(T value) {
+        expunge();
+        Ref<T> ref = new Ref<>(value, queue);
+        while (true) {
+            Ref<T> existing = canonical.putIfAbsent(ref, ref);
+            if (existing == null) return value;
+            T v = existing.get();
+            if (v != null) return v;
+            // 比较后恰被回收：移除失效条目后重试
+            canonical.remove(existing, existing);
+        }
+    }
+
+    int size() {
+        expunge();
+        return canonical.size();
+    }
+
+    private void expunge() {
+        Reference<? extends T> cleared;
+        while ((cleared = queue.poll()) != null) {
+            canonical.remove(cleared);
+        }
+    }
+
+    /**
+     * 哈希在构造时取自被引用对象；已回收的引用只与自身相等
+     */
+    private static final class Ref<T> extends WeakReference<T> {
+        private final int hash;
+
+        Ref(T value, ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Ref)) return false;
+            Object mine = get();
+            return mine != null && mine.equals(((Ref<?>) o).get());
+        }
+    }
+}
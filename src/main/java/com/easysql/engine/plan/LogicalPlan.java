@@ -0,0 +1,239 @@
+package com.easysql.engine.plan;
+
+import com.easysql.engine.model.Template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Template 与逻辑计划的互相转换。
+ * <p>
+ * {@link #of(Template)} 自底向上构造节点并驻留，结构相同的模板（含其中相同的子查询、条件）得到同一实例；
+ * {@link #toTemplate(PlanNode, Template)} 每次生成全新的模板对象，优化器可在其上原地改写而不影响计划或原模板。
+ * 计划只描述查询结构，id、数据源、参数、超时等执行属性取自转换时提供的上下文模板。
+ */
+public final class LogicalPlan {
+
+    private static final Interner<PlanNode> NODES = new Interner<>();
+    private static final Interner<Expr> EXPRS = new Interner<>();
+
+    private LogicalPlan() {}
+
+    public static PlanNode of(Template t) {
+        if (t == null) return null;
+        if (t.from == null) throw new IllegalArgumentException("template.from is required to build a plan");
+        PlanNode node = relation(t.from);
+        if (t.joins != null) {
+            for (Template.Join j : t.joins) {
+                if (j.table == null) throw new IllegalArgumentException("join table is required to build a plan");
+                List<Expr.Compare> on = new ArrayList<>();
+                if (j.on != null) {
+                    for (Template.On o : j.on) on.add(compare(o));
+                }
+                node = intern(new PlanNode.Join(j.type, node, relation(j.table), on));
+            }
+        }
+        if (t.where != null) node = intern(new PlanNode.Filter(node, expr(t.where)));
+        boolean grouped = t.groupBy != null && !t.groupBy.isEmpty();
+        if (grouped || t.having != null) {
+            node = intern(new PlanNode.Aggregate(node, t.groupBy));
+            if (t.having != null) node = intern(new PlanNode.Filter(node, expr(t.having)));
+        }
+        List<PlanNode.Project.Item> items = new ArrayList<>();
+        if (t.select != null) {
+            for (Template.SelectItem it : t.select) items.add(new PlanNode.Project.Item(it.expr, it.alias));
+        }
+        List<String> hints = t.options == null ? null : t.options.hints;
+        Boolean straightJoin = t.options == null ? null : t.options.straightJoin;
+        node = intern(new PlanNode.Project(node, items, hints, straightJoin));
+        if (t.unions != null && !t.unions.isEmpty()) {
+            List<PlanNode> inputs = new ArrayList<>();
+            List<Boolean> all = new ArrayList<>();
+            List<String> datasources = new ArrayList<>();
+            List<String> dialects = new ArrayList<>();
+            inputs.add(node);
+            for (Template.UnionItem u : t.unions) {
+                inputs.add(of(u.query));
+                all.add(u.unionAll);
+                datasources.add(u.query.datasource);
+                dialects.add(u.query.dialect);
+            }
+            node = intern(new PlanNode.Union(inputs, all, datasources, dialects));
+        }
+        if (t.orderBy != null && !t.orderBy.isEmpty()) {
+            List<PlanNode.Sort.Key> keys = new ArrayList<>();
+            for (Template.OrderBy o : t.orderBy) keys.add(new PlanNode.Sort.Key(o.expr, o.direction, o.nulls));
+            node = intern(new PlanNode.Sort(node, keys));
+        }
+        if (t.limit != null || t.offset != null) node = intern(new PlanNode.Limit(node, t.limit, t.offset));
+        return node;
+    }
+
+    /**
+     * 由计划生成新模板；context 非空时复制其 id、数据源、方言、参数与 options（options 为副本）
+     */
+    public static Template toTemplate(PlanNode plan, Template context) {
+        Template t = new Template();
+        Template.Options options = null;
+        if (context != null) {
+            t.id = context.id;
+            t.datasource = context.datasource;
+            t.dialect = context.dialect;
+            t.params = context.params;
+            t.insert = context.insert;
+            options = context.options == null ? null : context.options.copy();
+        }
+        PlanNode node = plan;
+        if (node instanceof PlanNode.Limit) {
+            PlanNode.Limit l = (PlanNode.Limit) node;
+            t.limit = l.limit;
+            t.offset = l.offset;
+            node = l.input;
+        }
+        if (node instanceof PlanNode.Sort) {
+            PlanNode.Sort s = (PlanNode.Sort) node;
+            t.orderBy = new ArrayList<>();
+            for (PlanNode.Sort.Key k : s.keys) {
+                Template.OrderBy o = new Template.OrderBy();
+                o.expr = k.expr;
+                o.direction = k.direction;
+                o.nulls = k.nulls;
+                t.orderBy.add(o);
+            }
+            node = s.input;
+        }
+        if (node instanceof PlanNode.Union) {
+            PlanNode.Union u = (PlanNode.Union) node;
+            t.unions = new ArrayList<>();
+            for (int i = 1; i < u.inputs.size(); i++) {
+                Template.UnionItem item = new Template.UnionItem();
+                item.unionAll = u.all.get(i - 1);
+                item.query = toTemplate(u.inputs.get(i), null);
+                item.query.datasource = u.datasources.get(i - 1);
+                item.query.dialect = u.dialects.get(i - 1);
+                t.unions.add(item);
+            }
+            node = u.inputs.get(0);
+        }
+        if (!(node instanceof PlanNode.Project)) {
+            throw new IllegalArgumentException("plan has no projection: " + node);
+        }
+        PlanNode.Project p = (PlanNode.Project) node;
+        t.select = new ArrayList<>();
+        for (PlanNode.Project.Item it : p.items) {
+            Template.SelectItem s = new Template.SelectItem();
+            s.expr = it.expr;
+            s.alias = it.alias;
+            t.select.add(s);
+        }
+        if (p.hints != null || p.straightJoin != null) {
+            if (options == null) options = new Template.Options();
+            options.hints = p.hints == null ? null : new ArrayList<>(p.hints);
+            options.straightJoin = p.straightJoin;
+        } else if (options != null) {
+            options.hints = null;
+            options.straightJoin = null;
+        }
+        t.options = options;
+        node = p.input;
+        if (node instanceof PlanNode.Filter && ((PlanNode.Filter) node).input instanceof PlanNode.Aggregate) {
+            t.having = condition(((PlanNode.Filter) node).condition);
+            node = ((PlanNode.Filter) node).input;
+        }
+        if (node instanceof PlanNode.Aggregate) {
+            PlanNode.Aggregate a = (PlanNode.Aggregate) node;
+            t.groupBy = a.groupBy.isEmpty() ? null : new ArrayList<>(a.groupBy);
+            node = a.input;
+        }
+        if (node instanceof PlanNode.Filter) {
+            t.where = condition(((PlanNode.Filter) node).condition);
+            node = ((PlanNode.Filter) node).input;
+        }
+        List<Template.Join> joins = new ArrayList<>();
+        while (node instanceof PlanNode.Join) {
+            PlanNode.Join j = (PlanNode.Join) node;
+            Template.Join join = new Template.Join();
+            join.type = j.type;
+            join.table = from(j.right);
+            join.on = new ArrayList<>();
+            for (Expr.Compare c : j.on) join.on.add(on(c));
+            joins.add(join);
+            node = j.left;
+        }
+        Collections.reverse(joins);
+        t.joins = joins;
+        t.from = from(node);
+        return t;
+    }
+
+    private static PlanNode relation(Template.From f) {
+        if (f.subquery != null) return intern(new PlanNode.Derived(of(f.subquery), f.alias));
+        return intern(new PlanNode.Scan(f.catalog, f.schema, f.table, f.alias));
+    }
+
+    private static Template.From from(PlanNode node) {
+        Template.From f = new Template.From();
+        if (node instanceof PlanNode.Scan) {
+            PlanNode.Scan s = (PlanNode.Scan) node;
+            f.catalog = s.catalog;
+            f.schema = s.schema;
+            f.table = s.table;
+            f.alias = s.alias;
+        } else if (node instanceof PlanNode.Derived) {
+            PlanNode.Derived d = (PlanNode.Derived) node;
+            f.subquery = toTemplate(d.input, null);
+            f.alias = d.alias;
+        } else {
+            throw new IllegalArgumentException("not a relation: " + node);
+        }
+        return f;
+    }
+
+    private static Expr expr(Template.Condition c) {
+        if (c.leaf != null) return compare(c.leaf);
+        List<Expr> operands = new ArrayList<>();
+        if (c.conditions != null) {
+            for (Template.Condition sub : c.conditions) operands.add(expr(sub));
+        }
+        return intern(new Expr.Logical(c.op, operands));
+    }
+
+    private static Expr.Compare compare(Template.On on) {
+        Expr.Value right = on.right == null ? null : new Expr.Value(on.right.value, on.right.param);
+        return (Expr.Compare) intern(new Expr.Compare(on.left, on.operator, right));
+    }
+
+    private static Template.Condition condition(Expr e) {
+        Template.Condition c = new Template.Condition();
+        if (e instanceof Expr.Compare) {
+            c.leaf = on((Expr.Compare) e);
+        } else {
+            Expr.Logical l = (Expr.Logical) e;
+            c.op = l.op;
+            c.conditions = new ArrayList<>();
+            for (Expr sub : l.operands) c.conditions.add(condition(sub));
+        }
+        return c;
+    }
+
+    private static Template.On on(Expr.Compare c) {
+        Template.On on = new Template.On();
+        on.left = c.left;
+        on.operator = c.operator;
+        if (c.right != null) {
+            on.right = new Template.RightValue();
+            on.right.value = c.right.value;
+            on.right.param = c.right.param;
+        }
+        return on;
+    }
+
+    private static PlanNode intern(PlanNode node) {
+        return NODES.intern(node);
+    }
+
+    private static Expr intern(Expr expr) {
+        return EXPRS.intern(expr);
+    }
+}
@@ -0,0 +1,436 @@
+package com.easysql.engine.plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 不可变逻辑计划节点。
+ * <p>
+ * 节点由 {@link LogicalPlan} 构造并经哈希一致化（hash-consing），结构相同的子树共享同一实例；
+ * equals 按结构比较，哈希值首次计算后缓存，可跨线程作为缓存键使用。
+ * 一个查询自上而下为 Limit → Sort → Union → Project → Filter(HAVING) → Aggregate → Filter(WHERE) → Join/Scan，
+ * 缺省的子句不生成节点。
+ */
+public abstract class PlanNode {
+
+    private int hash;
+
+    PlanNode() {}
+
+    public abstract List<PlanNode> children();
+
+    protected abstract int computeHash();
+
+    protected abstract boolean sameAs(PlanNode other);
+
+    @Override
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = computeHash();
+            if (h == 0) h = 1;
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass() || hashCode() != o.hashCode()) return false;
+        return sameAs((PlanNode) o);
+    }
+
+    private static <T> List<T> immutable(List<T> list) {
+        return list == null || list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    /**
+     * 表扫描
+     */
+    public static final class Scan extends PlanNode {
+        public final String catalog;
+        public final String schema;
+        public final String table;
+        public final String alias;
+
+        Scan(String catalog, String schema, String table, String alias) {
+            this.catalog = catalog;
+            this.schema = schema;
+            this.table = table;
+            this.alias = alias;
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(catalog, schema, table, alias);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Scan s = (Scan) other;
+            return Objects.equals(catalog, s.catalog) && Objects.equals(schema, s.schema)
+                    && Objects.equals(table, s.table) && Objects.equals(alias, s.alias);
+        }
+
+        @Override
+        public String toString() {
+            return "Scan(" + table + (alias != null ? " " + alias : "") + ")";
+        }
+    }
+
+    /**
+     * 派生表：子查询计划 + 别名
+     */
+    public static final class Derived extends PlanNode {
+        public final PlanNode input;
+        public final String alias;
+
+        Derived(PlanNode input, String alias) {
+            this.input = input;
+            this.alias = alias;
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Collections.singletonList(input);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(input, alias);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Derived d = (Derived) other;
+            return input.equals(d.input) && Objects.equals(alias, d.alias);
+        }
+
+        @Override
+        public String toString() {
+            return "Derived(" + input + " " + alias + ")";
+        }
+    }
+
+    /**
+     * 左深连接：right 为单个关系（Scan/Derived），on 为按 AND 连接的比较条件
+     */
+    public static final class Join extends PlanNode {
+        public final String type;
+        public final PlanNode left;
+        public final PlanNode right;
+        public final List<Expr.Compare> on;
+
+        Join(String type, PlanNode left, PlanNode right, List<Expr.Compare> on) {
+            this.type = type;
+            this.left = left;
+            this.right = right;
+            this.on = immutable(on);
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Arrays.asList(left, right);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(type, left, right, on);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Join j = (Join) other;
+            return Objects.equals(type, j.type) && left.equals(j.left) && right.equals(j.right) && on.equals(j.on);
+        }
+
+        @Override
+        public String toString() {
+            return "Join(" + type + ", " + left + ", " + right + ", " + on + ")";
+        }
+    }
+
+    /**
+     * 过滤：位于 Aggregate 之下为 WHERE，之上为 HAVING
+     */
+    public static final class Filter extends PlanNode {
+        public final PlanNode input;
+        public final Expr condition;
+
+        Filter(PlanNode input, Expr condition) {
+            this.input = input;
+            this.condition = condition;
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Collections.singletonList(input);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(input, condition);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Filter f = (Filter) other;
+            return input.equals(f.input) && condition.equals(f.condition);
+        }
+
+        @Override
+        public String toString() {
+            return "Filter(" + condition + ", " + input + ")";
+        }
+    }
+
+    /**
+     * 分组：groupBy 为空表示仅有 HAVING 的整体聚合
+     */
+    public static final class Aggregate extends PlanNode {
+        public final PlanNode input;
+        public final List<String> groupBy;
+
+        Aggregate(PlanNode input, List<String> groupBy) {
+            this.input = input;
+            this.groupBy = immutable(groupBy);
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Collections.singletonList(input);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(input, groupBy);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Aggregate a = (Aggregate) other;
+            return input.equals(a.input) && groupBy.equals(a.groupBy);
+        }
+
+        @Override
+        public String toString() {
+            return "Aggregate(" + groupBy + ", " + input + ")";
+        }
+    }
+
+    /**
+     * 投影：select 列表及影响 SELECT 子句输出的 hints / STRAIGHT_JOIN 标记
+     */
+    public static final class Project extends PlanNode {
+        public final PlanNode input;
+        public final List<Item> items;
+        public final List<String> hints;
+        public final Boolean straightJoin;
+
+        Project(PlanNode input, List<Item> items, List<String> hints, Boolean straightJoin) {
+            this.input = input;
+            this.items = immutable(items);
+            this.hints = hints == null ? null : immutable(hints);
+            this.straightJoin = straightJoin;
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return input == null ? Collections.emptyList() : Collections.singletonList(input);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(input, items, hints, straightJoin);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Project p = (Project) other;
+            return Objects.equals(input, p.input) && items.equals(p.items)
+                    && Objects.equals(hints, p.hints) && Objects.equals(straightJoin, p.straightJoin);
+        }
+
+        @Override
+        public String toString() {
+            return "Project(" + items + ", " + input + ")";
+        }
+
+        public static final class Item {
+            public final String expr;
+            public final String alias;
+
+            Item(String expr, String alias) {
+                this.expr = expr;
+                this.alias = alias;
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(expr, alias);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (!(o instanceof Item)) return false;
+                Item i = (Item) o;
+                return Objects.equals(expr, i.expr) && Objects.equals(alias, i.alias);
+            }
+
+            @Override
+            public String toString() {
+                return alias != null ? expr + " AS " + alias : expr;
+            }
+        }
+    }
+
+    /**
+     * 集合并：inputs[0] 为主查询投影，all[i] 标记 inputs[i+1] 是否 UNION ALL，datasources[i] / dialects[i] 为该分支
+     * 单独指定的数据源与方言（可为空，分支并发执行时使用）；其上的 Sort/Limit 作用于整体
+     */
+    public static final class Union extends PlanNode {
+        public final List<PlanNode> inputs;
+        public final List<Boolean> all;
+        public final List<String> datasources;
+        public final List<String> dialects;
+
+        Union(List<PlanNode> inputs, List<Boolean> all, List<String> datasources, List<String> dialects) {
+            this.inputs = immutable(inputs);
+            this.all = immutable(all);
+            this.datasources = immutable(datasources);
+            this.dialects = immutable(dialects);
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return inputs;
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(inputs, all, datasources, dialects);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Union u = (Union) other;
+            return inputs.equals(u.inputs) && all.equals(u.all)
+                    && datasources.equals(u.datasources) && dialects.equals(u.dialects);
+        }
+
+        @Override
+        public String toString() {
+            return "Union(" + all + ", " + inputs + ")";
+        }
+    }
+
+    /**
+     * 排序
+     */
+    public static final class Sort extends PlanNode {
+        public final PlanNode input;
+        public final List<Key> keys;
+
+        Sort(PlanNode input, List<Key> keys) {
+            this.input = input;
+            this.keys = immutable(keys);
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Collections.singletonList(input);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(input, keys);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Sort s = (Sort) other;
+            return input.equals(s.input) && keys.equals(s.keys);
+        }
+
+        @Override
+        public String toString() {
+            return "Sort(" + keys + ", " + input + ")";
+        }
+
+        public static final class Key {
+            public final String expr;
+            public final String direction;
+            public final String nulls;
+
+            Key(String expr, String direction, String nulls) {
+                this.expr = expr;
+                this.direction = direction;
+                this.nulls = nulls;
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(expr, direction, nulls);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (!(o instanceof Key)) return false;
+                Key k = (Key) o;
+                return Objects.equals(expr, k.expr) && Objects.equals(direction, k.direction) && Objects.equals(nulls, k.nulls);
+            }
+
+            @Override
+            public String toString() {
+                return direction != null ? expr + " " + direction : expr;
+            }
+        }
+    }
+
+    /**
+     * 行数限制：limit / offset 可单独为空
+     */
+    public static final class Limit extends PlanNode {
+        public final PlanNode input;
+        public final Integer limit;
+        public final Integer offset;
+
+        Limit(PlanNode input, Integer limit, Integer offset) {
+            this.input = input;
+            this.limit = limit;
+            this.offset = offset;
+        }
+
+        @Override
+        public List<PlanNode> children() {
+            return Collections.singletonList(input);
+        }
+
+        @Override
+        protected int computeHash() {
+            return Objects.hash(input, limit, offset);
+        }
+
+        @Override
+        protected boolean sameAs(PlanNode other) {
+            Limit l = (Limit) other;
+            return input.equals(l.input) && Objects.equals(limit, l.limit) && Objects.equals(offset, l.offset);
+        }
+
+        @Override
+        public String toString() {
+            return "Limit(" + limit + ", " + offset + ", " + input + ")";
+        }
+    }
+}
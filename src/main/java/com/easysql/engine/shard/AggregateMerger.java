@@ -0,0 +1,290 @@
+package com.easysql.engine.shard;
+
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.model.Template;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * 跨分片部分聚合的客户端哈希合并，随后应用 HAVING、ORDER BY 与 OFFSET/LIMIT
+ */
+public final class AggregateMerger {
+
+    private AggregateMerger() {}
+
+    public static SQLExecutor.QueryResult merge(AggregatePlan plan, List<SQLExecutor.QueryResult> partials,
+                                                Map<String, Object> params, long executionTimeMs) {
+        int keyCount = plan.keyColumns.size();
+        int aggCount = plan.aggs.size();
+        Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+
+        for (SQLExecutor.QueryResult r : partials) {
+            List<String> cols = r.getColumnNames();
+            String[] keyCols = new String[keyCount];
+            for (int i = 0; i < keyCount; i++) keyCols[i] = column(cols, plan.keyColumns.get(i));
+            String[] partialCols = new String[aggCount];
+            String[] countCols = new String[aggCount];
+            for (int i = 0; i < aggCount; i++) {
+                AggregatePlan.Agg a = plan.aggs.get(i);
+                partialCols[i] = column(cols, a.partial);
+                if (a.partialCount != null) countCols[i] = column(cols, a.partialCount);
+            }
+            for (Map<String, Object> row : r.getRows()) {
+                List<Object> key = new ArrayList<>(keyCount);
+                for (int i = 0; i < keyCount; i++) key.add(row.get(keyCols[i]));
+                Object[] acc = groups.computeIfAbsent(key, k -> newAccumulators(plan));
+                for (int i = 0; i < aggCount; i++) {
+                    accumulate(plan.aggs.get(i), acc, i, row.get(partialCols[i]),
+                            countCols[i] == null ? null : row.get(countCols[i]));
+                }
+            }
+        }
+        // 全局聚合（无GROUP BY）在没有任何分片结果时仍应返回一行
+        if (groups.isEmpty() && keyCount == 0) {
+            groups.put(Collections.emptyList(), newAccumulators(plan));
+        }
+
+        List<String> labels = new ArrayList<>();
+        for (AggregatePlan.Output o : plan.outputs) labels.add(o.label);
+
+        List<Map<String, Object>> rows = new ArrayList<>(groups.size());
+        for (Map.Entry<List<Object>, Object[]> g : groups.entrySet()) {
+            Object[] finals = new Object[aggCount];
+            for (int i = 0; i < aggCount; i++) finals[i] = finish(plan.aggs.get(i), g.getValue(), i);
+            if (!matches(plan, plan.original.having, g.getKey(), finals, params)) continue;
+            Map<String, Object> out = new LinkedHashMap<>();
+            for (AggregatePlan.Output o : plan.outputs) {
+                out.put(o.label, o.keyIndex >= 0 ? g.getKey().get(o.keyIndex) : finals[plan.aggs.indexOf(o.agg)]);
+            }
+            // 隐藏聚合用于ORDER BY，排序后剔除
+            rows.add(withHidden(plan, out, finals));
+        }
+
+        Template t = plan.original;
+        if (t.orderBy != null && !t.orderBy.isEmpty()) {
+            rows.sort(ResultMerger.comparator(orderTemplate(plan), hiddenLabels(plan, labels)));
+        }
+        List<Map<String, Object>> page = ResultMerger.concat(Collections.singletonList(rows), t.offset, ResultMerger.rowCap(t));
+        for (Map<String, Object> row : page) {
+            row.keySet().retainAll(labels);
+        }
+        return new SQLExecutor.QueryResult(page, labels, executionTimeMs);
+    }
+
+    /**
+     * 按标签查找分片结果列（驱动可能改变别名大小写）
+     */
+    private static String column(List<String> cols, String label) {
+        for (String c : cols) {
+            if (c.equalsIgnoreCase(label)) return c;
+        }
+        throw new IllegalStateException("partial aggregate column missing from shard result: " + label);
+    }
+
+    private static Object[] newAccumulators(AggregatePlan plan) {
+        Object[] acc = new Object[plan.aggs.size() * 2];
+        for (int i = 0; i < plan.aggs.size(); i++) {
+            if (plan.aggs.get(i).func == AggregatePlan.Func.COUNT_DISTINCT) acc[2 * i] = new HashSet<>();
+        }
+        return acc;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void accumulate(AggregatePlan.Agg a, Object[] acc, int i, Object value, Object count) {
+        switch (a.func) {
+            case COUNT:
+            case SUM:
+                acc[2 * i] = add(acc[2 * i], value);
+                break;
+            case MIN:
+                if (value != null && (acc[2 * i] == null || ResultMerger.compareValues(value, acc[2 * i]) < 0)) acc[2 * i] = value;
+                break;
+            case MAX:
+                if (value != null && (acc[2 * i] == null || ResultMerger.compareValues(value, acc[2 * i]) > 0)) acc[2 * i] = value;
+                break;
+            case AVG:
+                acc[2 * i] = add(acc[2 * i], value);
+                acc[2 * i + 1] = add(acc[2 * i + 1], count);
+                break;
+            case COUNT_DISTINCT:
+                if (value != null) ((Set<Object>) acc[2 * i]).add(value);
+                break;
+        }
+    }
+
+    private static Object finish(AggregatePlan.Agg a, Object[] acc, int i) {
+        switch (a.func) {
+            case COUNT:
+                return acc[2 * i] == null ? 0L : ((Number) acc[2 * i]).longValue();
+            case AVG:
+                Object sum = acc[2 * i];
+                Object cnt = acc[2 * i + 1];
+                if (sum == null || cnt == null || ((Number) cnt).longValue() == 0) return null;
+                if (sum instanceof Double || sum instanceof Float) {
+                    return ((Number) sum).doubleValue() / ((Number) cnt).longValue();
+                }
+                // 与MySQL一致：精确类型的AVG结果为DECIMAL，小数位在原有基础上+4
+                BigDecimal s = toDecimal(sum);
+                return s.divide(BigDecimal.valueOf(((Number) cnt).longValue()), s.scale() + 4, RoundingMode.HALF_UP);
+            case COUNT_DISTINCT:
+                return (long) ((Set<?>) acc[2 * i]).size();
+            default:
+                return acc[2 * i];
+        }
+    }
+
+    /**
+     * 数值累加：保留整数/DECIMAL/浮点语义，NULL 不参与
+     */
+    static Object add(Object a, Object b) {
+        if (b == null) return a;
+        if (a == null) return b;
+        Number x = (Number) a;
+        Number y = (Number) b;
+        if (x instanceof Double || x instanceof Float || y instanceof Double || y instanceof Float) {
+            return x.doubleValue() + y.doubleValue();
+        }
+        if (x instanceof BigDecimal || y instanceof BigDecimal || x instanceof BigInteger || y instanceof BigInteger) {
+            return toDecimal(x).add(toDecimal(y));
+        }
+        return x.longValue() + y.longValue();
+    }
+
+    private static BigDecimal toDecimal(Object n) {
+        return n instanceof BigDecimal ? (BigDecimal) n : new BigDecimal(n.toString());
+    }
+
+    private static boolean matches(AggregatePlan plan, Template.Condition c, List<Object> key, Object[] finals, Map<String, Object> params) {
+        if (c == null) return true;
+        if (c.leaf != null) {
+            Object left = havingValue(plan, c.leaf.left, key, finals);
+            return compare(left, c.leaf, params);
+        }
+        if (c.conditions == null || c.conditions.isEmpty()) return true;
+        String op = c.op == null ? "AND" : c.op.toUpperCase();
+        switch (op) {
+            case "OR":
+                for (Template.Condition sub : c.conditions) {
+                    if (matches(plan, sub, key, finals, params)) return true;
+                }
+                return false;
+            case "NOT":
+                return !matches(plan, c.conditions.get(0), key, finals, params);
+            default:
+                for (Template.Condition sub : c.conditions) {
+                    if (!matches(plan, sub, key, finals, params)) return false;
+                }
+                return true;
+        }
+    }
+
+    private static Object havingValue(AggregatePlan plan, String expr, List<Object> key, Object[] finals) {
+        AggregatePlan.Output o = plan.resolveOutput(expr);
+        if (o != null) return o.keyIndex >= 0 ? key.get(o.keyIndex) : finals[plan.aggs.indexOf(o.agg)];
+        AggregatePlan.Agg a = plan.findAgg(expr);
+        if (a != null) return finals[plan.aggs.indexOf(a)];
+        String norm = AggregatePlan.normalize(expr);
+        for (int i = 0; i < plan.keyExprs.size(); i++) {
+            if (AggregatePlan.normalize(plan.keyExprs.get(i)).equals(norm)) return key.get(i);
+        }
+        throw new IllegalArgumentException("HAVING references a column that is neither grouped nor aggregated: " + expr);
+    }
+
+    private static boolean compare(Object left, Template.On leaf, Map<String, Object> params) {
+        String op = leaf.operator == null ? "=" : leaf.operator.trim().toUpperCase();
+        Object right = rightValue(leaf.right, params);
+        if ("IN".equals(op) || "NOT IN".equals(op)) {
+            boolean found = false;
+            if (left != null) {
+                for (Object v : inValues(right)) {
+                    if (v != null && ResultMerger.compareValues(coerce(left), coerce(v)) == 0) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            return "IN".equals(op) == found && left != null;
+        }
+        // SQL三值逻辑：与NULL比较不成立
+        if (left == null || right == null) return false;
+        int r = ResultMerger.compareValues(coerce(left), coerce(right));
+        switch (op) {
+            case "=": return r == 0;
+            case "!=":
+            case "<>": return r != 0;
+            case ">": return r > 0;
+            case ">=": return r >= 0;
+            case "<": return r < 0;
+            case "<=": return r <= 0;
+            default:
+                throw new IllegalArgumentException("unsupported HAVING operator for cross-shard aggregation: " + leaf.operator);
+        }
+    }
+
+    private static Object rightValue(Template.RightValue rv, Map<String, Object> params) {
+        if (rv == null) return null;
+        if (rv.param != null) return params == null ? null : params.get(rv.param);
+        if (rv.value == null || rv.value.trim().equalsIgnoreCase("null")) return null;
+        return rv.value.trim();
+    }
+
+    private static Collection<?> inValues(Object right) {
+        if (right instanceof Collection) return (Collection<?>) right;
+        if (right == null) return Collections.emptyList();
+        String s = right.toString().trim();
+        if (s.startsWith("(") && s.endsWith(")")) s = s.substring(1, s.length() - 1);
+        List<Object> out = new ArrayList<>();
+        for (String part : s.split(",")) out.add(part.trim());
+        return out;
+    }
+
+    /**
+     * 字面量字符串：数字转为BigDecimal，引号字符串去引号，以便与聚合值比较
+     */
+    private static Object coerce(Object v) {
+        if (!(v instanceof String)) return v;
+        String s = ((String) v).trim();
+        if (s.matches("^-?\\d+(\\.\\d+)?$")) return new BigDecimal(s);
+        if (s.length() >= 2 && s.startsWith("'") && s.endsWith("'")) return s.substring(1, s.length() - 1).replace("''", "'");
+        return s;
+    }
+
+    private static Map<String, Object> withHidden(AggregatePlan plan, Map<String, Object> out, Object[] finals) {
+        for (int i = 0; i < plan.aggs.size(); i++) {
+            out.putIfAbsent(hiddenLabel(plan.aggs.get(i)), finals[i]);
+        }
+        return out;
+    }
+
+    private static String hiddenLabel(AggregatePlan.Agg a) {
+        return a.partial;
+    }
+
+    private static List<String> hiddenLabels(AggregatePlan plan, List<String> labels) {
+        List<String> all = new ArrayList<>(labels);
+        for (AggregatePlan.Agg a : plan.aggs) all.add(hiddenLabel(a));
+        return all;
+    }
+
+    /**
+     * ORDER BY 中未选择的聚合映射到隐藏列
+     */
+    private static Template orderTemplate(AggregatePlan plan) {
+        Template t = plan.original.shallowCopy();
+        List<Template.OrderBy> order = new ArrayList<>();
+        for (Template.OrderBy o : plan.original.orderBy) {
+            Template.OrderBy c = new Template.OrderBy();
+            c.direction = o.direction;
+            c.nulls = o.nulls;
+            AggregatePlan.Output out = plan.resolveOutput(o.expr);
+            AggregatePlan.Agg a = out == null ? plan.findAgg(o.expr) : null;
+            c.expr = out != null ? out.label : a != null ? hiddenLabel(a) : o.expr;
+            order.add(c);
+        }
+        t.orderBy = order;
+        return t;
+    }
+}
@@ -0,0 +1,260 @@
+package com.easysql.engine.shard;
+
+import com.easysql.engine.model.Template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 跨分片聚合改写：把 GROUP BY/聚合查询改写为各分片可合并的部分聚合。
+ * <ul>
+ *   <li>COUNT/SUM → 分片内同名聚合，合并时求和</li>
+ *   <li>MIN/MAX → 分片内同名聚合，合并时取极值</li>
+ *   <li>AVG(x) → SUM(x) + COUNT(x)，合并后相除</li>
+ *   <li>COUNT(DISTINCT x) → x 追加到分片GROUP BY，客户端按组维护去重集合</li>
+ * </ul>
+ * HAVING、ORDER BY、LIMIT/OFFSET 不下推，在客户端哈希聚合之后应用。
+ */
+public class AggregatePlan {
+
+    private static final Pattern AGG = Pattern.compile(
+            "^\\s*(COUNT|SUM|MIN|MAX|AVG)\\s*\\(\\s*(DISTINCT\\s+)?(.+?)\\s*\\)\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTAINS_AGG = Pattern.compile("\\b(COUNT|SUM|MIN|MAX|AVG)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    static final String KEY_PREFIX = "__k";
+    static final String AGG_PREFIX = "__a";
+
+    enum Func { COUNT, SUM, MIN, MAX, AVG, COUNT_DISTINCT }
+
+    /**
+     * 一个需要合并的聚合；AVG 占用两个分片列（和、计数），其余占用一个
+     */
+    static final class Agg {
+        final Func func;
+        final String expr; // 原始聚合表达式（用于HAVING/ORDER BY匹配）
+        final String arg;
+        final String partial;  // 分片输出列：COUNT/SUM/MIN/MAX/AVG的和，或COUNT DISTINCT的取值
+        String partialCount;   // AVG 的计数列
+
+        Agg(Func func, String expr, String arg, String partial) {
+            this.func = func;
+            this.expr = expr;
+            this.arg = arg;
+            this.partial = partial;
+        }
+    }
+
+    /**
+     * 最终输出列：分组键或聚合
+     */
+    static final class Output {
+        final String label;
+        final int keyIndex; // >=0 表示分组键
+        final Agg agg;
+
+        Output(String label, int keyIndex, Agg agg) {
+            this.label = label;
+            this.keyIndex = keyIndex;
+            this.agg = agg;
+        }
+    }
+
+    final Template original;
+    final Template shardTemplate;
+    final List<String> keyColumns = new ArrayList<>();
+    final List<String> keyExprs = new ArrayList<>();
+    final List<Agg> aggs = new ArrayList<>();
+    final List<Output> outputs = new ArrayList<>();
+
+    private AggregatePlan(Template original) {
+        this.original = original;
+        this.shardTemplate = original.shallowCopy();
+    }
+
+    /**
+     * 判断模板是否需要聚合合并
+     */
+    public static boolean needsAggregation(Template t) {
+        if (t.groupBy != null && !t.groupBy.isEmpty()) return true;
+        if (t.select != null) {
+            for (Template.SelectItem s : t.select) {
+                if (s.expr != null && CONTAINS_AGG.matcher(s.expr).find()) return true;
+            }
+        }
+        return false;
+    }
+
+    public static AggregatePlan build(Template t) {
+        AggregatePlan plan = new AggregatePlan(t);
+        plan.rewrite();
+        return plan;
+    }
+
+    private void rewrite() {
+        List<Template.SelectItem> shardSelect = new ArrayList<>();
+        List<String> shardGroupBy = new ArrayList<>();
+        // 分组键：GROUP BY 中引用别名时替换为对应表达式
+        if (original.groupBy != null) {
+            for (String g : original.groupBy) {
+                String expr = g;
+                for (Template.SelectItem s : original.select) {
+                    if (s.alias != null && s.alias.equalsIgnoreCase(g.trim())) {
+                        expr = s.expr;
+                        break;
+                    }
+                }
+                String col = KEY_PREFIX + keyExprs.size();
+                keyExprs.add(expr);
+                keyColumns.add(col);
+                shardSelect.add(item(expr, col));
+                shardGroupBy.add(expr);
+            }
+        }
+        for (Template.SelectItem s : original.select) {
+            String label = s.alias != null && !s.alias.isEmpty() ? s.alias : defaultLabel(s.expr);
+            Agg agg = parseAgg(s.expr);
+            if (agg != null) {
+                outputs.add(new Output(label, -1, agg));
+                continue;
+            }
+            int key = keyIndexOf(s.expr, s.alias);
+            if (key < 0) {
+                throw new IllegalArgumentException("select item must be an aggregate or a GROUP BY key for cross-shard aggregation: " + s.expr);
+            }
+            outputs.add(new Output(label, key, null));
+        }
+        // HAVING/ORDER BY 中出现但未被选择的聚合作为隐藏列计算
+        collectHavingAggs(original.having);
+        if (original.orderBy != null) {
+            for (Template.OrderBy o : original.orderBy) {
+                if (findAgg(o.expr) == null) parseAgg(o.expr);
+            }
+        }
+        for (Agg a : aggs) {
+            switch (a.func) {
+                case COUNT_DISTINCT:
+                    shardSelect.add(item(a.arg, a.partial));
+                    shardGroupBy.add(a.arg);
+                    break;
+                case AVG:
+                    shardSelect.add(item("SUM(" + a.arg + ")", a.partial));
+                    shardSelect.add(item("COUNT(" + a.arg + ")", a.partialCount));
+                    break;
+                default:
+                    shardSelect.add(item(a.func.name() + "(" + a.arg + ")", a.partial));
+            }
+        }
+        shardTemplate.select = shardSelect;
+        shardTemplate.groupBy = shardGroupBy.isEmpty() ? null : shardGroupBy;
+        shardTemplate.having = null;
+        shardTemplate.orderBy = null;
+        shardTemplate.limit = null;
+        shardTemplate.offset = null;
+    }
+
+    private void collectHavingAggs(Template.Condition c) {
+        if (c == null) return;
+        if (c.leaf != null) {
+            String left = c.leaf.left;
+            if (left != null && resolveOutput(left) == null && findAgg(left) == null) parseAgg(left);
+            return;
+        }
+        if (c.conditions != null) {
+            for (Template.Condition sub : c.conditions) collectHavingAggs(sub);
+        }
+    }
+
+    /**
+     * 解析聚合表达式并登记；非聚合返回null，复杂聚合表达式（如 SUM(a)/COUNT(*)）不支持
+     */
+    private Agg parseAgg(String expr) {
+        if (expr == null) return null;
+        Agg existing = findAgg(expr);
+        if (existing != null) return existing;
+        Matcher m = AGG.matcher(expr);
+        if (!m.matches() || !balanced(m.group(3))) {
+            if (CONTAINS_AGG.matcher(expr).find()) {
+                throw new IllegalArgumentException("unsupported aggregate expression for cross-shard aggregation: " + expr);
+            }
+            return null;
+        }
+        Func func = Func.valueOf(m.group(1).toUpperCase(Locale.ROOT));
+        String arg = m.group(3);
+        if (m.group(2) != null) {
+            if (func != Func.COUNT) {
+                throw new IllegalArgumentException("only COUNT(DISTINCT ...) is supported across shards: " + expr);
+            }
+            if (arg.contains(",")) {
+                throw new IllegalArgumentException("COUNT(DISTINCT) over multiple columns is not supported across shards: " + expr);
+            }
+            func = Func.COUNT_DISTINCT;
+        }
+        Agg a = new Agg(func, expr, arg, AGG_PREFIX + aggs.size());
+        if (func == Func.AVG) a.partialCount = AGG_PREFIX + aggs.size() + "_cnt";
+        aggs.add(a);
+        return a;
+    }
+
+    Agg findAgg(String expr) {
+        String norm = normalize(expr);
+        for (Agg a : aggs) {
+            if (normalize(a.expr).equals(norm)) return a;
+        }
+        return null;
+    }
+
+    /**
+     * 在最终输出列中查找：按别名或原表达式匹配
+     */
+    Output resolveOutput(String expr) {
+        String norm = normalize(expr);
+        for (Output o : outputs) {
+            if (o.label.equalsIgnoreCase(expr.trim())) return o;
+        }
+        for (int i = 0; i < original.select.size(); i++) {
+            if (normalize(original.select.get(i).expr).equals(norm)) return outputs.get(i);
+        }
+        return null;
+    }
+
+    private int keyIndexOf(String expr, String alias) {
+        String norm = normalize(expr);
+        for (int i = 0; i < keyExprs.size(); i++) {
+            String g = original.groupBy.get(i).trim();
+            if (normalize(keyExprs.get(i)).equals(norm) || (alias != null && alias.equalsIgnoreCase(g))) return i;
+        }
+        return -1;
+    }
+
+    private static Template.SelectItem item(String expr, String alias) {
+        Template.SelectItem s = new Template.SelectItem();
+        s.expr = expr;
+        s.alias = alias;
+        return s;
+    }
+
+    /**
+     * 无别名输出列：简单列引用取去前缀列名，其余取原表达式
+     */
+    static String defaultLabel(String expr) {
+        String e = expr.trim();
+        return e.matches("^[`\\w$.]+$") ? ShardPruner.bareName(e) : e;
+    }
+
+    static String normalize(String expr) {
+        return expr == null ? "" : expr.replaceAll("\\s+", "").replace("`", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean balanced(String s) {
+        int depth = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '(') depth++;
+            else if (ch == ')' && --depth < 0) return false;
+        }
+        return depth == 0;
+    }
+}
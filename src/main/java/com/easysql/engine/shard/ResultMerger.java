@@ -0,0 +1,176 @@
+package com.easysql.engine.shard;
+
+import com.easysql.engine.model.Template;
+
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.util.*;
+
+/**
+ * 多路结果合并：按ORDER BY键做流式k路归并，或直接拼接，并在全局范围应用OFFSET/LIMIT。
+ * 字符串按排序规则比较，须与各库排序时使用的列排序规则一致，默认忽略大小写与重音（对应 MySQL 的 *_ai_ci）
+ */
+public final class ResultMerger {
+
+    // Collator 非线程安全，按线程持有
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(ResultMerger::defaultCollator);
+
+    private ResultMerger() {}
+
+    /**
+     * 默认排序规则：忽略大小写与重音
+     */
+    public static Collator defaultCollator() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+
+    /**
+     * 按模板ORDER BY构建行比较器，字符串按默认排序规则比较
+     */
+    public static Comparator<Map<String, Object>> comparator(Template t, List<String> columns) {
+        return comparator(t, columns, defaultCollator());
+    }
+
+    /**
+     * 按模板ORDER BY构建行比较器；排序键须出现在结果列中（按别名、原表达式或去前缀列名匹配）
+     *
+     * @param collator 字符串排序规则，null 时按二进制比较（对应 *_bin 排序规则）；比较器只应在单个线程内使用
+     */
+    public static Comparator<Map<String, Object>> comparator(Template t, List<String> columns, Collator collator) {
+        Collator own = collator == null ? null : (Collator) collator.clone();
+        Comparator<Map<String, Object>> cmp = null;
+        for (Template.OrderBy o : t.orderBy) {
+            String col = resolveColumn(t, o.expr, columns);
+            boolean desc = "DESC".equalsIgnoreCase(o.direction == null ? null : o.direction.trim());
+            // MySQL 默认：ASC 时 NULL 在前，DESC 时 NULL 在后
+            boolean nullsFirst = o.nulls == null ? !desc : "FIRST".equalsIgnoreCase(o.nulls.trim());
+            Comparator<Map<String, Object>> key = (a, b) -> {
+                Object va = a.get(col);
+                Object vb = b.get(col);
+                if (va == null || vb == null) {
+                    if (va == vb) return 0;
+                    return (va == null) == nullsFirst ? -1 : 1;
+                }
+                int r = compareValues(va, vb, own);
+                return desc ? -r : r;
+            };
+            cmp = cmp == null ? key : cmp.thenComparing(key);
+        }
+        return cmp;
+    }
+
+    static String resolveColumn(Template t, String expr, List<String> columns) {
+        for (String c : columns) {
+            if (c.equalsIgnoreCase(expr.trim())) return c;
+        }
+        String target = ShardPruner.bareName(expr);
+        if (t.select != null) {
+            for (Template.SelectItem s : t.select) {
+                if (s.alias == null || s.alias.isEmpty()) continue;
+                if (s.alias.equalsIgnoreCase(target) || expr.trim().equalsIgnoreCase(s.expr == null ? null : s.expr.trim())) {
+                    target = s.alias;
+                    break;
+                }
+            }
+        }
+        for (String c : columns) {
+            if (c.equalsIgnoreCase(target)) return c;
+        }
+        throw new IllegalArgumentException("ORDER BY key must be in the select list for merged results: " + expr);
+    }
+
+    static int compareValues(Object a, Object b) {
+        return compareValues(a, b, COLLATOR.get());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compareValues(Object a, Object b, Collator collator) {
+        if (collator != null && a instanceof String && b instanceof String) {
+            return collator.compare(a, b);
+        }
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        }
+        if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    /**
+     * 流式k路归并：各输入须已按比较器有序；仅推进到 offset+limit 行为止
+     */
+    public static List<Map<String, Object>> mergeSorted(List<? extends Iterable<Map<String, Object>>> inputs,
+                                                        Comparator<Map<String, Object>> cmp,
+                                                        Integer offset, Integer limit) {
+        int skip = offset == null ? 0 : offset;
+        long end = limit == null ? Long.MAX_VALUE : (long) skip + limit;
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, inputs.size()), (x, y) -> {
+            int r = cmp.compare(x.head, y.head);
+            // 相等时按输入顺序，保证结果稳定
+            return r != 0 ? r : Integer.compare(x.index, y.index);
+        });
+        for (int i = 0; i < inputs.size(); i++) {
+            Iterator<Map<String, Object>> it = inputs.get(i).iterator();
+            if (it.hasNext()) heap.add(new Cursor(i, it));
+        }
+        List<Map<String, Object>> out = new ArrayList<>();
+        long pos = 0;
+        while (!heap.isEmpty() && pos < end) {
+            Cursor c = heap.poll();
+            if (pos >= skip) out.add(c.head);
+            pos++;
+            if (c.advance()) heap.add(c);
+        }
+        return out;
+    }
+
+    /**
+     * 全局返回行数上限：LIMIT 与 options.maxRows 取小，均未设置时为null
+     */
+    public static Integer rowCap(Template t) {
+        Integer cap = t.limit;
+        if (t.options != null && t.options.maxRows != null && t.options.maxRows > 0) {
+            cap = cap == null ? t.options.maxRows : Math.min(cap, t.options.maxRows);
+        }
+        return cap;
+    }
+
+    /**
+     * 无序拼接，按输入顺序应用 offset/limit
+     */
+    public static List<Map<String, Object>> concat(List<? extends Iterable<Map<String, Object>>> inputs, Integer offset, Integer limit) {
+        int skip = offset == null ? 0 : offset;
+        long end = limit == null ? Long.MAX_VALUE : (long) skip + limit;
+        List<Map<String, Object>> out = new ArrayList<>();
+        long pos = 0;
+        for (Iterable<Map<String, Object>> in : inputs) {
+            for (Map<String, Object> row : in) {
+                if (pos >= end) return out;
+                if (pos >= skip) out.add(row);
+                pos++;
+            }
+        }
+        return out;
+    }
+
+    private static final class Cursor {
+        final int index;
+        final Iterator<Map<String, Object>> it;
+        Map<String, Object> head;
+
+        Cursor(int index, Iterator<Map<String, Object>> it) {
+            this.index = index;
+            this.it = it;
+            this.head = it.next();
+        }
+
+        boolean advance() {
+            if (!it.hasNext()) return false;
+            head = it.next();
+            return true;
+        }
+    }
+}
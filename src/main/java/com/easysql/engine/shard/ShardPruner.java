@@ -0,0 +1,154 @@
+package com.easysql.engine.shard;
+
+import com.easysql.engine.model.Template;
+
+import java.util.*;
+
+/**
+ * 分片裁剪：根据WHERE中分片键的等值/IN谓词计算需要访问的分片集合
+ */
+public final class ShardPruner {
+
+    private ShardPruner() {}
+
+    /**
+     * 按模板裁剪：分片表为FROM关系，带限定名的列须以其别名或表名限定；有JOIN时不使用无限定名的列
+     * @return 需要访问的分片下标（升序）；无法裁剪时返回全部分片
+     */
+    public static List<Integer> prune(ShardedDataSource ds, Template t, Map<String, Object> params) {
+        Set<String> qualifiers = new HashSet<>();
+        if (t.from != null) {
+            if (t.from.alias != null) qualifiers.add(bareName(t.from.alias).toLowerCase());
+            if (t.from.table != null) qualifiers.add(bareName(t.from.table).toLowerCase());
+        }
+        return prune(ds, t.where, params, new Relation(qualifiers, t.joins != null && !t.joins.isEmpty()));
+    }
+
+    /**
+     * 单表查询的裁剪：列的限定名不做校验
+     * @return 需要访问的分片下标（升序）；无法裁剪时返回全部分片
+     */
+    public static List<Integer> prune(ShardedDataSource ds, Template.Condition where, Map<String, Object> params) {
+        return prune(ds, where, params, new Relation(null, false));
+    }
+
+    private static List<Integer> prune(ShardedDataSource ds, Template.Condition where, Map<String, Object> params, Relation rel) {
+        Set<Integer> shards = ds.getShardKey() == null ? null : shardsOf(ds, rel, where, params);
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < ds.getShardCount(); i++) {
+            if (shards == null || shards.contains(i)) out.add(i);
+        }
+        return out;
+    }
+
+    /**
+     * @return 命中的分片集合；null 表示该条件无法约束分片
+     */
+    private static Set<Integer> shardsOf(ShardedDataSource ds, Relation rel, Template.Condition c, Map<String, Object> params) {
+        if (c == null) return null;
+        if (c.leaf != null) return leafShards(ds, rel, c.leaf, params);
+        if (c.conditions == null || c.conditions.isEmpty()) return null;
+        String op = c.op == null ? "AND" : c.op.toUpperCase();
+        if ("AND".equals(op)) {
+            Set<Integer> acc = null;
+            for (Template.Condition sub : c.conditions) {
+                Set<Integer> s = shardsOf(ds, rel, sub, params);
+                if (s == null) continue;
+                if (acc == null) {
+                    acc = new TreeSet<>(s);
+                } else {
+                    acc.retainAll(s);
+                }
+            }
+            return acc;
+        }
+        if ("OR".equals(op)) {
+            Set<Integer> acc = new TreeSet<>();
+            for (Template.Condition sub : c.conditions) {
+                Set<Integer> s = shardsOf(ds, rel, sub, params);
+                if (s == null) return null;
+                acc.addAll(s);
+            }
+            return acc;
+        }
+        // NOT 等其他组合无法安全裁剪
+        return null;
+    }
+
+    private static Set<Integer> leafShards(ShardedDataSource ds, Relation rel, Template.On leaf, Map<String, Object> params) {
+        if (leaf.left == null || leaf.operator == null || !isShardKey(ds.getShardKey(), leaf.left, rel)) return null;
+        String op = leaf.operator.trim().toUpperCase();
+        if (!"=".equals(op) && !"IN".equals(op)) return null;
+        Collection<?> values = values(leaf.right, params, "IN".equals(op));
+        if (values == null) return null;
+        Set<Integer> out = new TreeSet<>();
+        for (Object v : values) {
+            if (v == null) continue;
+            out.add(ds.getStrategy().shardOf(v, ds.getShardCount()));
+        }
+        return out;
+    }
+
+    private static Collection<?> values(Template.RightValue rv, Map<String, Object> params, boolean in) {
+        if (rv == null) return null;
+        if (rv.param != null) {
+            if (params == null || !params.containsKey(rv.param)) return null;
+            Object v = params.get(rv.param);
+            if (v instanceof Collection) return (Collection<?>) v;
+            if (v instanceof Object[]) return Arrays.asList((Object[]) v);
+            return Collections.singletonList(v);
+        }
+        if (rv.value == null) return null;
+        String literal = rv.value.trim();
+        if (!in) {
+            // 列引用、表达式无法在客户端求值
+            if (literal.contains("(") || literal.matches("^[a-zA-Z_][\\w$]*(\\.[a-zA-Z_][\\w$]*)+$")) return null;
+            return Collections.singletonList(unquote(literal));
+        }
+        if (literal.startsWith("(") && literal.endsWith(")")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        List<Object> out = new ArrayList<>();
+        for (String part : literal.split(",")) {
+            out.add(unquote(part.trim()));
+        }
+        return out;
+    }
+
+    private static String unquote(String s) {
+        if (s.length() >= 2 && s.startsWith("'") && s.endsWith("'")) {
+            return s.substring(1, s.length() - 1).replace("''", "'");
+        }
+        return s;
+    }
+
+    /**
+     * 列名匹配：忽略反引号，大小写不敏感；限定名须指向分片表，无限定名时仅在无JOIN时匹配
+     */
+    private static boolean isShardKey(String shardKey, String column, Relation rel) {
+        if (!bareName(shardKey).equalsIgnoreCase(bareName(column))) return false;
+        String c = column.trim().replace("`", "").replace("\"", "");
+        int dot = c.lastIndexOf('.');
+        if (dot < 0) return !rel.joined;
+        return rel.qualifiers == null || rel.qualifiers.contains(bareName(c.substring(0, dot)).toLowerCase());
+    }
+
+    /**
+     * 分片表在查询中的可用限定名（别名、表名；null 表示不校验）及查询是否含JOIN
+     */
+    private static final class Relation {
+        final Set<String> qualifiers;
+        final boolean joined;
+
+        Relation(Set<String> qualifiers, boolean joined) {
+            this.qualifiers = qualifiers;
+            this.joined = joined;
+        }
+    }
+
+    static String bareName(String column) {
+        String c = column.trim().replace("`", "").replace("\"", "");
+        int dot = c.lastIndexOf('.');
+        return dot >= 0 ? c.substring(dot + 1) : c;
+    }
+}
@@ -0,0 +1,28 @@
+package com.easysql.engine.shard;
+
+import java.math.BigInteger;
+
+/**
+ * 分片策略：根据分片键取值计算分片下标
+ */
+@FunctionalInterface
+public interface ShardStrategy {
+
+    int shardOf(Object keyValue, int shardCount);
+
+    /**
+     * 默认取模策略：整数键按数值取模，其他类型按字符串hash取模
+     */
+    static ShardStrategy modulo() {
+        return (v, n) -> {
+            if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte || v instanceof BigInteger) {
+                return (int) Math.floorMod(((Number) v).longValue(), (long) n);
+            }
+            String s = v.toString().trim();
+            if (s.matches("^-?\\d{1,18}$")) {
+                return (int) Math.floorMod(Long.parseLong(s), (long) n);
+            }
+            return Math.floorMod(s.hashCode(), n);
+        };
+    }
+}
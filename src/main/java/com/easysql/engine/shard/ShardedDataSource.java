@@ -0,0 +1,55 @@
+package com.easysql.engine.shard;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分片数据源：一个逻辑数据源名对应多个物理分片，按分片键路由
+ */
+public class ShardedDataSource {
+
+    private final String name;
+    private final String shardKey;
+    private final ShardStrategy strategy;
+    private final List<DataSource> shards;
+
+    public ShardedDataSource(String name, String shardKey, ShardStrategy strategy, DataSource... shards) {
+        this(name, shardKey, strategy, Arrays.asList(shards));
+    }
+
+    public ShardedDataSource(String name, String shardKey, ShardStrategy strategy, List<DataSource> shards) {
+        if (name == null || shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("sharded datasource requires a name and at least one shard");
+        }
+        this.name = name;
+        this.shardKey = shardKey;
+        this.strategy = strategy == null ? ShardStrategy.modulo() : strategy;
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 分片键列名（可为null，表示不做裁剪，始终全分片扇出）
+     */
+    public String getShardKey() {
+        return shardKey;
+    }
+
+    public ShardStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public DataSource getShard(int index) {
+        return shards.get(index);
+    }
+}
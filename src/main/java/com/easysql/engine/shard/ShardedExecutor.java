@@ -0,0 +1,202 @@
+package com.easysql.engine.shard;
+
+import com.easysql.engine.executor.JDBCSQLExecutor;
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.optimizer.ConstantFolder;
+
+import java.sql.Connection;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 分片扇出执行器：同一模板并发地在全部或裁剪后的分片上执行，再合并结果。
+ * <p>
+ * LIMIT/OFFSET 下推为各分片 LIMIT limit+offset（不带OFFSET），
+ * 有ORDER BY时按排序键做k路归并，否则按分片顺序拼接，最后在全局应用OFFSET/LIMIT。
+ * options.maxRows 与 LIMIT 一样在合并后全局应用，分片语句不设 maxRows（各分片截断会丢失 OFFSET 之后或部分聚合所需的行）。
+ * GROUP BY/聚合查询按 {@link AggregatePlan} 改写为部分聚合，由 {@link AggregateMerger} 合并。
+ */
+public class ShardedExecutor {
+
+    private final JDBCSQLExecutor executor;
+    private final ThreadPoolExecutor pool;
+    private volatile Collator collator = ResultMerger.defaultCollator();
+
+    public ShardedExecutor(JDBCSQLExecutor executor, int parallelism) {
+        this.executor = executor;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "easysql-shard-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    public Collator getCollator() { return collator; }
+
+    /**
+     * 归并ORDER BY字符串键时的排序规则，须与分片库的列排序规则一致；null 表示二进制比较
+     */
+    public void setCollator(Collator collator) {
+        this.collator = collator;
+    }
+
+    /**
+     * @param sqlBuilder 将（已下推的）模板渲染为SQL
+     */
+    public SQLExecutor.QueryResult executeQuery(ShardedDataSource ds, Template t, Map<String, Object> params,
+                                                Function<Template, String> sqlBuilder) {
+        long start = System.currentTimeMillis();
+        List<Integer> targets = ShardPruner.prune(ds, t, params);
+        // GROUP BY/聚合查询改写为可合并的部分聚合，否则下推LIMIT
+        AggregatePlan aggPlan = AggregatePlan.needsAggregation(t) ? AggregatePlan.build(t) : null;
+        Template shardTemplate = withoutMaxRows(aggPlan != null ? aggPlan.shardTemplate : pushDownLimit(t));
+        String sql = sqlBuilder.apply(shardTemplate);
+
+        List<Future<SQLExecutor.QueryResult>> futures = new ArrayList<>(targets.size());
+        for (int shard : targets) {
+            futures.add(pool.submit(() -> {
+                try (Connection conn = ds.getShard(shard).getConnection()) {
+                    return executor.executeQuery(conn, sql, shardTemplate, params);
+                }
+            }));
+        }
+        List<String> labels = new ArrayList<>(targets.size());
+        for (int shard : targets) labels.add(ds.getName() + "#" + shard);
+        List<SQLExecutor.QueryResult> results = collect("Shard query", labels, futures, t);
+        if (aggPlan != null) {
+            return AggregateMerger.merge(aggPlan, results, params, System.currentTimeMillis() - start);
+        }
+
+        List<String> columns = results.isEmpty() ? prunedColumns(t) : results.get(0).getColumnNames();
+        List<List<Map<String, Object>>> inputs = new ArrayList<>(results.size());
+        for (SQLExecutor.QueryResult r : results) {
+            inputs.add(r.getRows());
+        }
+        Integer cap = ResultMerger.rowCap(t);
+        List<Map<String, Object>> rows;
+        if (t.orderBy != null && !t.orderBy.isEmpty() && !results.isEmpty()) {
+            Comparator<Map<String, Object>> cmp = ResultMerger.comparator(t, columns, collator);
+            rows = ResultMerger.mergeSorted(inputs, cmp, t.offset, cap);
+        } else {
+            rows = ResultMerger.concat(inputs, t.offset, cap);
+        }
+        return new SQLExecutor.QueryResult(rows, columns, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * UNION ALL 分支并发执行：每个任务在自己的连接上执行一个分支，各分支结果列按位置对齐到首个分支的列名。
+     * 有ORDER BY时各分支须已按排序键有序，做k路归并，否则按分支顺序拼接；最后在全局应用OFFSET/LIMIT（及 options.maxRows）
+     *
+     * @param labels 分支标识，用于错误信息
+     */
+    public SQLExecutor.QueryResult executeBranches(Template t, List<String> labels,
+                                                   List<Callable<SQLExecutor.QueryResult>> branches) {
+        long start = System.currentTimeMillis();
+        List<Future<SQLExecutor.QueryResult>> futures = new ArrayList<>(branches.size());
+        for (Callable<SQLExecutor.QueryResult> branch : branches) {
+            futures.add(pool.submit(branch));
+        }
+        List<SQLExecutor.QueryResult> results = collect("Union branch", labels, futures, t);
+        List<String> columns = results.isEmpty() ? new ArrayList<>() : results.get(0).getColumnNames();
+        List<List<Map<String, Object>>> inputs = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            inputs.add(alignColumns(results.get(i), columns, labels.get(i)));
+        }
+        Integer limit = ResultMerger.rowCap(t);
+        List<Map<String, Object>> rows;
+        if (t.orderBy != null && !t.orderBy.isEmpty()) {
+            rows = ResultMerger.mergeSorted(inputs, ResultMerger.comparator(t, columns, collator), t.offset, limit);
+        } else {
+            rows = ResultMerger.concat(inputs, t.offset, limit);
+        }
+        return new SQLExecutor.QueryResult(rows, columns, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 全部分片被裁剪时按模板推导列名；含未展开的通配符时无法推导，返回空列表
+     */
+    private static List<String> prunedColumns(Template t) {
+        List<String> columns = ConstantFolder.outputColumns(t);
+        return columns == null ? new ArrayList<>() : columns;
+    }
+
+    private static List<Map<String, Object>> alignColumns(SQLExecutor.QueryResult r, List<String> columns, String label) {
+        List<String> own = r.getColumnNames();
+        if (own.size() != columns.size()) {
+            throw new IllegalStateException("Union branch " + label + " returned " + own.size() + " columns, expected " + columns.size());
+        }
+        if (own.equals(columns)) return r.getRows();
+        List<Map<String, Object>> rows = new ArrayList<>(r.getRows().size());
+        for (Map<String, Object> row : r.getRows()) {
+            Map<String, Object> aligned = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) aligned.put(columns.get(i), row.get(own.get(i)));
+            rows.add(aligned);
+        }
+        return rows;
+    }
+
+    /**
+     * 分片模板：LIMIT（与 maxRows 取小）改写为 limit+offset，去掉 OFFSET
+     */
+    static Template pushDownLimit(Template t) {
+        Template c = t.shallowCopy();
+        Integer cap = ResultMerger.rowCap(t);
+        if (cap != null) {
+            c.limit = cap + (t.offset == null ? 0 : t.offset);
+        }
+        c.offset = null;
+        return c;
+    }
+
+    private static Template withoutMaxRows(Template t) {
+        if (t.options == null || t.options.maxRows == null) return t;
+        Template c = t.shallowCopy();
+        c.options = t.options.copy();
+        c.options.maxRows = null;
+        return c;
+    }
+
+    private List<SQLExecutor.QueryResult> collect(String kind, List<String> labels,
+                                                  List<Future<SQLExecutor.QueryResult>> futures, Template t) {
+        long deadline = t.options != null && t.options.timeoutMs != null
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(t.options.timeoutMs) : Long.MAX_VALUE;
+        List<SQLExecutor.QueryResult> results = new ArrayList<>(futures.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<SQLExecutor.QueryResult> f = futures.get(i);
+                try {
+                    results.add(deadline == Long.MAX_VALUE ? f.get()
+                            : f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw new RuntimeException(kind + " failed on " + labels.get(i) + ": " + cause.getMessage(), cause);
+                } catch (TimeoutException e) {
+                    throw new RuntimeException(kind + " timed out on " + labels.get(i), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + kind.toLowerCase() + " results", e);
+        } finally {
+            if (results.size() < futures.size()) {
+                for (Future<?> f : futures) f.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
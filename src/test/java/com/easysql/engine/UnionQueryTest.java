@@ -0,0 +1,143 @@
+package com.easysql.engine;
+
+import com.easysql.engine.builder.SQLBuilder;
+import com.easysql.engine.dialect.MySQLDialect;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.OrderByClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNION / UNION ALL 渲染与分支内 ORDER BY + LIMIT 下推
+ */
+public class UnionQueryTest {
+
+    private static EasySQLEngine engine;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:union_feed;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            for (String table : new String[]{"clicks", "views", "likes"}) {
+                st.execute("DROP TABLE IF EXISTS " + table);
+                st.execute("CREATE TABLE " + table + " (id INT PRIMARY KEY, created_at INT)");
+            }
+            st.execute("INSERT INTO clicks SELECT \"X\", \"X\" * 3 FROM SYSTEM_RANGE(1, 100)");
+            st.execute("INSERT INTO views SELECT \"X\", \"X\" * 3 + 1 FROM SYSTEM_RANGE(1, 100)");
+            st.execute("INSERT INTO likes SELECT \"X\", \"X\" * 3 + 2 FROM SYSTEM_RANGE(1, 100)");
+        }
+        JdbcDataSource archive = new JdbcDataSource();
+        archive.setURL("jdbc:h2:mem:union_archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        archive.setUser("sa");
+        try (Connection c = archive.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS old_clicks");
+            st.execute("CREATE TABLE old_clicks (id INT PRIMARY KEY, created_at INT)");
+            st.execute("INSERT INTO old_clicks SELECT \"X\", \"X\" * 10 FROM SYSTEM_RANGE(1, 50)");
+        }
+        engine = new EasySQLEngine();
+        engine.registerDataSource("feed", ds);
+        engine.registerDataSource("archive", archive);
+    }
+
+    private static Query branch(String table) {
+        return Query.create(table).from(table).select("id", "created_at");
+    }
+
+    private static Query feed() {
+        return Query.create("latest_feed").datasource("feed")
+                .from("clicks").select("id", "created_at AS ts")
+                .unionAll(branch("views"))
+                .unionAll(branch("likes"))
+                .orderBy(OrderByClause.by("ts").desc());
+    }
+
+    @Test
+    public void testUnionAllPushesTopNIntoEachBranch() {
+        String sql = engine.buildSQL(feed().limit(5, 10).build());
+        assertEquals("(SELECT id, created_at AS ts FROM `clicks` ORDER BY created_at DESC LIMIT 15)"
+                + " UNION ALL (SELECT id, created_at FROM `views` ORDER BY created_at DESC LIMIT 15)"
+                + " UNION ALL (SELECT id, created_at FROM `likes` ORDER BY created_at DESC LIMIT 15)"
+                + " ORDER BY ts DESC LIMIT 5 OFFSET 10", sql);
+    }
+
+    @Test
+    public void testUnionWithoutLimitIsNotRewritten() {
+        Template t = Query.create("plain_union")
+                .from("clicks").select("id")
+                .union(Query.create("views").from("views").select("id").where(leaf("id", ">", val("3"))))
+                .build();
+        assertEquals("SELECT id FROM `clicks` UNION SELECT id FROM `views` WHERE id > 3",
+                new SQLBuilder(new MySQLDialect()).buildSelect(t));
+
+        // UNION 去重不下推，但外层排序分页保留
+        String sql = engine.buildSQL(Query.create("distinct_feed")
+                .from("clicks").select("id", "created_at")
+                .union(branch("views"))
+                .orderBy(OrderByClause.by("created_at")).limit(3).build());
+        assertEquals("SELECT id, created_at FROM `clicks` UNION SELECT id, created_at FROM `views` ORDER BY created_at LIMIT 3", sql);
+    }
+
+    @Test
+    public void testPushedDownFeedReturnsSameRows() {
+        SQLExecutor.QueryResult rows = engine.executeQuery(feed().dialect("h2").limit(4, 2).build(), Collections.emptyMap());
+        assertEquals(4, rows.getRowCount());
+        // 最新的时间依次为 302, 301, 300, 299, 298, 297：跳过前2行
+        assertEquals(300, ((Number) rows.getRows().get(0).get(rows.getColumnNames().get(1))).intValue());
+        assertEquals(297, ((Number) rows.getRows().get(3).get(rows.getColumnNames().get(1))).intValue());
+    }
+
+    @Test
+    public void testParallelBranchesMatchSerialResult() {
+        SQLExecutor.QueryResult serial = engine.executeQuery(feed().dialect("h2").limit(7, 3).build(), Collections.emptyMap());
+        long before = engine.getMetrics().getCounter(EasySQLEngine.COUNTER_PARALLEL_UNION);
+        SQLExecutor.QueryResult parallel = engine.executeQuery(feed().dialect("h2").limit(7, 3)
+                .options(OptionsClause.create().parallelUnion(true)).build(), Collections.emptyMap());
+        assertEquals(before + 1, engine.getMetrics().getCounter(EasySQLEngine.COUNTER_PARALLEL_UNION));
+        assertEquals(serial.getColumnNames(), parallel.getColumnNames());
+        assertEquals(serial.getRows(), parallel.getRows());
+    }
+
+    @Test
+    public void testParallelBranchesApplyMaxRowsAfterOffset() {
+        SQLExecutor.QueryResult serial = engine.executeQuery(feed().dialect("h2").limit(6, 4)
+                .options(OptionsClause.create().maxRows(3)).build(), Collections.emptyMap());
+        SQLExecutor.QueryResult parallel = engine.executeQuery(feed().dialect("h2").limit(6, 4)
+                .options(OptionsClause.create().parallelUnion(true).maxRows(3)).build(), Collections.emptyMap());
+        // 最新的时间依次为 302..295：跳过前4行后取3行
+        assertEquals(3, parallel.getRowCount());
+        String ts = parallel.getColumnNames().get(1);
+        assertEquals(298, ((Number) parallel.getRows().get(0).get(ts)).intValue());
+        assertEquals(296, ((Number) parallel.getRows().get(2).get(ts)).intValue());
+        assertEquals(serial.getRows(), parallel.getRows());
+    }
+
+    @Test
+    public void testParallelBranchesAcrossDatasources() {
+        Template t = Query.create("feed_with_archive").datasource("feed").dialect("h2")
+                .from("clicks").select("id", "created_at AS ts")
+                .where(leaf("id", "<=", val("2")))
+                .unionAll(Query.create("archive").datasource("archive").from("old_clicks").select("id", "created_at")
+                        .where(leaf("id", "<=", val("3"))))
+                .options(OptionsClause.create().parallelUnion(true))
+                .build();
+        SQLExecutor.QueryResult rows = engine.executeQuery(t, Collections.emptyMap());
+        // 无排序：按分支顺序拼接，列名取主查询
+        assertEquals(5, rows.getRowCount());
+        String ts = rows.getColumnNames().get(1);
+        assertEquals(6, ((Number) rows.getRows().get(1).get(ts)).intValue());
+        assertEquals(30, ((Number) rows.getRows().get(4).get(ts)).intValue());
+    }
+}
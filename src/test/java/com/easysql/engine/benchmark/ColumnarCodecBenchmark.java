@@ -0,0 +1,88 @@
+package com.easysql.engine.benchmark;
+
+import com.easysql.engine.codec.ColumnarBatch;
+import com.easysql.engine.codec.ColumnarDecoder;
+import com.easysql.engine.codec.ColumnarEncoder;
+import com.easysql.engine.executor.SQLExecutor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询结果序列化基准：列式二进制编码 vs Jackson JSON
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ColumnarCodecBenchmark {
+
+    private static final TypeReference<List<Map<String, Object>>> ROWS = new TypeReference<List<Map<String, Object>>>() {};
+
+    @Param({"100", "10000"})
+    public int rowCount;
+
+    private SQLExecutor.QueryResult result;
+    private ObjectMapper mapper;
+    private ColumnarEncoder encoder;
+    private ColumnarDecoder decoder;
+    private ByteBuffer encodeBuffer;
+    private ByteBuffer encoded;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        List<String> cols = Arrays.asList("id", "user_id", "status", "amount", "paid", "created_at");
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            row.put("user_id", 1_000_000L + i % 997);
+            row.put("status", i % 4 == 0 ? "pending" : "completed");
+            row.put("amount", BigDecimal.valueOf(i % 1000, 2));
+            row.put("paid", i % 2 == 0);
+            row.put("created_at", new Timestamp(1700000000000L + i * 1000L));
+            rows.add(row);
+        }
+        result = new SQLExecutor.QueryResult(rows, cols, 0);
+        mapper = new ObjectMapper();
+        encoder = new ColumnarEncoder();
+        decoder = new ColumnarDecoder();
+        ColumnarBatch batch = ColumnarBatch.fromResult(result);
+        encodeBuffer = ByteBuffer.allocate(encoder.encodedSize(batch));
+        encoded = encoder.encode(result);
+        json = mapper.writeValueAsBytes(rows);
+    }
+
+    @Benchmark
+    public ByteBuffer columnarEncode() {
+        encodeBuffer.clear();
+        encoder.encode(ColumnarBatch.fromResult(result), encodeBuffer);
+        return encodeBuffer;
+    }
+
+    @Benchmark
+    public ColumnarBatch columnarDecode() {
+        return decoder.decode(encoded.duplicate());
+    }
+
+    @Benchmark
+    public SQLExecutor.QueryResult columnarDecodeToRows() {
+        return decoder.decodeResult(encoded.duplicate());
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode() throws Exception {
+        return mapper.writeValueAsBytes(result.getRows());
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> jacksonDecode() throws Exception {
+        return mapper.readValue(json, ROWS);
+    }
+}
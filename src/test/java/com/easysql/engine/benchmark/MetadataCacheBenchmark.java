@@ -0,0 +1,99 @@
+package com.easysql.engine.benchmark;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.impl.LRUCache;
+import com.easysql.engine.metadata.ConcurrentLoadingCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 元数据缓存读路径的多线程扩展性：单锁 LRUCache 与无锁读的 ConcurrentLoadingCache 对比。
+ * 键空间大于容量，含少量未命中（未命中时走加载/准入路径）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataCacheBenchmark {
+
+    private static final int CAPACITY = 1000;
+    private static final int KEYS = 1200;
+
+    private String[] keys;
+    private Cache<String, String> lru;
+    private ConcurrentLoadingCache<String, String> loading;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        keys = new String[KEYS];
+        lru = new LRUCache<>(CAPACITY);
+        loading = new ConcurrentLoadingCache<>(CAPACITY);
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "ds|schema.table_" + i;
+            lru.put(keys[i], keys[i]);
+            String k = keys[i];
+            loading.get(k, v -> true, () -> k);
+        }
+    }
+
+    private String nextKey() {
+        // 偏斜访问：约80%的请求落在20%的键上
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return keys[r.nextInt(5) < 4 ? r.nextInt(KEYS / 5) : r.nextInt(KEYS)];
+    }
+
+    private String lruGet() {
+        String k = nextKey();
+        String v = lru.get(k, false);
+        if (v == null) {
+            lru.put(k, k);
+            v = k;
+        }
+        return v;
+    }
+
+    private String loadingGet() throws Exception {
+        String k = nextKey();
+        return loading.get(k, v -> true, () -> k);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String lruCache_1thread() {
+        return lruGet();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String lruCache_4threads() {
+        return lruGet();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String lruCache_16threads() {
+        return lruGet();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String loadingCache_1thread() throws Exception {
+        return loadingGet();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String loadingCache_4threads() throws Exception {
+        return loadingGet();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String loadingCache_16threads() throws Exception {
+        return loadingGet();
+    }
+}
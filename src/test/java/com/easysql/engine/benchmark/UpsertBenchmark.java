@@ -0,0 +1,103 @@
+package com.easysql.engine.benchmark;
+
+import com.easysql.engine.builder.SQLBuilder;
+import com.easysql.engine.dialect.H2Dialect;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.executor.JDBCSQLExecutor;
+import com.easysql.engine.model.Template;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步任务写入对比：批量UPSERT vs 逐行先查询再INSERT/UPDATE（H2内存库）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UpsertBenchmark {
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private Connection conn;
+    private Template template;
+    private SQLBuilder builder;
+    private JDBCSQLExecutor executor;
+    private List<Map<String, Object>> rows;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:upsert_bm;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS accounts");
+            st.execute("CREATE TABLE accounts (id INT PRIMARY KEY, name VARCHAR(64), balance INT)");
+        }
+        template = Query.create("accounts_upsert")
+                .from("accounts")
+                .upsert("id", "name", "balance")
+                .upsertKeys("id")
+                .build();
+        builder = new SQLBuilder(new H2Dialect());
+        executor = new JDBCSQLExecutor();
+    }
+
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        // 每批一半命中已有行、一半为新行
+        int base = round++ * batchSize / 2;
+        rows = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", base + i);
+            row.put("name", "acct-" + (base + i));
+            row.put("balance", round);
+            rows.add(row);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (conn != null) conn.close();
+    }
+
+    @Benchmark
+    public int batchedUpsert() {
+        return executor.executeInsert(conn, template, builder.buildInsert(template, rows.iterator()));
+    }
+
+    @Benchmark
+    public int selectThenWrite() throws Exception {
+        int written = 0;
+        try (PreparedStatement select = conn.prepareStatement("SELECT 1 FROM accounts WHERE id = ?");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO accounts (id, name, balance) VALUES (?, ?, ?)");
+             PreparedStatement update = conn.prepareStatement("UPDATE accounts SET name = ?, balance = ? WHERE id = ?")) {
+            for (Map<String, Object> row : rows) {
+                select.setObject(1, row.get("id"));
+                boolean exists;
+                try (ResultSet rs = select.executeQuery()) {
+                    exists = rs.next();
+                }
+                if (exists) {
+                    update.setObject(1, row.get("name"));
+                    update.setObject(2, row.get("balance"));
+                    update.setObject(3, row.get("id"));
+                    written += update.executeUpdate();
+                } else {
+                    insert.setObject(1, row.get("id"));
+                    insert.setObject(2, row.get("name"));
+                    insert.setObject(3, row.get("balance"));
+                    written += insert.executeUpdate();
+                }
+            }
+        }
+        return written;
+    }
+}
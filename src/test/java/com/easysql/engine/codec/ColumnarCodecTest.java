@@ -0,0 +1,116 @@
+package com.easysql.engine.codec;
+
+import com.easysql.engine.executor.SQLExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式二进制编解码测试
+ */
+public class ColumnarCodecTest {
+
+    private SQLExecutor.QueryResult sample(int n) {
+        List<String> cols = Arrays.asList("id", "uid", "name", "status", "amount", "score", "active", "created", "updated");
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            row.put("uid", 10_000_000_000L + i);
+            row.put("name", i % 5 == 0 ? null : "用户" + i);
+            row.put("status", i % 2 == 0 ? "active" : "inactive");
+            row.put("amount", new BigDecimal("12.50").add(BigDecimal.valueOf(i)));
+            row.put("score", i * 0.5);
+            row.put("active", i % 3 == 0);
+            row.put("created", Date.valueOf("2023-01-01"));
+            Timestamp ts = new Timestamp(1700000000000L + i);
+            ts.setNanos(123456789);
+            row.put("updated", i % 7 == 0 ? null : ts);
+            rows.add(row);
+        }
+        return new SQLExecutor.QueryResult(rows, cols, 42);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        SQLExecutor.QueryResult original = sample(300);
+        ByteBuffer buf = new ColumnarEncoder().encode(original);
+        SQLExecutor.QueryResult decoded = new ColumnarDecoder().decodeResult(buf);
+
+        assertFalse(buf.hasRemaining());
+        assertEquals(original.getColumnNames(), decoded.getColumnNames());
+        assertEquals(original.getRows(), decoded.getRows());
+        assertEquals(42, decoded.getExecutionTimeMs());
+    }
+
+    @Test
+    public void testTypedVectorsAndDictionary() {
+        ColumnarBatch batch = ColumnarBatch.fromResult(sample(10));
+        assertEquals(ColumnType.INT, batch.getColumn("id").getType());
+        assertEquals(ColumnType.LONG, batch.getColumn("uid").getType());
+        assertEquals(ColumnType.DECIMAL, batch.getColumn("amount").getType());
+        assertEquals(ColumnType.BOOLEAN, batch.getColumn("active").getType());
+
+        ColumnVector status = batch.getColumn("status");
+        assertEquals(ColumnType.STRING, status.getType());
+        assertEquals(2, status.dictionary.length);
+        // 字典编码：相同取值共享同一实例
+        assertSame(status.getString(0), status.getString(2));
+
+        ColumnVector name = batch.getColumn("name");
+        assertTrue(name.isNull(0));
+        assertFalse(name.isNull(1));
+    }
+
+    @Test
+    public void testMixedTypesFallBack() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<String, Object> r1 = new LinkedHashMap<>();
+        r1.put("v", 1);
+        Map<String, Object> r2 = new LinkedHashMap<>();
+        r2.put("v", 2L);
+        Map<String, Object> r3 = new LinkedHashMap<>();
+        r3.put("w", "x");
+        r3.put("v", null);
+        rows.add(r1);
+        rows.add(r2);
+        rows.add(r3);
+        ColumnarBatch batch = ColumnarBatch.fromResult(new SQLExecutor.QueryResult(rows, Arrays.asList("v", "w"), 0));
+        assertEquals(ColumnType.LONG, batch.getColumn("v").getType());
+        assertEquals(2L, batch.getColumn("v").getLong(1));
+        assertEquals(ColumnType.STRING, batch.getColumn("w").getType());
+        assertNull(batch.getColumn("w").getString(0));
+    }
+
+    @Test
+    public void testChannelFrames() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(sample(5), Channels.newChannel(out));
+        encoder.write(sample(1000), Channels.newChannel(out));
+
+        ColumnarDecoder decoder = new ColumnarDecoder();
+        java.nio.channels.ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(5, decoder.read(in).getRowCount());
+        ColumnarBatch second = decoder.read(in);
+        assertEquals(1000, second.getRowCount());
+        assertEquals(sample(1000).getRows(), second.toQueryResult().getRows());
+    }
+
+    @Test
+    public void testEmptyResult() {
+        SQLExecutor.QueryResult empty = new SQLExecutor.QueryResult(new ArrayList<>(), Arrays.asList("a", "b"), 0);
+        SQLExecutor.QueryResult decoded = new ColumnarDecoder().decodeResult(new ColumnarEncoder().encode(empty));
+        assertEquals(0, decoded.getRowCount());
+        assertEquals(Arrays.asList("a", "b"), decoded.getColumnNames());
+    }
+}
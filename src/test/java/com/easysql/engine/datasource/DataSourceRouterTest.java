@@ -0,0 +1,199 @@
+package com.easysql.engine.datasource;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 读副本路由测试：多个H2内存库分别充当主库与副本
+ */
+public class DataSourceRouterTest {
+
+    private DataSource primary;
+    private DataSource replica0;
+    private DataSource replica1;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        primary = h2("router_primary", "primary");
+        replica0 = h2("router_replica0", "replica0");
+        replica1 = h2("router_replica1", "replica1");
+    }
+
+    private static DataSource h2(String db, String role) throws SQLException {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + db + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS node_info");
+            st.execute("CREATE TABLE node_info (id INT PRIMARY KEY, role VARCHAR(20))");
+            st.execute("INSERT INTO node_info VALUES (1, '" + role + "')");
+        }
+        return ds;
+    }
+
+    private static Template roleQuery(boolean readOnly) {
+        return Query.create("router_role")
+                .datasource("orders")
+                .from("node_info")
+                .select("role")
+                .options(OptionsClause.create().readOnly(readOnly))
+                .build();
+    }
+
+    private static String role(SQLExecutor.QueryResult r) {
+        return (String) r.getRows().get(0).values().iterator().next();
+    }
+
+    @Test
+    public void testReadOnlyRoutesToReplica() {
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("orders", primary, replica0, replica1);
+
+        assertTrue(role(engine.executeQuery(roleQuery(true), new HashMap<>())).startsWith("replica"));
+        assertEquals("primary", role(engine.executeQuery(roleQuery(false), new HashMap<>())));
+    }
+
+    @Test
+    public void testLeastOutstandingRequests() throws Exception {
+        DataSourceRouter router = new DataSourceRouter();
+        router.register("orders", primary, replica0, replica1);
+
+        try (DataSourceRouter.Lease busy = router.acquire("orders", true)) {
+            // 其余请求应避开仍有在途请求的副本
+            for (int i = 0; i < 5; i++) {
+                try (DataSourceRouter.Lease l = router.acquire("orders", true)) {
+                    assertNotEquals(busy.getNodeId(), l.getNodeId());
+                }
+            }
+        }
+        for (DataSourceRouter.ReplicaStatus s : router.replicaStatus("orders")) {
+            assertEquals(0, s.outstanding);
+        }
+    }
+
+    @Test
+    public void testFailingReplicaIsEjected() throws Exception {
+        DataSourceRouter router = new DataSourceRouter();
+        router.register("orders", primary, new BrokenDataSource(), replica1);
+
+        for (int i = 0; i < 4; i++) {
+            try (DataSourceRouter.Lease l = router.acquire("orders", true)) {
+                assertEquals("orders#replica1", l.getNodeId());
+            }
+        }
+        assertTrue(router.replicaStatus("orders").get(0).ejected);
+        assertFalse(router.replicaStatus("orders").get(1).ejected);
+    }
+
+    @Test
+    public void testAllReplicasDownFallsBackToPrimary() throws Exception {
+        DataSourceRouter router = new DataSourceRouter();
+        router.register("orders", primary, new BrokenDataSource());
+        try (DataSourceRouter.Lease l = router.acquire("orders", true)) {
+            assertFalse(l.isReplica());
+        }
+    }
+
+    @Test
+    public void testLaggingReplicaEjectedAndRestored() throws Exception {
+        DataSourceRouter router = new DataSourceRouter();
+        router.register("orders", primary, replica0, replica1);
+        long[] lag = {60000};
+        router.setLagProbe(conn -> conn.getMetaData().getURL().contains("replica0") ? lag[0] : 0, 5000);
+
+        router.checkReplicas();
+        assertTrue(router.replicaStatus("orders").get(0).ejected);
+        for (int i = 0; i < 3; i++) {
+            try (DataSourceRouter.Lease l = router.acquire("orders", true)) {
+                assertEquals("orders#replica1", l.getNodeId());
+            }
+        }
+
+        lag[0] = 0;
+        router.checkReplicas();
+        assertFalse(router.replicaStatus("orders").get(0).ejected);
+    }
+
+    @Test
+    public void testConnectionClosedWhenReadOnlyFails() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        DataSource readOnlyRejecting = new BrokenDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection real = replica0.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().equals("setReadOnly")) throw new SQLException("read-only not supported");
+                            if (method.getName().equals("close")) closed.set(true);
+                            return method.invoke(real, args);
+                        });
+            }
+        };
+        DataSourceRouter router = new DataSourceRouter();
+        router.register("orders", primary, readOnlyRejecting);
+        try (DataSourceRouter.Lease l = router.acquire("orders", true)) {
+            assertFalse(l.isReplica());
+        }
+        assertTrue(closed.get());
+        assertTrue(router.replicaStatus("orders").get(0).ejected);
+        assertEquals(0, router.replicaStatus("orders").get(0).outstanding);
+    }
+
+    @Test
+    public void testEngineStartsHealthCheckForReplicas() {
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("single", primary);
+        assertFalse(engine.getDataSourceRouter().isHealthCheckRunning());
+        engine.registerDataSource("orders", primary, replica0);
+        assertTrue(engine.getDataSourceRouter().isHealthCheckRunning());
+        engine.getDataSourceRouter().stopHealthCheck();
+    }
+
+    @Test
+    public void testUnknownDatasource() {
+        DataSourceRouter router = new DataSourceRouter();
+        assertThrows(IllegalStateException.class, () -> router.acquire("missing", true));
+    }
+
+    /**
+     * 始终无法连接的数据源
+     */
+    private static class BrokenDataSource implements DataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            throw new SQLNonTransientConnectionException("connection refused", "08001");
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override public PrintWriter getLogWriter() { return null; }
+        @Override public void setLogWriter(PrintWriter out) {}
+        @Override public void setLoginTimeout(int seconds) {}
+        @Override public int getLoginTimeout() { return 0; }
+        @Override public Logger getParentLogger() { return null; }
+        @Override public <T> T unwrap(Class<T> iface) { return null; }
+        @Override public boolean isWrapperFor(Class<?> iface) { return false; }
+    }
+}
@@ -0,0 +1,173 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.ExplainPlan;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 基于 EXPLAIN 估算代价的准入控制
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void testEstimateCostMultipliesAccessRows() {
+        ExplainPlan plan = new ExplainPlan("fp", "t", "db", "SELECT 1", 0, Arrays.asList(
+                new ExplainPlan.Access("a", "ALL", null, 2000L, false),
+                new ExplainPlan.Access("b", "eq_ref", "PRIMARY", null, false),
+                new ExplainPlan.Access("c", "ALL", null, 300L, false)));
+        assertEquals(600000, AdmissionController.estimateCost(plan));
+        assertEquals(-1, AdmissionController.estimateCost(null));
+    }
+
+    @Test
+    public void testCheapPassesExpensiveQueuesOversizedRejected() throws Exception {
+        MetricsCollector metrics = new MetricsCollector();
+        AdmissionController admission = new AdmissionController(metrics);
+        admission.setBudget("oltp", 10000);
+        admission.setCheapCost(100);
+        admission.setMaxWaitMs(2000);
+
+        assertThrows(IllegalStateException.class, () -> admission.admit("oltp", 20000));
+        AdmissionController.Permit first = admission.admit("oltp", 8000);
+        assertEquals(8000, admission.inFlight("oltp"));
+        // 点查与未知代价不占预算
+        admission.admit("oltp", 10).close();
+        admission.admit("oltp", -1).close();
+        assertEquals(2, metrics.getCounter(AdmissionController.COUNTER_BYPASSED));
+
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicBoolean admitted = new AtomicBoolean();
+        Thread t = new Thread(() -> {
+            waiting.countDown();
+            try (AdmissionController.Permit p = admission.admit("oltp", 5000)) {
+                admitted.set(true);
+            }
+        });
+        t.start();
+        waiting.await();
+        Thread.sleep(50);
+        assertFalse(admitted.get());
+        first.close();
+        first.close();
+        t.join(2000);
+        assertTrue(admitted.get());
+        assertEquals(0, admission.inFlight("oltp"));
+        assertEquals(1, metrics.getCounter(AdmissionController.COUNTER_QUEUED));
+
+        admission.setMaxWaitMs(20);
+        try (AdmissionController.Permit p = admission.admit("oltp", 9000)) {
+            assertThrows(IllegalStateException.class, () -> admission.admit("oltp", 2000));
+        }
+        assertEquals(2, metrics.getCounter(AdmissionController.COUNTER_REJECTED));
+    }
+
+    @Test
+    public void testResizeKeepsInFlightCost() throws Exception {
+        MetricsCollector metrics = new MetricsCollector();
+        AdmissionController admission = new AdmissionController(metrics);
+        admission.setBudget("oltp", 10000);
+        admission.setCheapCost(100);
+        admission.setMaxWaitMs(2000);
+
+        AdmissionController.Permit first = admission.admit("oltp", 8000);
+        // 缩容不丢弃在途占用
+        admission.setBudget("oltp", 9000);
+        assertEquals(8000, admission.inFlight("oltp"));
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicBoolean admitted = new AtomicBoolean();
+        Thread t = new Thread(() -> {
+            waiting.countDown();
+            try (AdmissionController.Permit p = admission.admit("oltp", 2000)) {
+                admitted.set(true);
+            }
+        });
+        t.start();
+        waiting.await();
+        Thread.sleep(50);
+        assertFalse(admitted.get());
+        // 扩容唤醒排队者
+        admission.setBudget("oltp", 10000);
+        t.join(2000);
+        assertTrue(admitted.get());
+        first.close();
+        assertEquals(0, admission.inFlight("oltp"));
+
+        admission.setBudget("oltp", 1000);
+        assertThrows(IllegalStateException.class, () -> admission.admit("oltp", 2000));
+        assertEquals(1, metrics.getCounter(AdmissionController.COUNTER_REJECTED));
+    }
+
+    @Test
+    public void testCrossJoinRejectedOnceExplained() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:admission_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS accounts");
+            st.execute("DROP TABLE IF EXISTS ledger");
+            st.execute("CREATE TABLE accounts (id INT PRIMARY KEY, region INT)");
+            st.execute("CREATE TABLE ledger (id INT PRIMARY KEY, region INT)");
+            st.execute("INSERT INTO accounts SELECT \"X\", MOD(\"X\", 3) FROM SYSTEM_RANGE(1, 500)");
+            st.execute("INSERT INTO ledger SELECT \"X\", MOD(\"X\", 3) FROM SYSTEM_RANGE(1, 500)");
+        }
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("replica", ds);
+        engine.getAdmissionController().setBudget("replica", 100000);
+
+        Template crossJoin = Query.create("analyst_adhoc").datasource("replica").dialect("h2")
+                .from(FromClause.table("accounts").alias("a")).select("COUNT(*) AS n")
+                .join(JoinClause.inner("ledger").alias("l").on(leaf("a.region", "=", val("l.region"))))
+                .build();
+        Template lookup = Query.create("account_by_id").datasource("replica").dialect("h2")
+                .from("accounts").select("region").where(leaf("id", "=", param("id"))).build();
+
+        // 首次执行代价未知，放行并触发后台 EXPLAIN
+        assertEquals(1, engine.executeQuery(crossJoin, Collections.emptyMap()).getRowCount());
+        String fp = ExplainSampler.fingerprint("replica", engine.buildSQL(crossJoin));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (engine.getExplainSampler().getRegistry().get(fp) == null) {
+            if (System.currentTimeMillis() > deadline) fail("explain capture timed out");
+            Thread.sleep(10);
+        }
+        assertEquals(250000, AdmissionController.estimateCost(engine.getExplainSampler().getRegistry().get(fp)));
+
+        assertThrows(IllegalStateException.class, () -> engine.executeQuery(crossJoin, Collections.emptyMap()));
+        assertEquals(1, engine.executeQuery(lookup, Collections.singletonMap("id", 7)).getRowCount());
+        assertEquals(1, engine.getMetrics().getCounter(AdmissionController.COUNTER_REJECTED));
+
+        // 并行 UNION ALL 的分支同样受预算约束
+        Template union = Query.create("adhoc_union").datasource("replica").dialect("h2")
+                .from("accounts").select("region AS n").where(leaf("id", "=", val("1")))
+                .unionAll(Query.create("adhoc_branch").from(FromClause.table("accounts").alias("a")).select("COUNT(*) AS total")
+                        .join(JoinClause.inner("ledger").alias("l").on(leaf("a.region", "=", val("l.region")))))
+                .options(OptionsClause.create().parallelUnion(true))
+                .build();
+        // 分支SQL首次出现代价未知而放行，执行后各自采集执行计划
+        assertEquals(2, engine.executeQuery(union, Collections.emptyMap()).getRowCount());
+        deadline = System.currentTimeMillis() + 5000;
+        while (engine.getExplainSampler().getRegistry().snapshot().stream().noneMatch(p -> p.sql.contains("AS total"))) {
+            if (System.currentTimeMillis() > deadline) fail("explain capture timed out");
+            Thread.sleep(10);
+        }
+        RuntimeException e = assertThrows(RuntimeException.class, () -> engine.executeQuery(union, Collections.emptyMap()));
+        assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+        assertEquals(2, engine.getMetrics().getCounter(AdmissionController.COUNTER_REJECTED));
+    }
+}
@@ -0,0 +1,159 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dialect.H2Dialect;
+import com.easysql.engine.dialect.MySQLDialect;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.ExplainPlan;
+import com.easysql.engine.monitor.ExplainRegistry;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步 EXPLAIN 采样：首次/按间隔采集、方言解析、大表全表扫描告警
+ */
+public class ExplainSamplerTest {
+
+    private static EasySQLEngine engine;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:explain_sampler;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS events");
+            st.execute("CREATE TABLE events (id INT PRIMARY KEY, kind VARCHAR(16), amount INT)");
+            st.execute("CREATE INDEX idx_events_amount ON events(amount)");
+            st.execute("INSERT INTO events SELECT \"X\", CASEWHEN(MOD(\"X\", 2) = 0, 'click', 'view'), \"X\" FROM SYSTEM_RANGE(1, 2000)");
+        }
+        engine = new EasySQLEngine();
+        engine.registerDataSource("events_db", ds);
+        engine.getExplainSampler().setLargeTableRows(1000);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("explain capture timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testFullScanOnLargeTableIsCapturedAndCounted() throws Exception {
+        Template t = Query.create("events_by_kind").datasource("events_db").dialect("h2")
+                .from("events").select("id").where(leaf("kind", "=", param("kind"))).build();
+        Map<String, Object> params = Collections.singletonMap("kind", "click");
+        MetricsCollector metrics = engine.getMetrics();
+        long fullScans = metrics.getCounter(ExplainSampler.COUNTER_FULL_SCAN);
+
+        assertEquals(1000, engine.executeQuery(t, params).getRowCount());
+        String sql = engine.buildSQL(t);
+        ExplainRegistry registry = engine.getExplainSampler().getRegistry();
+        String fp = ExplainSampler.fingerprint("events_db", sql);
+        await(() -> registry.get(fp) != null && metrics.getCounter(ExplainSampler.COUNTER_FULL_SCAN) > fullScans);
+
+        ExplainPlan plan = registry.get(fp);
+        assertEquals("events_by_kind", plan.templateId);
+        assertEquals(1, plan.accesses.size());
+        assertEquals("events", plan.accesses.get(0).table);
+        assertTrue(plan.hasFullScan());
+
+        // 采样间隔内同一指纹不再提交
+        long captured = metrics.getCounter(ExplainSampler.COUNTER_CAPTURED);
+        engine.executeQuery(t, params);
+        assertFalse(engine.getExplainSampler().maybeCapture(t, sql, params, new H2Dialect(),
+                (s, p) -> { throw new AssertionError("should not explain again"); }, table -> -1));
+        Thread.sleep(50);
+        assertEquals(captured, metrics.getCounter(ExplainSampler.COUNTER_CAPTURED));
+    }
+
+    @Test
+    public void testIndexAccessIsParsed() throws Exception {
+        Template t = Query.create("big_events").datasource("events_db").dialect("h2")
+                .from("events").select("id").where(leaf("amount", ">", param("min"))).build();
+        engine.executeQuery(t, Collections.singletonMap("min", 1990));
+        String fp = ExplainSampler.fingerprint("events_db", engine.buildSQL(t));
+        ExplainRegistry registry = engine.getExplainSampler().getRegistry();
+        await(() -> registry.get(fp) != null);
+
+        ExplainPlan.Access access = registry.get(fp).accesses.get(0);
+        assertEquals("events", access.table);
+        assertEquals("idx_events_amount", access.key);
+        assertFalse(access.isFullScan());
+    }
+
+    @Test
+    public void testOversizedInListIsNotExplained() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 1500; i++) ids.add(i);
+        // 去重后未超过上限的列表仍按分桶展开
+        assertFalse(InParameters.exceeds(Collections.singletonMap("ids", Collections.nCopies(1500, 1)), 1000));
+        assertTrue(InParameters.exceeds(Collections.singletonMap("ids", ids), 1000));
+
+        Template t = Query.create("events_in").datasource("events_db").dialect("h2")
+                .from("events").select("id").where(leaf("id", "IN", param("ids"))).param("ids", "INT").build();
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+        String explainSql = new H2Dialect().explainSQL(engine.buildSQL(t));
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:explain_sampler;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection()) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> executor.explain(c, explainSql, t, Collections.singletonMap("ids", ids)));
+            assertFalse(executor.explain(c, explainSql, t, Collections.singletonMap("ids", ids.subList(0, 10))).isEmpty());
+        }
+    }
+
+    @Test
+    public void testExplainRunsOffRequestThreadAndResamples() throws Exception {
+        MetricsCollector metrics = new MetricsCollector();
+        ExplainSampler sampler = new ExplainSampler(new ExplainRegistry(10), metrics, 10);
+        sampler.setResampleIntervalMs(0);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        Template t = Query.create("orders").datasource("db").from("orders").select("id").build();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("table", "orders");
+        row.put("type", "ALL");
+        row.put("rows", 50000L);
+        row.put("Extra", "Using where; Using filesort");
+        rows.add(row);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(sampler.maybeCapture(t, "SELECT id FROM orders", new HashMap<>(), new MySQLDialect(),
+                    (sql, p) -> {
+                        assertEquals("EXPLAIN SELECT id FROM orders", sql);
+                        threads.add(Thread.currentThread().getName());
+                        return rows;
+                    }, table -> -1));
+        }
+        await(() -> metrics.getCounter(ExplainSampler.COUNTER_CAPTURED) == 2
+                && metrics.getCounter(ExplainSampler.COUNTER_FULL_SCAN) == 2
+                && metrics.getCounter(ExplainSampler.COUNTER_FILESORT) == 2);
+        assertEquals(2, threads.size());
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+        assertEquals(2, metrics.getCounter(ExplainSampler.COUNTER_FULL_SCAN));
+        assertEquals(2, metrics.getCounter(ExplainSampler.COUNTER_FILESORT));
+        assertEquals(Long.valueOf(50000), sampler.getRegistry().get(ExplainSampler.fingerprint("db", "SELECT id FROM orders"))
+                .accesses.get(0).rows);
+    }
+}
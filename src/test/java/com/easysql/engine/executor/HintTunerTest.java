@@ -0,0 +1,128 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.ExplainPlan;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按观测延迟在候选提示间自适应选择
+ */
+public class HintTunerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static void run(HintTuner tuner, String fp, int times, long[] latencies) {
+        for (int i = 0; i < times; i++) {
+            int arm = tuner.choose(fp, latencies.length);
+            tuner.record(fp, arm, latencies[arm]);
+        }
+    }
+
+    @Test
+    public void testConvergesAndReexploresOnRegression() {
+        MetricsCollector metrics = new MetricsCollector();
+        HintTuner tuner = new HintTuner(metrics, 10);
+        tuner.setEpsilon(0);
+        tuner.setMinSamples(3);
+
+        long[] latencies = {10 * MS, 1 * MS, 4 * MS};
+        run(tuner, "fp", 9, latencies);
+        assertEquals(3, tuner.samples("fp", 0));
+        assertEquals(-1, tuner.bestArm("fp"));
+        run(tuner, "fp", 10, latencies);
+        assertEquals(1, tuner.bestArm("fp"));
+        assertEquals(13, tuner.samples("fp", 1));
+        assertEquals(10, metrics.getCounter(HintTuner.COUNTER_EXPLOIT));
+
+        // 数据变化后原最优候选变慢：重新探索并收敛到新的最快候选
+        latencies[1] = 50 * MS;
+        run(tuner, "fp", 3, latencies);
+        assertEquals(1, metrics.getCounter(HintTuner.COUNTER_REEXPLORE));
+        run(tuner, "fp", 20, latencies);
+        assertEquals(2, tuner.bestArm("fp"));
+    }
+
+    @Test
+    public void testFailingCandidateIsSampledAndNeverPreferred() {
+        HintTuner tuner = new HintTuner(new MetricsCollector(), 10);
+        tuner.setEpsilon(0);
+        tuner.setMinSamples(2);
+        // 候选0立即失败：耗时最短，但不应被选为最快
+        for (int i = 0; i < 10; i++) {
+            int arm = tuner.choose("fp", 2);
+            if (arm == 0) {
+                tuner.recordFailure("fp", arm, MS / 10);
+            } else {
+                tuner.record("fp", arm, 5 * MS);
+            }
+        }
+        assertEquals(2, tuner.samples("fp", 0));
+        assertEquals(2, tuner.failures("fp", 0));
+        assertEquals(1, tuner.bestArm("fp"));
+        assertEquals(8, tuner.samples("fp", 1));
+    }
+
+    @Test
+    public void testEvictionKeepsNewestFingerprint() {
+        HintTuner tuner = new HintTuner(new MetricsCollector(), 4);
+        for (int i = 0; i < 5; i++) {
+            String fp = "fp" + i;
+            tuner.record(fp, tuner.choose(fp, 2), MS);
+        }
+        // 超出容量时淘汰最久未使用的指纹，刚插入的指纹保留且样本不丢失
+        assertEquals(1, tuner.samples("fp4", 0));
+        assertEquals(0, tuner.samples("fp0", 0));
+    }
+
+    @Test
+    public void testEngineRendersEachCandidate() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:hint_tuner;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS shipments");
+            st.execute("CREATE TABLE shipments (id INT PRIMARY KEY, state INT)");
+            st.execute("INSERT INTO shipments SELECT \"X\", MOD(\"X\", 4) FROM SYSTEM_RANGE(1, 200)");
+        }
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("logistics", ds);
+        engine.getHintTuner().setMinSamples(2);
+
+        Template t = Query.create("shipments_by_state").datasource("logistics").dialect("h2")
+                .from("shipments").select("id").where(leaf("state", "=", param("state")))
+                .options(OptionsClause.create().hint("MAX_EXECUTION_TIME(1000)")
+                        .hintCandidate()
+                        .hintCandidate("NO_INDEX(shipments)"))
+                .build();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(50, engine.executeQuery(t, Collections.singletonMap("state", 1)).getRowCount());
+        }
+        String base = engine.buildSQL(t);
+        String fp = ExplainSampler.fingerprint("logistics", base);
+        assertEquals(2, engine.getHintTuner().samples(fp, 0));
+        assertEquals(2, engine.getHintTuner().samples(fp, 1));
+
+        // 两组候选以不同SQL执行，各自采集执行计划
+        String hinted = base.replace("/*+ MAX_EXECUTION_TIME(1000) */", "/*+ MAX_EXECUTION_TIME(1000) NO_INDEX(shipments) */");
+        assertNotEquals(base, hinted);
+        long deadline = System.currentTimeMillis() + 5000;
+        ExplainPlan plan;
+        while ((plan = engine.getExplainSampler().getRegistry().get(ExplainSampler.fingerprint("logistics", hinted))) == null) {
+            if (System.currentTimeMillis() > deadline) fail("explain capture timed out");
+            Thread.sleep(10);
+        }
+        assertEquals("shipments_by_state", plan.templateId);
+    }
+}
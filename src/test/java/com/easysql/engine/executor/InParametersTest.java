@@ -0,0 +1,178 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.OrderByClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.*;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 集合型IN参数：分桶展开与超限切分
+ */
+public class InParametersTest {
+
+    private static Connection conn;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:inparams;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS items");
+            st.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+            for (int i = 1; i <= 50; i++) {
+                st.execute("INSERT INTO items VALUES (" + i + ", 'item" + i + "')");
+            }
+        }
+    }
+
+    @AfterAll
+    public static void teardown() throws Exception {
+        if (conn != null) conn.close();
+    }
+
+    private static Template itemsIn(boolean ordered) {
+        Query q = Query.create("items_in")
+                .from("items")
+                .select("id", "name")
+                .where(leaf("id", "IN", param("ids")))
+                .param("ids", "INT");
+        if (ordered) q.orderBy(OrderByClause.by("id").desc()).limit(5);
+        return q.build();
+    }
+
+    private static Map<String, Object> ids(Object value) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", value);
+        return params;
+    }
+
+    @Test
+    public void testBucketArity() {
+        assertEquals(1, InParameters.bucketArity(0, 1000));
+        assertEquals(1, InParameters.bucketArity(1, 1000));
+        assertEquals(4, InParameters.bucketArity(3, 1000));
+        assertEquals(4, InParameters.bucketArity(4, 1000));
+        assertEquals(512, InParameters.bucketArity(300, 1000));
+        assertEquals(1000, InParameters.bucketArity(600, 1000));
+    }
+
+    @Test
+    public void testPlaceholderExpansion() {
+        List<String> order = new ArrayList<>();
+        List<Integer> elements = new ArrayList<>();
+        String sql = NamedParameterStatement.parse("SELECT * FROM t WHERE a IN (:ids) AND b = :b",
+                Collections.singletonMap("ids", 4), order, elements);
+        assertEquals("SELECT * FROM t WHERE a IN (?, ?, ?, ?) AND b = ?", sql);
+        assertEquals(Arrays.asList("ids", "ids", "ids", "ids", "b"), order);
+        assertEquals(Arrays.asList(0, 1, 2, 3, -1), elements);
+    }
+
+    @Test
+    public void testBuilderWrapsInParameter() {
+        String sql = new EasySQLEngine().buildSQL(itemsIn(false));
+        assertTrue(sql.contains("id IN (:ids)"), sql);
+    }
+
+    @Test
+    public void testCollectionParameterBinding() {
+        Template t = itemsIn(false);
+        String sql = new EasySQLEngine().buildSQL(t);
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+
+        // 3个值分桶为4个占位符，最后一个值重复填充
+        assertEquals(3, executor.executeQuery(conn, sql, t, ids(Arrays.asList(3, 7, 9))).getRowCount());
+        assertEquals(2, executor.executeQuery(conn, sql, t, ids(new Integer[]{1, 2, 2})).getRowCount());
+        assertEquals(0, executor.executeQuery(conn, sql, t, ids(Collections.emptyList())).getRowCount());
+    }
+
+    @Test
+    public void testEmptyNotInMatchesEveryRow() {
+        Template t = Query.create("items_not_in")
+                .from("items")
+                .select("id", "name")
+                .where(leaf("id", "NOT IN", param("ids")))
+                .param("ids", "INT")
+                .build();
+        String sql = new EasySQLEngine().buildSQL(t);
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+
+        // 空集合的 NOT IN 恒为真，不能绑定为 NOT IN (NULL)
+        assertEquals(50, executor.executeQuery(conn, sql, t, ids(Collections.emptyList())).getRowCount());
+        assertEquals(48, executor.executeQuery(conn, sql, t, ids(Arrays.asList(1, 2))).getRowCount());
+    }
+
+    @Test
+    public void testOversizedListIsChunkedAndMerged() {
+        Template t = itemsIn(true);
+        String sql = new EasySQLEngine().buildSQL(t);
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+        executor.setMaxInArity(4);
+
+        List<Integer> values = Arrays.asList(1, 5, 10, 15, 20, 25, 30, 35, 40, 45, 48);
+        SQLExecutor.QueryResult r = executor.executeQuery(conn, sql, t, ids(values));
+        List<Object> got = new ArrayList<>();
+        for (Map<String, Object> row : r.getRows()) got.add(row.get("ID"));
+        assertEquals(Arrays.asList(48, 45, 40, 35, 30), got);
+
+        Template unordered = itemsIn(false);
+        assertEquals(values.size(), executor.executeQuery(conn, new EasySQLEngine().buildSQL(unordered), unordered, ids(values)).getRowCount());
+    }
+
+    @Test
+    public void testChunkingRejectedForAggregates() {
+        Template t = Query.create("items_count")
+                .from("items")
+                .select("COUNT(*)")
+                .where(leaf("id", "IN", param("ids")))
+                .build();
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+        executor.setMaxInArity(2);
+        String sql = new EasySQLEngine().buildSQL(t);
+        assertThrows(IllegalArgumentException.class, () -> executor.executeQuery(conn, sql, t, ids(Arrays.asList(1, 2, 3))));
+    }
+
+    @Test
+    public void testChunkingRejectedOutsideTopLevelConjuncts() {
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+        executor.setMaxInArity(2);
+        // OR 的另一分支命中的行会在每个批次重复返回
+        Template or = Query.create("items_or")
+                .from("items")
+                .select("id")
+                .where(or(leaf("id", "IN", param("ids")), leaf("id", "<", val("3"))))
+                .param("ids", "INT")
+                .build();
+        String orSql = new EasySQLEngine().buildSQL(or);
+        assertThrows(IllegalArgumentException.class, () -> executor.executeQuery(conn, orSql, or, ids(Arrays.asList(10, 20, 30))));
+
+        Template distinct = Query.create("items_distinct")
+                .from("items")
+                .select("DISTINCT name")
+                .where(leaf("id", "IN", param("ids")))
+                .param("ids", "INT")
+                .build();
+        String distinctSql = new EasySQLEngine().buildSQL(distinct);
+        assertThrows(IllegalArgumentException.class,
+                () -> executor.executeQuery(conn, distinctSql, distinct, ids(Arrays.asList(10, 20, 30))));
+
+        // 顶层 AND 合取项仍可切分
+        Template and = Query.create("items_and")
+                .from("items")
+                .select("id")
+                .where(and(leaf("id", "IN", param("ids")), leaf("id", ">", val("15"))))
+                .param("ids", "INT")
+                .build();
+        String andSql = new EasySQLEngine().buildSQL(and);
+        assertEquals(2, executor.executeQuery(conn, andSql, and, ids(Arrays.asList(10, 20, 30))).getRowCount());
+    }
+}
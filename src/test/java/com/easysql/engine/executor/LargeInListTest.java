@@ -0,0 +1,207 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dialect.H2Dialect;
+import com.easysql.engine.dialect.MySQLDialect;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.dsl.SelectClause;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 超大IN列表：VALUES派生表与临时表改写
+ */
+public class LargeInListTest {
+
+    private static Connection conn;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:large_in;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS items");
+            st.execute("CREATE TABLE items (id INT PRIMARY KEY, grp INT)");
+            st.execute("INSERT INTO items SELECT X, MOD(X, 3) FROM SYSTEM_RANGE(1, 200)");
+        }
+    }
+
+    @AfterAll
+    public static void teardown() throws Exception {
+        if (conn != null) conn.close();
+    }
+
+    private static JDBCSQLExecutor executor(MetricsCollector metrics) {
+        JDBCSQLExecutor executor = new JDBCSQLExecutor(metrics, new H2Dialect());
+        executor.setMaxInArity(8);
+        executor.setTempTableThreshold(50);
+        return executor;
+    }
+
+    private static Template countBy(String operator) {
+        return Query.create("items_large_in")
+                .from("items")
+                .select(SelectClause.expr("grp"), SelectClause.expr("COUNT(*)").as("cnt"))
+                .where(leaf("id", operator, param("ids")))
+                .param("ids", "INT")
+                .groupBy("grp")
+                .build();
+    }
+
+    private static Map<String, Object> ids(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i <= to; i++) values.add(i);
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", values);
+        return params;
+    }
+
+    private static long total(SQLExecutor.QueryResult r) {
+        long sum = 0;
+        for (Map<String, Object> row : r.getRows()) {
+            Object cnt = row.containsKey("CNT") ? row.get("CNT") : row.get("cnt");
+            sum += ((Number) cnt).longValue();
+        }
+        return sum;
+    }
+
+    private static int tempTables() throws Exception {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE '__easysql_in_%'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void testValuesStrategyAllowsAggregates() {
+        MetricsCollector metrics = new MetricsCollector();
+        Template t = countBy("IN");
+        String sql = new EasySQLEngine().buildSQL(t);
+        // 超过上限但低于临时表阈值：改写为VALUES派生表，聚合无需切分
+        assertEquals(20, total(executor(metrics).executeQuery(conn, sql, t, ids(1, 20))));
+        assertEquals(1, metrics.getCounter(InParameters.Strategy.VALUES.counter()));
+        assertEquals(0, metrics.getCounter(InParameters.Strategy.CHUNKED.counter()));
+    }
+
+    @Test
+    public void testTempTableStrategyIsCleanedUp() throws Exception {
+        MetricsCollector metrics = new MetricsCollector();
+        Template t = countBy("NOT IN");
+        String sql = new EasySQLEngine().buildSQL(t);
+        assertEquals(100, total(executor(metrics).executeQuery(conn, sql, t, ids(1, 100))));
+        assertEquals(1, metrics.getCounter(InParameters.Strategy.TEMP_TABLE.counter()));
+        assertEquals(0, tempTables());
+    }
+
+    @Test
+    public void testNotInWithNullMatchesNothing() throws Exception {
+        Template t = countBy("NOT IN");
+        String sql = new EasySQLEngine().buildSQL(t);
+        List<Object> values = new ArrayList<>((List<?>) ids(1, 100).get("ids"));
+        values.add(null);
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", values);
+        // 与内联 NOT IN 一致：列表含NULL时没有行满足条件
+        assertEquals(0, total(executor(new MetricsCollector()).executeQuery(conn, sql, t, params)));
+        assertEquals(0, tempTables());
+    }
+
+    @Test
+    public void testMySQLTempTableKeyIsNonUniqueAndSized() {
+        MySQLDialect dialect = new MySQLDialect();
+        assertEquals("CREATE TEMPORARY TABLE `t` (`v` VARCHAR(300) NULL, KEY (`v`))",
+                dialect.createTempTableSQL("t", "v", "STRING", 300));
+        assertEquals("CREATE TEMPORARY TABLE `t` (`v` VARCHAR(1000) NULL, KEY (`v`(768)))",
+                dialect.createTempTableSQL("t", "v", "STRING", 1000));
+        assertEquals("CREATE TEMPORARY TABLE `t` (`v` LONGTEXT NULL, KEY (`v`(768)))",
+                dialect.createTempTableSQL("t", "v", "STRING", 20000));
+        assertEquals("CREATE TEMPORARY TABLE `t` (`v` DECIMAL(65, 30) NULL, KEY (`v`))",
+                dialect.createTempTableSQL("t", "v", "DECIMAL", 0));
+    }
+
+    @Test
+    public void testMySQLValuesRowsRequireOptIn() {
+        // VALUES ROW(...) 需 MySQL 8.0.19+：默认不改写，超大IN列表走临时表
+        assertNull(new MySQLDialect().valuesSubquery("v", ":ids"));
+        assertEquals("SELECT `v` FROM (VALUES :ids) AS `__in_values` (`v`)", new MySQLDialect(true).valuesSubquery("v", ":ids"));
+    }
+
+    @Test
+    public void testDialectWithoutTempTablesUsesValues() {
+        H2Dialect noTempTables = new H2Dialect() {
+            @Override
+            public String createTempTableSQL(String table, String column, String logicalType, int maxLength) {
+                return null;
+            }
+
+            @Override
+            public String dropTempTableSQL(String table) {
+                return null;
+            }
+        };
+        MetricsCollector metrics = new MetricsCollector();
+        JDBCSQLExecutor executor = new JDBCSQLExecutor(metrics, noTempTables);
+        executor.setMaxInArity(8);
+        executor.setTempTableThreshold(50);
+        Template t = countBy("NOT IN");
+        assertEquals(100, total(executor.executeQuery(conn, new EasySQLEngine().buildSQL(t), t, ids(1, 100))));
+        assertEquals(1, metrics.getCounter(InParameters.Strategy.VALUES.counter()));
+        assertEquals(0, metrics.getCounter(InParameters.Strategy.TEMP_TABLE.counter()));
+    }
+
+    @Test
+    public void testNotInWithoutDialectIsRejected() {
+        Template t = countBy("NOT IN");
+        JDBCSQLExecutor executor = new JDBCSQLExecutor();
+        executor.setMaxInArity(8);
+        String sql = new EasySQLEngine().buildSQL(t);
+        assertThrows(IllegalArgumentException.class, () -> executor.executeQuery(conn, sql, t, ids(1, 20)));
+    }
+
+    @Test
+    public void testEngineExecutorUsesTemplateDialect() throws Exception {
+        EasySQLEngine engine = new EasySQLEngine();
+        JDBCSQLExecutor executor = engine.createExecutor();
+        executor.setMaxInArity(8);
+        executor.setTempTableThreshold(50);
+        // 默认方言为MySQL：h2 模板的VALUES与临时表改写须按H2生成
+        try (Connection h2 = DriverManager.getConnection("jdbc:h2:mem:large_in_h2;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "")) {
+            try (Statement st = h2.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS items");
+                st.execute("CREATE TABLE items (id INT PRIMARY KEY, grp INT)");
+                st.execute("INSERT INTO items SELECT \"X\", MOD(\"X\", 3) FROM SYSTEM_RANGE(1, 200)");
+            }
+            Template values = countBy("IN");
+            values.dialect = "h2";
+            assertEquals(20, total(executor.executeQuery(h2, engine.buildSQL(values), values, ids(1, 20))));
+            Template temp = countBy("NOT IN");
+            temp.dialect = "h2";
+            assertEquals(100, total(executor.executeQuery(h2, engine.buildSQL(temp), temp, ids(1, 100))));
+            try (Statement st = h2.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE '__easysql_in_%'")) {
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testInlineListsAreCounted() {
+        MetricsCollector metrics = new MetricsCollector();
+        Template t = countBy("IN");
+        executor(metrics).executeQuery(conn, new EasySQLEngine().buildSQL(t), t, ids(1, 3));
+        assertEquals(1, metrics.getCounter(InParameters.Strategy.INLINE.counter()));
+    }
+}
@@ -0,0 +1,168 @@
+package com.easysql.engine.executor;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.builder.SQLBuilder;
+import com.easysql.engine.dialect.MySQLDialect;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多行INSERT/UPSERT：按字节预算切分与流式写入
+ */
+public class MultiRowInsertTest {
+
+    private static Connection conn;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:multi_insert;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS events");
+            st.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, name VARCHAR(64), amount DECIMAL(10,2))");
+        }
+    }
+
+    @AfterAll
+    public static void teardown() throws Exception {
+        if (conn != null) conn.close();
+    }
+
+    private static Template events() {
+        return Query.create("events_insert")
+                .from("events")
+                .insert("id", "name", "amount")
+                .param("id", "BIGINT")
+                .build();
+    }
+
+    /**
+     * 按需生成行，不在内存中物化全部数据
+     */
+    private static Iterator<Map<String, Object>> rows(int count) {
+        return new Iterator<Map<String, Object>>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= count;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", next);
+                row.put("name", "event-" + next);
+                row.put("amount", next % 7 == 0 ? null : next * 1.5);
+                next++;
+                return row;
+            }
+        };
+    }
+
+    @Test
+    public void testRendersMultiRowValues() {
+        Iterator<SQLBuilder.InsertStatement> it = new SQLBuilder(new MySQLDialect()).buildInsert(events(), rows(3));
+        SQLBuilder.InsertStatement stmt = it.next();
+        assertEquals("INSERT INTO `events` (`id`, `name`, `amount`) VALUES (?, ?, ?), (?, ?, ?), (?, ?, ?)", stmt.sql);
+        assertEquals(3, stmt.rowCount);
+        assertEquals(9, stmt.values.size());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testChunksByByteBudget() {
+        int budget = 2048;
+        Iterator<SQLBuilder.InsertStatement> it = new SQLBuilder(new MySQLDialect()).buildInsert(events(), rows(500), budget);
+        int statements = 0;
+        int total = 0;
+        while (it.hasNext()) {
+            SQLBuilder.InsertStatement stmt = it.next();
+            assertTrue(stmt.sql.length() < budget, stmt.sql);
+            assertTrue(stmt.rowCount > 1);
+            total += stmt.rowCount;
+            statements++;
+        }
+        assertEquals(500, total);
+        assertTrue(statements > 1);
+    }
+
+    @Test
+    public void testOversizedRowIsRejected() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 1);
+        row.put("name", String.join("", Collections.nCopies(300, "x")));
+        Iterator<SQLBuilder.InsertStatement> it = new SQLBuilder(new MySQLDialect())
+                .buildInsert(events(), Collections.singletonList(row).iterator(), 256);
+        assertThrows(IllegalArgumentException.class, it::next);
+    }
+
+    @Test
+    public void testStreamingInsert() throws Exception {
+        Template t = events();
+        Iterator<SQLBuilder.InsertStatement> it = new SQLBuilder(new MySQLDialect()).buildInsert(t, rows(5000), 64 * 1024);
+        assertEquals(5000, new JDBCSQLExecutor().executeInsert(conn, t, it));
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*), COUNT(amount), MAX(name) FROM events")) {
+            rs.next();
+            assertEquals(5000, rs.getInt(1));
+            assertEquals(5000 - 5000 / 7, rs.getInt(2));
+            assertEquals("event-999", rs.getString(3));
+        }
+    }
+
+    @Test
+    public void testRendersMySQLUpsert() {
+        Template t = Query.create("events_upsert").from("events").upsert("id", "name", "amount").upsertKeys("id").build();
+        SQLBuilder.InsertStatement stmt = new SQLBuilder(new MySQLDialect()).buildInsert(t, rows(2)).next();
+        assertEquals("INSERT INTO `events` (`id`, `name`, `amount`) VALUES (?, ?, ?), (?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE `name` = VALUES(`name`), `amount` = VALUES(`amount`)", stmt.sql);
+    }
+
+    @Test
+    public void testUpsertKeysFromMetadata() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:multi_upsert;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS accounts");
+            st.execute("CREATE TABLE accounts (id INT PRIMARY KEY, name VARCHAR(64), balance INT)");
+            st.execute("INSERT INTO accounts VALUES (1, 'old', 10), (2, 'old', 20)");
+        }
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("accounts_db", ds);
+        Template t = Query.create("accounts_upsert")
+                .datasource("accounts_db")
+                .dialect("h2")
+                .from("accounts")
+                .upsert("id", "name", "balance")
+                .build();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int id = 2; id <= 3; id++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("name", "new");
+            row.put("balance", id * 100);
+            rows.add(row);
+        }
+        engine.executeInsert(t, rows.iterator());
+
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, name, balance FROM accounts ORDER BY id")) {
+            List<String> got = new ArrayList<>();
+            while (rs.next()) got.add(rs.getInt(1) + ":" + rs.getString(2) + ":" + rs.getInt(3));
+            assertEquals(Arrays.asList("1:old:10", "2:new:200", "3:new:300"), got);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.easysql.engine.metadata;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发加载缓存：在途加载去重、TinyLFU 准入与统计
+ */
+public class ConcurrentLoadingCacheTest {
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get("orders", v -> true, () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(100);
+                        return "orders-meta";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> f : results) assertEquals("orders-meta", f.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        ConcurrentLoadingCache.Stats stats = cache.stats();
+        assertEquals(1, stats.loadSuccess);
+        assertEquals(16, stats.hits + stats.misses);
+        assertTrue(stats.averageLoadMillis() >= 100);
+    }
+
+    @Test
+    public void testFailedLoadPropagatesToWaitersAndIsNotCached() {
+        ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<>(10);
+        assertThrows(SQLException.class, () -> cache.get("broken", v -> true, () -> {
+            throw new SQLException("connection refused");
+        }));
+        assertNull(cache.getIfPresent("broken"));
+        assertEquals(1, cache.stats().loadFailure);
+    }
+
+    @Test
+    public void testRefreshErrorReleasesWaiters() {
+        ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<>(10);
+        CountDownLatch waiting = new CountDownLatch(1);
+        assertTrue(cache.refresh("t", () -> {
+            waiting.await();
+            throw new StackOverflowError("deep schema");
+        }, r -> {
+            Thread t = new Thread(r);
+            t.setUncaughtExceptionHandler((th, e) -> {});
+            t.start();
+        }, e -> fail("onFailure is for exceptions")));
+        // 确认调用方已在等待本次刷新后再让刷新失败
+        new Thread(() -> {
+            while (cache.stats().dedupedLoads == 0) Thread.yield();
+            waiting.countDown();
+        }).start();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(StackOverflowError.class, () -> cache.get("t", v -> true, () -> "fresh"));
+        });
+        assertEquals(1, cache.stats().loadFailure);
+    }
+
+    @Test
+    public void testExpiredValueIsReloaded() throws Exception {
+        ConcurrentLoadingCache<String, Long> cache = new ConcurrentLoadingCache<>(10);
+        AtomicInteger version = new AtomicInteger();
+        assertEquals(Long.valueOf(1), cache.get("t", v -> true, () -> (long) version.incrementAndGet()));
+        assertEquals(Long.valueOf(1), cache.get("t", v -> true, () -> (long) version.incrementAndGet()));
+        assertEquals(Long.valueOf(2), cache.get("t", v -> false, () -> (long) version.incrementAndGet()));
+        assertEquals(1, cache.stats().hits);
+    }
+
+    @Test
+    public void testOneHitWondersDoNotEvictHotEntries() throws Exception {
+        ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<>(100);
+        for (int round = 0; round < 6; round++) {
+            for (int i = 0; i < 100; i++) {
+                String k = "hot" + i;
+                cache.get(k, v -> true, () -> k);
+            }
+        }
+        // 扫描大量只访问一次的键：频率不高于热点条目，不被准入
+        for (int i = 0; i < 100; i++) {
+            String k = "scan" + i;
+            assertEquals(k, cache.get(k, v -> true, () -> k));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("hot" + i, cache.getIfPresent("hot" + i));
+        }
+        assertEquals(100, cache.size());
+        assertEquals(100, cache.stats().rejections);
+    }
+
+    @Test
+    public void testMetadataCacheLoadsTableOnce() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:metadata_loading;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS invoices");
+            st.execute("CREATE TABLE invoices (id INT PRIMARY KEY, total DECIMAL(10, 2))");
+        }
+        AtomicInteger connections = new AtomicInteger();
+        MetadataCache cache = new MetadataCache(100, 60000);
+        cache.registerDatasource("billing", () -> {
+            connections.incrementAndGet();
+            try {
+                return ds.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(2, cache.getTable("billing", null, null, "invoices").getColumns().size());
+        assertEquals(2, cache.getTable("billing", null, null, "invoices").getColumns().size());
+        assertEquals(1, connections.get());
+        assertEquals(1, cache.getStats().hits);
+        assertEquals(1, cache.getStats().misses);
+    }
+}
@@ -0,0 +1,200 @@
+package com.easysql.engine.metadata;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量预加载：一次扫描取全部表与列，多数据源并发，加载后不再访问数据库
+ */
+public class MetadataPreloadTest {
+
+    private static JdbcDataSource database(String name, String... ddl) throws SQLException {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            for (String sql : ddl) st.execute(sql);
+        }
+        return ds;
+    }
+
+    private static void register(MetadataCache cache, String name, JdbcDataSource ds, AtomicInteger connections) {
+        cache.registerDatasource(name, () -> {
+            connections.incrementAndGet();
+            try {
+                return ds.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testPreloadAllDatasourcesInOneSweepEach() throws Exception {
+        JdbcDataSource crm = database("preload_crm",
+                "DROP TABLE IF EXISTS leads", "DROP TABLE IF EXISTS contacts", "DROP TABLE IF EXISTS deals",
+                "CREATE TABLE leads (id INT PRIMARY KEY, source VARCHAR(20), score INT)",
+                "CREATE TABLE contacts (id INT PRIMARY KEY, email VARCHAR(100))",
+                "CREATE TABLE deals (id INT PRIMARY KEY, lead_id INT, amount DECIMAL(12, 2))",
+                "CREATE INDEX idx_deals_lead ON deals(lead_id)");
+        JdbcDataSource hr = database("preload_hr",
+                "DROP TABLE IF EXISTS staff", "DROP TABLE IF EXISTS teams",
+                "CREATE TABLE staff (id INT PRIMARY KEY, team_id INT)",
+                "CREATE TABLE teams (id INT PRIMARY KEY, name VARCHAR(50))");
+        AtomicInteger crmConnections = new AtomicInteger();
+        AtomicInteger hrConnections = new AtomicInteger();
+        MetadataCache cache = new MetadataCache(100, 60000);
+        register(cache, "crm", crm, crmConnections);
+        register(cache, "hr", hr, hrConnections);
+
+        Map<String, Integer> lastProgress = new ConcurrentHashMap<>();
+        List<MetadataCache.PreloadResult> results = cache.preloadAll(null, null,
+                (ds, loaded, total) -> {
+                    assertTrue(loaded <= total);
+                    lastProgress.put(ds, loaded);
+                });
+        results.sort(Comparator.comparing(r -> r.datasource));
+        assertEquals(2, results.size());
+        assertEquals(3, results.get(0).tables);
+        assertEquals(8, results.get(0).columns);
+        assertEquals(2, results.get(1).tables);
+        assertNull(results.get(1).error);
+        assertEquals(Integer.valueOf(3), lastProgress.get("crm"));
+        assertEquals(Integer.valueOf(2), lastProgress.get("hr"));
+        assertEquals(1, crmConnections.get());
+        assertEquals(1, hrConnections.get());
+
+        // 预加载后命中缓存，结构包含列、主键与索引
+        TableMetadata deals = cache.getTable("crm", null, null, "deals");
+        assertEquals(3, deals.getColumns().size());
+        assertEquals("id", deals.getPrimaryKeys().get(0).toLowerCase());
+        assertTrue(deals.getIndexes().stream().anyMatch(i -> "idx_deals_lead".equalsIgnoreCase(i.getIndexName())));
+        assertNotNull(cache.getTable("hr", null, null, "teams"));
+        assertEquals(1, crmConnections.get());
+        assertEquals(1, hrConnections.get());
+        assertEquals(0, cache.getStats().misses);
+    }
+
+    @Test
+    public void testPreloadStopsAtCacheCapacity() throws Exception {
+        JdbcDataSource ds = database("preload_full",
+                "DROP TABLE IF EXISTS a1", "DROP TABLE IF EXISTS a2", "DROP TABLE IF EXISTS a3", "DROP TABLE IF EXISTS a4",
+                "CREATE TABLE a1 (id INT PRIMARY KEY)", "CREATE TABLE a2 (id INT PRIMARY KEY)",
+                "CREATE TABLE a3 (id INT PRIMARY KEY)", "CREATE TABLE a4 (id INT PRIMARY KEY)");
+        MetadataCache cache = new MetadataCache(2, 60000);
+        register(cache, "full", ds, new AtomicInteger());
+        MetadataCache.PreloadResult result = cache.preloadSchema("full", null, null, (name, loaded, total) -> {});
+        // 只计入已准入缓存的表
+        assertEquals(2, result.tables);
+        assertEquals(2, result.columns);
+        assertEquals(2, result.skipped);
+        assertNull(result.error);
+        assertEquals(0, cache.getStats().rejections);
+    }
+
+    @Test
+    public void testFailingDatasourceDoesNotAbortOthers() {
+        MetadataCache cache = new MetadataCache(100, 60000);
+        cache.registerDatasource("offline", () -> {
+            throw new RuntimeException("connection refused");
+        });
+        List<MetadataCache.PreloadResult> results = cache.preloadAll(null, null, (ds, loaded, total) -> {});
+        assertEquals(1, results.size());
+        assertEquals("connection refused", results.get(0).error);
+    }
+
+    /**
+     * 以 MySQL 的方式暴露 H2：schema 作为 catalog 返回，TABLE_SCHEM 为空
+     */
+    private static Connection schemasAsCatalogs(Connection conn) {
+        DatabaseMetaData meta;
+        try {
+            meta = conn.getMetaData();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        DatabaseMetaData catalogMeta = proxy(DatabaseMetaData.class, (m, args) -> {
+            if (m.getName().equals("getTables") || m.getName().equals("getColumns")
+                    || m.getName().equals("getPrimaryKeys") || m.getName().equals("getIndexInfo")) {
+                Object[] shifted = args.clone();
+                shifted[1] = args[0];
+                shifted[0] = null;
+                ResultSet rs = (ResultSet) invoke(m, meta, shifted);
+                return proxy(ResultSet.class, (rm, rargs) -> {
+                    if (rm.getName().equals("getString") && rargs[0] instanceof String) {
+                        if ("TABLE_CAT".equals(rargs[0])) return rs.getString("TABLE_SCHEM");
+                        if ("TABLE_SCHEM".equals(rargs[0])) return null;
+                    }
+                    return invoke(rm, rs, rargs);
+                });
+            }
+            return invoke(m, meta, args);
+        });
+        return proxy(Connection.class, (m, args) -> m.getName().equals("getMetaData") ? catalogMeta : invoke(m, conn, args));
+    }
+
+    private interface Handler {
+        Object handle(Method m, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (p, m, args) -> handler.handle(m, args)));
+    }
+
+    private static Object invoke(Method m, Object target, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void testSameTableNameInTwoCatalogs() throws Exception {
+        JdbcDataSource ds = database("preload_catalogs",
+                "CREATE SCHEMA IF NOT EXISTS archive", "CREATE SCHEMA IF NOT EXISTS shop", "CREATE SCHEMA IF NOT EXISTS mysql",
+                "DROP TABLE IF EXISTS archive.orders", "DROP TABLE IF EXISTS shop.orders", "DROP TABLE IF EXISTS mysql.user",
+                "CREATE TABLE archive.orders (id INT PRIMARY KEY, total INT, archived_at TIMESTAMP)",
+                "CREATE TABLE shop.orders (id INT PRIMARY KEY, total INT)",
+                "CREATE TABLE mysql.user (host VARCHAR(60), name VARCHAR(32))");
+        MetadataCache cache = new MetadataCache(100, 60000);
+        cache.registerDatasource("catalogs", () -> {
+            try {
+                return schemasAsCatalogs(ds.getConnection());
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // 未指定 catalog：跳过系统库，同名表保留首个且列不与另一库的同名表混合
+        MetadataCache.PreloadResult all = cache.preloadSchema("catalogs", null, null, (name, loaded, total) -> {});
+        assertEquals(1, all.tables);
+        assertEquals(3, all.columns);
+        assertEquals(0, all.skipped);
+
+        MetadataCache.PreloadResult shop = cache.preloadSchema("catalogs", "shop", null, (name, loaded, total) -> {});
+        assertEquals(1, shop.tables);
+        assertEquals(2, shop.columns);
+        TableMetadata orders = cache.getTable("catalogs", "shop", null, "orders");
+        assertEquals("shop", orders.getCatalog());
+        assertEquals(2, orders.getColumns().size());
+        assertEquals("id", orders.getPrimaryKeys().get(0).toLowerCase());
+    }
+}
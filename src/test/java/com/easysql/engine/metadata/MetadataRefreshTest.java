@@ -0,0 +1,80 @@
+package com.easysql.engine.metadata;
+
+import com.easysql.engine.monitor.MetricsCollector;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 软TTL后台刷新、刷新失败保留旧值、硬TTL阻塞加载
+ */
+public class MetadataRefreshTest {
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("refresh timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testStaleServedWhileRefreshingAndFailureKeepsLastGood() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:metadata_refresh;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS payouts");
+            st.execute("CREATE TABLE payouts (id INT PRIMARY KEY, amount INT)");
+        }
+        AtomicBoolean down = new AtomicBoolean();
+        MetricsCollector metrics = new MetricsCollector();
+        MetadataCache cache = new MetadataCache(100, 50, 400);
+        cache.setMetrics(metrics);
+        cache.setRefreshRetryMs(60000);
+        cache.registerDatasource("payments", () -> {
+            if (down.get()) throw new RuntimeException("connection refused");
+            try {
+                return ds.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(2, cache.getTable("payments", null, null, "payouts").getColumns().size());
+
+        // 软TTL过后：立即返回旧值，后台加载新结构
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE payouts ADD COLUMN currency VARCHAR(3)");
+        }
+        Thread.sleep(80);
+        assertEquals(2, cache.getTable("payments", null, null, "payouts").getColumns().size());
+        assertEquals(1, metrics.getCounter(MetadataCache.COUNTER_STALE_SERVED));
+        await(() -> {
+            try {
+                return cache.getTable("payments", null, null, "payouts").getColumns().size() == 3;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // 数据库不可用：刷新失败计数，继续返回上次成功的值，重试间隔内不再刷新
+        down.set(true);
+        Thread.sleep(80);
+        assertEquals(3, cache.getTable("payments", null, null, "payouts").getColumns().size());
+        await(() -> metrics.getCounter(MetadataCache.COUNTER_REFRESH_FAILED) == 1);
+        long refreshes = metrics.getCounter(MetadataCache.COUNTER_REFRESH);
+        assertEquals(3, cache.getTable("payments", null, null, "payouts").getColumns().size());
+        assertEquals(refreshes, metrics.getCounter(MetadataCache.COUNTER_REFRESH));
+
+        // 超过硬TTL：阻塞加载，失败抛出
+        Thread.sleep(400);
+        assertThrows(RuntimeException.class, () -> cache.getTable("payments", null, null, "payouts"));
+    }
+}
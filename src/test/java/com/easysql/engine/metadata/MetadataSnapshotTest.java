@@ -0,0 +1,112 @@
+package com.easysql.engine.metadata;
+
+import com.easysql.engine.monitor.MetricsCollector;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 元数据快照：保存后重启加载即可服务，后台重新校验；损坏的快照被忽略
+ */
+public class MetadataSnapshotTest {
+
+    private static void register(MetadataCache cache, JdbcDataSource ds, AtomicInteger connections) {
+        cache.registerDatasource("ledger", () -> {
+            connections.incrementAndGet();
+            try {
+                return ds.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testWarmStartServesSnapshotAndRevalidatesInBackground(@TempDir Path dir) throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:metadata_snapshot;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS entries");
+            st.execute("CREATE TABLE entries (id BIGINT PRIMARY KEY, account_id INT NOT NULL, memo VARCHAR(200))");
+            st.execute("CREATE INDEX idx_entries_account ON entries(account_id)");
+        }
+        Path file = dir.resolve("metadata.snapshot");
+        MetadataCache before = new MetadataCache(100, 60000, 600000);
+        register(before, ds, new AtomicInteger());
+        before.getTable("ledger", null, null, "entries");
+        assertEquals(1, before.saveSnapshot(file));
+
+        // 停机期间表结构变化
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE entries ADD COLUMN posted_at TIMESTAMP");
+        }
+
+        // 未注册数据源时加载：立即可用，不访问数据库
+        MetricsCollector metrics = new MetricsCollector();
+        MetadataCache after = new MetadataCache(100, 60000, 600000);
+        after.setMetrics(metrics);
+        assertEquals(1, after.loadSnapshot(file));
+        TableMetadata tm = after.getTable("ledger", null, null, "entries");
+        assertEquals(3, tm.getColumns().size());
+        assertEquals("INT", tm.getColumn("account_id").getDataType());
+        assertFalse(tm.getColumn("account_id").getNullable());
+        assertEquals(200, tm.getColumn("memo").getSize().intValue());
+        assertEquals("id", tm.getPrimaryKeys().get(0).toLowerCase());
+        assertTrue(tm.getIndexes().stream().anyMatch(i -> "idx_entries_account".equalsIgnoreCase(i.getIndexName())
+                && i.getColumns().size() == 1));
+        assertEquals(0, after.getStats().misses);
+        assertEquals(1, metrics.getCounter(MetadataCache.COUNTER_STALE_SERVED));
+
+        // 注册后加载：后台用一个连接重新校验，取到新列
+        AtomicInteger connections = new AtomicInteger();
+        MetadataCache restarted = new MetadataCache(100, 60000, 600000);
+        register(restarted, ds, connections);
+        assertEquals(1, restarted.loadSnapshot(file));
+        long deadline = System.currentTimeMillis() + 5000;
+        // 后台加载完成前不访问，避免访问触发的软TTL刷新另开连接
+        while (restarted.getStats().loadSuccess < 1
+                || restarted.getTable("ledger", null, null, "entries").getColumns().size() != 4) {
+            if (System.currentTimeMillis() > deadline) fail("revalidation timed out");
+            Thread.sleep(10);
+        }
+        assertEquals(0, restarted.getStats().misses);
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testMissingOrCorruptSnapshotIsIgnored(@TempDir Path dir) throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:metadata_snapshot_corrupt;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS notes");
+            st.execute("CREATE TABLE notes (id INT PRIMARY KEY, body VARCHAR(100))");
+        }
+        MetadataCache cache = new MetadataCache(100, 60000, 600000);
+        register(cache, ds, new AtomicInteger());
+        cache.getTable("ledger", null, null, "notes");
+        Path file = dir.resolve("metadata.snapshot");
+        cache.saveSnapshot(file);
+
+        MetadataCache fresh = new MetadataCache(100, 60000, 600000);
+        assertEquals(0, fresh.loadSnapshot(dir.resolve("absent.snapshot")));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5a;
+        Files.write(file, bytes);
+        assertEquals(0, fresh.loadSnapshot(file));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertEquals(0, fresh.loadSnapshot(file));
+        // 未载入任何条目：访问时走加载，数据源未注册而失败
+        assertThrows(IllegalStateException.class, () -> fresh.getTable("ledger", null, null, "notes"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.dsl.SelectClause;
+import com.easysql.engine.model.Template;
+import org.junit.jupiter.api.Test;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 谓词下推：JOIN 感知的过滤位置与派生表下推
+ */
+public class BasicOptimizerTest {
+
+    private static String sql(Template t) {
+        return new EasySQLEngine().buildSQL(t);
+    }
+
+    @Test
+    public void testInnerJoinFilterMovesIntoOn() {
+        Template t = Query.create("push_inner")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id", "u.name")
+                .join(JoinClause.inner("users").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .where(and(leaf("u.status", "=", param("status")), leaf("o.amount", ">", val("100"))))
+                .build();
+        String sql = sql(t);
+        assertTrue(sql.contains("ON u.id = o.user_id AND u.status = :status"), sql);
+        // FROM 表上的过滤保留在 WHERE
+        assertTrue(sql.contains("WHERE o.amount > 100"), sql);
+    }
+
+    @Test
+    public void testLeftJoinFiltersStayInWhere() {
+        Template t = Query.create("push_left")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id", "u.name")
+                .join(JoinClause.left("users").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .where(and(leaf("o.status", "=", val("paid")), leaf("u.name", "IS", val("null"))))
+                .build();
+        String sql = sql(t);
+        assertTrue(sql.contains("LEFT JOIN"), sql);
+        assertTrue(sql.contains("ON u.id = o.user_id WHERE"), sql);
+        assertTrue(sql.contains("(o.status = 'paid') AND (u.name IS NULL)"), sql);
+    }
+
+    @Test
+    public void testNullRejectingFilterTurnsLeftJoinInner() {
+        Template t = Query.create("push_left_reject")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id")
+                .join(JoinClause.left("users").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .where(leaf("u.status", "=", param("status")))
+                .build();
+        String sql = sql(t);
+        assertTrue(sql.contains("INNER JOIN `users` `u` ON u.id = o.user_id AND u.status = :status"), sql);
+        assertFalse(sql.contains("WHERE"), sql);
+    }
+
+    @Test
+    public void testNoPushdownBeforeRightJoin() {
+        Template t = Query.create("push_right")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id")
+                .join(JoinClause.inner("users").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .join(JoinClause.right("regions").alias("r").on(leaf("r.id", "=", val("u.region_id"))))
+                .where(leaf("u.status", "=", param("status")))
+                .build();
+        assertTrue(sql(t).contains("WHERE u.status = :status"));
+    }
+
+    @Test
+    public void testDerivedTableFilterPushedIntoSubquery() {
+        Query inner = Query.create("recent")
+                .from("orders")
+                .select(SelectClause.expr("user_id").as("uid"), SelectClause.expr("SUM(amount)").as("total"))
+                .groupBy("user_id");
+        Template t = Query.create("push_derived")
+                .from(FromClause.subquery(inner, "d"))
+                .select("d.uid", "d.total")
+                .where(and(leaf("d.uid", "=", param("uid")), leaf("d.total", ">", val("10"))))
+                .build();
+        String sql = sql(t);
+        assertTrue(sql.contains("FROM (SELECT user_id AS `uid`, SUM(amount) AS `total` FROM `orders` WHERE user_id = :uid GROUP BY user_id) `d`"), sql);
+        // 聚合列上的过滤不能下推到子查询 WHERE
+        assertTrue(sql.endsWith("WHERE d.total > 10"), sql);
+    }
+
+    @Test
+    public void testDerivedTableWithLimitIsNotPushed() {
+        Query inner = Query.create("top").from("orders").select("id", "user_id").limit(10);
+        Template t = Query.create("push_derived_limit")
+                .from(FromClause.subquery(inner, "d"))
+                .select("d.id")
+                .where(leaf("d.user_id", "=", param("uid")))
+                .build();
+        assertTrue(sql(t).endsWith("LIMIT 10) `d` WHERE d.user_id = :uid"), sql(t));
+    }
+
+    @Test
+    public void testUngroupedAggregateSubqueryIsNotPushed() {
+        Query inner = Query.create("status_count")
+                .from("orders")
+                .select(SelectClause.expr("status"), SelectClause.expr("COUNT(*)").as("cnt"));
+        Template t = Query.create("push_derived_agg")
+                .from(FromClause.subquery(inner, "d"))
+                .select("d.status", "d.cnt")
+                .where(leaf("d.status", "=", param("status")))
+                .build();
+        // 整体聚合：下推会改变 COUNT(*) 的输入
+        assertTrue(sql(t).endsWith("FROM `orders`) `d` WHERE d.status = :status"), sql(t));
+    }
+
+    @Test
+    public void testHavingWithoutGroupByIsNotPushed() {
+        Query inner = Query.create("busy")
+                .from("orders")
+                .select("user_id")
+                .having(leaf("COUNT(*)", ">", val("100")));
+        Template t = Query.create("push_derived_having")
+                .from(FromClause.subquery(inner, "d"))
+                .select("d.user_id")
+                .where(leaf("d.user_id", "=", param("uid")))
+                .build();
+        String sql = sql(t);
+        assertTrue(sql.endsWith("WHERE d.user_id = :uid"), sql);
+        assertFalse(sql.contains("WHERE user_id = :uid"), sql);
+    }
+
+    @Test
+    public void testWindowFunctionSubqueryIsNotPushed() {
+        Query inner = Query.create("ranked")
+                .from("orders")
+                .select(SelectClause.expr("user_id"),
+                        SelectClause.expr("ROW_NUMBER() OVER (PARTITION BY status ORDER BY amount DESC)").as("rn"));
+        Template t = Query.create("push_derived_window")
+                .from(FromClause.subquery(inner, "d"))
+                .select("d.user_id", "d.rn")
+                .where(leaf("d.user_id", "=", param("uid")))
+                .build();
+        String sql = sql(t);
+        // 先过滤会改变分区内的行号
+        assertTrue(sql.endsWith("FROM `orders`) `d` WHERE d.user_id = :uid"), sql);
+    }
+}
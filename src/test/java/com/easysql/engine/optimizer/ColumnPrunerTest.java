@@ -0,0 +1,183 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.TemplateMapper;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.OrderByClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.dsl.SelectClause;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 元数据驱动的通配符展开、select裁剪与 LEFT JOIN 消除
+ */
+public class ColumnPrunerTest {
+
+    private static EasySQLEngine engine;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:column_pruner;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS orders");
+            st.execute("DROP TABLE IF EXISTS customers");
+            st.execute("DROP TABLE IF EXISTS tags");
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, user_id INT, amount INT, note VARCHAR(64))");
+            st.execute("CREATE TABLE customers (id INT PRIMARY KEY, email VARCHAR(64), name VARCHAR(64))");
+            st.execute("CREATE UNIQUE INDEX uk_customers_email ON customers (email)");
+            st.execute("CREATE TABLE tags (user_id INT, tag VARCHAR(16))");
+            st.execute("INSERT INTO customers VALUES (1, 'a@x', 'alice'), (2, 'b@x', 'bob')");
+            st.execute("INSERT INTO orders VALUES (1, 1, 10, 'n1'), (2, 2, 20, 'n2'), (3, 3, 30, 'n3')");
+            st.execute("INSERT INTO tags VALUES (1, 'vip'), (1, 'new')");
+        }
+        engine = new EasySQLEngine();
+        engine.registerDataSource("shop", ds);
+    }
+
+    private static Query orders() {
+        return Query.create("orders_view").datasource("shop").from(FromClause.table("orders").alias("o"));
+    }
+
+    @Test
+    public void testExpandsWildcards() {
+        Template t = Query.create("orders_all").datasource("shop").from("orders").select("*").build();
+        assertEquals("SELECT id, user_id, amount, note FROM `orders`", engine.buildSQL(t));
+
+        Template joined = orders()
+                .select("o.id", "u.*")
+                .join(JoinClause.inner("customers").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .build();
+        assertTrue(engine.buildSQL(joined).startsWith("SELECT o.id, u.id, u.email, u.name FROM"), engine.buildSQL(joined));
+    }
+
+    @Test
+    public void testJsonEntryPointsApplyMetadataRules() throws Exception {
+        String json = "{\"id\": \"orders_json\", \"datasource\": \"shop\", \"dialect\": \"mysql\","
+                + " \"select\": [{\"expr\": \"*\"}], \"from\": {\"table\": \"orders\"}}";
+        // JSON 与 Template 入口渲染出相同的SQL
+        assertEquals("SELECT id, user_id, amount, note FROM `orders`", engine.buildSQL(json));
+        assertEquals(engine.buildSQL(TemplateMapper.fromJson(json)), engine.parseAndBuild(json).sql);
+    }
+
+    @Test
+    public void testPrunesToNeededColumns() {
+        Template t = orders()
+                .select("*")
+                .orderBy(OrderByClause.by("amount"))
+                .options(OptionsClause.create().neededColumns("id", "note"))
+                .build();
+        // ORDER BY 引用的列保留
+        assertEquals("SELECT id, amount, note FROM `orders` `o` ORDER BY amount", engine.buildSQL(t));
+    }
+
+    @Test
+    public void testOrdinalReferencesDisablePruning() {
+        Template ordered = orders()
+                .select("*")
+                .orderBy(OrderByClause.by("3"))
+                .options(OptionsClause.create().neededColumns("id"))
+                .build();
+        // ORDER BY 3 指向 amount，裁剪后会指向其他列或越界
+        assertEquals("SELECT id, user_id, amount, note FROM `orders` `o` ORDER BY 3", engine.buildSQL(ordered));
+
+        Template grouped = Query.create("derived_grouped").datasource("shop")
+                .from(FromClause.subquery(Query.create("by_name").from("customers").select("name", "COUNT(*) AS cnt").groupBy("1"), "d"))
+                .select(SelectClause.expr("d.cnt"))
+                .build();
+        assertTrue(engine.buildSQL(grouped).contains("(SELECT name, COUNT(*) AS cnt FROM `customers` GROUP BY 1)"),
+                engine.buildSQL(grouped));
+    }
+
+    @Test
+    public void testRemovesUnusedLeftJoinOnUniqueKey() {
+        Template t = orders()
+                .select("o.*", "u.*")
+                .join(JoinClause.left("customers").alias("u").on(leaf("u.email", "=", val("o.note"))))
+                .options(OptionsClause.create().neededColumns("id", "amount"))
+                .build();
+        String sql = engine.buildSQL(t);
+        assertFalse(sql.contains("JOIN"), sql);
+
+        Map<String, Object> params = new HashMap<>();
+        assertEquals(3, engine.executeQuery(orders()
+                .select("o.*", "u.*")
+                .join(JoinClause.left("customers").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .options(OptionsClause.create().neededColumns("amount"))
+                .build(), params).getRows().size());
+    }
+
+    @Test
+    public void testKeepsLeftJoinOnNonUniqueKey() {
+        Template t = orders()
+                .select("o.id")
+                .join(JoinClause.left("tags").alias("g").on(leaf("g.user_id", "=", val("o.user_id"))))
+                .build();
+        // 非唯一键连接可能放大行数，不可移除
+        assertTrue(engine.buildSQL(t).contains("LEFT JOIN `tags` `g`"));
+    }
+
+    @Test
+    public void testKeepsReferencedLeftJoin() {
+        Template t = orders()
+                .select("o.id", "u.name")
+                .join(JoinClause.left("customers").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .build();
+        assertTrue(engine.buildSQL(t).contains("LEFT JOIN `customers` `u`"));
+    }
+
+    @Test
+    public void testPrunesDerivedTableColumns() {
+        Query inner = Query.create("users_sub").from("customers").select("*");
+        Template t = Query.create("derived").datasource("shop")
+                .from(FromClause.subquery(inner, "d"))
+                .select(SelectClause.expr("d.name"))
+                .build();
+        assertEquals("SELECT d.name FROM (SELECT name FROM `customers`) `d`", engine.buildSQL(t));
+    }
+
+    @Test
+    public void testKeepsDerivedColumnsReferencedUnqualifiedInJoin() {
+        Query totals = Query.create("totals_sub").from("orders")
+                .select("user_id", "SUM(amount) AS total", "COUNT(*) AS cnt")
+                .groupBy("user_id");
+        Template t = Query.create("derived_join").datasource("shop")
+                .from(FromClause.subquery(totals, "d"))
+                .select(SelectClause.expr("total"))
+                .join(JoinClause.inner("customers").alias("u").on(leaf("d.user_id", "=", val("u.id"))))
+                .orderBy(OrderByClause.by("total"))
+                .build();
+        // 多表查询中的未限定列 total 可能来自派生表，不能按限定引用 {user_id} 裁剪
+        String sql = engine.buildSQL(t);
+        assertTrue(sql.contains("SELECT user_id, SUM(amount) AS total, COUNT(*) AS cnt FROM `orders`"), sql);
+        assertEquals(2, engine.executeQuery(t, new HashMap<>()).getRows().size());
+
+        Template qualified = Query.create("derived_join_qualified").datasource("shop")
+                .from(FromClause.subquery(totals, "d"))
+                .select(SelectClause.expr("d.total"), SelectClause.expr("u.name"))
+                .join(JoinClause.inner("customers").alias("u").on(leaf("d.user_id", "=", val("u.id"))))
+                .build();
+        String pruned = engine.buildSQL(qualified);
+        assertTrue(pruned.contains("SELECT user_id, SUM(amount) AS total FROM `orders`"), pruned);
+    }
+
+    @Test
+    public void testNeededColumnsMustMatch() {
+        Template t = orders().select("o.id").options(OptionsClause.create().neededColumns("missing")).build();
+        assertThrows(IllegalArgumentException.class, () -> engine.buildSQL(t));
+    }
+}
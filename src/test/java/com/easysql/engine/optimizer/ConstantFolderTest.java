@@ -0,0 +1,141 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.dsl.SelectClause;
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.*;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 常量折叠、矛盾检测与恒假查询短路
+ */
+public class ConstantFolderTest {
+
+    private static String sql(Template t) {
+        return new EasySQLEngine().buildSQL(t);
+    }
+
+    private static Query orders() {
+        return Query.create("orders_fold").from("orders").select("id", "status");
+    }
+
+    @Test
+    public void testTautologiesAreRemoved() {
+        Template t = orders().where(and(leaf("1", "=", val("1")), leaf("status", "=", param("status")))).build();
+        assertEquals("SELECT id, status FROM `orders` WHERE status = :status", sql(t));
+
+        Template always = orders().where(or(leaf("status", "=", param("status")), leaf("'a'", "=", val("a")))).build();
+        assertEquals("SELECT id, status FROM `orders`", sql(always));
+    }
+
+    @Test
+    public void testContradictionsFoldToFalse() {
+        assertTrue(sql(orders().where(leaf("1", "=", val("0"))).build()).endsWith("WHERE 1 = 0"));
+        assertTrue(sql(orders().where(and(leaf("status", "=", val("a")), leaf("status", "=", val("b")))).build())
+                .endsWith("WHERE 1 = 0"));
+        assertTrue(sql(orders().where(and(leaf("amount", ">", val("5")), leaf("amount", "<=", val("5")))).build())
+                .endsWith("WHERE 1 = 0"));
+        assertTrue(sql(orders().where(leaf("id", "IN", val("()"))).build()).endsWith("WHERE 1 = 0"));
+        // NOT 取反、NOT IN 空列表恒真
+        assertEquals("SELECT id, status FROM `orders`", sql(orders().where(not(leaf("id", "IN", val("()")))).build()));
+    }
+
+    @Test
+    public void testContradictionsAreNotNegated() throws Exception {
+        Template negated = orders().where(not(and(leaf("status", "=", val("a")), leaf("status", "=", val("b"))))).build();
+        // status 为NULL时内层为NULL而非假，NOT 之后仍不成立，不能折叠为恒真
+        assertTrue(sql(negated).contains("WHERE NOT"), sql(negated));
+
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:constant_folder_not;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS orders");
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, status VARCHAR(16))");
+            st.execute("INSERT INTO orders VALUES (1, 'a'), (2, NULL)");
+        }
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("fold_not_db", ds);
+        Template t = Query.create("orders_not").datasource("fold_not_db").from("orders").select("id", "status")
+                .where(not(and(leaf("status", "=", val("a")), leaf("status", "=", val("b")))))
+                .build();
+        SQLExecutor.QueryResult r = engine.executeQuery(t, Collections.emptyMap());
+        assertEquals(1, r.getRowCount());
+        // 第二次命中缓存的计划，结果不变
+        assertEquals(1, engine.executeQuery(t, Collections.emptyMap()).getRowCount());
+    }
+
+    @Test
+    public void testSatisfiableRangesAreKept() {
+        String s = sql(orders().where(and(leaf("amount", ">=", val("5")), leaf("amount", "<=", val("5")))).build());
+        assertTrue(s.endsWith("WHERE amount = 5"), s);
+        // 字符串比较受排序规则影响，大小写不同不判定矛盾
+        String ci = sql(orders().where(and(leaf("status", "=", val("a")), leaf("status", "=", val("A")))).build());
+        assertFalse(ci.contains("1 = 0"), ci);
+    }
+
+    @Test
+    public void testBooleansOrderFalseBeforeTrue() {
+        assertEquals("SELECT id, status FROM `orders`", sql(orders().where(leaf("FALSE", "<", val("TRUE"))).build()));
+        assertTrue(sql(orders().where(leaf("FALSE", ">", val("TRUE"))).build()).endsWith("WHERE 1 = 0"));
+        String range = sql(orders().where(and(leaf("flag", ">=", val("FALSE")), leaf("flag", "<=", val("TRUE")))).build());
+        assertFalse(range.contains("1 = 0"), range);
+    }
+
+    @Test
+    public void testNeverMatchesRespectsAggregates() {
+        Template plain = orders().where(leaf("id", "IN", param("ids"))).build();
+        Map<String, Object> empty = new HashMap<>();
+        empty.put("ids", Collections.emptyList());
+        assertTrue(ConstantFolder.neverMatches(plain, empty));
+        assertFalse(ConstantFolder.neverMatches(plain, Collections.singletonMap("ids", Arrays.asList(1, 2))));
+        // Set 与对象数组同样是合法的集合参数
+        assertTrue(ConstantFolder.neverMatches(plain, Collections.singletonMap("ids", Collections.emptySet())));
+        assertTrue(ConstantFolder.neverMatches(plain, Collections.singletonMap("ids", new Object[0])));
+        assertFalse(ConstantFolder.neverMatches(plain, Collections.singletonMap("ids", new HashSet<>(Arrays.asList(1, 2)))));
+
+        // 无分组的聚合在空输入上仍返回一行
+        Template count = Query.create("orders_count").from("orders")
+                .select(SelectClause.expr("COUNT(*)").as("cnt"))
+                .where(leaf("id", "IN", param("ids")))
+                .build();
+        assertFalse(ConstantFolder.neverMatches(count, empty));
+    }
+
+    @Test
+    public void testShortCircuitSkipsDatabase() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:constant_folder;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS orders");
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, status VARCHAR(16))");
+            st.execute("INSERT INTO orders VALUES (1, 'a')");
+        }
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerDataSource("fold_db", ds);
+        Template t = Query.create("orders_short").datasource("fold_db").from("orders")
+                .select(SelectClause.expr("id"), SelectClause.expr("status").as("st"))
+                .where(leaf("id", "IN", param("ids")))
+                .param("ids", "INT")
+                .build();
+
+        SQLExecutor.QueryResult r = engine.executeQuery(t, Collections.singletonMap("ids", Collections.emptyList()));
+        assertEquals(0, r.getRowCount());
+        assertEquals(Arrays.asList("id", "st"), r.getColumnNames());
+        assertEquals(1, engine.getMetrics().getCounter("optimizer.short_circuit"));
+
+        assertEquals(1, engine.executeQuery(t, Collections.singletonMap("ids", Collections.singletonList(1))).getRowCount());
+        assertEquals(1, engine.executeQuery(t, Collections.singletonMap("ids", Collections.singleton(1))).getRowCount());
+        assertEquals(1, engine.getMetrics().getCounter("optimizer.short_circuit"));
+    }
+}
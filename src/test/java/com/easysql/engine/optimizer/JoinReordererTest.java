@@ -0,0 +1,103 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.metadata.TableMetadata;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 基于行数/基数统计的 INNER JOIN 链重排
+ */
+public class JoinReordererTest {
+
+    private static EasySQLEngine engine;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:join_reorder;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS orders");
+            st.execute("DROP TABLE IF EXISTS customers");
+            st.execute("DROP TABLE IF EXISTS regions");
+            st.execute("DROP TABLE IF EXISTS notes");
+            st.execute("CREATE TABLE regions (id INT PRIMARY KEY, name VARCHAR(16))");
+            st.execute("CREATE TABLE customers (id INT PRIMARY KEY, region_id INT)");
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, customer_id INT, amount INT)");
+            st.execute("CREATE TABLE notes (order_id INT PRIMARY KEY, body VARCHAR(16))");
+            st.execute("INSERT INTO regions SELECT \"X\", 'r' || \"X\" FROM SYSTEM_RANGE(1, 5)");
+            st.execute("INSERT INTO customers SELECT \"X\", MOD(\"X\", 5) + 1 FROM SYSTEM_RANGE(1, 100)");
+            st.execute("INSERT INTO orders SELECT \"X\", MOD(\"X\", 100) + 1, \"X\" FROM SYSTEM_RANGE(1, 5000)");
+            st.execute("INSERT INTO notes SELECT \"X\", 'n' FROM SYSTEM_RANGE(1, 10)");
+        }
+        engine = new EasySQLEngine();
+        engine.registerDataSource("shop", ds);
+    }
+
+    private static Query chain() {
+        return Query.create("orders_by_region").datasource("shop")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id")
+                .join(JoinClause.inner("customers").alias("c").on(leaf("c.id", "=", val("o.customer_id"))))
+                .join(JoinClause.inner("regions").alias("r").on(leaf("r.id", "=", val("c.region_id"))));
+    }
+
+    @Test
+    public void testLoadsRowCountStatistics() throws Exception {
+        TableMetadata orders = engine.getMetadataCache().getTable("shop", null, null, "orders");
+        assertEquals(5000, orders.getRowCount());
+        assertTrue(orders.getIndexes().get(0).getCardinality() > 0);
+    }
+
+    @Test
+    public void testSelectiveRelationDrivesJoin() {
+        Template t = chain().where(leaf("r.id", "=", param("rid"))).build();
+        String sql = engine.buildSQL(t);
+        assertEquals("SELECT STRAIGHT_JOIN o.id FROM `regions` `r` INNER JOIN `customers` `c` ON r.id = c.region_id AND r.id = :rid"
+                + " INNER JOIN `orders` `o` ON c.id = o.customer_id", sql);
+        // H2 不支持 STRAIGHT_JOIN，执行时使用 h2 方言
+        assertEquals(1000, engine.executeQuery(chain().dialect("h2").where(leaf("r.id", "=", param("rid"))).param("rid", "INT").build(),
+                Collections.singletonMap("rid", 3)).getRowCount());
+    }
+
+    @Test
+    public void testOuterJoinStaysInPlace() {
+        Template t = chain()
+                .select("n.body")
+                .join(JoinClause.left("notes").alias("n").on(leaf("n.order_id", "=", val("o.id"))))
+                .build();
+        String sql = engine.buildSQL(t);
+        // 从最小表开始，LEFT JOIN 仍在末尾
+        assertTrue(sql.contains("FROM `regions` `r` INNER JOIN `customers` `c`"), sql);
+        assertTrue(sql.endsWith("LEFT JOIN `notes` `n` ON n.order_id = o.id"), sql);
+    }
+
+    @Test
+    public void testSameRowsAfterReorder() {
+        Template t = chain().dialect("h2").where(leaf("o.amount", "<", val("100"))).build();
+        EasySQLEngine plain = new EasySQLEngine();
+        assertTrue(plain.buildSQL(chain().where(leaf("o.amount", "<", val("100"))).build()).startsWith("SELECT o.id FROM `orders`"));
+        assertEquals(99, engine.executeQuery(t, Collections.emptyMap()).getRowCount());
+    }
+
+    @Test
+    public void testAuthorFixedOrderIsKept() {
+        Template t = chain()
+                .options(com.easysql.engine.dsl.OptionsClause.create().straightJoin(true))
+                .build();
+        assertTrue(engine.buildSQL(t).startsWith("SELECT STRAIGHT_JOIN o.id FROM `orders` `o`"));
+    }
+}
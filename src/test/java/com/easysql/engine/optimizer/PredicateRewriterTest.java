@@ -0,0 +1,83 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OR 等值合并为 IN、同列范围合并
+ */
+public class PredicateRewriterTest {
+
+    private static String sql(Template t) {
+        return new EasySQLEngine().buildSQL(t);
+    }
+
+    private static Query orders() {
+        return Query.create("orders_rewrite").from("orders").select("id");
+    }
+
+    @Test
+    public void testOrOfEqualitiesBecomesIn() {
+        Template t = orders().where(or(leaf("status", "=", val("a")), leaf("status", "=", val("O'Brien")),
+                leaf("`status`", "=", val("a")), leaf("region", "=", param("region")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE (status IN ('a', 'O''Brien')) OR (region = :region)", sql(t));
+
+        Template all = orders().where(or(leaf("id", "=", val("1")), leaf("id", "=", val("2")), leaf("id", "=", val("3")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE id IN (1, 2, 3)", sql(all));
+    }
+
+    @Test
+    public void testParameterEqualitiesAreKept() {
+        Template t = orders().where(or(leaf("id", "=", param("a")), leaf("id", "=", param("b")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE (id = :a) OR (id = :b)", sql(t));
+    }
+
+    @Test
+    public void testRangesMergeToTightestBound() {
+        Template t = orders().where(and(leaf("amount", ">", val("5")), leaf("amount", ">", val("7")),
+                leaf("amount", ">=", val("7")), leaf("status", "=", param("s")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE (amount > 7) AND (status = :s)", sql(t));
+    }
+
+    @Test
+    public void testClosedRangeBecomesBetween() {
+        Template t = orders().where(and(leaf("amount", ">=", val("1")), leaf("amount", "<=", val("100")),
+                leaf("amount", "<", val("200")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE amount BETWEEN 1 AND 100", sql(t));
+
+        Template point = orders().where(and(leaf("amount", ">=", val("3")), leaf("amount", "<=", val("3")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE amount = 3", sql(point));
+
+        Template eq = orders().where(and(leaf("amount", "=", val("4")), leaf("amount", ">", val("3")))).build();
+        assertEquals("SELECT id FROM `orders` WHERE amount = 4", sql(eq));
+    }
+
+    @Test
+    public void testRewrittenSqlReturnsSameRows() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:predicate_rewrite;MODE=MySQL", "sa", "");
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, amount INT, status VARCHAR(16))");
+            st.execute("INSERT INTO orders SELECT X, X * 10, CASE WHEN MOD(X, 2) = 0 THEN 'a' ELSE 'b' END FROM SYSTEM_RANGE(1, 50)");
+            Template t = orders().where(and(
+                    or(leaf("id", "=", val("2")), leaf("id", "=", val("4")), leaf("id", "=", val("40")), leaf("id", "=", val("41"))),
+                    leaf("amount", ">=", val("20")), leaf("amount", "<=", val("400")))).build();
+            String sql = sql(t);
+            assertTrue(sql.contains("IN (2, 4, 40, 41)") && sql.contains("BETWEEN 20 AND 400"), sql);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                int n = 0;
+                while (rs.next()) n++;
+                assertEquals(3, n);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import com.easysql.engine.monitor.MetricsCollector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 规则引擎：优先级顺序、不动点与迭代上限、按模板禁用与规则指标
+ */
+public class RuleEngineTest {
+
+    private static Template orders() {
+        return Query.create("rules").from("orders").select("id").build();
+    }
+
+    @Test
+    public void testRulesRunByPriorityUntilFixpoint() {
+        MetricsCollector metrics = new MetricsCollector();
+        List<String> calls = new ArrayList<>();
+        RuleEngine engine = new RuleEngine(metrics)
+                .register(Rule.of("offset_at_three", 20, t -> {
+                    calls.add("offset_at_three");
+                    if (t.offset == null && t.limit != null && t.limit == 3) t.offset = 3;
+                    return t;
+                }))
+                .register(Rule.of("grow_limit", 10, t -> {
+                    calls.add("grow_limit");
+                    if (t.limit == null) t.limit = 1;
+                    else if (t.limit < 3) t.limit = t.limit + 1;
+                    return t;
+                }));
+        Template t = engine.optimize(orders());
+        assertEquals(Integer.valueOf(3), t.limit);
+        assertEquals(Integer.valueOf(3), t.offset);
+        assertEquals("grow_limit", calls.get(0));
+        // 第4轮两条规则都无改动
+        assertEquals(4, metrics.getCounter("optimizer.rule.grow_limit.invocations"));
+        assertEquals(3, metrics.getCounter("optimizer.rule.grow_limit.changes"));
+        assertEquals(1, metrics.getCounter("optimizer.rule.offset_at_three.changes"));
+        assertEquals(0.75, engine.changeRate("grow_limit"), 1e-9);
+        assertEquals(0, metrics.getCounter(RuleEngine.COUNTER_ITERATION_CAP));
+    }
+
+    @Test
+    public void testSinglePassRunsEachRuleOnce() {
+        MetricsCollector metrics = new MetricsCollector();
+        RuleEngine engine = RuleEngine.singlePass(metrics)
+                .register(Rule.of("grow_limit", 10, t -> {
+                    t.limit = t.limit == null ? 1 : t.limit + 1;
+                    return t;
+                }));
+        assertEquals(Integer.valueOf(1), engine.optimize(orders()).limit);
+        assertEquals(1, metrics.getCounter("optimizer.rule.grow_limit.invocations"));
+        assertEquals(0, metrics.getCounter("optimizer.rule.grow_limit.changes"));
+    }
+
+    @Test
+    public void testIterationCapStopsOscillation() {
+        MetricsCollector metrics = new MetricsCollector();
+        RuleEngine engine = new RuleEngine(metrics, 3)
+                .register(Rule.of("flip", 10, t -> {
+                    t.limit = t.limit == null || t.limit == 2 ? 1 : 2;
+                    return t;
+                }));
+        engine.optimize(orders());
+        assertEquals(3, metrics.getCounter("optimizer.rule.flip.invocations"));
+        assertEquals(1, metrics.getCounter(RuleEngine.COUNTER_ITERATION_CAP));
+    }
+
+    @Test
+    public void testDuplicateRuleNameRejected() {
+        RuleEngine engine = new RuleEngine(new MetricsCollector()).register(Rule.of("a", 1, t -> t));
+        assertThrows(IllegalArgumentException.class, () -> engine.register(Rule.of("A", 2, t -> t)));
+    }
+
+    @Test
+    public void testRuleCanBeDisabledPerTemplate() {
+        EasySQLEngine engine = new EasySQLEngine();
+        Query q = Query.create("rules_disabled")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id")
+                .join(JoinClause.inner("users").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .where(leaf("u.status", "=", param("status")));
+        assertTrue(engine.buildSQL(q.build()).contains("ON u.id = o.user_id AND u.status = :status"));
+
+        String sql = engine.buildSQL(q.options(OptionsClause.create().disableRules("predicate_pushdown")).build());
+        assertTrue(sql.endsWith("ON u.id = o.user_id WHERE u.status = :status"), sql);
+        assertEquals(1, engine.getMetrics().getCounter("optimizer.rule.predicate_pushdown.skipped"));
+        assertTrue(engine.getMetrics().getCounter("optimizer.rule.normalize.invocations") > 0);
+        assertTrue(engine.getMetrics().getCounter("optimizer.rule.predicate_pushdown.changes") > 0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.easysql.engine.optimizer;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 索引列上的可索引化改写与计数
+ */
+public class SargableRewriterTest {
+
+    private static EasySQLEngine engine;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:sargable;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS events");
+            st.execute("CREATE TABLE events (id INT PRIMARY KEY, created_at TIMESTAMP, score INT, name VARCHAR(32), note VARCHAR(32),"
+                    + " ratio DOUBLE, due DATE, code VARCHAR(32))");
+            st.execute("CREATE INDEX idx_events_created ON events (created_at)");
+            st.execute("CREATE INDEX idx_events_score_name ON events (score, name)");
+            st.execute("CREATE INDEX idx_events_ratio ON events (ratio)");
+            st.execute("CREATE INDEX idx_events_due ON events (due)");
+            st.execute("CREATE INDEX idx_events_code ON events (code)");
+            st.execute("INSERT INTO events (id, created_at, score, name, note) VALUES (1, '2024-03-01 00:00:00', 10, 'a', 'x'),"
+                    + " (2, '2024-03-01 23:59:59', 20, 'b', 'x'), (3, '2024-03-02 00:00:00', 30, 'c', 'x')");
+        }
+        engine = new EasySQLEngine();
+        engine.registerDataSource("events_db", ds);
+    }
+
+    private static Query events() {
+        return Query.create("events_sarg").datasource("events_db").from("events").select("id");
+    }
+
+    @Test
+    public void testDateCallBecomesHalfOpenRange() {
+        long before = engine.getMetrics().getCounter(SargableRewriter.COUNTER_DATE_RANGE);
+        String sql = engine.buildSQL(events().where(leaf("DATE(created_at)", "=", param("day"))).build());
+        assertEquals("SELECT id FROM `events` WHERE (created_at >= CAST(:day AS DATE))"
+                + " AND (created_at < DATE_ADD(CAST(:day AS DATE), INTERVAL 1 DAY))", sql);
+
+        String literal = engine.buildSQL(events().where(leaf("DATE(created_at)", "=", val("2024-03-01"))).build());
+        assertEquals("SELECT id FROM `events` WHERE (created_at >= '2024-03-01') AND (created_at < '2024-03-02')", literal);
+        assertEquals(before + 2, engine.getMetrics().getCounter(SargableRewriter.COUNTER_DATE_RANGE));
+    }
+
+    @Test
+    public void testArithmeticMovesToRightSide() {
+        assertEquals("SELECT id FROM `events` WHERE score = (:x - 1)",
+                engine.buildSQL(events().where(leaf("score + 1", "=", param("x"))).build()));
+        assertEquals("SELECT id FROM `events` WHERE score > 7",
+                engine.buildSQL(events().where(leaf("score - 2", ">", val("5"))).build()));
+        // 非索引前导列不改写
+        assertEquals("SELECT id FROM `events` WHERE id * 2 = :x",
+                engine.buildSQL(events().where(leaf("id * 2", "=", param("x"))).build()));
+        assertEquals("SELECT id FROM `events` WHERE note + 1 = :x",
+                engine.buildSQL(events().where(leaf("note + 1", "=", param("x"))).build()));
+    }
+
+    @Test
+    public void testRewritesRequireMatchingColumnType() {
+        // 浮点列移项不等价（0.3 - 0.1 != 0.2），日期列上的 + 1 不是日期运算
+        assertEquals("SELECT id FROM `events` WHERE ratio + 0.1 = 0.3",
+                engine.buildSQL(events().where(leaf("ratio + 0.1", "=", val("0.3"))).build()));
+        assertEquals("SELECT id FROM `events` WHERE due + 1 = :d",
+                engine.buildSQL(events().where(leaf("due + 1", "=", param("d"))).build()));
+        // 字符串列上的 DATE() 按字符串解析，不改写为范围
+        assertEquals("SELECT id FROM `events` WHERE DATE(code) = :day",
+                engine.buildSQL(events().where(leaf("DATE(code)", "=", param("day"))).build()));
+        assertEquals("SELECT id FROM `events` WHERE (due >= CAST(:day AS DATE)) AND (due < DATE_ADD(CAST(:day AS DATE), INTERVAL 1 DAY))",
+                engine.buildSQL(events().where(leaf("DATE(due)", "=", param("day"))).build()));
+    }
+
+    @Test
+    public void testLeadingWildcardIsCounted() {
+        long before = engine.getMetrics().getCounter(SargableRewriter.COUNTER_LEADING_WILDCARD);
+        engine.buildSQL(events().where(leaf("score", "LIKE", val("%0"))).build());
+        engine.buildSQL(events().where(leaf("note", "LIKE", val("%x"))).build());
+        engine.buildSQL(events().where(leaf("score", "LIKE", val("1%"))).build());
+        assertEquals(before + 1, engine.getMetrics().getCounter(SargableRewriter.COUNTER_LEADING_WILDCARD));
+    }
+
+    @Test
+    public void testRewrittenDateRangeMatchesSameRows() {
+        Template t = events().dialect("h2")
+                .where(leaf("DATE(created_at)", "=", param("day")))
+                .param("day", "DATE")
+                .build();
+        assertEquals(2, engine.executeQuery(t, Collections.singletonMap("day", "2024-03-01")).getRowCount());
+    }
+
+    @Test
+    public void testDateRangeTruncatesTimeOfParameter() {
+        Template t = events().dialect("h2")
+                .where(leaf("DATE(created_at)", "=", param("day")))
+                .param("day", "TIMESTAMP")
+                .build();
+        // 参数带时间部分时下界须截断到当天零点，否则漏掉当天较早的行
+        assertEquals(2, engine.executeQuery(t, Collections.singletonMap("day", "2024-03-01 12:00:00")).getRowCount());
+    }
+}
@@ -0,0 +1,134 @@
+package com.easysql.engine.plan;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.builder.SQLBuilder;
+import com.easysql.engine.dialect.MySQLDialect;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.OrderByClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.model.Template;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 不可变逻辑计划：结构相等、驻留共享、模板往返与优化结果缓存
+ */
+public class LogicalPlanTest {
+
+    private static Query paid(String id) {
+        return Query.create(id)
+                .from(FromClause.subquery(Query.create("sub").from("orders").select("user_id", "amount")
+                        .where(leaf("status", "=", val("paid"))), "p"))
+                .select("p.user_id", "SUM(p.amount) AS total")
+                .join(JoinClause.inner("users").alias("u").on(leaf("u.id", "=", val("p.user_id"))))
+                .where(or(leaf("u.level", "=", param("level")), leaf("u.vip", "=", val("1"))))
+                .groupBy("p.user_id")
+                .having(leaf("SUM(p.amount)", ">", val("100")))
+                .orderBy(OrderByClause.by("total"))
+                .limit(10, 20);
+    }
+
+    @Test
+    public void testStructurallyEqualTemplatesShareOnePlan() {
+        PlanNode a = LogicalPlan.of(paid("a").build());
+        PlanNode b = LogicalPlan.of(paid("b").build());
+        // id 不属于计划结构
+        assertSame(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, LogicalPlan.of(paid("c").limit(5).build()));
+        assertTrue(a instanceof PlanNode.Limit);
+    }
+
+    @Test
+    public void testIdenticalSubtreesAreShared() {
+        PlanNode limited = LogicalPlan.of(paid("x").build());
+        PlanNode unlimited = LogicalPlan.of(Query.create("y")
+                .from(FromClause.subquery(Query.create("sub").from("orders").select("user_id", "amount")
+                        .where(leaf("status", "=", val("paid"))), "p"))
+                .select("p.user_id")
+                .build());
+        assertSame(derived(limited).input, derived(unlimited).input);
+    }
+
+    @Test
+    public void testRoundTripRendersSameSQL() {
+        Template t = paid("round").build();
+        Template copy = LogicalPlan.toTemplate(LogicalPlan.of(t), t);
+        SQLBuilder builder = new SQLBuilder(new MySQLDialect());
+        assertEquals(builder.buildSelect(t), builder.buildSelect(copy));
+        assertEquals("round", copy.id);
+        assertNotSame(t.where, copy.where);
+        assertSame(LogicalPlan.of(t), LogicalPlan.of(copy));
+    }
+
+    @Test
+    public void testEngineLeavesCallerTemplateUntouchedAndMemoizes() {
+        EasySQLEngine engine = new EasySQLEngine();
+        Template t = Query.create("memo")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id")
+                .join(JoinClause.inner("users").alias("u").on(leaf("u.id", "=", val("o.user_id"))))
+                .where(and(leaf("u.status", "=", param("status")), leaf("o.amount", ">", val("100"))))
+                .build();
+        String first = engine.buildSQL(t);
+        // 下推只作用于副本：调用方模板的 WHERE 与 JOIN 条件保持原样
+        assertEquals("AND", t.where.op);
+        assertEquals(2, t.where.conditions.size());
+        assertEquals(1, t.joins.get(0).on.size());
+
+        long hits = engine.getMetrics().getCounter(EasySQLEngine.COUNTER_PLAN_CACHE_HIT);
+        assertEquals(first, engine.buildSQL(t));
+        assertEquals(hits + 1, engine.getMetrics().getCounter(EasySQLEngine.COUNTER_PLAN_CACHE_HIT));
+    }
+
+    @Test
+    public void testConcurrentBuildsOptimizeOnce() throws Exception {
+        EasySQLEngine engine = new EasySQLEngine();
+        Template t = paid("memo_concurrent").limit(1, 2).build();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(pool.submit(() -> engine.buildSQL(t)));
+            }
+            String first = futures.get(0).get();
+            for (Future<String> f : futures) assertEquals(first, f.get());
+        } finally {
+            pool.shutdownNow();
+        }
+        // 并发未命中的同一计划只优化一次，其余调用共享结果
+        assertEquals(63, engine.getMetrics().getCounter(EasySQLEngine.COUNTER_PLAN_CACHE_HIT));
+    }
+
+    @Test
+    public void testConcurrentInterningYieldsOneInstance() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PlanNode>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String id = "t" + i;
+                futures.add(pool.submit(() -> LogicalPlan.of(paid(id).limit(1, 2).build())));
+            }
+            PlanNode first = futures.get(0).get();
+            for (Future<PlanNode> f : futures) assertSame(first, f.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static PlanNode.Derived derived(PlanNode node) {
+        while (!(node instanceof PlanNode.Derived)) {
+            node = node instanceof PlanNode.Join ? ((PlanNode.Join) node).left : node.children().get(0);
+        }
+        return (PlanNode.Derived) node;
+    }
+}
@@ -0,0 +1,324 @@
+package com.easysql.engine.shard;
+
+import com.easysql.engine.EasySQLEngine;
+import com.easysql.engine.dsl.FromClause;
+import com.easysql.engine.dsl.JoinClause;
+import com.easysql.engine.dsl.OptionsClause;
+import com.easysql.engine.dsl.OrderByClause;
+import com.easysql.engine.dsl.Query;
+import com.easysql.engine.dsl.SelectClause;
+import com.easysql.engine.executor.JDBCSQLExecutor;
+import com.easysql.engine.executor.SQLExecutor;
+import com.easysql.engine.model.Template;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static com.easysql.engine.dsl.WhereClause.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片扇出执行测试：4个H2内存库充当分片，另一个库保存全量数据作为对照
+ */
+public class ShardedExecutorTest {
+
+    private static final int SHARDS = 4;
+    private static DataSource[] shards;
+    private static DataSource whole;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        shards = new DataSource[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = h2("shard_orders_" + i);
+        }
+        whole = h2("shard_orders_all");
+        for (int id = 1; id <= 200; id++) {
+            int userId = id % 37;
+            String row = "(" + id + ", " + userId + ", " + ((id * 7919) % 1000) + ", '" + (id % 3 == 0 ? "paid" : "new") + "')";
+            insert(shards[userId % SHARDS], row);
+            insert(whole, row);
+        }
+    }
+
+    private static DataSource h2(String db) throws SQLException {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + db + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS orders");
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, user_id INT, amount INT, status VARCHAR(20))");
+        }
+        return ds;
+    }
+
+    private static void insert(DataSource ds, String row) throws SQLException {
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("INSERT INTO orders VALUES " + row);
+        }
+    }
+
+    private static EasySQLEngine engine() {
+        EasySQLEngine engine = new EasySQLEngine();
+        engine.registerShardedDataSource(new ShardedDataSource("orders", "user_id", ShardStrategy.modulo(), shards));
+        return engine;
+    }
+
+    private static List<Object> ids(SQLExecutor.QueryResult r) {
+        List<Object> out = new ArrayList<>();
+        for (Map<String, Object> row : r.getRows()) out.add(row.get("ID"));
+        return out;
+    }
+
+    private static SQLExecutor.QueryResult onWhole(EasySQLEngine engine, Template t, Map<String, Object> params) throws Exception {
+        try (Connection c = whole.getConnection()) {
+            return new JDBCSQLExecutor().executeQuery(c, engine.buildSQL(t), t, params);
+        }
+    }
+
+    @Test
+    public void testOrderByLimitOffsetMatchesSingleDatabase() throws Exception {
+        EasySQLEngine engine = engine();
+        Template t = Query.create("shard_top")
+                .datasource("orders")
+                .from("orders")
+                .select("id", "user_id", "amount")
+                .where(leaf("status", "=", val("new")))
+                .orderBy(OrderByClause.by("amount").desc(), OrderByClause.by("id").asc())
+                .limit(10, 5)
+                .build();
+
+        SQLExecutor.QueryResult merged = engine.executeQuery(t, new HashMap<>());
+        assertEquals(10, merged.getRowCount());
+        assertEquals(ids(onWhole(engine, t, new HashMap<>())), ids(merged));
+    }
+
+    @Test
+    public void testUnorderedLimitAcrossShards() {
+        Template t = Query.create("shard_any")
+                .datasource("orders")
+                .from("orders")
+                .select("id")
+                .limit(7)
+                .build();
+        assertEquals(7, engine().executeQuery(t, new HashMap<>()).getRowCount());
+    }
+
+    @Test
+    public void testShardKeyPredicatePrunes() {
+        ShardedDataSource ds = new ShardedDataSource("orders", "user_id", ShardStrategy.modulo(), shards);
+        Map<String, Object> params = new HashMap<>();
+        params.put("uid", 6);
+
+        assertEquals(Collections.singletonList(2),
+                ShardPruner.prune(ds, and(leaf("o.user_id", "=", param("uid")), leaf("status", "=", val("new"))).build(), params));
+        assertEquals(Arrays.asList(1, 2),
+                ShardPruner.prune(ds, or(leaf("user_id", "=", val("5")), leaf("user_id", "=", param("uid"))).build(), params));
+        params.put("uids", Arrays.asList(4, 8, 3));
+        assertEquals(Arrays.asList(0, 3), ShardPruner.prune(ds, leaf("user_id", "IN", param("uids")).build(), params));
+        // OR 中出现非分片键谓词时无法裁剪
+        assertEquals(SHARDS, ShardPruner.prune(ds, or(leaf("user_id", "=", val("5")), leaf("status", "=", val("new"))).build(), params).size());
+    }
+
+    @Test
+    public void testJoinPrunesOnlyOnShardedRelation() {
+        ShardedDataSource ds = new ShardedDataSource("orders", "user_id", ShardStrategy.modulo(), shards);
+        Map<String, Object> params = new HashMap<>();
+        params.put("uid", 6);
+        Template onOther = Query.create("shard_join_other")
+                .from(FromClause.table("orders").alias("o"))
+                .select("o.id")
+                .join(JoinClause.inner("orders_archive").alias("o2").on(leaf("o2.id", "=", val("o.id"))))
+                .where(leaf("o2.user_id", "=", param("uid")))
+                .build();
+        // 非分片表上的同名列不能裁剪分片表
+        assertEquals(SHARDS, ShardPruner.prune(ds, onOther, params).size());
+        onOther.where = leaf("user_id", "=", param("uid")).build();
+        assertEquals(SHARDS, ShardPruner.prune(ds, onOther, params).size());
+        onOther.where = leaf("o.user_id", "=", param("uid")).build();
+        assertEquals(Collections.singletonList(2), ShardPruner.prune(ds, onOther, params));
+        onOther.where = leaf("`orders`.`user_id`", "=", param("uid")).build();
+        assertEquals(Collections.singletonList(2), ShardPruner.prune(ds, onOther, params));
+    }
+
+    @Test
+    public void testMaxRowsCapsMergedShardResult() throws Exception {
+        EasySQLEngine engine = engine();
+        Template t = Query.create("shard_max_rows")
+                .datasource("orders")
+                .from("orders")
+                .select("id", "amount")
+                .orderBy(OrderByClause.by("amount").desc(), OrderByClause.by("id").asc())
+                .limit(10, 5)
+                .options(OptionsClause.create().maxRows(3))
+                .build();
+        SQLExecutor.QueryResult merged = engine.executeQuery(t, new HashMap<>());
+        assertEquals(3, merged.getRowCount());
+        // 与单库一致：分片语句不按 maxRows 截断，OFFSET 之后的行不丢失
+        assertEquals(ids(onWhole(engine, t, new HashMap<>())), ids(merged));
+    }
+
+    @Test
+    public void testPrunedQueryReturnsOnlyMatchingRows() {
+        Template t = Query.create("shard_point")
+                .datasource("orders")
+                .from("orders")
+                .select("id", "user_id")
+                .where(leaf("user_id", "=", param("uid")))
+                .param("uid", "INT")
+                .orderBy(OrderByClause.by("id").asc())
+                .build();
+        Map<String, Object> params = new HashMap<>();
+        params.put("uid", 11);
+        SQLExecutor.QueryResult r = engine().executeQuery(t, params);
+        assertFalse(r.getRows().isEmpty());
+        for (Map<String, Object> row : r.getRows()) {
+            assertEquals(11, row.get("USER_ID"));
+        }
+    }
+
+    @Test
+    public void testAllShardsPrunedKeepsColumns() {
+        Template t = Query.create("shard_none")
+                .datasource("orders")
+                .from("orders")
+                .select(SelectClause.expr("id"), SelectClause.expr("user_id").as("uid"))
+                .where(and(leaf("user_id", "=", param("a")), leaf("user_id", "=", param("b"))))
+                .param("a", "INT")
+                .param("b", "INT")
+                .orderBy(OrderByClause.by("id").asc())
+                .build();
+        Map<String, Object> params = new HashMap<>();
+        params.put("a", 1);
+        params.put("b", 2);
+        SQLExecutor.QueryResult r = engine().executeQuery(t, params);
+        assertEquals(0, r.getRowCount());
+        assertEquals(Arrays.asList("id", "uid"), r.getColumnNames());
+    }
+
+    @Test
+    public void testMergeFollowsCaseInsensitiveCollation() {
+        Template t = Query.create("shard_names").from("users").select("name")
+                .orderBy(OrderByClause.by("name").asc()).build();
+        List<String> columns = Collections.singletonList("name");
+        // 各分片按忽略大小写的排序规则有序
+        List<List<Map<String, Object>>> inputs = Arrays.asList(
+                Arrays.asList(row("alice"), row("Carol")),
+                Arrays.asList(row("Bob"), row("dave")));
+        List<Object> merged = new ArrayList<>();
+        for (Map<String, Object> row : ResultMerger.mergeSorted(inputs, ResultMerger.comparator(t, columns), null, 3)) {
+            merged.add(row.get("name"));
+        }
+        assertEquals(Arrays.asList("alice", "Bob", "Carol"), merged);
+
+        // 二进制排序规则（*_bin）下大写在前
+        List<List<Map<String, Object>>> binary = Arrays.asList(
+                Arrays.asList(row("Carol"), row("alice")),
+                Arrays.asList(row("Bob"), row("dave")));
+        List<Object> ordered = new ArrayList<>();
+        for (Map<String, Object> row : ResultMerger.mergeSorted(binary, ResultMerger.comparator(t, columns, null), null, null)) {
+            ordered.add(row.get("name"));
+        }
+        assertEquals(Arrays.asList("Bob", "Carol", "alice", "dave"), ordered);
+    }
+
+    private static Map<String, Object> row(String name) {
+        return Collections.singletonMap("name", name);
+    }
+
+    @Test
+    public void testOrderKeyMustBeSelected() {
+        Template t = Query.create("shard_bad_order")
+                .datasource("orders")
+                .from("orders")
+                .select("id")
+                .orderBy(OrderByClause.by("amount").desc())
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> engine().executeQuery(t, new HashMap<>()));
+    }
+
+    @Test
+    public void testGroupByAggregatesMergeAcrossShards() throws Exception {
+        EasySQLEngine engine = engine();
+        Template t = Query.create("shard_agg")
+                .datasource("orders")
+                .from("orders")
+                .select(SelectClause.expr("status"),
+                        SelectClause.expr("COUNT(*)").as("cnt"),
+                        SelectClause.expr("SUM(amount)").as("total"),
+                        SelectClause.expr("AVG(amount)").as("avg_amount"),
+                        SelectClause.expr("MIN(amount)").as("min_amount"),
+                        SelectClause.expr("MAX(amount)").as("max_amount"),
+                        SelectClause.expr("COUNT(DISTINCT user_id)").as("users"))
+                .groupBy("status")
+                .having(leaf("COUNT(*)", ">", val("10")))
+                .orderBy(OrderByClause.by("total").desc())
+                .build();
+
+        SQLExecutor.QueryResult merged = engine.executeQuery(t, new HashMap<>());
+        SQLExecutor.QueryResult expected = onWhole(engine, t, new HashMap<>());
+        assertEquals(Arrays.asList("status", "cnt", "total", "avg_amount", "min_amount", "max_amount", "users"), merged.getColumnNames());
+        assertEquals(expected.getRowCount(), merged.getRowCount());
+        for (int r = 0; r < expected.getRowCount(); r++) {
+            List<Object> want = new ArrayList<>(expected.getRows().get(r).values());
+            List<Object> got = new ArrayList<>(merged.getRows().get(r).values());
+            for (int c = 0; c < want.size(); c++) {
+                if (want.get(c) instanceof Number) {
+                    assertEquals(((Number) want.get(c)).doubleValue(), ((Number) got.get(c)).doubleValue(), 0.5, "column " + c);
+                } else {
+                    assertEquals(want.get(c), got.get(c));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGlobalAggregateAndHiddenOrderKey() {
+        Template global = Query.create("shard_global")
+                .datasource("orders")
+                .from("orders")
+                .select(SelectClause.expr("COUNT(*)").as("cnt"), SelectClause.expr("AVG(amount)").as("avg_amount"))
+                .build();
+        SQLExecutor.QueryResult r = engine().executeQuery(global, new HashMap<>());
+        assertEquals(1, r.getRowCount());
+        assertEquals(200L, r.getRows().get(0).get("cnt"));
+
+        // ORDER BY 未选择的聚合 + LIMIT 在合并后应用
+        Template top = Query.create("shard_top_users")
+                .datasource("orders")
+                .from("orders")
+                .select(SelectClause.expr("user_id").as("uid"))
+                .groupBy("user_id")
+                .orderBy(OrderByClause.by("SUM(amount)").desc(), OrderByClause.by("uid").asc())
+                .limit(3)
+                .build();
+        SQLExecutor.QueryResult topUsers = engine().executeQuery(top, new HashMap<>());
+        assertEquals(3, topUsers.getRowCount());
+        assertEquals(Collections.singletonList("uid"), topUsers.getColumnNames());
+        assertEquals(1, topUsers.getRows().get(0).size());
+    }
+
+    @Test
+    public void testAggregateRewrite() {
+        Template t = Query.create("rewrite")
+                .from("orders")
+                .select(SelectClause.expr("status"), SelectClause.expr("AVG(amount)").as("a"),
+                        SelectClause.expr("COUNT(DISTINCT user_id)").as("u"))
+                .groupBy("status")
+                .build();
+        AggregatePlan plan = AggregatePlan.build(t);
+        List<String> exprs = new ArrayList<>();
+        for (Template.SelectItem s : plan.shardTemplate.select) exprs.add(s.expr);
+        assertEquals(Arrays.asList("status", "SUM(amount)", "COUNT(amount)", "user_id"), exprs);
+        assertEquals(Arrays.asList("status", "user_id"), plan.shardTemplate.groupBy);
+
+        Template bad = Query.create("bad").from("orders").select("SUM(a) / COUNT(*)").build();
+        assertThrows(IllegalArgumentException.class, () -> AggregatePlan.build(bad));
+    }
+}